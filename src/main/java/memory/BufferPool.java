@@ -0,0 +1,65 @@
+package memory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Free row and column buffers, grouped by length, handed back by operators whose results have
+ * been consumed and handed out again for the copies the next operators make. The pool never
+ * holds more than its capacity; buffers beyond it are left to the garbage collector.
+ *
+ * A buffer may only be given back once nothing else references it. Buffers handed out keep
+ * their previous contents and must be overwritten completely.
+ */
+public class BufferPool {
+
+    private final long capacityBytes;
+    private final Map<Integer, ArrayDeque<double[]>> free = new HashMap<>();
+    private long pooledBytes = 0;
+    private long reused = 0;
+    private long recycled = 0;
+
+    public BufferPool(long capacityBytes) {
+        if (capacityBytes < 0) throw new IllegalArgumentException("pool capacity cannot be negative");
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * A free buffer of the given length, or a new one if there is none.
+     */
+    public synchronized double[] take(int length) {
+        ArrayDeque<double[]> buffers = free.get(length);
+        if (buffers == null || buffers.isEmpty()) {
+            return new double[length];
+        }
+        pooledBytes -= (long) length * Double.BYTES;
+        reused++;
+        return buffers.pop();
+    }
+
+    /**
+     * Returns a buffer that is no longer referenced, if it fits in the pool.
+     */
+    public synchronized void give(double[] buffer) {
+        long bytes = (long) buffer.length * Double.BYTES;
+        if (buffer.length == 0 || pooledBytes + bytes > capacityBytes) return;
+        free.computeIfAbsent(buffer.length, k -> new ArrayDeque<>()).push(buffer);
+        pooledBytes += bytes;
+        recycled++;
+    }
+
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /** Buffers handed out from the pool rather than allocated. */
+    public synchronized long getReused() {
+        return reused;
+    }
+
+    /** Buffers given back and kept. */
+    public synchronized long getRecycled() {
+        return recycled;
+    }
+}
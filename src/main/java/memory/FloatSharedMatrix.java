@@ -0,0 +1,158 @@
+package memory;
+
+import scheduling.TiredExecutor;
+
+/**
+ * Single-precision counterpart of {@link SharedMatrix}, built from {@link FloatSharedVector}s.
+ */
+public class FloatSharedMatrix {
+
+    private volatile FloatSharedVector[] vectors = {}; // underlying vectors
+
+    public FloatSharedMatrix() {
+        this.vectors = new FloatSharedVector[0];
+    }
+
+    public FloatSharedMatrix(float[][] matrix) {
+        loadRowMajor(matrix);
+    }
+
+    public void loadRowMajor(float[][] matrix) {
+        validateRectangular(matrix);
+        FloatSharedVector[] newVectors = new FloatSharedVector[matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            newVectors[i] = new FloatSharedVector(matrix[i], VectorOrientation.ROW_MAJOR);
+        }
+        this.vectors = newVectors;
+    }
+
+    public void loadColumnMajor(float[][] matrix) {
+        loadColumnMajor(matrix, null, 1);
+    }
+
+    /**
+     * See {@link SharedMatrix#loadColumnMajor(double[][], TiredExecutor, int)}.
+     */
+    public void loadColumnMajor(float[][] matrix, TiredExecutor executor, int parts) {
+        validateRectangular(matrix);
+        if (matrix.length == 0) {
+            this.vectors = new FloatSharedVector[0];
+            return;
+        }
+        float[][] columns = new float[matrix[0].length][matrix.length];
+        LayoutConversion.transpose(matrix, columns, executor, parts);
+        FloatSharedVector[] newVectors = new FloatSharedVector[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            newVectors[j] = new FloatSharedVector(columns[j], VectorOrientation.COLUMN_MAJOR);
+        }
+        this.vectors = newVectors;
+    }
+
+    public float[][] readRowMajor() {
+        return readRowMajor(null, 1);
+    }
+
+    /**
+     * See {@link SharedMatrix#readRowMajor(TiredExecutor, int)}.
+     */
+    public float[][] readRowMajor(TiredExecutor executor, int parts) {
+        return readRows(executor, parts, true);
+    }
+
+    /**
+     * See {@link SharedMatrix#takeRowMajor(TiredExecutor, int)}.
+     */
+    public float[][] takeRowMajor(TiredExecutor executor, int parts) {
+        return readRows(executor, parts, false);
+    }
+
+    private float[][] readRows(TiredExecutor executor, int parts, boolean copy) {
+        FloatSharedVector[] vecs = this.vectors;
+        if (vecs.length == 0) {
+            return new float[0][0];
+        }
+        acquireAllVectorReadLocks(vecs);
+        try {
+            VectorOrientation ori = getOrientation();
+            float[][] arrays = new float[vecs.length][];
+            for (int k = 0; k < vecs.length; k++) {
+                if (vecs[k].getOrientation() != ori) {
+                    throw new IllegalStateException("Expected " + ori + " vectors in a " + ori + " matrix.");
+                }
+                if (vecs[k].length() != vecs[0].length()) {
+                    throw new IllegalArgumentException(ori == VectorOrientation.ROW_MAJOR
+                            ? "Inconsistent row lengths in matrix." : "Inconsistent column lengths in matrix.");
+                }
+                arrays[k] = vecs[k].array();
+            }
+            if (ori == VectorOrientation.ROW_MAJOR) {
+                if (!copy) return arrays;
+                float[][] result = new float[arrays.length][];
+                for (int i = 0; i < arrays.length; i++) {
+                    result[i] = arrays[i].clone();
+                }
+                return result;
+            } else { // ori == COLUMN_MAJOR
+                float[][] result = new float[arrays[0].length][arrays.length];
+                LayoutConversion.transpose(arrays, result, executor, parts);
+                return result;
+            }
+        } finally {
+            releaseAllVectorReadLocks(vecs);
+        }
+    }
+
+    public FloatSharedVector get(int index) {
+        if (index < 0 || index >= vectors.length) {
+            throw new IndexOutOfBoundsException("Index out of bounds: " + index);
+        }
+        return vectors[index];
+    }
+
+    public int length() {
+        return vectors.length;
+    }
+
+    public VectorOrientation getOrientation() {
+        if (vectors.length == 0) {
+           return VectorOrientation.ROW_MAJOR; // default orientation for empty matrix
+        }
+        return vectors[0].getOrientation();
+    }
+
+    private void acquireAllVectorReadLocks(FloatSharedVector[] vecs) {
+        for (FloatSharedVector vec : vecs) {
+            vec.readLock();
+        }
+    }
+
+    private void releaseAllVectorReadLocks(FloatSharedVector[] vecs) {
+        for (FloatSharedVector vec : vecs) {
+            vec.readUnlock();
+        }
+    }
+
+    private void acquireAllVectorWriteLocks(FloatSharedVector[] vecs) {
+        for (FloatSharedVector vec : vecs) {
+            vec.writeLock();
+        }
+    }
+
+    private void releaseAllVectorWriteLocks(FloatSharedVector[] vecs) {
+        for (FloatSharedVector vec : vecs) {
+            vec.writeUnlock();
+        }
+    }
+
+    private void validateRectangular(float[][] matrix) {
+        if (matrix == null) throw new IllegalArgumentException("matrix cannot be null");
+        if (matrix.length == 0) {
+            return;
+        }
+        for (int i = 0; i < matrix.length; i++) {
+            if (matrix[i] == null) throw new IllegalArgumentException("matrix row cannot be null");
+            if (matrix[i].length != matrix[0].length) throw new IllegalArgumentException("matrix must be rectangular");
+        }
+    }
+}
+
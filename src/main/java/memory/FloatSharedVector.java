@@ -0,0 +1,205 @@
+package memory;
+
+import scheduling.TraceRecorder;
+
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Single-precision counterpart of {@link SharedVector}, used when the engine runs in float32 mode.
+ * Values are stored and accumulated as floats, halving memory and bandwidth.
+ */
+public class FloatSharedVector {
+
+    private float[] vector;
+    private VectorOrientation orientation;
+    private ReadWriteLock lock = new java.util.concurrent.locks.ReentrantReadWriteLock();
+
+    public FloatSharedVector(float[] vector, VectorOrientation orientation) {
+        if (vector == null) throw new IllegalArgumentException("vector cannot be null");
+        if (orientation == null) throw new IllegalArgumentException("orientation cannot be null");
+
+        this.vector = vector;
+        this.orientation = orientation;
+    }
+
+    public float get(int index) {
+        readLock();
+        try {
+            return vector[index];
+        } finally {
+            readUnlock();
+        }
+    }
+
+    /**
+     * A copy of the elements (read-locked).
+     */
+    public float[] toArray() {
+        readLock();
+        try {
+            return vector.clone();
+        } finally {
+            readUnlock();
+        }
+    }
+
+    /**
+     * The backing array as an opaque locality key: the same object for as long as operations
+     * update this vector in place, a new one once an operation replaces its data.
+     */
+    public Object block() {
+        readLock();
+        try {
+            return vector;
+        } finally {
+            readUnlock();
+        }
+    }
+
+    /**
+     * The backing array, for bulk copies by a caller that already holds the read lock.
+     */
+    float[] array() {
+        return vector;
+    }
+
+    public int length() {
+        readLock();
+        try {
+            return vector.length;
+        } finally {
+            readUnlock();
+        }
+    }
+
+    public VectorOrientation getOrientation() {
+        readLock();
+        try {
+            return orientation;
+        } finally {
+            readUnlock();
+        }
+    }
+
+    public void writeLock() {
+        if (!lock.writeLock().tryLock()) {
+            long start = System.nanoTime();
+            lock.writeLock().lock();
+            TraceRecorder.span("write-lock wait", TraceRecorder.LOCK, start);
+        }
+    }
+
+    public void writeUnlock() {
+        lock.writeLock().unlock();
+    }
+
+    public void readLock() {
+        if (!lock.readLock().tryLock()) {
+            long start = System.nanoTime();
+            lock.readLock().lock();
+            TraceRecorder.span("read-lock wait", TraceRecorder.LOCK, start);
+        }
+    }
+
+    public void readUnlock() {
+        lock.readLock().unlock();
+    }
+
+    public void transpose() {
+        writeLock();
+        try {
+            if (orientation == VectorOrientation.ROW_MAJOR) {
+                orientation = VectorOrientation.COLUMN_MAJOR;
+            } else {
+                orientation = VectorOrientation.ROW_MAJOR;
+            }
+        } finally {
+            writeUnlock();
+        }
+    }
+
+    public void add(FloatSharedVector other) {
+        if (this.getOrientation() != other.getOrientation()) {
+            throw new IllegalArgumentException("Vectors must have the same orientation to add.");
+        }
+        writeLock();
+        other.readLock();
+        try {
+            if (this.length() != other.length()) {
+                throw new IllegalArgumentException("Vectors must be of the same length to add.");
+            }
+            for (int i = 0; i < this.length(); i++) {
+                this.vector[i] += other.vector[i];
+            }
+        } finally {
+            other.readUnlock();
+            writeUnlock();
+        }
+    }
+
+    public void negate() {
+        writeLock();
+        try {
+            for (int i = 0; i < this.length(); i++) {
+                this.vector[i] = -this.vector[i];
+            }
+        } finally {
+            writeUnlock();
+        }
+    }
+
+    public float dot(FloatSharedVector other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Other vector cannot be null.");
+        }
+        if (this.length() != other.length()) {
+            throw new IllegalArgumentException("Vectors must be of the same length to compute dot product.");
+        }
+        readLock();
+        other.readLock();
+        try {
+            if (this.orientation != VectorOrientation.ROW_MAJOR || other.orientation != VectorOrientation.COLUMN_MAJOR) {
+                throw new IllegalArgumentException("Dot product requires row · column ");
+            }
+            float result = 0.0f;
+            for (int i = 0; i < this.length(); i++) {
+                result += this.vector[i] * other.vector[i];
+            }
+            return result;
+        } finally {
+            other.readUnlock();
+            readUnlock();
+        }
+    }
+
+    public void vecMatMul(FloatSharedMatrix matrix) {
+        if (matrix == null) {
+            throw new IllegalArgumentException("Matrix cannot be null.");
+        }
+        readLock();
+        try {
+            if (this.orientation != VectorOrientation.ROW_MAJOR) {
+                throw new IllegalArgumentException("vecMatMul requires the vector to be ROW_MAJOR.");
+            }
+        } finally {
+            readUnlock();
+        }
+
+        if (matrix.getOrientation() != VectorOrientation.COLUMN_MAJOR) {
+            throw new IllegalArgumentException("vecMatMul requires matrix to be COLUMN_MAJOR.");
+        }
+
+        int matrixCols = matrix.length();
+        float[] result = new float[matrixCols];
+        writeLock();
+        try {
+            for (int j = 0; j < matrixCols; j++) {
+                FloatSharedVector colVector = matrix.get(j);
+                result[j] = this.dot(colVector);
+            }
+            this.vector = result;
+        } finally {
+            writeUnlock();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package memory;
+
+import scheduling.TiredExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row/column layout conversions shared by {@link SharedMatrix} and {@link FloatSharedMatrix}.
+ *
+ * A conversion is a transpose between arrays of arrays. Copying it element by element walks
+ * one side with a stride of a whole row, so every access misses the cache once the matrix
+ * outgrows it. Here it is copied in square tiles of {@link #BLOCK} elements, which keeps the
+ * tile's rows of both sides in cache, and large conversions are split into bands of tiles that
+ * run as one batch on the engine's executor.
+ */
+final class LayoutConversion {
+
+    /** Side of a tile: 64 doubles are eight cache lines. */
+    static final int BLOCK = 64;
+
+    /** Below this many elements a conversion runs on the calling thread. */
+    static final long PARALLEL_MIN_ELEMENTS = 1 << 16;
+
+    private LayoutConversion() {
+    }
+
+    /**
+     * Copies the transpose of {@code src} into {@code dst}; {@code dst} is {@code src}'s
+     * columns, already allocated.
+     */
+    static void transpose(double[][] src, double[][] dst, TiredExecutor executor, int parts) {
+        int rows = src.length;
+        forEachBand(dst.length, (long) rows * dst.length, executor, parts, (from, to) -> {
+            for (int j0 = from; j0 < to; j0 += BLOCK) {
+                int j1 = Math.min(j0 + BLOCK, to);
+                for (int i0 = 0; i0 < rows; i0 += BLOCK) {
+                    int i1 = Math.min(i0 + BLOCK, rows);
+                    for (int i = i0; i < i1; i++) {
+                        double[] row = src[i];
+                        for (int j = j0; j < j1; j++) {
+                            dst[j][i] = row[j];
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * float32 counterpart of {@link #transpose(double[][], double[][], TiredExecutor, int)}.
+     */
+    static void transpose(float[][] src, float[][] dst, TiredExecutor executor, int parts) {
+        int rows = src.length;
+        forEachBand(dst.length, (long) rows * dst.length, executor, parts, (from, to) -> {
+            for (int j0 = from; j0 < to; j0 += BLOCK) {
+                int j1 = Math.min(j0 + BLOCK, to);
+                for (int i0 = 0; i0 < rows; i0 += BLOCK) {
+                    int i1 = Math.min(i0 + BLOCK, rows);
+                    for (int i = i0; i < i1; i++) {
+                        float[] row = src[i];
+                        for (int j = j0; j < j1; j++) {
+                            dst[j][i] = row[j];
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private interface Band {
+        void copy(int from, int to);
+    }
+
+    /**
+     * Splits the destination rows [0, n) into at most {@code parts} tile-aligned bands and
+     * runs them as one batch, or inline when there is no executor or the copy is small.
+     * The batch is not attributed to the running operator's task statistics.
+     */
+    private static void forEachBand(int n, long elements, TiredExecutor executor, int parts, Band band) {
+        int bands = (n + BLOCK - 1) / BLOCK;
+        int tasks = Math.min(parts, bands);
+        if (executor == null || tasks <= 1 || elements < PARALLEL_MIN_ELEMENTS) {
+            band.copy(0, n);
+            return;
+        }
+        List<Runnable> batch = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            int from = (int) ((long) bands * t / tasks) * BLOCK;
+            int to = Math.min((int) ((long) bands * (t + 1) / tasks) * BLOCK, n);
+            batch.add(() -> band.copy(from, to));
+        }
+        executor.submitAll(batch, null);
+    }
+}
@@ -1,8 +1,12 @@
 package memory;
 
+import scheduling.TiredExecutor;
+
 public class SharedMatrix {
 
     private volatile SharedVector[] vectors = {}; // underlying vectors
+    private BufferPool pool; // null = every copy is a new allocation
+    private boolean ownsVectors = false; // the vectors' arrays were allocated by this matrix
 
     public SharedMatrix() {
     this.vectors = new SharedVector[0];
@@ -15,34 +19,88 @@ public class SharedMatrix {
     public void loadRowMajor(double[][] matrix) {
         validateRectangular(matrix);
         SharedVector[] newVectors = new SharedVector[matrix.length];
-        for (int i = 0; i < matrix.length || matrix.length == 0; i++) {
+        for (int i = 0; i < matrix.length; i++) {
             newVectors[i] = new SharedVector(matrix[i], VectorOrientation.ROW_MAJOR);
         }
-        this.vectors = newVectors;
+        replaceVectors(newVectors, false);
 
         
     }
 
     public void loadColumnMajor(double[][] matrix) {
+        loadColumnMajor(matrix, null, 1);
+    }
+
+    /**
+     * Loads the matrix as columns, copying large matrices in cache-sized tiles split into up
+     * to {@code parts} tasks on {@code executor} (may be null to copy on the calling thread).
+     */
+    public void loadColumnMajor(double[][] matrix, TiredExecutor executor, int parts) {
         // TODO: replace internal data with new column-major matrix
         validateRectangular(matrix);
         if (matrix.length == 0) {
-            this.vectors = new SharedVector[0];
+            replaceVectors(new SharedVector[0], false);
             return;
         }
-        SharedVector[] newVectors = new SharedVector[matrix[0].length];
-        for (int j = 0; j < matrix[0].length; j++) {
-            double[] column = new double[matrix.length];
-            for (int i = 0; i < matrix.length; i++) {
-                column[i] = matrix[i][j];
+        double[][] columns = allocate(matrix[0].length, matrix.length);
+        LayoutConversion.transpose(matrix, columns, executor, parts);
+        SharedVector[] newVectors = new SharedVector[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            newVectors[j] = new SharedVector(columns[j], VectorOrientation.COLUMN_MAJOR);
+        }
+        replaceVectors(newVectors, true);
+    }
+
+    /**
+     * Takes the buffers of column copies and row-major readouts from {@code pool}, and gives
+     * the column copies back once they are replaced.
+     */
+    public void setBufferPool(BufferPool pool) {
+        this.pool = pool;
+    }
+
+    private double[][] allocate(int count, int length) {
+        double[][] buffers = new double[count][];
+        for (int i = 0; i < count; i++) {
+            buffers[i] = pool != null ? pool.take(length) : new double[length];
+        }
+        return buffers;
+    }
+
+    private void replaceVectors(SharedVector[] newVectors, boolean owned) {
+        SharedVector[] old = this.vectors;
+        if (pool != null && ownsVectors) {
+            for (SharedVector v : old) {
+                pool.give(v.array());
             }
-            newVectors[j] = new SharedVector(column, VectorOrientation.COLUMN_MAJOR);
         }
         this.vectors = newVectors;
+        this.ownsVectors = owned;
     }
 
     public double[][] readRowMajor() {
+        return readRowMajor(null, 1);
+    }
+
+    /**
+     * Returns the contents as rows; a column-major matrix is converted like in
+     * {@link #loadColumnMajor(double[][], TiredExecutor, int)}.
+     */
+    public double[][] readRowMajor(TiredExecutor executor, int parts) {
         // TODO: return matrix contents as a row-major double[][]
+        return readRows(executor, parts, true);
+    }
+
+    /**
+     * Like {@link #readRowMajor(TiredExecutor, int)}, but a row-major matrix hands out its
+     * vectors' arrays instead of copies, so the rows stay where the tasks wrote them. The
+     * caller takes the rows over: this matrix must be reloaded before it is used again.
+     */
+    public double[][] takeRowMajor(TiredExecutor executor, int parts) {
+        return readRows(executor, parts, false);
+    }
+
+    private double[][] readRows(TiredExecutor executor, int parts, boolean copy) {
         SharedVector[] vecs = this.vectors;
         if(vecs.length == 0) {
             return new double[0][0];
@@ -50,43 +108,37 @@ public class SharedMatrix {
         acquireAllVectorReadLocks(vecs);
         try{
         VectorOrientation ori = getOrientation();
+        double[][] arrays = new double[vecs.length][];
+        for (int k = 0; k < vecs.length; k++) {
+            if (vecs[k].getOrientation() != ori) {
+                throw new IllegalStateException("Expected " + ori + " vectors in a " + ori + " matrix.");
+            }
+            if (vecs[k].length() != vecs[0].length()) {
+                throw new IllegalArgumentException(ori == VectorOrientation.ROW_MAJOR
+                        ? "Inconsistent row lengths in matrix." : "Inconsistent column lengths in matrix.");
+            }
+            arrays[k] = vecs[k].array();
+        }
         if( ori == VectorOrientation.ROW_MAJOR) {
-            double[][] result = new double[vecs.length][vecs[0].length()];
-            for (int i = 0; i < vecs.length; i++) {
-                if (vecs[i].getOrientation() != VectorOrientation.ROW_MAJOR) {
-                        throw new IllegalStateException("Expected ROW_MAJOR vectors in a ROW_MAJOR matrix.");
-                    }
-                    if (vecs[i].length() != vecs[0].length()) {
-                        throw new IllegalArgumentException("Inconsistent row lengths in matrix.");
-                    }
-                for (int j = 0; j < vecs[0].length(); j++) {
-                    result[i][j] = vecs[i].get(j);
-                }
+            if (!copy) {
+                ownsVectors = false; // the arrays are the caller's now, not the pool's
+                return arrays;
+            }
+            double[][] result = allocate(arrays.length, arrays[0].length);
+            for (int i = 0; i < arrays.length; i++) {
+                System.arraycopy(arrays[i], 0, result[i], 0, arrays[i].length);
             }
             return result;
 
            } else  {// ori == COLUMN_MAJOR
-            double[][] result = new double[vecs[0].length()][vecs.length];
-            for (int j = 0; j < vecs.length; j++) {
-                 if (vecs[j].getOrientation() != VectorOrientation.COLUMN_MAJOR) {
-                        throw new IllegalStateException("Expected COLUMN_MAJOR vectors in a COLUMN_MAJOR matrix.");
-                    }
-                    if (vecs[j].length() != vecs[0].length()) {
-                        throw new IllegalArgumentException("Inconsistent column lengths in matrix.");
-                    }
-                for (int i = 0; i < vecs[0].length(); i++) {
-                    result[i][j] = vecs[j].get(i);
-                }
-            }
+            double[][] result = allocate(arrays[0].length, arrays.length);
+            LayoutConversion.transpose(arrays, result, executor, parts);
             return result;
         }
     }
         finally {
             releaseAllVectorReadLocks(vecs);
-       }     
-       
-        
-    
+       }
 }
     
 
@@ -1,5 +1,7 @@
 package memory;
 
+import scheduling.TraceRecorder;
+
 import java.util.concurrent.locks.ReadWriteLock;
 
 public class SharedVector {
@@ -28,6 +30,38 @@ public class SharedVector {
         }
     }
 
+    /**
+     * A copy of the elements (read-locked).
+     */
+    public double[] toArray() {
+        readLock();
+        try {
+            return vector.clone();
+        } finally {
+            readUnlock();
+        }
+    }
+
+    /**
+     * The backing array as an opaque locality key: the same object for as long as operations
+     * update this vector in place, a new one once an operation replaces its data.
+     */
+    public Object block() {
+        readLock();
+        try {
+            return vector;
+        } finally {
+            readUnlock();
+        }
+    }
+
+    /**
+     * The backing array, for bulk copies by a caller that already holds the read lock.
+     */
+    double[] array() {
+        return vector;
+    }
+
     public int length() {
         readLock();
         try{
@@ -50,8 +84,12 @@ public class SharedVector {
     }
 
     public void writeLock() {
-        
-        lock.writeLock().lock();
+        if (!lock.writeLock().tryLock()) {
+            // contended: the wait shows up in the trace, if one is being recorded
+            long start = System.nanoTime();
+            lock.writeLock().lock();
+            TraceRecorder.span("write-lock wait", TraceRecorder.LOCK, start);
+        }
     }
 
     public void writeUnlock() {
@@ -60,8 +98,12 @@ public class SharedVector {
     }
 
     public void readLock() {
-        
-        lock.readLock().lock(); 
+        if (!lock.readLock().tryLock()) {
+            // contended: the wait shows up in the trace, if one is being recorded
+            long start = System.nanoTime();
+            lock.readLock().lock();
+            TraceRecorder.span("read-lock wait", TraceRecorder.LOCK, start);
+        }
     }
 
     public void readUnlock() {
@@ -0,0 +1,289 @@
+package memory;
+
+import java.util.Arrays;
+
+/**
+ * An immutable compressed sparse matrix.
+ * A ROW_MAJOR matrix is stored in CSR form (pointers index rows, indices hold column numbers),
+ * a COLUMN_MAJOR matrix in CSC form (pointers index columns, indices hold row numbers).
+ * Within each row (or column) the indices are strictly increasing. The entries that are not
+ * stored are 0.0, or -0.0 for a negated matrix, so that results match the dense kernels exactly.
+ */
+public class SparseMatrix {
+
+    /**
+     * Matrices with at most this fraction of non-zero entries are stored sparse.
+     */
+    public static final double DENSITY_THRESHOLD = 0.1;
+
+    private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+
+    private final int rows;
+    private final int cols;
+    private final VectorOrientation orientation;
+    private final int[] pointers; // length = number of rows (CSR) or columns (CSC) + 1
+    private final int[] indices;
+    private final double[] values;
+    private final boolean negativeZeros; // the entries that are not stored are -0.0
+
+    public SparseMatrix(int rows, int cols, VectorOrientation orientation, int[] pointers, int[] indices, double[] values) {
+        this(rows, cols, orientation, pointers, indices, values, false);
+    }
+
+    public SparseMatrix(int rows, int cols, VectorOrientation orientation, int[] pointers, int[] indices,
+                        double[] values, boolean negativeZeros) {
+        if (rows < 0 || cols < 0) throw new IllegalArgumentException("matrix dimensions cannot be negative");
+        if (orientation == null) throw new IllegalArgumentException("orientation cannot be null");
+        int major = orientation == VectorOrientation.ROW_MAJOR ? rows : cols;
+        if (pointers == null || pointers.length != major + 1) {
+            throw new IllegalArgumentException("pointers must have " + (major + 1) + " entries");
+        }
+        if (indices == null || values == null || indices.length != values.length || pointers[major] != values.length) {
+            throw new IllegalArgumentException("indices and values must both hold every non-zero entry");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.orientation = orientation;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+        this.negativeZeros = negativeZeros;
+    }
+
+    /**
+     * Compresses a dense row-major matrix, dropping exact zeros.
+     */
+    public static SparseMatrix fromDense(double[][] matrix, VectorOrientation orientation) {
+        if (matrix == null) throw new IllegalArgumentException("matrix cannot be null");
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        int nnz = countNonZeros(matrix);
+        boolean csr = orientation == VectorOrientation.ROW_MAJOR;
+        int major = csr ? rows : cols;
+        int minor = csr ? cols : rows;
+        int[] pointers = new int[major + 1];
+        int[] indices = new int[nnz];
+        double[] values = new double[nnz];
+        int p = 0;
+        for (int a = 0; a < major; a++) {
+            for (int b = 0; b < minor; b++) {
+                double v = csr ? matrix[a][b] : matrix[b][a];
+                if (v != 0.0) {
+                    indices[p] = b;
+                    values[p] = v;
+                    p++;
+                }
+            }
+            pointers[a + 1] = p;
+        }
+        return new SparseMatrix(rows, cols, orientation, pointers, indices, values);
+    }
+
+    /**
+     * Builds a CSR matrix from coordinate triplets; duplicate coordinates are summed and
+     * entries that end up zero are dropped.
+     */
+    public static SparseMatrix fromTriplets(int rows, int cols, int[] r, int[] c, double[] v) {
+        if (r.length != c.length || r.length != v.length) {
+            throw new IllegalArgumentException("triplet arrays must have the same length");
+        }
+        Integer[] order = new Integer[r.length];
+        for (int i = 0; i < order.length; i++) {
+            if (r[i] < 0 || r[i] >= rows || c[i] < 0 || c[i] >= cols) {
+                throw new IllegalArgumentException("entry (" + r[i] + ", " + c[i] + ") is outside a "
+                        + rows + "x" + cols + " matrix");
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> r[x] != r[y] ? Integer.compare(r[x], r[y]) : Integer.compare(c[x], c[y]));
+        int[] pointers = new int[rows + 1];
+        int[] indices = new int[order.length];
+        double[] values = new double[order.length];
+        int p = 0;
+        for (int k = 0; k < order.length; ) {
+            int row = r[order[k]];
+            int col = c[order[k]];
+            double sum = 0.0;
+            while (k < order.length && r[order[k]] == row && c[order[k]] == col) {
+                sum += v[order[k]];
+                k++;
+            }
+            if (sum != 0.0) {
+                indices[p] = col;
+                values[p] = sum;
+                pointers[row + 1]++;
+                p++;
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            pointers[i + 1] += pointers[i];
+        }
+        return new SparseMatrix(rows, cols, VectorOrientation.ROW_MAJOR, pointers,
+                Arrays.copyOf(indices, p), Arrays.copyOf(values, p));
+    }
+
+    public static int countNonZeros(double[][] matrix) {
+        int nnz = 0;
+        for (double[] row : matrix) {
+            for (double v : row) {
+                if (v != 0.0) nnz++;
+            }
+        }
+        return nnz;
+    }
+
+    /**
+     * Returns true if compressing the matrix loses nothing the dense kernels would see: every
+     * value is finite (0 * Inf is NaN, but a skipped zero contributes nothing) and no zero is
+     * -0.0 (the entries that are not stored read back as 0.0).
+     */
+    public static boolean isCompressible(double[][] matrix) {
+        for (double[] row : matrix) {
+            for (double v : row) {
+                if (!Double.isFinite(v) || Double.doubleToRawLongBits(v) == NEGATIVE_ZERO_BITS) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if any stored value is NaN or infinite.
+     */
+    public boolean hasNonFiniteValues() {
+        for (double v : values) {
+            if (!Double.isFinite(v)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if a matrix with the given shape and non-zero count should be stored sparse.
+     */
+    public static boolean isSparseEnough(int rows, int cols, long nonZeros) {
+        long size = (long) rows * cols;
+        return size > 0 && nonZeros <= DENSITY_THRESHOLD * size;
+    }
+
+    public double[][] toDense() {
+        double[][] result = new double[rows][cols];
+        if (negativeZeros) {
+            for (double[] row : result) Arrays.fill(row, -0.0);
+        }
+        boolean csr = orientation == VectorOrientation.ROW_MAJOR;
+        for (int a = 0; a < pointers.length - 1; a++) {
+            for (int p = pointers[a]; p < pointers[a + 1]; p++) {
+                if (csr) {
+                    result[a][indices[p]] = values[p];
+                } else {
+                    result[indices[p]][a] = values[p];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the transpose. This is free: the CSR arrays of A are exactly the CSC arrays of A^T.
+     */
+    public SparseMatrix transpose() {
+        VectorOrientation flipped = orientation == VectorOrientation.ROW_MAJOR
+                ? VectorOrientation.COLUMN_MAJOR : VectorOrientation.ROW_MAJOR;
+        return new SparseMatrix(cols, rows, flipped, pointers, indices, values, negativeZeros);
+    }
+
+    /**
+     * Returns a matrix with the same sparsity structure and the given values, whose entries
+     * that are not stored are -0.0 if {@code negativeZeros} is set.
+     */
+    public SparseMatrix withValues(double[] newValues, boolean negativeZeros) {
+        if (newValues == null || newValues.length != values.length) {
+            throw new IllegalArgumentException("values must hold exactly " + values.length + " entries");
+        }
+        return new SparseMatrix(rows, cols, orientation, pointers, indices, newValues, negativeZeros);
+    }
+
+    public SparseMatrix toCsr() {
+        return orientation == VectorOrientation.ROW_MAJOR ? this : convert();
+    }
+
+    public SparseMatrix toCsc() {
+        return orientation == VectorOrientation.COLUMN_MAJOR ? this : convert();
+    }
+
+    /**
+     * Switches between CSR and CSC with a counting sort over the minor index.
+     */
+    private SparseMatrix convert() {
+        boolean csr = orientation == VectorOrientation.ROW_MAJOR;
+        int major = csr ? rows : cols;
+        int minor = csr ? cols : rows;
+        int[] newPointers = new int[minor + 1];
+        for (int p = 0; p < indices.length; p++) {
+            newPointers[indices[p] + 1]++;
+        }
+        for (int b = 0; b < minor; b++) {
+            newPointers[b + 1] += newPointers[b];
+        }
+        int[] next = Arrays.copyOf(newPointers, minor);
+        int[] newIndices = new int[indices.length];
+        double[] newValues = new double[values.length];
+        for (int a = 0; a < major; a++) {
+            for (int p = pointers[a]; p < pointers[a + 1]; p++) {
+                int dest = next[indices[p]]++;
+                newIndices[dest] = a;
+                newValues[dest] = values[p];
+            }
+        }
+        return new SparseMatrix(rows, cols, csr ? VectorOrientation.COLUMN_MAJOR : VectorOrientation.ROW_MAJOR,
+                newPointers, newIndices, newValues, negativeZeros);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public VectorOrientation getOrientation() {
+        return orientation;
+    }
+
+    /** True if the entries that are not stored are -0.0 rather than 0.0. */
+    public boolean hasNegativeZeros() {
+        return negativeZeros;
+    }
+
+    /** The value of the entries that are not stored. */
+    public double implicitZero() {
+        return negativeZeros ? -0.0 : 0.0;
+    }
+
+    public int nonZeros() {
+        return values.length;
+    }
+
+    public double density() {
+        long size = (long) rows * cols;
+        return size == 0 ? 0.0 : (double) values.length / size;
+    }
+
+    /** Start of the entries of row (CSR) or column (CSC) {@code a}. */
+    public int start(int a) {
+        return pointers[a];
+    }
+
+    /** End (exclusive) of the entries of row (CSR) or column (CSC) {@code a}. */
+    public int end(int a) {
+        return pointers[a + 1];
+    }
+
+    public int index(int p) {
+        return indices[p];
+    }
+
+    public double value(int p) {
+        return values[p];
+    }
+}
@@ -0,0 +1,163 @@
+package memory;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A bounded, least-recently-used cache of tiles read from {@link TiledMatrix} files.
+ * Tiles are immutable once cached; callers that need to modify a tile must copy it first.
+ * Prefetch requests are served by a single background thread so that disk reads overlap compute;
+ * {@link #invalidate} cancels and drains a matrix's pending prefetches before its file goes away.
+ */
+public class TileCache {
+
+    private final long budgetBytes;
+    private long usedBytes = 0;
+    private final LinkedHashMap<TileKey, double[]> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "tile-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<TiledMatrix, List<Future<?>>> pending = new HashMap<>();
+
+    private record TileKey(TiledMatrix matrix, int ti, int tj) {}
+
+    public TileCache(long budgetBytes) {
+        if (budgetBytes <= 0) throw new IllegalArgumentException("cache budget must be positive");
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Returns the requested tile, reading it from disk on a miss.
+     */
+    public double[] get(TiledMatrix matrix, int ti, int tj) {
+        TileKey key = new TileKey(matrix, ti, tj);
+        synchronized (this) {
+            double[] tile = tiles.get(key);
+            if (tile != null) return tile;
+        }
+        double[] tile = matrix.readTile(ti, tj);
+        put(key, tile, matrix.tileBytes());
+        return tile;
+    }
+
+    /**
+     * Asynchronously loads a tile so that a later {@link #get} is likely to hit.
+     */
+    public void prefetch(TiledMatrix matrix, int ti, int tj) {
+        if (ti >= matrix.tileRows() || tj >= matrix.tileCols()) return;
+        TileKey key = new TileKey(matrix, ti, tj);
+        synchronized (this) {
+            if (tiles.containsKey(key)) return;
+            try {
+                Future<?> f = prefetcher.submit(() -> {
+                    synchronized (this) {
+                        if (tiles.containsKey(key)) return;
+                    }
+                    if (!matrix.isOpen()) return;
+                    double[] tile;
+                    try {
+                        tile = matrix.readTile(ti, tj);
+                    } catch (UncheckedIOException e) {
+                        return; // prefetching is only a hint; a later get() reports real failures
+                    }
+                    put(key, tile, matrix.tileBytes());
+                });
+                List<Future<?>> futures = pending.computeIfAbsent(matrix, m -> new ArrayList<>());
+                futures.removeIf(Future::isDone);
+                futures.add(f);
+            } catch (RejectedExecutionException e) {
+                // cache is closing; prefetching is only a hint
+            }
+        }
+    }
+
+    /**
+     * Drops every cached tile of the given matrix, e.g. before its file is deleted. Queued
+     * prefetches of the matrix are cancelled and a running one is waited for, so none of them
+     * reads the file or refills the cache afterwards.
+     */
+    public void invalidate(TiledMatrix matrix) {
+        List<Future<?>> futures;
+        synchronized (this) {
+            futures = pending.remove(matrix);
+        }
+        if (futures != null) {
+            boolean running = false;
+            for (Future<?> f : futures) {
+                if (!f.isDone()) {
+                    f.cancel(false);
+                    running = true;
+                }
+            }
+            if (running) drainPrefetcher();
+        }
+        synchronized (this) {
+            Iterator<Map.Entry<TileKey, double[]>> it = tiles.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<TileKey, double[]> e = it.next();
+                if (e.getKey().matrix() == matrix) {
+                    usedBytes -= matrix.tileBytes();
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until the prefetch thread has finished everything queued so far; it runs tasks in
+     * submission order, so an empty task completes only after them.
+     */
+    private void drainPrefetcher() {
+        Future<?> barrier;
+        try {
+            barrier = prefetcher.submit(() -> { });
+        } catch (RejectedExecutionException e) {
+            return; // cache is closing and the thread has been stopped
+        }
+        try {
+            barrier.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tile prefetcher failed", e);
+        }
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public void close() {
+        prefetcher.shutdownNow();
+        synchronized (this) {
+            tiles.clear();
+            pending.clear();
+            usedBytes = 0;
+        }
+    }
+
+    private synchronized void put(TileKey key, double[] tile, long bytes) {
+        if (tiles.putIfAbsent(key, tile) != null) return;
+        usedBytes += bytes;
+        Iterator<Map.Entry<TileKey, double[]>> it = tiles.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<TileKey, double[]> eldest = it.next();
+            if (eldest.getKey().equals(key)) continue; // never evict the tile just loaded
+            usedBytes -= eldest.getKey().matrix().tileBytes();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package memory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A matrix stored on disk as a grid of square tiles, accessed through memory-mapped regions.
+ * Every tile occupies tileSize * tileSize doubles in row-major order; tiles on the bottom and
+ * right edges are padded with zeros so that kernels can always work on full tiles.
+ */
+public class TiledMatrix {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int rows;
+    private final int cols;
+    private final int tileSize;
+    private final int tileRows;
+    private final int tileCols;
+
+    private TiledMatrix(Path file, FileChannel channel, int rows, int cols, int tileSize) {
+        this.file = file;
+        this.channel = channel;
+        this.rows = rows;
+        this.cols = cols;
+        this.tileSize = tileSize;
+        this.tileRows = (rows + tileSize - 1) / tileSize;
+        this.tileCols = (cols + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * Creates a zero-filled tiled matrix backed by a new temporary file in the given directory.
+     */
+    public static TiledMatrix create(Path dir, int rows, int cols, int tileSize) {
+        if (rows < 0 || cols < 0) throw new IllegalArgumentException("matrix dimensions cannot be negative");
+        if (tileSize <= 0) throw new IllegalArgumentException("tile size must be positive");
+        try {
+            Path file = Files.createTempFile(dir, "tiles-", ".bin");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            TiledMatrix m = new TiledMatrix(file, channel, rows, cols, tileSize);
+            long size = (long) m.tileRows * m.tileCols * m.tileBytes();
+            if (size > 0) {
+                // extend the file so every tile region can be mapped
+                channel.write(java.nio.ByteBuffer.allocate(1), size - 1);
+            }
+            return m;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create tile file in " + dir, e);
+        }
+    }
+
+    /**
+     * Spills an in-memory row-major matrix to a new tiled matrix.
+     */
+    public static TiledMatrix fromArray(double[][] matrix, Path dir, int tileSize) {
+        if (matrix == null) throw new IllegalArgumentException("matrix cannot be null");
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        TiledMatrix m = create(dir, rows, cols, tileSize);
+        for (int ti = 0; ti < m.tileRows; ti++) {
+            for (int tj = 0; tj < m.tileCols; tj++) {
+                double[] tile = new double[tileSize * tileSize];
+                int h = m.tileHeight(ti);
+                int w = m.tileWidth(tj);
+                for (int i = 0; i < h; i++) {
+                    double[] row = matrix[ti * tileSize + i];
+                    if (row.length != cols) throw new IllegalArgumentException("matrix must be rectangular");
+                    System.arraycopy(row, tj * tileSize, tile, i * tileSize, w);
+                }
+                m.writeTile(ti, tj, tile);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Reads the whole matrix back into a row-major array.
+     */
+    public double[][] toArray() {
+        double[][] result = new double[rows][cols];
+        for (int ti = 0; ti < tileRows; ti++) {
+            for (int tj = 0; tj < tileCols; tj++) {
+                double[] tile = readTile(ti, tj);
+                int h = tileHeight(ti);
+                int w = tileWidth(tj);
+                for (int i = 0; i < h; i++) {
+                    System.arraycopy(tile, i * tileSize, result[ti * tileSize + i], tj * tileSize, w);
+                }
+            }
+        }
+        return result;
+    }
+
+    public double[] readTile(int ti, int tj) {
+        double[] tile = new double[tileSize * tileSize];
+        map(ti, tj, FileChannel.MapMode.READ_ONLY).get(tile);
+        return tile;
+    }
+
+    public void writeTile(int ti, int tj, double[] tile) {
+        if (tile == null || tile.length != tileSize * tileSize) {
+            throw new IllegalArgumentException("tile must hold exactly " + tileSize * tileSize + " values");
+        }
+        map(ti, tj, FileChannel.MapMode.READ_WRITE).put(tile);
+    }
+
+    private DoubleBuffer map(int ti, int tj, FileChannel.MapMode mode) {
+        if (ti < 0 || ti >= tileRows || tj < 0 || tj >= tileCols) {
+            throw new IndexOutOfBoundsException("Tile out of bounds: (" + ti + ", " + tj + ")");
+        }
+        long offset = ((long) ti * tileCols + tj) * tileBytes();
+        try {
+            MappedByteBuffer region = channel.map(mode, offset, tileBytes());
+            return region.asDoubleBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map tile (" + ti + ", " + tj + ") of " + file, e);
+        }
+    }
+
+    /**
+     * Closes the backing channel and removes the tile file.
+     */
+    public void delete() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete tile file " + file, e);
+        }
+    }
+
+    /** False once {@link #delete()} has closed the backing file. */
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    public int tileRows() {
+        return tileRows;
+    }
+
+    public int tileCols() {
+        return tileCols;
+    }
+
+    /** Number of real (non-padding) rows in the given tile row. */
+    public int tileHeight(int ti) {
+        return Math.min(tileSize, rows - ti * tileSize);
+    }
+
+    /** Number of real (non-padding) columns in the given tile column. */
+    public int tileWidth(int tj) {
+        return Math.min(tileSize, cols - tj * tileSize);
+    }
+
+    public long tileBytes() {
+        return (long) tileSize * tileSize * Double.BYTES;
+    }
+}
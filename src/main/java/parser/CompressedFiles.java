@@ -0,0 +1,180 @@
+package parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens input and output files through large buffers, compressed with gzip where needed.
+ *
+ * An input is read as gzip if it starts with the gzip magic bytes, whatever its name. It is
+ * decompressed on a separate thread up to {@link #READ_AHEAD_BLOCKS} blocks ahead of the
+ * parser, so inflating and parsing overlap. An output is compressed if its name ends in
+ * ".gz", at the fastest level: the JSON text of a result comes out about a quarter larger than
+ * at the default level, in a quarter of the time.
+ */
+final class CompressedFiles {
+
+    /** Size of the file buffers and of the blocks decompressed ahead. */
+    static final int BUFFER_BYTES = 1 << 20;
+    static final int READ_AHEAD_BLOCKS = 4;
+
+    private static final int GZIP_MAGIC = 0x8b1f; // GZIPInputStream.GZIP_MAGIC, little-endian
+
+    private CompressedFiles() {}
+
+    static boolean isGzip(String path) throws IOException {
+        try (InputStream in = new FileInputStream(path)) {
+            int b0 = in.read();
+            int b1 = in.read();
+            return b0 >= 0 && b1 >= 0 && (b0 | b1 << 8) == GZIP_MAGIC;
+        }
+    }
+
+    static InputStream openInput(String path) throws IOException {
+        if (isGzip(path)) {
+            return new ReadAheadInputStream(new GZIPInputStream(new FileInputStream(path), BUFFER_BYTES));
+        }
+        return new BufferedInputStream(new FileInputStream(path), BUFFER_BYTES);
+    }
+
+    static OutputStream openOutput(String path) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(path), BUFFER_BYTES);
+        if (path.endsWith(".gz")) {
+            return new GZIPOutputStream(out, BUFFER_BYTES) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+        return out;
+    }
+
+    /**
+     * Reads a whole input, decompressed, into one array.
+     *
+     * @return null if it is longer than {@code limit} bytes
+     */
+    static byte[] readAll(String path, int limit) throws IOException {
+        try (InputStream in = openInput(path)) {
+            byte[] data = new byte[BUFFER_BYTES];
+            int size = 0;
+            while (true) {
+                if (size == data.length) {
+                    if (size == limit) return in.read() < 0 ? data : null;
+                    data = Arrays.copyOf(data, (int) Math.min(limit, 2L * size));
+                }
+                int n = in.read(data, size, data.length - size);
+                if (n < 0) return Arrays.copyOf(data, size);
+                size += n;
+            }
+        }
+    }
+
+    /**
+     * Reads its source on a daemon thread into a bounded queue of blocks. A failure of the
+     * source is rethrown to the reader once the blocks before it have been consumed.
+     */
+    static final class ReadAheadInputStream extends InputStream {
+
+        private static final byte[] END = new byte[0];
+
+        private final InputStream source;
+        private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(READ_AHEAD_BLOCKS);
+        private final Thread reader;
+        private volatile IOException failure;
+        private byte[] block;
+        private int offset;
+
+        ReadAheadInputStream(InputStream source) {
+            this.source = source;
+            this.reader = new Thread(this::fill, "read-ahead");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void fill() {
+            try {
+                while (true) {
+                    byte[] buf = new byte[BUFFER_BYTES];
+                    int size = 0;
+                    int n;
+                    while (size < buf.length && (n = source.read(buf, size, buf.length - size)) > 0) {
+                        size += n;
+                    }
+                    if (size > 0) blocks.put(size == buf.length ? buf : Arrays.copyOf(buf, size));
+                    if (size < buf.length) break;
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                return; // closed
+            }
+            try {
+                blocks.put(END);
+            } catch (InterruptedException e) {
+                // closed
+            }
+        }
+
+        /**
+         * The current block, taking the next one once it is consumed; null at the end.
+         */
+        private byte[] current() throws IOException {
+            if (block == END) return null;
+            if (block == null || offset == block.length) {
+                try {
+                    block = blocks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading ahead");
+                }
+                offset = 0;
+                if (block == END) {
+                    if (failure != null) throw failure;
+                    return null;
+                }
+            }
+            return block;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = current();
+            return b == null ? -1 : b[offset++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] dst, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            byte[] b = current();
+            if (b == null) return -1;
+            int n = Math.min(len, b.length - offset);
+            System.arraycopy(b, offset, dst, off, n);
+            offset += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.interrupt();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            source.close();
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package parser;
 
+import memory.SparseMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ComputationNode {
 
     private ComputationNodeType nodeType;
     private List<ComputationNode> children = null;
     private double[][] matrix = null; // only used for MATRIX nodes
+    private float[][] floatMatrix = null; // only used for single-precision MATRIX nodes
+    private SparseMatrix sparseMatrix = null; // only used for sparse MATRIX nodes
+    private int exponent = 0; // only used for POWER nodes
+    private AtomicInteger holders = null; // nodes holding this node's data, if it is shared
 
     public ComputationNode(String operatorStr, List<ComputationNode> children) throws IllegalArgumentException {
         this.nodeType = mapOperator(operatorStr);
@@ -23,6 +32,8 @@ public class ComputationNode {
                 return ComputationNodeType.NEGATE;
             case "T":
                 return ComputationNodeType.TRANSPOSE;
+            case "^":
+                return ComputationNodeType.POWER;
             default:
                 throw new IllegalArgumentException("Unknown operator: " + operatorStr);
         }
@@ -33,11 +44,64 @@ public class ComputationNode {
         this.children = children;
     }
 
+    /**
+     * Creates a POWER node raising its single operand to {@code exponent}.
+     */
+    public ComputationNode(List<ComputationNode> children, int exponent) {
+        if (exponent < 1) throw new IllegalArgumentException("exponent must be positive");
+        this.nodeType = ComputationNodeType.POWER;
+        this.children = children;
+        this.exponent = exponent;
+    }
+
     public ComputationNode(double[][] matrix) {
         this.nodeType = ComputationNodeType.MATRIX;
         this.matrix = matrix;
     }
 
+    public ComputationNode(float[][] matrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.floatMatrix = matrix;
+    }
+
+    public ComputationNode(SparseMatrix matrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.sparseMatrix = matrix;
+    }
+
+    /**
+     * A new MATRIX node holding the same data as this one, e.g. for another reference to a
+     * named matrix. Neither node's data is copied until an operator would overwrite it in place;
+     * see {@link #getMatrixForUpdate()}.
+     */
+    public ComputationNode share() {
+        if (nodeType != ComputationNodeType.MATRIX) throw new IllegalStateException("Only matrices can be shared.");
+        ComputationNode copy = new ComputationNode(matrix);
+        copy.floatMatrix = floatMatrix;
+        copy.sparseMatrix = sparseMatrix;
+        if (holders == null) holders = new AtomicInteger(1);
+        holders.incrementAndGet();
+        copy.holders = holders;
+        return copy;
+    }
+
+    /**
+     * Returns true if other nodes still hold this node's data.
+     */
+    public boolean isShared() {
+        return holders != null && holders.get() > 1;
+    }
+
+    /**
+     * Stops holding shared data; the last holder owns it again.
+     */
+    private void detach() {
+        if (holders != null) {
+            holders.decrementAndGet();
+            holders = null;
+        }
+    }
+
     public ComputationNodeType getNodeType() {
         return nodeType;
     }
@@ -46,6 +110,13 @@ public class ComputationNode {
         return children;
     }
 
+    /**
+     * The exponent of a POWER node.
+     */
+    public int getExponent() {
+        return exponent;
+    }
+
     /**
      * Recursively finds the first resolvable node in the tree.
      * A resolvable node is defined as a node that is not of type MATRIX,
@@ -71,31 +142,241 @@ public class ComputationNode {
      * are nested in a left-associative manner.
      * For example, A + B + C becomes (A + B) + C.
      * Effectively, this converts n-ary operations (n > 2) into binary operations.
+     * At every product, a left-nested chain such as (A * A) * A is first flattened into one
+     * list of factors, and runs of identical factors are collapsed into powers, so
+     * A * A * A * B becomes (A^3) * B, and A * A * A becomes A^3.
      */
     public void associativeNesting() {
+        if (children == null) return;
+        if (nodeType == ComputationNodeType.MULTIPLY) {
+            flattenLeftProducts();
+            collapsePowers();
+        }
+        for (ComputationNode child : children) {
+            child.associativeNesting();
+        }
+        nest();
+    }
+
+    /**
+     * Splices the factors of a product's leftmost operand into its own while that operand is
+     * a product too: (A * B) * C is the left-associative A * B * C, so this keeps the order
+     * of evaluation.
+     */
+    private void flattenLeftProducts() {
+        if (children.isEmpty() || children.get(0).nodeType != ComputationNodeType.MULTIPLY) return;
+        List<ComputationNode> factors = new ArrayList<>(children);
+        while (!factors.isEmpty() && factors.get(0).nodeType == ComputationNodeType.MULTIPLY
+                && factors.get(0).children != null) {
+            ComputationNode left = factors.remove(0);
+            factors.addAll(0, left.children);
+        }
+        children = factors;
+    }
+
+    private void nest() {
         if (children != null && children.size() > 2) {
             ComputationNode lastChild = children.remove(children.size() - 1);
             ComputationNode newNode = new ComputationNode(nodeType, children);
             children = List.of(newNode, lastChild);
-            newNode.associativeNesting();
+            newNode.nest();
+        }
+    }
+
+    private void collapsePowers() {
+        if (children == null || children.size() < 2) return;
+        List<ComputationNode> collapsed = new ArrayList<>();
+        int i = 0;
+        while (i < children.size()) {
+            ComputationNode base = children.get(i);
+            int run = 1;
+            while (i + run < children.size() && sameComputation(base, children.get(i + run))) {
+                run++;
+            }
+            collapsed.add(run == 1 ? base : new ComputationNode(new ArrayList<>(List.of(base)), run));
+            i += run;
+        }
+        if (collapsed.size() == 1) {
+            ComputationNode power = collapsed.get(0);
+            nodeType = ComputationNodeType.POWER;
+            exponent = power.exponent;
+            children = power.children;
+        } else if (collapsed.size() < children.size()) {
+            children = collapsed;
         }
     }
 
+    /**
+     * True if this is the product of a subtree and its own transpose, A * T(A) or T(A) * A,
+     * whose result is symmetric.
+     */
+    public boolean isTransposeProduct() {
+        if (nodeType != ComputationNodeType.MULTIPLY || children == null || children.size() != 2) return false;
+        ComputationNode left = children.get(0);
+        ComputationNode right = children.get(1);
+        return isTransposeOf(right, left) || isTransposeOf(left, right);
+    }
+
+    private static boolean isTransposeOf(ComputationNode transposed, ComputationNode original) {
+        return transposed.nodeType == ComputationNodeType.TRANSPOSE && transposed.children != null
+                && transposed.children.size() == 1 && sameComputation(transposed.children.get(0), original);
+    }
+
+    /**
+     * True if both subtrees describe the same computation on equal data.
+     */
+    private static boolean sameComputation(ComputationNode a, ComputationNode b) {
+        if (a == b) return true;
+        if (a.nodeType != b.nodeType || a.exponent != b.exponent) return false;
+        if (a.nodeType == ComputationNodeType.MATRIX) {
+            if (a.matrix != null) return b.matrix != null && Arrays.deepEquals(a.matrix, b.matrix);
+            if (a.floatMatrix != null) return b.floatMatrix != null && Arrays.deepEquals(a.floatMatrix, b.floatMatrix);
+            return b.sparseMatrix != null && sameEntries(a.sparseMatrix.toCsr(), b.sparseMatrix.toCsr());
+        }
+        if (a.children.size() != b.children.size()) return false;
+        for (int i = 0; i < a.children.size(); i++) {
+            if (!sameComputation(a.children.get(i), b.children.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameEntries(SparseMatrix a, SparseMatrix b) {
+        if (a.rows() != b.rows() || a.cols() != b.cols() || a.nonZeros() != b.nonZeros()
+                || a.hasNegativeZeros() != b.hasNegativeZeros()) return false;
+        for (int i = 0; i < a.rows(); i++) {
+            if (a.start(i) != b.start(i) || a.end(i) != b.end(i)) return false;
+        }
+        for (int p = 0; p < a.nonZeros(); p++) {
+            if (a.index(p) != b.index(p) || Double.compare(a.value(p), b.value(p)) != 0) return false;
+        }
+        return true;
+    }
+
     /**
      * Resolves this node by setting its type to MATRIX and storing the computed matrix.
      */
     public void resolve(double[][] matrix) {
         this.nodeType = ComputationNodeType.MATRIX;
         this.children = null;
+        detach();
         this.matrix = matrix;
+        this.floatMatrix = null;
+        this.sparseMatrix = null;
+    }
+
+    /**
+     * Resolves this node with a single-precision result.
+     */
+    public void resolve(float[][] matrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.children = null;
+        detach();
+        this.matrix = null;
+        this.floatMatrix = matrix;
+        this.sparseMatrix = null;
+    }
+
+    /**
+     * Resolves this node with a sparse result.
+     */
+    public void resolve(SparseMatrix matrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.children = null;
+        detach();
+        this.matrix = null;
+        this.floatMatrix = null;
+        this.sparseMatrix = matrix;
+    }
+
+    /**
+     * Drops the data of a MATRIX node whose consumer has been computed, so that it can be
+     * collected even while the node itself is still referenced, e.g. from a plan.
+     */
+    public void release() {
+        detach();
+        this.matrix = null;
+        this.floatMatrix = null;
+        this.sparseMatrix = null;
+    }
+
+    /**
+     * Returns true if this is a MATRIX node holding single-precision data.
+     */
+    public boolean isSinglePrecision() {
+        return floatMatrix != null;
     }
 
+    /**
+     * Returns true if this is a MATRIX node holding a sparse matrix.
+     */
+    public boolean isSparse() {
+        return sparseMatrix != null;
+    }
+
+    /**
+     * Returns the matrix as doubles; single-precision matrices are widened and sparse
+     * matrices are expanded into a new array.
+     */
     public double[][] getMatrix() {
         if (matrix == null) {
+            if (sparseMatrix != null) {
+                return sparseMatrix.toDense();
+            }
+            if (floatMatrix != null) {
+                double[][] widened = new double[floatMatrix.length][];
+                for (int i = 0; i < floatMatrix.length; i++) {
+                    widened[i] = new double[floatMatrix[i].length];
+                    for (int j = 0; j < floatMatrix[i].length; j++) {
+                        widened[i][j] = floatMatrix[i][j];
+                    }
+                }
+                return widened;
+            }
             throw new IllegalStateException("This node does not contain a matrix.");
         }
         return matrix;
     }
 
+    /**
+     * Returns the matrix for an operator that overwrites it in place. If other nodes still hold
+     * the same rows, this node first takes a private copy of them.
+     */
+    public double[][] getMatrixForUpdate() {
+        if (matrix != null && isShared()) {
+            double[][] copy = new double[matrix.length][];
+            for (int i = 0; i < matrix.length; i++) copy[i] = matrix[i].clone();
+            matrix = copy;
+            detach();
+        }
+        return getMatrix();
+    }
+
+    /**
+     * Single-precision counterpart of {@link #getMatrixForUpdate()}.
+     */
+    public float[][] getFloatMatrixForUpdate() {
+        if (floatMatrix != null && isShared()) {
+            float[][] copy = new float[floatMatrix.length][];
+            for (int i = 0; i < floatMatrix.length; i++) copy[i] = floatMatrix[i].clone();
+            floatMatrix = copy;
+            detach();
+        }
+        return getFloatMatrix();
+    }
+
+    public float[][] getFloatMatrix() {
+        if (floatMatrix == null) {
+            throw new IllegalStateException("This node does not contain a single-precision matrix.");
+        }
+        return floatMatrix;
+    }
+
+    public SparseMatrix getSparseMatrix() {
+        if (sparseMatrix == null) {
+            throw new IllegalStateException("This node does not contain a sparse matrix.");
+        }
+        return sparseMatrix;
+    }
+
 
 }
\ No newline at end of file
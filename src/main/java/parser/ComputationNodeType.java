@@ -9,5 +9,7 @@ public enum ComputationNodeType {
     MULTIPLY,
     NEGATE,
     TRANSPOSE,
+    /** A square matrix raised to a positive integer power; see {@link ComputationNode#getExponent()}. */
+    POWER,
     MATRIX,
 }
\ No newline at end of file
@@ -3,37 +3,92 @@ package parser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import memory.SparseMatrix;
+import memory.VectorOrientation;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.ParseException;
 import java.util.*;
 
 public class InputParser {
 
     private final ObjectMapper mapper = new ObjectMapper();
+    private final boolean singlePrecision;
+
+    public InputParser() {
+        this(false);
+    }
+
+    /**
+     * @param singlePrecision if true, matrix literals are parsed into float[][] (float32 mode)
+     */
+    public InputParser(boolean singlePrecision) {
+        this.singlePrecision = singlePrecision;
+    }
 
     public ComputationNode parse(String inputPath) throws ParseException {
         try {
-            File inputFile = new File(inputPath);
-            JsonNode rootJsonNode = mapper.readTree(inputFile);
-            ComputationNode root = parseJsonNode(rootJsonNode);
+            JsonNode rootJsonNode;
+            try (InputStream in = CompressedFiles.openInput(inputPath)) {
+                rootJsonNode = mapper.readTree(in);
+            }
+            if (rootJsonNode != null && rootJsonNode.has("matrices")) {
+                return parseWithNames(rootJsonNode);
+            }
+            ComputationNode root = parseJsonNode(rootJsonNode, null);
             return root;
         } catch (IOException e) {
             throw new ParseException("Failed to read the input JSON file: " + e.getMessage(), 0);
         }
     }
 
-    private ComputationNode parseJsonNode(JsonNode jsonNode) throws ParseException {
+    /**
+     * Parses an input with a table of named matrices (see {@link NamedMatrices}).
+     */
+    private ComputationNode parseWithNames(JsonNode rootJsonNode) throws ParseException {
+        JsonNode table = rootJsonNode.get("matrices");
+        if (!table.isObject()) {
+            throw new ParseException("\"matrices\" must map names to matrix literals.", 0);
+        }
+        NamedMatrices names = new NamedMatrices();
+        Iterator<Map.Entry<String, JsonNode>> fields = table.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isTextual()) {
+                throw new ParseException("Named matrix \"" + field.getKey() + "\" must be a matrix literal.", 0);
+            }
+            names.define(field.getKey(), parseJsonNode(field.getValue(), null));
+        }
+        JsonNode expression = rootJsonNode.get("expression");
+        if (expression == null) {
+            throw new ParseException("An input with named matrices needs an \"expression\".", 0);
+        }
+        return parseJsonNode(expression, names);
+    }
+
+    /**
+     * @param names the named matrices that string operands refer to, or null
+     */
+    private ComputationNode parseJsonNode(JsonNode jsonNode, NamedMatrices names) throws ParseException {
+        if (jsonNode.isTextual()) {
+            return NamedMatrices.reference(names, jsonNode.asText());
+        }
         if (jsonNode.has("operator") && jsonNode.has("operands")) {
             String operatorStr = jsonNode.get("operator").asText();
             ArrayNode operandJsonNodes = (ArrayNode) jsonNode.get("operands");
             List<ComputationNode> operands = new ArrayList<>();
             for (int i = 0; i < operandJsonNodes.size(); i++) {
-                operands.add(parseJsonNode(operandJsonNodes.get(i)));
+                operands.add(parseJsonNode(operandJsonNodes.get(i), names));
+            }
+            if (operatorStr.equals("^")) {
+                return new ComputationNode(operands, parseExponent(jsonNode));
             }
             return new ComputationNode(operatorStr, operands);
         }
+        else if (jsonNode.has("rows") && jsonNode.has("cols") && jsonNode.has("entries")) {
+            return parseSparseLiteral(jsonNode);
+        }
         else if (jsonNode.isArray()) {
             if (jsonNode.size() == 0) {
                 throw new ParseException("Empty array cannot be parsed as DataNode.", 0);
@@ -44,7 +99,6 @@ public class InputParser {
             }
             // Otherwise, it's a matrix (2D array)
             else {
-                double[][] matrix = new double[jsonNode.size()][];
                 int width = jsonNode.get(0).size();
                 for (int i = 0; i < jsonNode.size(); i++) {
                     JsonNode rowJsonNode = jsonNode.get(i);
@@ -54,15 +108,114 @@ public class InputParser {
                     if (!rowJsonNode.isArray()) {
                         throw new ParseException("Invalid matrix row: " + rowJsonNode.toString(), 0);
                     }
-                    matrix[i] = new double[rowJsonNode.size()];
-                    for (int j = 0; j < rowJsonNode.size(); j++) {
+                }
+                if (singlePrecision) {
+                    float[][] matrix = new float[jsonNode.size()][width];
+                    for (int i = 0; i < jsonNode.size(); i++) {
+                        JsonNode rowJsonNode = jsonNode.get(i);
+                        for (int j = 0; j < width; j++) {
+                            matrix[i][j] = rowJsonNode.get(j).floatValue();
+                        }
+                    }
+                    return new ComputationNode(matrix);
+                }
+                double[][] matrix = new double[jsonNode.size()][width];
+                for (int i = 0; i < jsonNode.size(); i++) {
+                    JsonNode rowJsonNode = jsonNode.get(i);
+                    for (int j = 0; j < width; j++) {
                         matrix[i][j] = rowJsonNode.get(j).asDouble();
                     }
                 }
-                return new ComputationNode(matrix);
+                return toMatrixNode(matrix);
             }
         }
         else { throw new ParseException("Invalid node structure: " + jsonNode.toString(), 0); }
     }
 
-}
\ No newline at end of file
+    /**
+     * The power operator takes one operand and a positive integer exponent:
+     * {"operator": "^", "operands": [A], "exponent": n}.
+     */
+    private int parseExponent(JsonNode jsonNode) throws ParseException {
+        JsonNode exponent = jsonNode.get("exponent");
+        if (exponent == null || !exponent.isIntegralNumber() || !exponent.canConvertToInt() || exponent.asInt() < 1) {
+            throw new ParseException("Power exponent must be a positive integer: " + jsonNode.toString(), 0);
+        }
+        return exponent.asInt();
+    }
+
+    /**
+     * Parses the compact sparse syntax:
+     * {"rows": m, "cols": n, "entries": [[row, col, value], ...]}.
+     * Duplicate coordinates are summed; omitted entries are zero.
+     */
+    private ComputationNode parseSparseLiteral(JsonNode jsonNode) throws ParseException {
+        JsonNode rowsNode = jsonNode.get("rows");
+        JsonNode colsNode = jsonNode.get("cols");
+        JsonNode entries = jsonNode.get("entries");
+        if (!rowsNode.canConvertToInt() || !colsNode.canConvertToInt() || !rowsNode.isIntegralNumber()
+                || !colsNode.isIntegralNumber() || rowsNode.asInt() <= 0 || colsNode.asInt() <= 0) {
+            throw new ParseException("Sparse matrix dimensions must be positive integers: " + jsonNode.toString(), 0);
+        }
+        if (!entries.isArray()) {
+            throw new ParseException("Sparse matrix entries must be an array of [row, col, value] triplets.", 0);
+        }
+        int rows = rowsNode.asInt();
+        int cols = colsNode.asInt();
+        int[] r = new int[entries.size()];
+        int[] c = new int[entries.size()];
+        double[] v = new double[entries.size()];
+        for (int k = 0; k < entries.size(); k++) {
+            JsonNode entry = entries.get(k);
+            if (!entry.isArray() || entry.size() != 3 || !entry.get(0).isIntegralNumber()
+                    || !entry.get(1).isIntegralNumber() || !entry.get(2).isNumber()) {
+                throw new ParseException("Invalid sparse entry: " + entry.toString(), 0);
+            }
+            r[k] = entry.get(0).asInt();
+            c[k] = entry.get(1).asInt();
+            v[k] = entry.get(2).asDouble();
+        }
+        return sparseNode(rows, cols, r, c, v, singlePrecision);
+    }
+
+    /**
+     * Builds the leaf of a sparse literal: CSR if it is sparse enough, otherwise dense.
+     */
+    static ComputationNode sparseNode(int rows, int cols, int[] r, int[] c, double[] v, boolean singlePrecision)
+            throws ParseException {
+        SparseMatrix sparse;
+        try {
+            sparse = SparseMatrix.fromTriplets(rows, cols, r, c, v);
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("Invalid sparse matrix: " + e.getMessage(), 0);
+        }
+        if (singlePrecision) {
+            double[][] dense = sparse.toDense();
+            float[][] matrix = new float[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    matrix[i][j] = (float) dense[i][j];
+                }
+            }
+            return new ComputationNode(matrix);
+        }
+        if (SparseMatrix.isSparseEnough(rows, cols, sparse.nonZeros())) {
+            return new ComputationNode(sparse);
+        }
+        return new ComputationNode(sparse.toDense());
+    }
+
+    /**
+     * Chooses the leaf representation by density: mostly-zero matrices are stored as CSR,
+     * unless compressing them would change a result (see {@link SparseMatrix#isCompressible}).
+     */
+    static ComputationNode toMatrixNode(double[][] matrix) {
+        int cols = matrix.length == 0 ? 0 : matrix[0].length;
+        if (SparseMatrix.isSparseEnough(matrix.length, cols, SparseMatrix.countNonZeros(matrix))
+                && SparseMatrix.isCompressible(matrix)) {
+            return new ComputationNode(SparseMatrix.fromDense(matrix, VectorOrientation.ROW_MAJOR));
+        }
+        return new ComputationNode(matrix);
+    }
+
+}
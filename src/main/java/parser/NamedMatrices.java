@@ -0,0 +1,40 @@
+package parser;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The top-level table of named matrices of an input:
+ * {"matrices": {"A": [[...]], ...}, "expression": {"operator": "*", "operands": ["A", "A"]}}.
+ * Each matrix is parsed once; its first reference gets the parsed leaf and every further
+ * reference a leaf sharing the same data (see {@link ComputationNode#share()}).
+ */
+final class NamedMatrices {
+
+    private final Map<String, ComputationNode> definitions = new HashMap<>();
+    private final Set<String> referenced = new HashSet<>();
+
+    void define(String name, ComputationNode leaf) throws ParseException {
+        if (leaf.getNodeType() != ComputationNodeType.MATRIX) {
+            throw new ParseException("Named matrix \"" + name + "\" must be a matrix literal.", 0);
+        }
+        if (definitions.put(name, leaf) != null) {
+            throw new ParseException("Duplicate matrix name: " + name, 0);
+        }
+    }
+
+    /**
+     * The leaf for one reference to {@code name}.
+     *
+     * @param names the table of the input, or null if it has none
+     */
+    static ComputationNode reference(NamedMatrices names, String name) throws ParseException {
+        ComputationNode leaf = names == null ? null : names.definitions.get(name);
+        if (leaf == null) throw new ParseException("Unknown matrix reference: " + name, 0);
+        if (names.referenced.add(name)) return leaf;
+        return leaf.share();
+    }
+}
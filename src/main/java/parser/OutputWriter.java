@@ -1,7 +1,7 @@
 package parser;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
@@ -14,6 +14,11 @@ public class OutputWriter {
         public ResultMatrix(double[][] result) { this.result = result; }
     }
 
+    public static class FloatResultMatrix {
+        public float[][] result;
+        public FloatResultMatrix(float[][] result) { this.result = result; }
+    }
+
     public static class ErrorMessage {
         public String error;
         public ErrorMessage(String error) { this.error = error; }
@@ -22,13 +27,31 @@ public class OutputWriter {
     public OutputWriter() {}
 
     public static void write(double[][] matrix, String filePath) throws IOException {
-        File file = new File(filePath);
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ResultMatrix(matrix));
+        writeJson(new ResultMatrix(matrix), filePath);
+    }
+
+    public static void write(float[][] matrix, String filePath) throws IOException {
+        writeJson(new FloatResultMatrix(matrix), filePath);
+    }
+
+    /**
+     * Writes any report object (its public fields) as indented JSON.
+     */
+    public static void writeReport(Object report, String filePath) throws IOException {
+        writeJson(report, filePath);
     }
 
     public static void write(String error, String filePath) throws IOException {
-        File file = new File(filePath);
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ErrorMessage(error));
+        writeJson(new ErrorMessage(error), filePath);
+    }
+
+    /**
+     * Writes through a large buffer, gzip-compressed if the path ends in ".gz".
+     */
+    private static void writeJson(Object value, String filePath) throws IOException {
+        try (OutputStream out = CompressedFiles.openOutput(filePath)) {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(out, value);
+        }
     }
 
 }
@@ -0,0 +1,683 @@
+package parser;
+
+import scheduling.TiredExecutor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the same input format as {@link InputParser}, converting the numbers of dense matrix
+ * literals in parallel.
+ *
+ * The file is memory-mapped and scanned once on the calling thread for its structure; a
+ * matrix literal is only delimited there, by bracket matching. Each literal is then cut into
+ * chunks of about {@link #CHUNK_BYTES}, and the rows starting in each chunk are converted by
+ * an executor task. Numbers go through a fast path that is exact for up to 15 significant
+ * digits and powers of ten up to 22, and through {@link Double#parseDouble} otherwise, so
+ * results are bit-identical to the sequential parser.
+ *
+ * A gzip-compressed input is decompressed into the heap first, on a read-ahead thread (see
+ * {@link CompressedFiles}). Files of 2 GB or more, which cannot be mapped or held as one
+ * buffer, are handed to {@link InputParser}.
+ */
+public class ParallelInputParser {
+
+    /** Approximate bytes of matrix text converted by one task. */
+    static final int CHUNK_BYTES = 1 << 20;
+    /** Largest decompressed text of a gzip input held in one array. */
+    private static final int MAX_HEAP_TEXT = Integer.MAX_VALUE - 8;
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final boolean singlePrecision;
+    private final int numThreads;
+
+    public ParallelInputParser(boolean singlePrecision, int numThreads) {
+        if (numThreads <= 0) throw new IllegalArgumentException("threads must be > 0");
+        this.singlePrecision = singlePrecision;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * A parsed value whose dense matrix literals may not have been converted yet.
+     */
+    private static final class Spec {
+        String operator;
+        List<Spec> operands;
+        Integer exponent;
+        ComputationNode node; // a leaf built during the scan
+        Literal literal;      // a dense literal converted by tasks
+        String reference;     // the name of a matrix in the input's table
+        Map<String, Spec> matrices; // the table of named matrices, with the expression using them
+        Spec expression;
+    }
+
+    /**
+     * The byte range of a dense matrix literal, from its opening to its closing bracket, and
+     * the rows converted from each of its chunks.
+     */
+    private static final class Literal {
+        final int start;
+        final int end;
+        List<List<double[]>> chunks = new ArrayList<>();
+
+        Literal(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * The rows whose opening bracket lies in [from, to) and, if conversion failed, why.
+     */
+    private static final class Chunk implements Runnable {
+        final ByteBuffer buf;
+        final int from;
+        final int to;
+        final List<double[]> rows = new ArrayList<>();
+        final long[] cursor = new long[1];
+        ParseException error;
+
+        Chunk(ByteBuffer buf, int from, int to) {
+            this.buf = buf;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            try {
+                int pos = from;
+                int width = 8;
+                while (true) {
+                    // the scan checked that only numbers, commas and whitespace surround the rows
+                    while (pos < to && buf.get(pos) != '[') pos++;
+                    if (pos >= to) return;
+                    double[] row = new double[width];
+                    int n = 0;
+                    pos = skipWhitespace(buf, pos + 1);
+                    if (buf.get(pos) == ']') {
+                        pos++;
+                    } else {
+                        while (true) {
+                            if (n == row.length) row = Arrays.copyOf(row, row.length * 2);
+                            cursor[0] = pos;
+                            row[n++] = parseNumber(buf, cursor);
+                            pos = skipWhitespace(buf, (int) cursor[0]);
+                            byte b = buf.get(pos++);
+                            if (b == ']') break;
+                            if (b != ',') throw new ParseException("Invalid matrix row at byte " + (pos - 1), pos - 1);
+                            pos = skipWhitespace(buf, pos);
+                        }
+                    }
+                    rows.add(n == row.length ? row : Arrays.copyOf(row, n));
+                    width = Math.max(n, 1);
+                }
+            } catch (ParseException e) {
+                error = e;
+            } catch (IndexOutOfBoundsException e) {
+                error = new ParseException("Unexpected end of input", buf.limit());
+            }
+        }
+    }
+
+    /**
+     * Memory-maps an uncompressed input; null if it is too large for one buffer.
+     */
+    private static ByteBuffer map(String inputPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(inputPath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return null;
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    public ComputationNode parse(String inputPath) throws ParseException {
+        ByteBuffer buf;
+        try {
+            if (CompressedFiles.isGzip(inputPath)) {
+                byte[] text = CompressedFiles.readAll(inputPath, MAX_HEAP_TEXT);
+                if (text == null) return new InputParser(singlePrecision).parse(inputPath);
+                buf = ByteBuffer.wrap(text);
+            } else {
+                buf = map(inputPath);
+                if (buf == null) return new InputParser(singlePrecision).parse(inputPath);
+            }
+        } catch (IOException e) {
+            throw new ParseException("Failed to read the input JSON file: " + e.getMessage(), 0);
+        }
+
+        List<Literal> literals = new ArrayList<>();
+        int[] pos = {skipWhitespace(buf, 0)};
+        Spec root;
+        try {
+            root = scanValue(buf, pos, literals);
+            if (skipWhitespace(buf, pos[0]) != buf.limit()) {
+                throw new ParseException("Unexpected content after the root node at byte " + pos[0], pos[0]);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new ParseException("Unexpected end of input", buf.limit());
+        }
+        convert(buf, literals);
+        if (root.matrices == null) return build(root, null);
+        NamedMatrices names = new NamedMatrices();
+        for (Map.Entry<String, Spec> entry : root.matrices.entrySet()) {
+            names.define(entry.getKey(), build(entry.getValue(), null));
+        }
+        return build(root.expression, names);
+    }
+
+    /**
+     * Converts all literals in one batch, so that small and large ones share the workers.
+     */
+    private void convert(ByteBuffer buf, List<Literal> literals) throws ParseException {
+        List<Chunk> chunks = new ArrayList<>();
+        List<Runnable> tasks = new ArrayList<>();
+        for (Literal literal : literals) {
+            for (int from = literal.start + 1; from < literal.end; from += CHUNK_BYTES) {
+                Chunk chunk = new Chunk(buf, from, Math.min(literal.end, from + CHUNK_BYTES));
+                chunks.add(chunk);
+                tasks.add(chunk);
+            }
+        }
+        if (tasks.size() == 1 || numThreads == 1) {
+            for (Runnable task : tasks) task.run();
+        } else if (!tasks.isEmpty()) {
+            TiredExecutor executor = new TiredExecutor(Math.min(numThreads, tasks.size()));
+            try {
+                executor.submitAll(tasks);
+            } finally {
+                try {
+                    executor.shutdown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted during executor shutdown", e);
+                }
+            }
+        }
+        int next = 0;
+        for (Literal literal : literals) {
+            for (int from = literal.start + 1; from < literal.end; from += CHUNK_BYTES) {
+                Chunk chunk = chunks.get(next++);
+                if (chunk.error != null) throw chunk.error;
+                literal.chunks.add(chunk.rows);
+            }
+        }
+    }
+
+    /**
+     * @param names the named matrices that references resolve to, or null
+     */
+    private ComputationNode build(Spec spec, NamedMatrices names) throws ParseException {
+        if (spec.node != null) return spec.node;
+        if (spec.literal != null) return leaf(spec.literal);
+        if (spec.reference != null) return NamedMatrices.reference(names, spec.reference);
+        if (spec.matrices != null) {
+            throw new ParseException("Named matrices can only be defined at the top level.", 0);
+        }
+        List<ComputationNode> operands = new ArrayList<>();
+        for (Spec operand : spec.operands) {
+            operands.add(build(operand, names));
+        }
+        if (spec.exponent != null) {
+            return new ComputationNode(operands, spec.exponent);
+        }
+        return new ComputationNode(spec.operator, operands);
+    }
+
+    private ComputationNode leaf(Literal literal) throws ParseException {
+        int count = 0;
+        for (List<double[]> rows : literal.chunks) count += rows.size();
+        double[][] matrix = new double[count][];
+        int i = 0;
+        for (List<double[]> rows : literal.chunks) {
+            for (double[] row : rows) matrix[i++] = row;
+        }
+        int width = matrix[0].length;
+        for (double[] row : matrix) {
+            if (row.length != width) {
+                throw new ParseException("Inconsistent row sizes in matrix.", literal.start);
+            }
+        }
+        if (singlePrecision) {
+            float[][] floats = new float[matrix.length][width];
+            for (int r = 0; r < matrix.length; r++) {
+                for (int c = 0; c < width; c++) {
+                    floats[r][c] = (float) matrix[r][c];
+                }
+            }
+            return new ComputationNode(floats);
+        }
+        return InputParser.toMatrixNode(matrix);
+    }
+
+    // ---- structural scan (calling thread) ----
+
+    private Spec scanValue(ByteBuffer buf, int[] pos, List<Literal> literals) throws ParseException {
+        pos[0] = skipWhitespace(buf, pos[0]);
+        byte b = buf.get(pos[0]);
+        if (b == '{') return scanObject(buf, pos, literals);
+        if (b == '[') return scanMatrix(buf, pos, literals);
+        if (b == '"') {
+            Spec spec = new Spec();
+            spec.reference = scanString(buf, pos);
+            return spec;
+        }
+        throw new ParseException("Invalid node structure at byte " + pos[0], pos[0]);
+    }
+
+    /**
+     * Delimits a matrix literal by bracket matching, without converting its numbers. Between
+     * rows only whitespace and exactly one comma are allowed.
+     */
+    private Spec scanMatrix(ByteBuffer buf, int[] pos, List<Literal> literals) throws ParseException {
+        int start = pos[0];
+        int first = skipWhitespace(buf, start + 1);
+        byte b = buf.get(first);
+        if (b == ']') throw new ParseException("Empty array cannot be parsed as DataNode.", start);
+        if (b != '[') throw new ParseException("Vectors (1D arrays) are not supported as standalone nodes.", start);
+        int depth = 0;
+        boolean expectRow = true; // at depth 1: after the opening bracket or a comma
+        int p = start;
+        while (true) {
+            byte c = buf.get(p);
+            if (c == '[') {
+                if (++depth > 2) throw new ParseException("Invalid matrix row at byte " + p, p);
+                if (depth == 2) {
+                    if (!expectRow) throw new ParseException("Expected ',' at byte " + p, p);
+                    expectRow = false;
+                }
+            } else if (c == ']') {
+                if (--depth == 0) {
+                    if (expectRow) throw new ParseException("Invalid matrix row at byte " + p, p);
+                    break;
+                }
+            } else if (c == '"' || c == '{') {
+                throw new ParseException("Invalid matrix row at byte " + p, p);
+            } else if (depth == 1) {
+                if (c == ',' && !expectRow) {
+                    expectRow = true;
+                } else if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    throw new ParseException("Invalid matrix row at byte " + p, p);
+                }
+            }
+            p++;
+        }
+        pos[0] = p + 1;
+        Literal literal = new Literal(start, p);
+        literals.add(literal);
+        Spec spec = new Spec();
+        spec.literal = literal;
+        return spec;
+    }
+
+    private Spec scanObject(ByteBuffer buf, int[] pos, List<Literal> literals) throws ParseException {
+        int start = pos[0];
+        String operator = null;
+        List<Spec> operands = null;
+        Number exponent = null;
+        Number rows = null;
+        Number cols = null;
+        List<double[]> entries = null;
+        Map<String, Spec> matrices = null;
+        Spec expression = null;
+        pos[0] = skipWhitespace(buf, pos[0] + 1);
+        if (buf.get(pos[0]) == '}') {
+            pos[0]++;
+        } else {
+            while (true) {
+                String key = scanString(buf, pos);
+                pos[0] = skipWhitespace(buf, pos[0]);
+                expect(buf, pos, ':');
+                pos[0] = skipWhitespace(buf, pos[0]);
+                switch (key) {
+                    case "operator":
+                        operator = scanString(buf, pos);
+                        break;
+                    case "operands":
+                        operands = scanOperands(buf, pos, literals);
+                        break;
+                    case "exponent":
+                        exponent = scanScalar(buf, pos);
+                        break;
+                    case "rows":
+                        rows = scanScalar(buf, pos);
+                        break;
+                    case "cols":
+                        cols = scanScalar(buf, pos);
+                        break;
+                    case "entries":
+                        entries = scanEntries(buf, pos);
+                        break;
+                    case "matrices":
+                        matrices = scanMatrices(buf, pos, literals);
+                        break;
+                    case "expression":
+                        expression = scanValue(buf, pos, literals);
+                        break;
+                    default:
+                        skipValue(buf, pos);
+                }
+                pos[0] = skipWhitespace(buf, pos[0]);
+                byte b = buf.get(pos[0]++);
+                if (b == '}') break;
+                if (b != ',') throw new ParseException("Expected ',' or '}' at byte " + (pos[0] - 1), pos[0] - 1);
+                pos[0] = skipWhitespace(buf, pos[0]);
+            }
+        }
+
+        Spec spec = new Spec();
+        if (matrices != null) {
+            if (expression == null) {
+                throw new ParseException("An input with named matrices needs an \"expression\".", start);
+            }
+            spec.matrices = matrices;
+            spec.expression = expression;
+            return spec;
+        }
+        if (operator != null && operands != null) {
+            spec.operator = operator;
+            spec.operands = operands;
+            if (operator.equals("^")) {
+                if (!(exponent instanceof Long) || (Long) exponent < 1 || (Long) exponent > Integer.MAX_VALUE) {
+                    throw new ParseException("Power exponent must be a positive integer at byte " + start, start);
+                }
+                spec.exponent = ((Long) exponent).intValue();
+            }
+            return spec;
+        }
+        if (rows != null && cols != null && entries != null) {
+            if (!(rows instanceof Long) || !(cols instanceof Long) || (Long) rows <= 0 || (Long) cols <= 0
+                    || (Long) rows > Integer.MAX_VALUE || (Long) cols > Integer.MAX_VALUE) {
+                throw new ParseException("Sparse matrix dimensions must be positive integers at byte " + start, start);
+            }
+            int[] r = new int[entries.size()];
+            int[] c = new int[entries.size()];
+            double[] v = new double[entries.size()];
+            for (int k = 0; k < entries.size(); k++) {
+                double[] e = entries.get(k);
+                r[k] = (int) e[0];
+                c[k] = (int) e[1];
+                v[k] = e[2];
+            }
+            spec.node = InputParser.sparseNode(((Long) rows).intValue(), ((Long) cols).intValue(), r, c, v, singlePrecision);
+            return spec;
+        }
+        throw new ParseException("Invalid node structure at byte " + start, start);
+    }
+
+    /**
+     * The table of named matrices: {"name": literal, ...}. A name given twice keeps its last
+     * definition, like the JSON tree {@link InputParser} reads.
+     */
+    private Map<String, Spec> scanMatrices(ByteBuffer buf, int[] pos, List<Literal> literals) throws ParseException {
+        int start = pos[0];
+        expect(buf, pos, '{');
+        Map<String, Spec> matrices = new LinkedHashMap<>();
+        pos[0] = skipWhitespace(buf, pos[0]);
+        if (buf.get(pos[0]) == '}') {
+            pos[0]++;
+            return matrices;
+        }
+        while (true) {
+            String name = scanString(buf, pos);
+            pos[0] = skipWhitespace(buf, pos[0]);
+            expect(buf, pos, ':');
+            Spec matrix = scanValue(buf, pos, literals);
+            if (matrix.reference != null) {
+                throw new ParseException("Named matrix \"" + name + "\" must be a matrix literal.", start);
+            }
+            Spec previous = matrices.put(name, matrix);
+            if (previous != null && previous.literal != null) {
+                literals.remove(previous.literal); // the last definition wins, as with InputParser
+            }
+            pos[0] = skipWhitespace(buf, pos[0]);
+            byte b = buf.get(pos[0]++);
+            if (b == '}') return matrices;
+            if (b != ',') throw new ParseException("Expected ',' or '}' at byte " + (pos[0] - 1), pos[0] - 1);
+            pos[0] = skipWhitespace(buf, pos[0]);
+        }
+    }
+
+    private List<Spec> scanOperands(ByteBuffer buf, int[] pos, List<Literal> literals) throws ParseException {
+        expect(buf, pos, '[');
+        List<Spec> operands = new ArrayList<>();
+        pos[0] = skipWhitespace(buf, pos[0]);
+        if (buf.get(pos[0]) == ']') {
+            pos[0]++;
+            return operands;
+        }
+        while (true) {
+            operands.add(scanValue(buf, pos, literals));
+            pos[0] = skipWhitespace(buf, pos[0]);
+            byte b = buf.get(pos[0]++);
+            if (b == ']') return operands;
+            if (b != ',') throw new ParseException("Expected ',' or ']' at byte " + (pos[0] - 1), pos[0] - 1);
+        }
+    }
+
+    /**
+     * Sparse entries: [[row, col, value], ...] with integral coordinates.
+     */
+    private List<double[]> scanEntries(ByteBuffer buf, int[] pos) throws ParseException {
+        expect(buf, pos, '[');
+        List<double[]> entries = new ArrayList<>();
+        pos[0] = skipWhitespace(buf, pos[0]);
+        if (buf.get(pos[0]) == ']') {
+            pos[0]++;
+            return entries;
+        }
+        while (true) {
+            int at = skipWhitespace(buf, pos[0]);
+            pos[0] = at;
+            expect(buf, pos, '[');
+            Number[] e = new Number[3];
+            for (int k = 0; k < 3; k++) {
+                pos[0] = skipWhitespace(buf, pos[0]);
+                e[k] = scanScalar(buf, pos);
+                pos[0] = skipWhitespace(buf, pos[0]);
+                if (k < 2) expect(buf, pos, ',');
+            }
+            expect(buf, pos, ']');
+            if (!(e[0] instanceof Long) || !(e[1] instanceof Long)) {
+                throw new ParseException("Invalid sparse entry at byte " + at, at);
+            }
+            entries.add(new double[]{(Long) e[0], (Long) e[1], e[2].doubleValue()});
+            pos[0] = skipWhitespace(buf, pos[0]);
+            byte b = buf.get(pos[0]++);
+            if (b == ']') return entries;
+            if (b != ',') throw new ParseException("Expected ',' or ']' at byte " + (pos[0] - 1), pos[0] - 1);
+        }
+    }
+
+    /**
+     * A number: Long if it is written as an integer that fits, otherwise Double.
+     */
+    private static Number scanScalar(ByteBuffer buf, int[] pos) throws ParseException {
+        int start = pos[0];
+        long[] cursor = {start};
+        double value = parseNumber(buf, cursor);
+        pos[0] = (int) cursor[0];
+        boolean integral = true;
+        for (int p = start; p < pos[0]; p++) {
+            byte b = buf.get(p);
+            if (b == '.' || b == 'e' || b == 'E') integral = false;
+        }
+        if (integral && pos[0] - start <= 18) return (long) value;
+        return value;
+    }
+
+    private static String scanString(ByteBuffer buf, int[] pos) throws ParseException {
+        expect(buf, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        int runStart = pos[0];
+        while (true) {
+            byte b = buf.get(pos[0]);
+            if (b == '"') {
+                sb.append(utf8(buf, runStart, pos[0]));
+                pos[0]++;
+                return sb.toString();
+            }
+            if (b == '\\') {
+                sb.append(utf8(buf, runStart, pos[0]));
+                byte e = buf.get(pos[0] + 1);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(utf8(buf, pos[0] + 2, pos[0] + 6), 16));
+                        pos[0] += 4;
+                        break;
+                    default: sb.append((char) e);
+                }
+                pos[0] += 2;
+                runStart = pos[0];
+            } else {
+                pos[0]++;
+            }
+        }
+    }
+
+    private static String utf8(ByteBuffer buf, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buf.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skips a value of a key this format does not use.
+     */
+    private static void skipValue(ByteBuffer buf, int[] pos) throws ParseException {
+        byte b = buf.get(pos[0]);
+        if (b == '"') {
+            scanString(buf, pos);
+        } else if (b == '{' || b == '[') {
+            int depth = 0;
+            do {
+                byte c = buf.get(pos[0]);
+                if (c == '"') {
+                    scanString(buf, pos);
+                    continue;
+                }
+                if (c == '{' || c == '[') depth++;
+                if (c == '}' || c == ']') depth--;
+                pos[0]++;
+            } while (depth > 0);
+        } else {
+            while (pos[0] < buf.limit() && ",}] \t\r\n".indexOf(buf.get(pos[0])) < 0) pos[0]++;
+        }
+    }
+
+    private static void expect(ByteBuffer buf, int[] pos, char c) throws ParseException {
+        if (buf.get(pos[0]) != c) {
+            throw new ParseException("Expected '" + c + "' at byte " + pos[0], pos[0]);
+        }
+        pos[0]++;
+    }
+
+    private static int skipWhitespace(ByteBuffer buf, int pos) {
+        int limit = buf.limit();
+        while (pos < limit) {
+            byte b = buf.get(pos);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') break;
+            pos++;
+        }
+        return pos;
+    }
+
+    // ---- number conversion (tasks) ----
+
+    /**
+     * Parses a JSON number at {@code cursor[0]} and advances the cursor past it.
+     */
+    static double parseNumber(ByteBuffer buf, long[] cursor) throws ParseException {
+        int start = (int) cursor[0];
+        int limit = buf.limit();
+        int p = start;
+        boolean negative = false;
+        if (p < limit && buf.get(p) == '-') {
+            negative = true;
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0;      // significant digits accumulated in the mantissa
+        int dropped = 0;     // integer digits that did not fit
+        int scale = 0;       // decimal exponent adjustment from the fraction
+        int intStart = p;
+        byte b;
+        while (p < limit && (b = buf.get(p)) >= '0' && b <= '9') {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0) digits++;
+            } else {
+                dropped++;
+            }
+            p++;
+        }
+        // JSON: an integer part of one or more digits, without leading zeros
+        if (p == intStart || (buf.get(intStart) == '0' && p - intStart > 1)) {
+            throw new ParseException("Invalid number at byte " + start, start);
+        }
+        boolean integral = true; // no fraction or exponent: Jackson reads an integer
+        if (p < limit && buf.get(p) == '.') {
+            integral = false;
+            p++;
+            int fractionStart = p;
+            while (p < limit && (b = buf.get(p)) >= '0' && b <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                    scale--;
+                } else if (b != '0') {
+                    dropped++; // precision lost: use the slow path
+                }
+                p++;
+            }
+            if (p == fractionStart) throw new ParseException("Invalid number at byte " + start, start);
+        }
+        int exponent = 0;
+        if (p < limit && ((b = buf.get(p)) == 'e' || b == 'E')) {
+            integral = false;
+            p++;
+            boolean negExp = false;
+            if (p < limit && ((b = buf.get(p)) == '+' || b == '-')) {
+                negExp = b == '-';
+                p++;
+            }
+            boolean expDigits = false;
+            while (p < limit && (b = buf.get(p)) >= '0' && b <= '9') {
+                expDigits = true;
+                if (exponent < 100000) exponent = exponent * 10 + (b - '0');
+                p++;
+            }
+            if (!expDigits) throw new ParseException("Invalid number at byte " + start, start);
+            if (negExp) exponent = -exponent;
+        }
+        cursor[0] = p;
+
+        int e10 = exponent + scale;
+        if (dropped == 0 && mantissa <= MAX_EXACT_MANTISSA && e10 >= -22 && e10 <= 22) {
+            // both operands are exact doubles, so one rounding gives the correctly rounded result
+            double v = e10 >= 0 ? mantissa * POWERS_OF_TEN[e10] : mantissa / POWERS_OF_TEN[-e10];
+            // the integer -0 is 0, and so is its double; only a floating-point -0 keeps the sign
+            return negative && !(integral && mantissa == 0) ? -v : v;
+        }
+        return Double.parseDouble(utf8(buf, start, p));
+    }
+}
@@ -0,0 +1,16 @@
+package parser;
+
+/**
+ * Receives the rows of a result as they are computed, in any order and from any thread.
+ */
+public interface RowSink {
+
+    /**
+     * Announces a result of {@code rows} rows; called once, before any row.
+     */
+    void begin(int rows);
+
+    void row(int index, double[] row);
+
+    void row(int index, float[] row);
+}
@@ -0,0 +1,133 @@
+package parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a result to its output file while it is being computed, in the same format as
+ * {@link OutputWriter}. Rows arrive in any order; a writer thread serializes each contiguous
+ * prefix as soon as it is complete, so that formatting and I/O overlap with the rest of the
+ * computation.
+ *
+ * The file is only created once a result begins. If it is closed before {@link #finish()},
+ * the file is left incomplete for the caller to overwrite, e.g. with an error.
+ */
+public class StreamingOutputWriter implements RowSink, AutoCloseable {
+
+    private static final JsonFactory factory = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT); // never complete an aborted result
+
+    private final String filePath;
+    private Object[] rows; // rows received and not yet written, guarded by this
+    private int next;      // the row the writer waits for, guarded by this
+    private boolean aborted;
+    private boolean finished;
+    private Thread writer;
+    private volatile IOException failure;
+
+    public StreamingOutputWriter(String filePath) {
+        this.filePath = filePath;
+    }
+
+    @Override
+    public synchronized void begin(int count) {
+        if (rows != null) throw new IllegalStateException("A result has already begun.");
+        rows = new Object[count];
+        writer = new Thread(this::drain, "output-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void row(int index, double[] row) {
+        put(index, row);
+    }
+
+    @Override
+    public void row(int index, float[] row) {
+        put(index, row);
+    }
+
+    private synchronized void put(int index, Object row) {
+        rows[index] = row;
+        if (index == next) notifyAll();
+    }
+
+    /**
+     * Row {@code index} once it has arrived, or null if the writer was aborted.
+     */
+    private synchronized Object take(int index) throws InterruptedException {
+        next = index;
+        while (rows[index] == null && !aborted) wait();
+        Object row = rows[index];
+        rows[index] = null;
+        return aborted ? null : row;
+    }
+
+    private void drain() {
+        try (OutputStream out = CompressedFiles.openOutput(filePath);
+             JsonGenerator g = factory.createGenerator(out)) {
+            g.setPrettyPrinter(new DefaultPrettyPrinter());
+            g.writeStartObject();
+            g.writeFieldName("result");
+            g.writeStartArray();
+            for (int i = 0; i < rows.length; i++) {
+                Object row = take(i);
+                if (row == null) return;
+                g.writeStartArray();
+                if (row instanceof double[]) {
+                    for (double v : (double[]) row) g.writeNumber(v);
+                } else {
+                    for (float v : (float[]) row) g.writeNumber(v);
+                }
+                g.writeEndArray();
+            }
+            g.writeEndArray();
+            g.writeEndObject();
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            // aborted
+        }
+    }
+
+    /**
+     * Waits until every row has been written and closes the file.
+     *
+     * @return false if no result began, so nothing was written
+     * @throws IOException if writing failed
+     */
+    public boolean finish() throws IOException {
+        if (writer == null) return false;
+        join();
+        if (failure != null) throw failure;
+        finished = true;
+        return true;
+    }
+
+    private void join() throws IOException {
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the result", e);
+        }
+    }
+
+    /**
+     * Stops writing a result that has not finished.
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer == null || finished) return;
+        synchronized (this) {
+            aborted = true;
+            notifyAll();
+        }
+        join();
+    }
+}
@@ -0,0 +1,84 @@
+package scheduling;
+
+/**
+ * Resizes an elastic {@link TiredExecutor} from periodic samples of its backlog, idle workers
+ * and throughput.
+ *
+ * A worker is added when tasks are waiting and every worker is busy. If throughput has not
+ * improved a few samples after a worker was added (for example because the machine has no
+ * spare cores), growth is paused for a while. A worker that has been idle for
+ * {@link #IDLE_RETIRE_MILLIS} is retired, down to the pool's minimum.
+ */
+final class ElasticController implements Runnable {
+
+    static final long SAMPLE_MILLIS = 10;
+    static final long IDLE_RETIRE_MILLIS = 200;
+    /** Samples between adding a worker and checking whether it helped. */
+    private static final int EVALUATE_AFTER = 5;
+    /** Samples during which growth is paused after a worker did not help. */
+    private static final int COOLDOWN = 50;
+    /** Throughput must improve by this factor for an added worker to count as useful. */
+    private static final double MIN_SPEEDUP = 1.05;
+    private static final double ALPHA = 0.3; // weight of the newest throughput sample
+
+    private final TiredExecutor executor;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private double throughput = 0; // moving average of tasks completed per sample
+    private long lastCompleted = 0;
+    private double throughputBeforeGrow = 0;
+    private int evaluateIn = -1;
+    private int cooldown = 0;
+
+    ElasticController(TiredExecutor executor) {
+        this.executor = executor;
+        this.thread = new Thread(this, "elastic-controller");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Thread.sleep(SAMPLE_MILLIS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            sample();
+        }
+    }
+
+    void sample() {
+        long done = executor.getCompletedTasks();
+        throughput = ALPHA * (done - lastCompleted) + (1 - ALPHA) * throughput;
+        lastCompleted = done;
+
+        if (evaluateIn > 0 && --evaluateIn == 0) {
+            if (throughput < throughputBeforeGrow * MIN_SPEEDUP) {
+                cooldown = COOLDOWN;
+            }
+            evaluateIn = -1;
+        }
+        if (cooldown > 0) cooldown--;
+
+        if (executor.getBacklog() > 0 && !executor.hasIdleWorker()) {
+            if (cooldown == 0 && evaluateIn < 0 && executor.grow()) {
+                throughputBeforeGrow = throughput;
+                evaluateIn = EVALUATE_AFTER;
+            }
+        } else {
+            executor.shrink(IDLE_RETIRE_MILLIS * 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package scheduling;
+
+/**
+ * Thrown by a {@link TiredExecutor} once a task has failed or its deadline has passed.
+ * The cause, if any, is the exception thrown by the first failing task.
+ */
+public class ExecutionCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExecutionCancelledException(String message) {
+        super(message);
+    }
+
+    public ExecutionCancelledException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
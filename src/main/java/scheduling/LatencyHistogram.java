@@ -0,0 +1,68 @@
+package scheduling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations with power-of-two nanosecond buckets.
+ * Bucket i counts durations in [2^i, 2^(i+1)) ns; bucket 0 also holds zero durations.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 63;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sumNanos = new AtomicLong(0);
+    private final AtomicLong maxNanos = new AtomicLong(0);
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        int bucket = nanos == 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+        counts.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the exclusive upper bound of the bucket that contains the given quantile
+     * (0 < q <= 1), capped at the largest recorded value; 0 if nothing was recorded.
+     */
+    public long quantileNanos(double q) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(1L << (i + 1), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the number of samples in the bucket whose range ends (exclusively) at 2^(i+1) ns.
+     */
+    public long getBucketCount(int i) {
+        return counts.get(i);
+    }
+
+    public int getBucketCount() {
+        return BUCKETS;
+    }
+}
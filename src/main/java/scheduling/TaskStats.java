@@ -0,0 +1,61 @@
+package scheduling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects per-task queue wait and run time for every batch submitted while it is installed
+ * on a {@link TiredExecutor}, plus the time span covered by those batches.
+ */
+public class TaskStats {
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    private final AtomicLong tasks = new AtomicLong(0);
+    private long firstBatchStart = 0;
+    private long lastBatchEnd = 0;
+    private int batches = 0;
+
+    void taskStarted(long waitedNanos) {
+        tasks.incrementAndGet();
+        queueWait.record(waitedNanos);
+    }
+
+    void taskFinished(long ranNanos) {
+        runTime.record(ranNanos);
+    }
+
+    synchronized void batchStarted(long now) {
+        if (batches == 0) firstBatchStart = now;
+        batches++;
+    }
+
+    synchronized void batchFinished(long now) {
+        lastBatchEnd = now;
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getRunTime() {
+        return runTime;
+    }
+
+    public long getTaskCount() {
+        return tasks.get();
+    }
+
+    public synchronized int getBatchCount() {
+        return batches;
+    }
+
+    /** System.nanoTime() at which the first batch was submitted; 0 if none was. */
+    public synchronized long getFirstBatchStart() {
+        return firstBatchStart;
+    }
+
+    /** System.nanoTime() at which the last batch completed; 0 if none did. */
+    public synchronized long getLastBatchEnd() {
+        return lastBatchEnd;
+    }
+}
@@ -1,68 +1,345 @@
 package scheduling;
 
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 public class TiredExecutor {
 
-    private final TiredThread[] workers;
+    private final List<TiredThread> workers = new ArrayList<>(); // active workers, guarded by this
+    private final List<TiredThread> retired = new ArrayList<>(); // shut down by the elastic controller
     private final PriorityBlockingQueue<TiredThread> idleMinHeap = new PriorityBlockingQueue<>();
     private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger backlog = new AtomicInteger(0); // submitted, not yet handed to a worker
+    private final AtomicLong completed = new AtomicLong(0);
+    private final int minThreads;
+    private final int maxThreads;
+    private int nextWorkerId = 0;
+    private ElasticController controller; // null for a fixed-size pool, guarded by this
+    private volatile TaskStats taskStats = null; // receives timings of submitted tasks, if set
+    private volatile boolean affinity = false;
+    // the worker that last ran a task on each data block, guarded by this; weak, so that the
+    // blocks of dropped results fall out
+    private final Map<Object, TiredThread> lastWorker = new WeakHashMap<>();
+
+    // Set once by the first failing task or an expired deadline; from then on no task starts
+    private final AtomicReference<ExecutionCancelledException> cancellation = new AtomicReference<>();
+    private volatile boolean hasDeadline = false;
+    private volatile long deadline = 0; // System.nanoTime() value, valid if hasDeadline
+    private volatile long timeoutMillis = 0;
 
     public TiredExecutor(int numThreads) {
         // TODO
-        if (numThreads <= 0) {
+        this(numThreads, numThreads);
+    }
+
+    /**
+     * Creates an elastic pool that starts with {@code minThreads} workers and is resized
+     * between the two bounds by an {@link ElasticController}. Equal bounds give a fixed pool.
+     */
+    public static TiredExecutor elastic(int minThreads, int maxThreads) {
+        TiredExecutor executor = new TiredExecutor(minThreads, maxThreads);
+        if (maxThreads > minThreads) executor.startController();
+        return executor;
+    }
+
+    private TiredExecutor(int minThreads, int maxThreads) {
+        if (minThreads <= 0) {
             throw new IllegalArgumentException("Number of threads must be positive.");
         }
-        workers = new TiredThread[numThreads];
-        for (int i = 0; i < numThreads; i++) {
-            double fatigueFactor = 0.5 + Math.random(); // [0.5, 1.5)
-            workers[i] = new TiredThread(i, fatigueFactor);
-            idleMinHeap.add(workers[i]);
-            workers[i].start();
+        if (maxThreads < minThreads) {
+            throw new IllegalArgumentException("Maximum number of threads must be at least the minimum.");
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        synchronized (this) {
+            for (int i = 0; i < minThreads; i++) {
+                addWorker(0.0);
+            }
+        }
+    }
+
+    // started once the executor is fully built, since the controller thread calls back into it
+    private synchronized void startController() {
+        controller = new ElasticController(this);
+        controller.start();
+    }
+
+    private void addWorker(double fatigueOffset) {
+        double fatigueFactor = 0.5 + Math.random(); // [0.5, 1.5)
+        TiredThread worker = new TiredThread(nextWorkerId++, fatigueFactor, fatigueOffset, this::onWorkerIdle);
+        workers.add(worker);
+        idleMinHeap.add(worker);
+        worker.start();
+        this.notifyAll();
+    }
+
+    /**
+     * Adds a worker if the pool is below its maximum. The new worker starts as tired as the
+     * least tired active worker, so fatigue-ordered scheduling stays fair.
+     */
+    synchronized boolean grow() {
+        if (workers.size() >= maxThreads) return false;
+        double baseline = Double.MAX_VALUE;
+        for (TiredThread w : workers) {
+            baseline = Math.min(baseline, w.getFatigue());
+        }
+        addWorker(workers.isEmpty() ? 0.0 : baseline);
+        return true;
+    }
+
+    /**
+     * Retires the most tired worker that has been idle for at least {@code minIdleNanos},
+     * if the pool is above its minimum.
+     */
+    synchronized boolean shrink(long minIdleNanos) {
+        if (workers.size() <= minThreads) return false;
+        long now = System.nanoTime();
+        TiredThread victim = null;
+        for (TiredThread w : idleMinHeap) {
+            if (now - w.getIdleSince() >= minIdleNanos && (victim == null || w.getFatigue() > victim.getFatigue())) {
+                victim = w;
+            }
+        }
+        if (victim == null) return false;
+        // idle and out of the heap: nothing can hand it a task any more
+        idleMinHeap.remove(victim);
+        lastWorker.values().removeAll(Collections.singleton(victim));
+        workers.remove(victim);
+        retired.add(victim);
+        victim.shutdown();
+        return true;
+    }
+
+    synchronized int getPoolSize() {
+        return workers.size();
+    }
+
+    synchronized boolean hasIdleWorker() {
+        return !idleMinHeap.isEmpty();
+    }
+
+    int getBacklog() {
+        return backlog.get();
+    }
+
+    long getCompletedTasks() {
+        return completed.get();
+    }
+
+    /**
+     * Installs (or, with null, removes) the sink for per-task wait and run times.
+     */
+    public void setTaskStats(TaskStats stats) {
+        this.taskStats = stats;
+    }
+
+    /**
+     * With affinity on, a task tagged with the data block it works on (see {@link #keyed})
+     * goes to the worker that last ran a task on that block, where the block is likely still
+     * in cache; only if that worker is busy does it go to the least tired idle worker.
+     * submitAll also hands an idle worker its own tasks of the batch before any other, then
+     * tasks of blocks no worker has touched, and only then, from the back, those of the
+     * worker with the most left. Turning it off forgets the recorded workers.
+     */
+    public synchronized void setAffinity(boolean enabled) {
+        this.affinity = enabled;
+        if (!enabled) lastWorker.clear();
+    }
+
+    /**
+     * Tags {@code task} with the data block it reads and writes, e.g. the array of a matrix
+     * row. Blocks are compared with equals, so arrays by identity. {@code block} is asked
+     * when the task is handed out, to find the worker that last touched the block, and again
+     * once the task has run, since the task may have replaced the block with a new one that
+     * its worker now holds. The tag only matters with affinity on.
+     */
+    public static Runnable keyed(Supplier<?> block, Runnable task) {
+        if (block == null || task == null) throw new IllegalArgumentException("task and block cannot be null");
+        return new KeyedTask(block, task);
+    }
+
+    private static final class KeyedTask implements Runnable {
+        final Supplier<?> block;
+        final Runnable task;
+
+        KeyedTask(Supplier<?> block, Runnable task) {
+            this.block = block;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    private synchronized void touched(Object block, TiredThread worker) {
+        if (affinity && block != null) lastWorker.put(block, worker);
+    }
+
+    /**
+     * Cancels all work still outstanding {@code timeoutMillis} from now.
+     */
+    public void setDeadline(long timeoutMillis) {
+        if (timeoutMillis <= 0) throw new IllegalArgumentException("timeout must be positive");
+        this.timeoutMillis = timeoutMillis;
+        this.deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * Cancels the executor: tasks that have not started yet are skipped, running ones finish,
+     * and submitAll/submit throw. Only the first cancellation is kept.
+     */
+    public void cancel(ExecutionCancelledException reason) {
+        if (cancellation.compareAndSet(null, reason)) {
+            synchronized (this) {
+                this.notifyAll();
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancellation.get() != null;
+    }
+
+    /**
+     * Throws the cancellation, if the executor was cancelled or its deadline has passed.
+     */
+    public void checkCancelled() {
+        expireDeadline();
+        ExecutionCancelledException reason = cancellation.get();
+        if (reason != null) throw reason;
+    }
+
+    public void submit(Runnable task) {
+        submit(task, taskStats);
+    }
+
+    /**
+     * Submits a task whose wait and run times go to {@code stats} (may be null) instead of the
+     * installed sink; used when tasks of several operators are in flight at once.
+     */
+    public void submit(Runnable task, TaskStats stats) {
+        if (task == null) throw new IllegalArgumentException("task cannot be null");
+        checkCancelled();
+        backlog.incrementAndGet();
+        if (!submit(task, System.nanoTime(), stats)) {
+            backlog.decrementAndGet();
+            checkCancelled();
+        }
+    }
+
+    /**
+     * Blocks until at least one worker is idle, so that the caller can choose the next task
+     * knowing it will start immediately.
+     */
+    public void awaitIdleWorker() {
+        synchronized (this) {
+            while (idleMinHeap.isEmpty() && !isCancelled()) {
+                try {
+                    this.wait(millisUntilDeadline());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for an idle worker", e);
+                }
+                expireDeadline();
+            }
         }
-       
+        checkCancelled();
     }
 
-       public void submit(Runnable task) {
+    /**
+     * @param enqueuedAt System.nanoTime() at which the task was handed to the executor;
+     *                   the time until a worker starts it is recorded as queue wait
+     * @return false if the executor was cancelled while waiting for an idle worker
+     */
+    private boolean submit(Runnable task, long enqueuedAt, TaskStats stats) {
         if (task == null) throw new IllegalArgumentException("task cannot be null");
 
+        Object block = null;
+        if (task instanceof KeyedTask) {
+            KeyedTask keyedTask = (KeyedTask) task;
+            task = keyedTask.task;
+            if (affinity) {
+                Runnable inner = task;
+                Supplier<?> blocks = keyedTask.block;
+                block = blocks.get();
+                task = () -> {
+                    inner.run();
+                    touched(blocks.get(), (TiredThread) Thread.currentThread());
+                };
+            }
+        }
+        if (stats != null) {
+            Runnable inner = task;
+            task = () -> {
+                long start = System.nanoTime();
+                stats.taskStarted(start - enqueuedAt);
+                try {
+                    inner.run();
+                } finally {
+                    stats.taskFinished(System.nanoTime() - start);
+                }
+            };
+        }
+        Runnable guarded = task;
+        task = () -> {
+            expireDeadline();
+            if (isCancelled()) return;
+            try {
+                guarded.run();
+            } catch (RuntimeException | Error e) {
+                cancel(new ExecutionCancelledException("Task failed: " + e, e));
+            }
+        };
+        TraceRecorder tracer = TraceRecorder.active();
+        if (tracer != null) {
+            task = tracer.label(task);
+        }
+
         final TiredThread worker;
 
         synchronized (this) {
+            boolean waited = idleMinHeap.isEmpty();
+            long waitStart = waited ? System.nanoTime() : 0;
             while (idleMinHeap.isEmpty()) {
+                if (isCancelled()) return false;
                 try {
-                    this.wait();
+                    this.wait(millisUntilDeadline());
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     throw new RuntimeException("Interrupted while waiting for an idle worker", e);
                 }
+                expireDeadline();
             }
 
-            // Take least-fatigued idle worker
-            worker = idleMinHeap.poll();
+            if (waited) {
+                TraceRecorder.span("wait for idle worker", TraceRecorder.WAIT, waitStart);
+            }
+
+            // Take the block's last worker if it is idle, otherwise the least-fatigued idle worker
+            TiredThread preferred = block == null ? null : lastWorker.get(block);
+            worker = preferred != null && idleMinHeap.remove(preferred) ? preferred : idleMinHeap.poll();
             inFlight.incrementAndGet();
+            backlog.decrementAndGet();
         }
 
-        // Wrap to ensure worker is returned to idle heap even if task throws
-        Runnable wrapped = () -> {
-            try {
-                task.run();
-            } finally {
-                synchronized (this) {
-                    idleMinHeap.add(worker);
-                    inFlight.decrementAndGet();
-                    
-                    this.notifyAll();
-                }
-            }
-        };
-
+        // The worker returns itself to the idle heap (see onWorkerIdle) once the task has run
+        // and its fatigue has been updated, even if the task throws.
         // newTask is non-blocking; if it fails, we must roll back inFlight + idle heap
         try {
-            worker.newTask(wrapped);
+            worker.newTask(task);
         } catch (RuntimeException e) {
             synchronized (this) {
                 // Put the worker back + fix counter
@@ -72,28 +349,147 @@ public class TiredExecutor {
             }
             throw e;
         }
+        return true;
+    }
+
+    /**
+     * Timeout for Object.wait: 0 (forever) without a deadline, otherwise at least 1 ms.
+     */
+    private long millisUntilDeadline() {
+        if (!hasDeadline) return 0;
+        return Math.max(1, (deadline - System.nanoTime() + 999_999) / 1_000_000);
+    }
+
+    private void expireDeadline() {
+        if (hasDeadline && System.nanoTime() - deadline >= 0) {
+            cancel(new ExecutionCancelledException("Deadline of " + timeoutMillis + " ms exceeded"));
+        }
+    }
+
+    private void onWorkerIdle(TiredThread worker) {
+        completed.incrementAndGet();
+        synchronized (this) {
+            idleMinHeap.add(worker);
+            inFlight.decrementAndGet();
+            this.notifyAll();
+        }
     }
 
     public void submitAll(Iterable<Runnable> tasks) {
         // TODO: submit tasks one by one and wait until all finish
-     
-        for (Runnable r : tasks) {
-            submit(r);
+        submitAll(tasks, taskStats);
+    }
+
+    /**
+     * Runs a batch whose timings go to {@code stats} (may be null) instead of the installed
+     * sink; used for helper batches that should not count as one of the operator's batches.
+     */
+    public void submitAll(Iterable<Runnable> tasks, TaskStats stats) {
+        long batchStart = System.nanoTime();
+        if (stats != null) stats.batchStarted(batchStart);
+        checkCancelled();
+        List<Runnable> batch = new ArrayList<>();
+        tasks.forEach(batch::add);
+        backlog.addAndGet(batch.size());
+        int handedOut = 0;
+        if (affinity) {
+            AffineBatch pending = new AffineBatch(batch);
+            while (pending.size > 0) {
+                if (isCancelled() || !submit(nextAffine(pending), batchStart, stats)) break;
+                handedOut++;
+            }
+        } else {
+            for (Runnable r : batch) {
+                // after a failure the remaining tasks are never handed out
+                if (isCancelled() || !submit(r, batchStart, stats)) break;
+                handedOut++;
+            }
         }
+        backlog.addAndGet(handedOut - batch.size());
+        long barrierStart = System.nanoTime();
+        // running tasks are waited for even after a cancellation, so none outlives the batch
         synchronized (this) {
             while (inFlight.get() > 0) {
                 try {
-                    this.wait();
+                    this.wait(millisUntilDeadline());
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     throw new RuntimeException("Interrupted while waiting for tasks to finish", e);
                 }
+                expireDeadline();
+            }
+    }
+        TraceRecorder.span("submitAll barrier", TraceRecorder.WAIT, barrierStart);
+        if (stats != null) stats.batchFinished(System.nanoTime());
+        checkCancelled();
+    }
+
+    /**
+     * The tasks of a batch not handed out yet, queued by the worker that last touched their
+     * block.
+     */
+    private final class AffineBatch {
+        final Map<TiredThread, ArrayDeque<Runnable>> byWorker = new HashMap<>();
+        final ArrayDeque<Runnable> unassigned = new ArrayDeque<>();
+        int size;
+
+        AffineBatch(List<Runnable> batch) {
+            List<Object> blocks = new ArrayList<>(batch.size());
+            for (Runnable task : batch) {
+                blocks.add(task instanceof KeyedTask ? ((KeyedTask) task).block.get() : null);
+            }
+            synchronized (TiredExecutor.this) {
+                for (int i = 0; i < batch.size(); i++) {
+                    TiredThread w = blocks.get(i) == null ? null : lastWorker.get(blocks.get(i));
+                    (w == null ? unassigned : byWorker.computeIfAbsent(w, k -> new ArrayDeque<>())).add(batch.get(i));
+                }
             }
+            size = batch.size();
+        }
     }
+
+    /**
+     * Removes and returns the next task of an affine batch once a worker is idle: the first
+     * task of an idle worker's own queue, else an unassigned task, else the last task of the
+     * longest queue, which the least tired idle worker takes over.
+     */
+    private Runnable nextAffine(AffineBatch pending) {
+        synchronized (this) {
+            while (idleMinHeap.isEmpty() && !isCancelled()) {
+                try {
+                    this.wait(millisUntilDeadline());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for an idle worker", e);
+                }
+                expireDeadline();
+            }
+            for (TiredThread w : idleMinHeap) {
+                ArrayDeque<Runnable> own = pending.byWorker.get(w);
+                if (own != null && !own.isEmpty()) {
+                    pending.size--;
+                    return own.pollFirst();
+                }
+            }
+        }
+        pending.size--;
+        if (!pending.unassigned.isEmpty()) return pending.unassigned.pollFirst();
+        ArrayDeque<Runnable> longest = null;
+        for (ArrayDeque<Runnable> queue : pending.byWorker.values()) {
+            if (longest == null || queue.size() > longest.size()) longest = queue;
+        }
+        return longest.pollLast();
     }
 
     public void shutdown() throws InterruptedException {
         // TODO
+        ElasticController elastic;
+        synchronized (this) {
+            elastic = controller;
+        }
+        if (elastic != null) {
+            elastic.stop();
+        }
         synchronized (this) {
             while (inFlight.get() > 0) {
                 try {
@@ -104,18 +500,31 @@ public class TiredExecutor {
                 }
             }
         }
-        for (TiredThread worker : workers) {
-            worker.shutdown();
+        List<TiredThread> all;
+        synchronized (this) {
+            for (TiredThread worker : workers) {
+                worker.shutdown();
+            }
+            all = getWorkers();
         }
-        for (TiredThread worker : workers) {
+        for (TiredThread worker : all) {
             worker.join();
         }
     }
 
+    /**
+     * Returns every worker this executor has had, active ones first, for reporting.
+     */
+    public synchronized List<TiredThread> getWorkers() {
+        List<TiredThread> all = new ArrayList<>(workers);
+        all.addAll(retired);
+        return all;
+    }
+
     public synchronized String getWorkerReport() {
         // TODO: return readable statistics for each worker
         StringBuilder stats = new StringBuilder();
-        for (TiredThread worker : workers) {
+        for (TiredThread worker : getWorkers()) {
             stats.append("Worker ")
               .append(worker.getWorkerId())
               .append(" name=")
@@ -126,6 +535,7 @@ public class TiredExecutor {
               .append(worker.getTimeUsed())
               .append(" idle=")
               .append(worker.getTimeIdle())
+              .append(retired.contains(worker) ? " retired" : "")
               .append("\n");
         }
         
@@ -4,6 +4,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class TiredThread extends Thread implements Comparable<TiredThread> {
 
@@ -11,6 +12,7 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
 
     private final int id; // Worker index assigned by the executor
     private final double fatigueFactor; // Multiplier for fatigue calculation
+    private final double fatigueOffset; // Fatigue carried in by a worker that joined a running pool
 
     private final AtomicBoolean alive = new AtomicBoolean(true); // Indicates if the worker should keep running
 
@@ -23,9 +25,28 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
     private final AtomicLong timeIdle = new AtomicLong(0); // Total time spent idle
     private final AtomicLong idleStartTime = new AtomicLong(0); // Timestamp when the worker became idle
 
+    // Called after each task, once timing and the busy flag are updated, so the worker is
+    // only handed out again when it can actually accept a task
+    private final Consumer<TiredThread> onIdle;
+
     public TiredThread(int id, double fatigueFactor) {
+        this(id, fatigueFactor, null);
+    }
+
+    public TiredThread(int id, double fatigueFactor, Consumer<TiredThread> onIdle) {
+        this(id, fatigueFactor, 0.0, onIdle);
+    }
+
+    /**
+     * @param fatigueOffset starting fatigue; a worker added to a running pool starts level with
+     *                      the least tired worker instead of at zero, where it would be picked
+     *                      for every task until it caught up
+     */
+    public TiredThread(int id, double fatigueFactor, double fatigueOffset, Consumer<TiredThread> onIdle) {
         this.id = id;
         this.fatigueFactor = fatigueFactor;
+        this.fatigueOffset = fatigueOffset;
+        this.onIdle = onIdle;
         this.idleStartTime.set(System.nanoTime());
         setName(String.format("FF=%.2f", fatigueFactor));
     }
@@ -35,7 +56,7 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
     }
 
     public double getFatigue() {
-        return fatigueFactor * timeUsed.get();
+        return fatigueOffset + fatigueFactor * timeUsed.get();
     }
 
     public boolean isBusy() {
@@ -50,6 +71,20 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
         return timeIdle.get();
     }
 
+    /**
+     * System.nanoTime() at which the worker last became idle; meaningful while it is not busy.
+     */
+    public long getIdleSince() {
+        return idleStartTime.get();
+    }
+
+    /**
+     * Returns true once {@link #shutdown()} has been called.
+     */
+    public boolean isShutDown() {
+        return !alive.get();
+    }
+
     /**
      * Assign a task to this worker.
      * This method is non-blocking: if the worker is not ready to accept a task,
@@ -111,14 +146,21 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
             try {
                 task.run();
             } catch (RuntimeException e) {
-                // Handle task exceptions if necessary
-
+                // Tasks submitted through TiredExecutor catch and report their own failures;
+                // anything reaching this point is dropped so the worker stays alive
             } finally {
                 long endTime = System.nanoTime();
                 long duration = endTime - startTime;
+                TraceRecorder tracer = TraceRecorder.active();
+                if (tracer != null) {
+                    tracer.recordTask(task, startTime, endTime);
+                }
                 timeUsed.addAndGet(duration);
                 busy.set(false);
                 idleStartTime.set(System.nanoTime());
+                if (onIdle != null) {
+                    onIdle.accept(this);
+                }
             }
         }
     }
@@ -0,0 +1,213 @@
+package scheduling;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records a timeline of spans (task runs, barrier and lock waits, operator phases) and exports
+ * it in the Chrome trace-event format, viewable in chrome://tracing or Perfetto.
+ *
+ * At most one recorder is active at a time. Each thread writes into its own fixed-size ring
+ * buffer, so recording takes no lock; when a buffer is full its oldest spans are overwritten.
+ * While no recorder is active every hook is a single volatile read.
+ */
+public final class TraceRecorder {
+
+    public static final String TASK = "task";
+    public static final String WAIT = "wait";
+    public static final String LOCK = "lock";
+    public static final String OPERATOR = "operator";
+    public static final String PHASE = "phase";
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static volatile TraceRecorder active = null;
+
+    private final int capacity;
+    private final long origin = System.nanoTime();
+    private final List<Ring> rings = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Ring> ring = ThreadLocal.withInitial(this::newRing);
+    private final ThreadLocal<String> operator = new ThreadLocal<>();
+
+    private TraceRecorder(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Per-thread span storage. Only the owning thread writes; {@link #toTraceEvents()} reads
+     * it once the traced work has finished.
+     */
+    private static final class Ring {
+        final long tid;
+        final String threadName;
+        final String[] names;
+        final String[] categories;
+        final String[] operators;
+        final long[] starts;
+        final long[] durations;
+        volatile long written = 0;
+
+        Ring(Thread thread, int capacity) {
+            this.tid = thread.threadId();
+            this.threadName = thread instanceof TiredThread
+                    ? "worker " + ((TiredThread) thread).getWorkerId() + " (" + thread.getName() + ")"
+                    : thread.getName();
+            this.names = new String[capacity];
+            this.categories = new String[capacity];
+            this.operators = new String[capacity];
+            this.starts = new long[capacity];
+            this.durations = new long[capacity];
+        }
+
+        void add(String name, String category, String operator, long start, long duration) {
+            long w = written;
+            int slot = (int) (w % names.length);
+            names[slot] = name;
+            categories[slot] = category;
+            operators[slot] = operator;
+            starts[slot] = start;
+            durations[slot] = duration;
+            written = w + 1;
+        }
+    }
+
+    /**
+     * A task tagged with the operator that was being evaluated when it was submitted.
+     */
+    static final class LabeledTask implements Runnable {
+        final Runnable task;
+        final String operator;
+
+        LabeledTask(Runnable task, String operator) {
+            this.task = task;
+            this.operator = operator;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    private Ring newRing() {
+        Ring r = new Ring(Thread.currentThread(), capacity);
+        rings.add(r);
+        return r;
+    }
+
+    /**
+     * Starts a new recorder and makes it the active one.
+     */
+    public static TraceRecorder start() {
+        return start(DEFAULT_CAPACITY);
+    }
+
+    public static TraceRecorder start(int capacityPerThread) {
+        if (capacityPerThread <= 0) throw new IllegalArgumentException("capacity must be positive");
+        TraceRecorder recorder = new TraceRecorder(capacityPerThread);
+        active = recorder;
+        return recorder;
+    }
+
+    /**
+     * Stops recording; spans recorded so far can still be exported.
+     */
+    public void stop() {
+        if (active == this) active = null;
+    }
+
+    public static TraceRecorder active() {
+        return active;
+    }
+
+    /**
+     * Records a span on the calling thread from {@code startNanos} (System.nanoTime()) until now,
+     * if a recorder is active.
+     */
+    public static void span(String name, String category, long startNanos) {
+        TraceRecorder r = active;
+        if (r != null) r.record(name, category, startNanos, System.nanoTime());
+    }
+
+    public void record(String name, String category, long startNanos, long endNanos) {
+        ring.get().add(name, category, operator.get(), startNanos, endNanos - startNanos);
+    }
+
+    /**
+     * Sets the operator the calling thread is working on; tasks it submits and spans it records
+     * are tagged with it. Null clears it.
+     */
+    public static void setOperator(String name) {
+        TraceRecorder r = active;
+        if (r == null) return;
+        if (name == null) {
+            r.operator.remove();
+        } else {
+            r.operator.set(name);
+        }
+    }
+
+    Runnable label(Runnable task) {
+        return new LabeledTask(task, operator.get());
+    }
+
+    void recordTask(Runnable task, long startNanos, long endNanos) {
+        String op = task instanceof LabeledTask ? ((LabeledTask) task).operator : null;
+        ring.get().add(op == null ? TASK : op, TASK, op, startNanos, endNanos - startNanos);
+    }
+
+    /**
+     * Spans that were overwritten because a thread's ring buffer filled up.
+     */
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (Ring r : rings) {
+            dropped += Math.max(0, r.written - capacity);
+        }
+        return dropped;
+    }
+
+    /**
+     * Returns the recorded spans as a Chrome trace-event document: one complete ("X") event per
+     * span with microsecond timestamps relative to the recorder's start, plus a thread_name
+     * metadata event per thread.
+     */
+    public Map<String, Object> toTraceEvents() {
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (Ring r : rings) {
+            Map<String, Object> meta = new LinkedHashMap<>();
+            meta.put("name", "thread_name");
+            meta.put("ph", "M");
+            meta.put("pid", 1);
+            meta.put("tid", r.tid);
+            meta.put("args", Map.of("name", r.threadName));
+            events.add(meta);
+
+            long written = r.written;
+            long first = Math.max(0, written - capacity);
+            for (long i = first; i < written; i++) {
+                int slot = (int) (i % capacity);
+                Map<String, Object> e = new LinkedHashMap<>();
+                e.put("name", r.names[slot]);
+                e.put("cat", r.categories[slot]);
+                e.put("ph", "X");
+                e.put("ts", (r.starts[slot] - origin) / 1000.0);
+                e.put("dur", r.durations[slot] / 1000.0);
+                e.put("pid", 1);
+                e.put("tid", r.tid);
+                if (r.operators[slot] != null) {
+                    e.put("args", Map.of("operator", r.operators[slot]));
+                }
+                events.add(e);
+            }
+        }
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", events);
+        trace.put("displayTimeUnit", "ms");
+        trace.put("otherData", Map.of("droppedEvents", getDroppedCount()));
+        return trace;
+    }
+}
@@ -0,0 +1,247 @@
+package spl.lae;
+
+import memory.FloatSharedMatrix;
+import memory.SharedMatrix;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.TiredExecutor;
+import scheduling.TraceRecorder;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves a computation tree with the tasks of every ready operator in flight together,
+ * instead of one operator at a time.
+ *
+ * Each operator is ranked by its upward rank: its own estimated cost plus the rank of its
+ * parent, i.e. the cost of the longest chain from it to the root. Whenever a worker is free,
+ * the pending task of the highest-ranked operator is dispatched, so work on the critical path
+ * is never queued behind work that has slack. Costs come from the {@link ExecutionPlan}: one
+ * unit per flop and per element moved.
+ *
+ * Row-by-column operators get their own operand matrices so that several can be in flight;
+ * operators with sparse or Strassen-Winograd kernels run their own batches when they become
+ * ready. All tree updates happen on the calling thread.
+ */
+final class CriticalPathScheduler {
+
+    private static final long POLL_MILLIS = 10;
+
+    private final LinearAlgebraEngine engine;
+    private final TiredExecutor executor;
+
+    private final Map<ComputationNode, ComputationNode> parents = new IdentityHashMap<>();
+    private final Map<ComputationNode, Double> ranks = new IdentityHashMap<>();
+    private final PriorityQueue<PendingTask> pending = new PriorityQueue<>();
+    private final LinkedBlockingQueue<NodeWork> finished = new LinkedBlockingQueue<>();
+    private long sequence = 0;
+
+    /**
+     * A row-by-column operator whose tasks are pending or running.
+     */
+    private static final class NodeWork {
+        final ComputationNode node;
+        final double rank;
+        final MetricsReport.NodeMetrics metrics;
+        final AtomicInteger remaining = new AtomicInteger();
+        SharedMatrix left;
+        SharedMatrix right;
+        FloatSharedMatrix floatLeft;
+        FloatSharedMatrix floatRight;
+
+        NodeWork(ComputationNode node, double rank, MetricsReport.NodeMetrics metrics) {
+            this.node = node;
+            this.rank = rank;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * Highest rank first; ties in readiness order, then task order.
+     */
+    private static final class PendingTask implements Comparable<PendingTask> {
+        final NodeWork work;
+        final Runnable task;
+        final long sequence;
+
+        PendingTask(NodeWork work, Runnable task, long sequence) {
+            this.work = work;
+            this.task = task;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(PendingTask o) {
+            int byRank = Double.compare(o.work.rank, work.rank);
+            return byRank != 0 ? byRank : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    CriticalPathScheduler(LinearAlgebraEngine engine, TiredExecutor executor) {
+        this.engine = engine;
+        this.executor = executor;
+    }
+
+    /**
+     * Cost of a planned step in abstract units: flops plus elements moved.
+     */
+    static double cost(ExecutionPlan.Step step) {
+        return step.flops + (double) step.bytesMoved / Double.BYTES;
+    }
+
+    /**
+     * Upward ranks of all operator nodes: rank(root) = cost(root),
+     * rank(n) = cost(n) + rank(parent(n)).
+     */
+    static Map<ComputationNode, Double> upwardRanks(ComputationNode root, ExecutionPlan plan) {
+        Map<ComputationNode, Double> costs = new IdentityHashMap<>();
+        for (ExecutionPlan.Step step : plan.steps) {
+            costs.put(step.node, cost(step));
+        }
+        Map<ComputationNode, Double> ranks = new IdentityHashMap<>();
+        rank(root, 0.0, costs, ranks);
+        return ranks;
+    }
+
+    private static void rank(ComputationNode node, double parentRank, Map<ComputationNode, Double> costs,
+                             Map<ComputationNode, Double> ranks) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) return;
+        double r = costs.get(node) + parentRank;
+        ranks.put(node, r);
+        for (ComputationNode child : node.getChildren()) {
+            rank(child, r, costs, ranks);
+        }
+    }
+
+    void run(ComputationNode root, ExecutionPlan plan) {
+        ranks.putAll(upwardRanks(root, plan));
+        List<ComputationNode> ready = new ArrayList<>();
+        collect(root, null, ready);
+        try {
+            for (ComputationNode node : ready) {
+                makeReady(node);
+            }
+            while (root.getNodeType() != ComputationNodeType.MATRIX) {
+                NodeWork done;
+                while ((done = finished.poll()) != null) {
+                    complete(done);
+                }
+                if (root.getNodeType() == ComputationNodeType.MATRIX) break;
+                if (pending.isEmpty()) {
+                    done = finished.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (done != null) complete(done);
+                    executor.checkCancelled();
+                    continue;
+                }
+                executor.awaitIdleWorker();
+                // a task that just finished may have made a higher-ranked operator ready
+                if (!finished.isEmpty()) continue;
+                PendingTask next = pending.poll();
+                TraceRecorder.setOperator(next.work.metrics.operator);
+                executor.submit(next.task, next.work.metrics.stats);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scheduling tasks", e);
+        } finally {
+            TraceRecorder.setOperator(null);
+        }
+    }
+
+    /**
+     * Records parent links and collects the nodes that are ready at the start, leftmost first.
+     */
+    private void collect(ComputationNode node, ComputationNode parent, List<ComputationNode> ready) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) return;
+        parents.put(node, parent);
+        for (ComputationNode child : node.getChildren()) {
+            collect(child, node, ready);
+        }
+        if (childrenResolved(node)) ready.add(node);
+    }
+
+    private static boolean childrenResolved(ComputationNode node) {
+        for (ComputationNode child : node.getChildren()) {
+            if (child.getNodeType() != ComputationNodeType.MATRIX) return false;
+        }
+        return true;
+    }
+
+    private void makeReady(ComputationNode node) {
+        executor.checkCancelled();
+        MetricsReport.NodeMetrics metrics = engine.beginNodeMetrics(node);
+        if (!engine.isRowByColumn(node)) {
+            executor.setTaskStats(metrics.stats);
+            engine.resolveNode(node, metrics);
+            engine.endNodeMetrics(node, metrics);
+            resolved(node);
+            return;
+        }
+
+        NodeWork work = new NodeWork(node, ranks.get(node), metrics);
+        metrics.kernel = "row-by-column";
+        metrics.bytesCopied += engine.layoutCopyBytes(node);
+        ComputationNodeType type = node.getNodeType();
+        List<Runnable> tasks;
+        if (engine.isSinglePrecision(node)) {
+            work.floatLeft = new FloatSharedMatrix();
+            work.floatRight = new FloatSharedMatrix();
+            engine.loadFloatOperands(type, node.getChildren(), work.floatLeft, work.floatRight);
+            tasks = engine.createFloatTasks(type, work.floatLeft, work.floatRight);
+        } else {
+            work.left = new SharedMatrix();
+            work.right = new SharedMatrix();
+            engine.loadOperands(type, node.getChildren(), work.left, work.right);
+            tasks = engine.createTasks(type, work.left, work.right);
+        }
+        tasks = engine.streamRows(node, tasks, work.left, work.floatLeft);
+        if (tasks.isEmpty()) {
+            complete(work);
+            return;
+        }
+        work.remaining.set(tasks.size());
+        List<Runnable> counted = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            counted.add(() -> {
+                try {
+                    task.run();
+                } finally {
+                    if (work.remaining.decrementAndGet() == 0) finished.add(work);
+                }
+            });
+        }
+        for (Runnable task : engine.withRowBlocks(type, counted, work.left, work.floatLeft)) {
+            pending.add(new PendingTask(work, task, sequence++));
+        }
+    }
+
+    /**
+     * Reads back the result of an operator whose tasks have all run.
+     */
+    private void complete(NodeWork work) {
+        ComputationNode node = work.node;
+        boolean transposed = node.getNodeType() == ComputationNodeType.TRANSPOSE;
+        if (work.floatLeft != null) {
+            node.resolve(work.floatLeft.takeRowMajor(null, 1));
+        } else {
+            node.resolve(work.left.takeRowMajor(null, 1));
+        }
+        if (transposed) work.metrics.bytesCopied += engine.resultBytes(node);
+        engine.endNodeMetrics(node, work.metrics);
+        resolved(node);
+    }
+
+    private void resolved(ComputationNode node) {
+        ComputationNode parent = parents.get(node);
+        if (parent != null && childrenResolved(parent)) {
+            makeReady(parent);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package spl.lae;
+
+import parser.ComputationNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of planning a computation tree without executing it: the shape, kernel and cost
+ * estimate of every operator, in the order the engine resolves them.
+ * Public fields are serialized as JSON.
+ */
+public class ExecutionPlan {
+
+    public static class Step {
+        /** 1-based position in resolution order. */
+        public int id;
+        public String operator;
+        /** The exponent of a POWER step, otherwise 0. */
+        public int exponent;
+        /** {rows, cols} of each operand. */
+        public List<int[]> operandShapes = new ArrayList<>();
+        public int[] resultShape;
+        /** dense, float32 or sparse, describing the result. */
+        public String representation;
+        /** The kernel the in-memory engine is expected to use. */
+        public String kernel;
+        public long flops;
+        /** Operand bytes read, result bytes written and layout copies made by the step. */
+        public long bytesMoved;
+        public long resultBytes;
+        /** Estimated bytes held while the step runs: live matrices, copies and the result. */
+        public long peakBytes;
+
+        transient ComputationNode node;
+    }
+
+    public List<Step> steps = new ArrayList<>();
+    public int[] resultShape;
+    /** Bytes of all input matrices, which are held in memory from parsing onwards. */
+    public long inputBytes;
+    public long totalFlops;
+    public long totalBytesMoved;
+    public long peakBytes;
+
+    /**
+     * Returns a human-readable table of the plan.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-4s %-10s %-24s %-12s %-8s %-18s %12s %12s %12s%n",
+                "#", "operator", "operands", "result", "repr", "kernel", "MFLOP", "moved", "peak"));
+        for (Step s : steps) {
+            StringBuilder operands = new StringBuilder();
+            for (int[] shape : s.operandShapes) {
+                if (operands.length() > 0) operands.append(", ");
+                operands.append(shape(shape));
+            }
+            sb.append(String.format("%-4d %-10s %-24s %-12s %-8s %-18s %12.3f %12s %12s%n",
+                    s.id, s.exponent > 0 ? s.operator + "^" + s.exponent : s.operator, operands, shape(s.resultShape), s.representation, s.kernel,
+                    s.flops / 1e6, bytes(s.bytesMoved), bytes(s.peakBytes)));
+        }
+        sb.append(String.format("result %s, inputs %s, %.3f MFLOP, %s moved, peak memory ~%s%n",
+                shape(resultShape), bytes(inputBytes), totalFlops / 1e6, bytes(totalBytesMoved), bytes(peakBytes)));
+        return sb.toString();
+    }
+
+    private static String shape(int[] shape) {
+        return shape[0] + "x" + shape[1];
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024L * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+}
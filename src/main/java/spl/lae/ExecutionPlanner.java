@@ -0,0 +1,427 @@
+package spl.lae;
+
+import memory.SparseMatrix;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static analysis of a computation tree: infers the shape and representation of every node,
+ * rejects invalid expressions with the same errors the engine would raise, and estimates the
+ * cost of each step. Nothing is computed and no matrix data is copied.
+ */
+final class ExecutionPlanner {
+
+    private ExecutionPlanner() {}
+
+    /**
+     * What the planner knows about a (possibly not yet computed) matrix.
+     */
+    private record Operand(int rows, int cols, long nonZeros, String representation) {
+
+        long size() {
+            return (long) rows * cols;
+        }
+
+        long bytes() {
+            switch (representation) {
+                case "sparse":
+                    // CSR: one index and one value per non-zero plus the row pointers
+                    return nonZeros * (Integer.BYTES + Double.BYTES) + (rows + 1L) * Integer.BYTES;
+                case "float32":
+                    return size() * Float.BYTES;
+                default:
+                    return size() * Double.BYTES;
+            }
+        }
+
+        int[] shape() {
+            return new int[]{rows, cols};
+        }
+    }
+
+    /**
+     * Memory held by a subtree while it is evaluated: its input matrices, which are live from
+     * parsing until their consumer is computed, its highest point, and its result.
+     */
+    private record Profile(Operand result, long inputBytes, long peakBytes) {
+
+        long growth() {
+            return result.bytes() - inputBytes;
+        }
+    }
+
+    /**
+     * Subtrees that free memory go first, the ones needing the least headroom earliest; then
+     * the ones that grow it, those that drop back the most after their peak earliest. This is
+     * the Sethi-Ullman order generalized to operands of different sizes; it minimizes the
+     * peak over the orders that evaluate each subtree in one piece.
+     */
+    private static final Comparator<Profile> MEMORY_ORDER = (a, b) -> {
+        boolean aFrees = a.growth() <= 0;
+        boolean bFrees = b.growth() <= 0;
+        if (aFrees != bFrees) return aFrees ? -1 : 1;
+        if (aFrees) return Long.compare(a.peakBytes() - a.inputBytes(), b.peakBytes() - b.inputBytes());
+        return Long.compare(b.peakBytes() - b.result().bytes(), a.peakBytes() - a.result().bytes());
+    };
+
+    static ExecutionPlan plan(ComputationNode root) {
+        return plan(root, StrassenMultiplier.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Plans the tree as the engine would evaluate it, with Strassen-Winograd used for square
+     * products of at least {@code strassenThreshold}.
+     *
+     * @throws IllegalArgumentException if an operator has the wrong arity or mismatched operands
+     */
+    static ExecutionPlan plan(ComputationNode root, int strassenThreshold) {
+        return plan(root, strassenThreshold, null);
+    }
+
+    /**
+     * Plans the tree in the evaluation order with the lowest peak memory instead of left to
+     * right: the operands of each operator are evaluated in {@link #MEMORY_ORDER}. The steps
+     * are listed in that order, each after its operands.
+     */
+    static ExecutionPlan planForMemory(ComputationNode root, int strassenThreshold) {
+        if (root == null) {
+            throw new IllegalArgumentException("computationRoot cannot be null");
+        }
+        Map<ComputationNode, List<ComputationNode>> order = new IdentityHashMap<>();
+        profile(root, strassenThreshold, order);
+        return plan(root, strassenThreshold, order);
+    }
+
+    private static ExecutionPlan plan(ComputationNode root, int strassenThreshold,
+                                      Map<ComputationNode, List<ComputationNode>> order) {
+        if (root == null) {
+            throw new IllegalArgumentException("computationRoot cannot be null");
+        }
+        ExecutionPlan plan = new ExecutionPlan();
+        plan.inputBytes = inputBytes(root);
+        long[] live = {plan.inputBytes};
+        plan.peakBytes = plan.inputBytes;
+        Operand result = visit(root, plan, live, strassenThreshold, order);
+        plan.resultShape = result.shape();
+        if (order == null) markBatches(plan);
+        return plan;
+    }
+
+    /**
+     * Marks the products of input matrices that the engine computes in one batch with another
+     * product sharing an operand (see {@link ProductBatcher}). Products of intermediate
+     * results are batched too when they become ready, but their operands are not known yet.
+     */
+    private static void markBatches(ExecutionPlan plan) {
+        List<ComputationNode> ready = new ArrayList<>();
+        for (ExecutionPlan.Step step : plan.steps) {
+            if (isDenseLeafProduct(step)) ready.add(step.node);
+        }
+        for (ExecutionPlan.Step step : plan.steps) {
+            if (!isDenseLeafProduct(step)) continue;
+            if (ProductBatcher.sharingRight(step.node, ready).size() > 1
+                    || ProductBatcher.sharingLeft(step.node, ready).size() > 1) {
+                step.kernel = "batched-row-by-column";
+            }
+        }
+    }
+
+    private static boolean isDenseLeafProduct(ExecutionPlan.Step step) {
+        if (!step.operator.equals("MULTIPLY") || !step.kernel.equals("row-by-column")) return false;
+        for (ComputationNode child : step.node.getChildren()) {
+            if (child.getNodeType() != ComputationNodeType.MATRIX || child.isSparse() || child.isSinglePrecision()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bytes of a resolved node's matrix in its representation.
+     */
+    static long bytesOf(ComputationNode resolved) {
+        return leaf(resolved).bytes();
+    }
+
+    static long inputBytes(ComputationNode node) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) {
+            return leaf(node).bytes();
+        }
+        long total = 0;
+        for (ComputationNode child : children(node)) {
+            total += inputBytes(child);
+        }
+        return total;
+    }
+
+    private static List<ComputationNode> children(ComputationNode node) {
+        List<ComputationNode> children = node.getChildren();
+        if (children == null) throw new IllegalArgumentException("Node has no children");
+        return children;
+    }
+
+    private static Operand leaf(ComputationNode node) {
+        int rows = LinearAlgebraEngine.rowsOf(node);
+        int cols = LinearAlgebraEngine.colsOf(node);
+        if (node.isSparse()) {
+            return new Operand(rows, cols, node.getSparseMatrix().nonZeros(), "sparse");
+        }
+        return new Operand(rows, cols, (long) rows * cols, node.isSinglePrecision() ? "float32" : "dense");
+    }
+
+    /**
+     * Computes the profile of every subtree bottom-up and records the order in which each
+     * operator's operands are evaluated.
+     */
+    private static Profile profile(ComputationNode node, int strassenThreshold,
+                                   Map<ComputationNode, List<ComputationNode>> order) {
+        ComputationNodeType type = node.getNodeType();
+        if (type == ComputationNodeType.MATRIX) {
+            Operand o = leaf(node);
+            return new Profile(o, o.bytes(), o.bytes());
+        }
+        List<ComputationNode> children = children(node);
+        LinearAlgebraEngine.checkArity(type, children);
+        Profile[] profiles = new Profile[children.size()];
+        Operand[] operands = new Operand[children.size()];
+        long inputs = 0;
+        for (int i = 0; i < profiles.length; i++) {
+            profiles[i] = profile(children.get(i), strassenThreshold, order);
+            operands[i] = profiles[i].result();
+            inputs += profiles[i].inputBytes();
+        }
+        List<Integer> sequence = new ArrayList<>();
+        for (int i = 0; i < profiles.length; i++) sequence.add(i);
+        sequence.sort((i, j) -> MEMORY_ORDER.compare(profiles[i], profiles[j])); // stable: ties stay left to right
+
+        long live = inputs;
+        long peak = inputs;
+        List<ComputationNode> ordered = new ArrayList<>();
+        for (int i : sequence) {
+            peak = Math.max(peak, live - profiles[i].inputBytes() + profiles[i].peakBytes());
+            live += profiles[i].growth();
+            ordered.add(children.get(i));
+        }
+        order.put(node, ordered);
+
+        ExecutionPlan.Step scratch = new ExecutionPlan.Step();
+        scratch.exponent = node.getExponent();
+        long copyBytes = estimate(type, operands, scratch, strassenThreshold);
+        Operand result = resultOperand(type, operands);
+        peak = Math.max(peak, live + copyBytes + result.bytes());
+        return new Profile(result, inputs, peak);
+    }
+
+    /**
+     * Post-order, children left to right (the order in which findResolvable hands nodes to
+     * the engine) unless {@code order} gives each operator's operands in another order.
+     */
+    private static Operand visit(ComputationNode node, ExecutionPlan plan, long[] live, int strassenThreshold,
+                                 Map<ComputationNode, List<ComputationNode>> order) {
+        ComputationNodeType type = node.getNodeType();
+        if (type == ComputationNodeType.MATRIX) {
+            return leaf(node);
+        }
+        List<ComputationNode> children = children(node);
+        LinearAlgebraEngine.checkArity(type, children);
+        Operand[] operands = new Operand[children.size()];
+        List<ComputationNode> sequence = order == null ? children : order.get(node);
+        for (ComputationNode child : sequence) {
+            operands[indexOf(children, child)] = visit(child, plan, live, strassenThreshold, order);
+        }
+
+        ExecutionPlan.Step step = new ExecutionPlan.Step();
+        step.operator = type.name();
+        step.exponent = node.getExponent();
+        long operandBytes = 0;
+        for (Operand o : operands) {
+            step.operandShapes.add(o.shape());
+            operandBytes += o.bytes();
+        }
+        long copyBytes = estimate(type, operands, step, strassenThreshold);
+        Operand result = resultOperand(type, operands);
+        String structureKernel = structureKernel(node, operands, step);
+        if (structureKernel != null) {
+            step.kernel = structureKernel;
+            step.flops = StructureKernels.flops(structureKernel, step.flops, result.rows(), result.cols());
+            copyBytes = 0; // operands are read in place
+        }
+
+        step.id = plan.steps.size() + 1;
+        step.node = node;
+        step.resultShape = result.shape();
+        step.representation = result.representation();
+        step.resultBytes = result.bytes();
+        step.bytesMoved = operandBytes + copyBytes + step.resultBytes;
+        step.peakBytes = live[0] + copyBytes + step.resultBytes;
+        live[0] += step.resultBytes - operandBytes;
+
+        plan.steps.add(step);
+        plan.totalFlops += step.flops;
+        plan.totalBytesMoved += step.bytesMoved;
+        plan.peakBytes = Math.max(plan.peakBytes, step.peakBytes);
+        return result;
+    }
+
+    private static int indexOf(List<ComputationNode> children, ComputationNode child) {
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i) == child) return i;
+        }
+        throw new IllegalStateException("Not an operand of this node");
+    }
+
+    /**
+     * The structure kernel of a dense product, as the engine chooses it; the structure of
+     * intermediate results is not known before they are computed.
+     */
+    private static String structureKernel(ComputationNode node, Operand[] operands, ExecutionPlan.Step step) {
+        if (node.getNodeType() != ComputationNodeType.MULTIPLY) return null;
+        if (!step.kernel.equals("row-by-column") && !step.kernel.equals("strassen-winograd")) return null;
+        for (Operand o : operands) {
+            if (!o.representation().equals("dense")) return null;
+        }
+        List<ComputationNode> children = node.getChildren();
+        return StructureKernels.kernelFor(node.isTransposeProduct(), structureOf(children.get(0)), structureOf(children.get(1)));
+    }
+
+    private static StructureKernels.Structure structureOf(ComputationNode node) {
+        return node.getNodeType() == ComputationNodeType.MATRIX
+                ? StructureKernels.Structure.of(node.getMatrix()) : StructureKernels.Structure.GENERAL;
+    }
+
+    /**
+     * Checks the operand shapes, fills in the step's kernel and flop count, and returns the
+     * bytes of the temporary copies the kernel makes.
+     */
+    private static long estimate(ComputationNodeType type, Operand[] operands, ExecutionPlan.Step step, int strassenThreshold) {
+        Operand a = operands[0];
+        boolean sparse = false;
+        boolean single = true;
+        for (Operand o : operands) {
+            sparse |= o.representation().equals("sparse");
+            single &= o.representation().equals("float32");
+        }
+        step.kernel = sparse ? "sparse" : "row-by-column";
+        switch (type) {
+            case NEGATE:
+                step.flops = sparse ? a.nonZeros() : a.size();
+                return 0;
+            case TRANSPOSE:
+                step.flops = 0;
+                return 0;
+            case ADD: {
+                Operand b = operands[1];
+                if (a.rows() != b.rows() || a.cols() != b.cols()) {
+                    throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+                }
+                boolean aSparse = a.representation().equals("sparse");
+                boolean bSparse = b.representation().equals("sparse");
+                step.flops = aSparse && bSparse ? a.nonZeros() + b.nonZeros()
+                        : aSparse ? a.nonZeros() : bSparse ? b.nonZeros() : a.size();
+                return 0;
+            }
+            case MULTIPLY: {
+                Operand b = operands[1];
+                if (a.rows() == 0 || b.rows() == 0 || b.cols() == 0 || a.cols() != b.rows()) {
+                    throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+                }
+                boolean aSparse = a.representation().equals("sparse");
+                boolean bSparse = b.representation().equals("sparse");
+                if (aSparse && bSparse) {
+                    step.flops = 2 * a.nonZeros() * Math.max(1, b.nonZeros() / b.rows());
+                    return 0;
+                }
+                if (aSparse) {
+                    step.flops = 2 * a.nonZeros() * b.cols();
+                    return 0;
+                }
+                if (bSparse) {
+                    step.flops = 2L * a.rows() * b.nonZeros();
+                    return 0;
+                }
+                step.flops = 2L * a.rows() * a.cols() * b.cols();
+                String shapeKernel = single ? null : ShapeKernels.kernelFor(a.rows(), a.cols(), b.cols());
+                if (shapeKernel != null) {
+                    step.kernel = shapeKernel;
+                    return 0; // operands are read in place
+                }
+                int n = a.rows();
+                if (!single && n >= strassenThreshold && a.cols() == n && b.rows() == n && b.cols() == n) {
+                    step.kernel = "strassen-winograd";
+                    // rough: quadrant copies and sums of both operands at each expanded level
+                    return 2 * (a.bytes() + b.bytes());
+                }
+                return b.bytes(); // right operand loaded column-major
+            }
+            case POWER: {
+                if (a.rows() != a.cols()) {
+                    throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+                }
+                int n = step.exponent;
+                long products = (31 - Integer.numberOfLeadingZeros(n)) + Integer.bitCount(n) - 1;
+                // powers of sparse matrices fill in quickly; only the first product is cheap
+                long denseProduct = 2L * a.rows() * a.rows() * a.rows();
+                step.flops = products == 0 ? 0 : (sparse ? 2 * a.nonZeros() * a.cols() : denseProduct)
+                        + (products - 1) * denseProduct;
+                step.kernel = "repeated-squaring";
+                // the current square and the running product
+                return 2 * (long) a.rows() * a.cols() * (single ? Float.BYTES : Double.BYTES);
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + type);
+        }
+    }
+
+    /**
+     * The result's shape and representation, following the engine's rules: float32 only if
+     * every operand is float32; sparse results stay sparse while they are sparse enough.
+     */
+    private static Operand resultOperand(ComputationNodeType type, Operand[] operands) {
+        Operand a = operands[0];
+        boolean allFloat = true;
+        int sparseCount = 0;
+        for (Operand o : operands) {
+            allFloat &= o.representation().equals("float32");
+            if (o.representation().equals("sparse")) sparseCount++;
+        }
+        String dense = allFloat ? "float32" : "dense";
+        switch (type) {
+            case NEGATE:
+                return new Operand(a.rows(), a.cols(), a.nonZeros(), a.representation());
+            case TRANSPOSE:
+                return new Operand(a.cols(), a.rows(), a.nonZeros(), a.representation());
+            case POWER:
+                return new Operand(a.rows(), a.cols(), a.size(), dense);
+            case ADD: {
+                Operand b = operands[1];
+                if (sparseCount == 2) {
+                    return sparseOrDense(a.rows(), a.cols(), Math.min(a.size(), a.nonZeros() + b.nonZeros()));
+                }
+                return new Operand(a.rows(), a.cols(), a.size(), dense);
+            }
+            default: { // MULTIPLY
+                Operand b = operands[1];
+                long size = (long) a.rows() * b.cols();
+                if (sparseCount == 2) {
+                    // expected fill of a product of uniformly random sparse matrices
+                    double expected = (double) a.nonZeros() * b.nonZeros() / Math.max(1, a.cols());
+                    return sparseOrDense(a.rows(), b.cols(), (long) Math.min(size, Math.ceil(expected)));
+                }
+                return new Operand(a.rows(), b.cols(), size, dense);
+            }
+        }
+    }
+
+    private static Operand sparseOrDense(int rows, int cols, long nonZeros) {
+        if (SparseMatrix.isSparseEnough(rows, cols, nonZeros)) {
+            return new Operand(rows, cols, nonZeros, "sparse");
+        }
+        return new Operand(rows, cols, (long) rows * cols, "dense");
+    }
+}
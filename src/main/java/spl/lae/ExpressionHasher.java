@@ -0,0 +1,110 @@
+package spl.lae;
+
+import memory.SparseMatrix;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Content hashes of computation subtrees. A leaf hashes its representation, shape and the bit
+ * patterns of its values; an operator hashes its type and the hashes of its operands in order
+ * (a Merkle tree), so two subtrees hash equal exactly when they describe the same computation
+ * on bitwise identical data.
+ */
+final class ExpressionHasher {
+
+    private static final byte LEAF = 'L';
+    private static final byte OPERATOR = 'O';
+
+    private ExpressionHasher() {}
+
+    /**
+     * Returns the SHA-256 hash, in hex, of every node of the tree. Must be called before any
+     * node is resolved, since resolving replaces a subtree by its result.
+     */
+    static Map<ComputationNode, String> hashAll(ComputationNode root) {
+        Map<ComputationNode, String> hashes = new IdentityHashMap<>();
+        hash(root, newDigest(), hashes);
+        return hashes;
+    }
+
+    private static byte[] hash(ComputationNode node, MessageDigest digest, Map<ComputationNode, String> hashes) {
+        byte[] h;
+        if (node.getNodeType() == ComputationNodeType.MATRIX) {
+            h = hashLeaf(node, digest);
+        } else {
+            byte[][] children = new byte[node.getChildren().size()][];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = hash(node.getChildren().get(i), digest, hashes);
+            }
+            digest.update(OPERATOR);
+            digest.update(node.getNodeType().name().getBytes(StandardCharsets.US_ASCII));
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(children.length).flip());
+            if (node.getNodeType() == ComputationNodeType.POWER) {
+                digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(node.getExponent()).flip());
+            }
+            for (byte[] child : children) {
+                digest.update(child);
+            }
+            h = digest.digest();
+        }
+        hashes.put(node, HexFormat.of().formatHex(h));
+        return h;
+    }
+
+    private static byte[] hashLeaf(ComputationNode node, MessageDigest digest) {
+        digest.update(LEAF);
+        if (node.isSparse()) {
+            SparseMatrix m = node.getSparseMatrix().toCsr();
+            header(digest, m.hasNegativeZeros() ? 'Z' : 'S', m.rows(), m.cols());
+            ByteBuffer entry = ByteBuffer.allocate(2 * Integer.BYTES + Double.BYTES);
+            for (int i = 0; i < m.rows(); i++) {
+                for (int p = m.start(i); p < m.end(i); p++) {
+                    entry.clear();
+                    entry.putInt(i).putInt(m.index(p)).putLong(Double.doubleToLongBits(m.value(p)));
+                    digest.update(entry.flip());
+                }
+            }
+        } else if (node.isSinglePrecision()) {
+            float[][] m = node.getFloatMatrix();
+            int cols = m.length == 0 ? 0 : m[0].length;
+            header(digest, 'F', m.length, cols);
+            ByteBuffer row = ByteBuffer.allocate(cols * Float.BYTES);
+            for (float[] r : m) {
+                row.clear();
+                row.asFloatBuffer().put(r);
+                digest.update(row);
+            }
+        } else {
+            double[][] m = node.getMatrix();
+            int cols = m.length == 0 ? 0 : m[0].length;
+            header(digest, 'D', m.length, cols);
+            ByteBuffer row = ByteBuffer.allocate(cols * Double.BYTES);
+            for (double[] r : m) {
+                row.clear();
+                row.asDoubleBuffer().put(r);
+                digest.update(row);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void header(MessageDigest digest, char kind, int rows, int cols) {
+        digest.update(ByteBuffer.allocate(1 + 2 * Integer.BYTES).put((byte) kind).putInt(rows).putInt(cols).flip());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
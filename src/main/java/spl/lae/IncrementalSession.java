@@ -0,0 +1,142 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import parser.InputParser;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Re-evaluates an input file that is edited between runs, keeping the result of every node
+ * of the previous evaluation in memory. Nodes are matched by content hash, so after a leaf
+ * changes only the operators above it are recomputed; every other subtree, however it moved
+ * in the file, is resolved from memory.
+ *
+ * The row-by-column kernels update their left operand's rows in place, so dense results are
+ * copied into the store and out of it again.
+ */
+public class IncrementalSession {
+
+    private final InputParser parser;
+    private final Supplier<LinearAlgebraEngine> engines;
+    private final MemoryStore results = new MemoryStore();
+    private int lastOperators;
+    private int lastRecomputed;
+    private MetricsReport lastMetrics;
+
+    /**
+     * Results of the previous evaluation, keyed by content hash.
+     */
+    private static final class MemoryStore implements ResultStore {
+        private final Map<String, ComputationNode> byHash = new HashMap<>();
+
+        @Override
+        public boolean load(String key, ComputationNode node) {
+            ComputationNode r = byHash.get(key);
+            if (r == null) return false;
+            copy(r, node);
+            return true;
+        }
+
+        @Override
+        public boolean store(String key, ComputationNode resolved) {
+            if (byHash.containsKey(key)) return false;
+            ComputationNode r = new ComputationNode(new double[0][0]);
+            copy(resolved, r);
+            byHash.put(key, r);
+            return true;
+        }
+
+        /** Sparse matrices are never modified, so only dense rows are copied. */
+        private static void copy(ComputationNode from, ComputationNode to) {
+            if (from.isSparse()) {
+                to.resolve(from.getSparseMatrix());
+            } else if (from.isSinglePrecision()) {
+                float[][] m = from.getFloatMatrix();
+                float[][] c = new float[m.length][];
+                for (int i = 0; i < m.length; i++) c[i] = m[i].clone();
+                to.resolve(c);
+            } else {
+                double[][] m = from.getMatrix();
+                double[][] c = new double[m.length][];
+                for (int i = 0; i < m.length; i++) c[i] = m[i].clone();
+                to.resolve(c);
+            }
+        }
+
+        /** Everything is kept: recomputing even a cheap operator costs more than a lookup. */
+        @Override
+        public boolean worthStoring(long flops, long elements) {
+            return true;
+        }
+
+        /** Drops the results of subtrees that are no longer in the expression. */
+        void retain(Set<String> live) {
+            byHash.keySet().retainAll(live);
+        }
+    }
+
+    /**
+     * @param engines creates the engine of each evaluation; an engine runs only once
+     */
+    public IncrementalSession(boolean singlePrecision, Supplier<LinearAlgebraEngine> engines) {
+        this.parser = new InputParser(singlePrecision);
+        this.engines = engines;
+    }
+
+    /**
+     * Parses the input file and evaluates it, reusing the results of unchanged subtrees.
+     */
+    public ComputationNode update(String inputPath) throws ParseException {
+        ComputationNode root = parser.parse(inputPath);
+        root.associativeNesting();
+        return update(root);
+    }
+
+    ComputationNode update(ComputationNode root) {
+        int operators = countOperators(root);
+        LinearAlgebraEngine engine = engines.get();
+        engine.setResultCache(results);
+        ComputationNode result = engine.run(root);
+        results.retain(new HashSet<>(engine.getHashes().values()));
+        lastOperators = operators;
+        lastMetrics = engine.getMetrics();
+        lastRecomputed = lastMetrics.nodes.size();
+        return result;
+    }
+
+    /**
+     * Operators in the last evaluated expression.
+     */
+    public int getLastOperators() {
+        return lastOperators;
+    }
+
+    /**
+     * Operators the last evaluation actually computed; the others were resolved from memory.
+     */
+    public int getLastRecomputed() {
+        return lastRecomputed;
+    }
+
+    /**
+     * The metrics of the last evaluation, which cover only the operators it computed.
+     */
+    public MetricsReport getLastMetrics() {
+        return lastMetrics;
+    }
+
+    private static int countOperators(ComputationNode node) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) return 0;
+        int n = 1;
+        for (ComputationNode child : node.getChildren()) {
+            n += countOperators(child);
+        }
+        return n;
+    }
+}
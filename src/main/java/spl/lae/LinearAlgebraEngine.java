@@ -4,17 +4,63 @@ import parser.*;
 import memory.*;
 import scheduling.*;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class LinearAlgebraEngine {
 
     private SharedMatrix leftMatrix = new SharedMatrix();
     private SharedMatrix rightMatrix = new SharedMatrix();
+    private FloatSharedMatrix floatLeftMatrix = new FloatSharedMatrix();
+    private FloatSharedMatrix floatRightMatrix = new FloatSharedMatrix();
+    /** Flops per double sent below which a remote operator would be network bound. */
+    static final int MIN_REMOTE_INTENSITY = 16;
+    /** Capacity of the buffer pool when no memory budget is set. */
+    static final long DEFAULT_POOL_BYTES = 64L << 20;
+
     private TiredExecutor executor;
+    private final int numThreads;
+    private int strassenThreshold = StrassenMultiplier.DEFAULT_THRESHOLD;
+    private long deadlineMillis = 0; // 0 = no deadline
+    private boolean criticalPathScheduling = false;
+    private boolean cacheAffinity = false;
+    private MetricsReport metrics = new MetricsReport();
+    private ResultStore resultCache; // null = no cache
+    private RemoteCluster remote; // null = local only
+    private Map<ComputationNode, String> hashes;
+    private final Map<ComputationNode, ExecutionPlan.Step> steps = new IdentityHashMap<>();
+    private long memoryBudget = 0; // bytes, 0 = unbounded
+    private BufferPool pool;
+    private final Set<ComputationNode> intermediates = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long liveBytes;
+    private final Set<ComputationNode> transposeProducts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<ComputationNode, StructureKernels.Structure> structures = new IdentityHashMap<>();
+    private int verificationTrials = 0; // 0 = results are not verified
+    private ResultVerifier verifier;
+    private RowSink rowSink; // null = the result is only returned
+    private ComputationNode streamedRoot; // the root of the current run, whose rows go to the sink
 
     public LinearAlgebraEngine(int numThreads) {
         // TODO: create executor with given thread count
         executor = new TiredExecutor(numThreads);
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Creates an engine whose worker pool grows and shrinks between the bounds with the load.
+     * Work is partitioned for the maximum.
+     */
+    public LinearAlgebraEngine(int minThreads, int maxThreads) {
+        executor = TiredExecutor.elastic(minThreads, maxThreads);
+        this.numThreads = maxThreads;
     }
 
     public ComputationNode run(ComputationNode computationRoot) {
@@ -23,32 +69,452 @@ public class LinearAlgebraEngine {
             throw new IllegalArgumentException("computationRoot cannot be null");
         }
 
-        // Keep resolving until root becomes a MATRIX node
-        while (computationRoot.getNodeType() != ComputationNodeType.MATRIX) {
-            ComputationNode next = computationRoot.findResolvable();
-            if (next == null) {
-                // Should not happen if the tree is well-formed
-                throw new IllegalStateException("No resolvable node found, but root is not a MATRIX");
+        try {
+            if (memoryBudget > 0 && criticalPathScheduling) {
+                throw new IllegalArgumentException("A memory budget cannot be combined with critical-path scheduling");
             }
+            // reject invalid trees before any work is done
+            ExecutionPlan plan = ExecutionPlanner.plan(computationRoot, strassenThreshold);
 
-            loadAndCompute(next);
+            long runStart = System.nanoTime();
+            if (deadlineMillis > 0) executor.setDeadline(deadlineMillis);
+            metrics = new MetricsReport();
+            metrics.threads = numThreads;
+            streamedRoot = computationRoot;
+            verifier = verificationTrials > 0 ? new ResultVerifier(verificationTrials, System.nanoTime()) : null;
+            if (resultCache != null) {
+                hashes = ExpressionHasher.hashAll(computationRoot);
+                steps.clear();
+                for (ExecutionPlan.Step step : plan.steps) {
+                    steps.put(step.node, step);
+                }
+                loadCached(computationRoot);
+            }
 
-            // After tasks finish, M1 holds the output
-            double[][] result = leftMatrix.readRowMajor();
-            next.resolve(result);
-        }
+            Iterator<ExecutionPlan.Step> order = startMemoryTracking(computationRoot, plan);
+            findTransposeProducts(computationRoot);
 
-        // Clean shutdown once entire computation finishes
-        try {
-            executor.shutdown();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Interrupted during executor shutdown", e);
+            if (criticalPathScheduling) {
+                new CriticalPathScheduler(this, executor).run(computationRoot, plan);
+            }
+            // Keep resolving until root becomes a MATRIX node
+            while (computationRoot.getNodeType() != ComputationNodeType.MATRIX) {
+                ComputationNode next = order != null ? order.next().node : computationRoot.findResolvable();
+                if (next == null) {
+                    // Should not happen if the tree is well-formed
+                    throw new IllegalStateException("No resolvable node found, but root is not a MATRIX");
+                }
+                // stop before the next node once a task has failed or the deadline has passed
+                executor.checkCancelled();
+                if (next.getNodeType() == ComputationNodeType.MATRIX) continue; // computed in an earlier batch
+                if (resolveBatch(next, computationRoot)) continue;
+
+                MetricsReport.NodeMetrics nodeMetrics = beginNodeMetrics(next);
+                executor.setTaskStats(nodeMetrics.stats);
+                resolveNode(next, nodeMetrics);
+                endNodeMetrics(next, nodeMetrics);
+            }
+            metrics.totalMillis = (System.nanoTime() - runStart) / 1e6;
+            metrics.peakHeapBytes = heapPeak();
+            metrics.buffersReused = pool.getReused();
+            metrics.recordWorkers(executor.getWorkers());
+        } finally {
+            streamedRoot = null;
+            intermediates.clear();
+            transposeProducts.clear();
+            structures.clear();
+            // Clean shutdown once the computation finishes or fails
+            try {
+                executor.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted during executor shutdown", e);
+            }
         }
 
         return computationRoot;
     }
 
+    /**
+     * Sets up the liveness tracking of a run and, under a memory budget, returns the steps in
+     * the order with the lowest peak (null to resolve leftmost first).
+     *
+     * @throws IllegalArgumentException if even that order needs more than the budget
+     */
+    private Iterator<ExecutionPlan.Step> startMemoryTracking(ComputationNode root, ExecutionPlan plan) {
+        intermediates.clear();
+        liveBytes = ExecutionPlanner.inputBytes(root);
+        metrics.peakLiveBytes = liveBytes;
+        Iterator<ExecutionPlan.Step> order = null;
+        long poolBytes = DEFAULT_POOL_BYTES;
+        if (memoryBudget > 0) {
+            // replanned: cached subtrees are resolved by now
+            ExecutionPlan ordered = ExecutionPlanner.planForMemory(root, strassenThreshold);
+            if (ordered.peakBytes > memoryBudget) {
+                throw new IllegalArgumentException("Memory budget exceeded: the expression needs an estimated "
+                        + ordered.peakBytes + " bytes, the budget is " + memoryBudget);
+            }
+            metrics.plannedPeakBytes = ordered.peakBytes;
+            poolBytes = memoryBudget - ordered.peakBytes;
+            order = ordered.steps.iterator();
+        } else {
+            metrics.plannedPeakBytes = plan.peakBytes;
+        }
+        pool = new BufferPool(poolBytes);
+        leftMatrix.setBufferPool(pool);
+        rightMatrix.setBufferPool(pool);
+        for (MemoryPoolMXBean heap : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (heap.getType() == MemoryType.HEAP) heap.resetPeakUsage();
+        }
+        return order;
+    }
+
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean heap : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (heap.getType() == MemoryType.HEAP && heap.getPeakUsage() != null) peak += heap.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /**
+     * Drops the operands of a node that has just been computed: each is consumed by exactly
+     * one operator, so its data is dead. Dense rows of operands this run computed go back to
+     * the buffer pool, unless the result reuses them; input matrices may still be referenced
+     * by the caller and are only dropped.
+     */
+    private void release(List<ComputationNode> operands, ComputationNode result) {
+        long resultBytes = ExecutionPlanner.bytesOf(result);
+        metrics.peakLiveBytes = Math.max(metrics.peakLiveBytes, liveBytes + resultBytes);
+        liveBytes += resultBytes;
+        Set<double[]> kept = null;
+        for (ComputationNode operand : operands) {
+            liveBytes -= ExecutionPlanner.bytesOf(operand);
+            if (intermediates.remove(operand) && !operand.isSparse() && !operand.isSinglePrecision()) {
+                if (kept == null) {
+                    kept = Collections.newSetFromMap(new IdentityHashMap<>());
+                    if (!result.isSparse() && !result.isSinglePrecision()) Collections.addAll(kept, result.getMatrix());
+                }
+                for (double[] row : operand.getMatrix()) {
+                    if (!kept.contains(row)) pool.give(row);
+                }
+            }
+            operand.release();
+        }
+        intermediates.add(result);
+    }
+
+    /**
+     * Resolves the largest cached subtrees, top-down, before anything is computed.
+     */
+    private void loadCached(ComputationNode node) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) return;
+        if (resultCache.load(hashes.get(node), node)) {
+            metrics.cacheHits++;
+            return;
+        }
+        for (ComputationNode child : node.getChildren()) {
+            loadCached(child);
+        }
+    }
+
+    private void storeCached(ComputationNode node) {
+        ExecutionPlan.Step step = steps.get(node);
+        if (step == null || !resultCache.worthStoring(step.flops, (long) rowsOf(node) * colsOf(node))) return;
+        if (resultCache.store(hashes.get(node), node)) metrics.cacheStores++;
+    }
+
+    /**
+     * Computes a resolvable node with the kernel that fits its operands and resolves it.
+     */
+    void resolveNode(ComputationNode next, MetricsReport.NodeMetrics nodeMetrics) {
+        if (next.getNodeType() == ComputationNodeType.POWER) {
+            computePower(next, nodeMetrics);
+            nodeMetrics.kernel = "repeated-squaring";
+            return;
+        }
+        if (hasSparseOperand(next) && !(next.getNodeType() == ComputationNodeType.MULTIPLY && hasNonFiniteOperand(next))) {
+            nodeMetrics.kernel = "sparse";
+            if (next.getNodeType() == ComputationNodeType.ADD && !next.getChildren().stream().allMatch(ComputationNode::isSparse)) {
+                // the dense operand's rows are cloned before the sparse entries are scattered in
+                nodeMetrics.bytesCopied = (long) rowsOf(next.getChildren().get(0)) * colsOf(next.getChildren().get(0)) * Double.BYTES;
+            }
+            computeSparse(next);
+            return;
+        }
+        String structureKernel = structureKernel(next);
+        if (structureKernel != null) {
+            nodeMetrics.kernel = structureKernel;
+            ComputationNode a = next.getChildren().get(0);
+            ComputationNode b = next.getChildren().get(1);
+            next.resolve(StructureKernels.multiply(executor, numThreads, structureKernel,
+                    a.getMatrix(), structureOf(a), b.getMatrix(), structureOf(b)));
+            nodeMetrics.bytesCopied += resultBytes(next);
+            return;
+        }
+        if (useRemote(next)) {
+            nodeMetrics.kernel = "remote";
+            double[][] a = next.getChildren().get(0).getMatrix();
+            double[][] b = next.getChildren().get(1).getMatrix();
+            next.resolve(next.getNodeType() == ComputationNodeType.MULTIPLY ? remote.multiply(a, b) : remote.add(a, b));
+            return;
+        }
+        if (useStrassen(next)) {
+            nodeMetrics.kernel = "strassen-winograd";
+            double[][] a = next.getChildren().get(0).getMatrix();
+            double[][] b = next.getChildren().get(1).getMatrix();
+            next.resolve(StrassenMultiplier.multiply(executor, numThreads, a, b, StrassenMultiplier.DEFAULT_CUTOFF));
+            return;
+        }
+        String shapeKernel = shapeKernel(next);
+        if (shapeKernel != null) {
+            nodeMetrics.kernel = shapeKernel;
+            next.resolve(ShapeKernels.multiply(executor, numThreads,
+                    next.getChildren().get(0).getMatrix(), next.getChildren().get(1).getMatrix()));
+            nodeMetrics.bytesCopied += resultBytes(next);
+            return;
+        }
+
+        boolean singlePrecision = isSinglePrecision(next);
+        nodeMetrics.kernel = "row-by-column";
+        nodeMetrics.bytesCopied += layoutCopyBytes(next);
+        loadAndCompute(next);
+
+        // After tasks finish, M1 holds the output; its rows stay in place, only a transpose's
+        // columns are copied into rows
+        boolean transposed = next.getNodeType() == ComputationNodeType.TRANSPOSE;
+        if (singlePrecision) {
+            next.resolve(floatLeftMatrix.takeRowMajor(batchExecutor(), numThreads));
+        } else {
+            next.resolve(leftMatrix.takeRowMajor(batchExecutor(), numThreads));
+        }
+        if (transposed) nodeMetrics.bytesCopied += resultBytes(next);
+    }
+
+    /**
+     * Computes a ready product together with the other ready products that share its right
+     * operand or, failing that, its left operand, as one row-by-column product (see
+     * {@link ProductBatcher}). Under a memory budget products are not batched: batches are
+     * computed out of the planned order and the left-sharing form copies its operands.
+     *
+     * @return false if the product shares no operand with another ready product
+     */
+    private boolean resolveBatch(ComputationNode next, ComputationNode root) {
+        if (memoryBudget > 0 || next.getNodeType() != ComputationNodeType.MULTIPLY || !batchable(next)) return false;
+        List<ComputationNode> ready = ProductBatcher.readyProducts(root, this::batchable);
+        List<ComputationNode> batch = ProductBatcher.sharingRight(next, ready);
+        boolean stacked = batch.size() > 1;
+        if (!stacked) {
+            batch = ProductBatcher.sharingLeft(next, ready);
+            if (batch.size() < 2) return false;
+        }
+
+        List<MetricsReport.NodeMetrics> batchMetrics = new ArrayList<>();
+        List<double[][]> others = new ArrayList<>();
+        for (ComputationNode product : batch) {
+            batchMetrics.add(beginNodeMetrics(product));
+            others.add(product.getChildren().get(stacked ? 0 : 1).getMatrix());
+        }
+        double[][] shared = next.getChildren().get(stacked ? 1 : 0).getMatrix();
+        ComputationNode joined = stacked
+                ? new ComputationNode(ComputationNodeType.MULTIPLY, new ArrayList<>(List.of(
+                        new ComputationNode(ProductBatcher.stackRows(others)), new ComputationNode(shared))))
+                : new ComputationNode(ComputationNodeType.MULTIPLY, new ArrayList<>(List.of(
+                        new ComputationNode(shared), new ComputationNode(ProductBatcher.concatColumns(others)))));
+        MetricsReport.NodeMetrics first = batchMetrics.get(0);
+        first.bytesCopied += layoutCopyBytes(joined);
+        if (!stacked) first.bytesCopied += 2 * resultBytes(joined.getChildren().get(1)); // joined and split back
+        executor.setTaskStats(first.stats);
+        loadAndCompute(joined);
+        double[][] result = leftMatrix.readRowMajor(batchExecutor(), numThreads);
+        first.bytesCopied += (long) result.length * (result.length == 0 ? 0 : result[0].length) * Double.BYTES;
+
+        int offset = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            ComputationNode product = batch.get(i);
+            int count = stacked ? others.get(i).length : others.get(i)[0].length;
+            product.resolve(stacked ? ProductBatcher.rowRange(result, offset, count)
+                    : ProductBatcher.columnRange(result, offset, count));
+            offset += count;
+            batchMetrics.get(i).kernel = "batched-row-by-column";
+            endNodeMetrics(product, batchMetrics.get(i));
+        }
+        return true;
+    }
+
+    private boolean batchable(ComputationNode product) {
+        List<ComputationNode> children = product.getChildren();
+        if (children == null || children.size() != 2) return false;
+        for (ComputationNode child : children) {
+            if (child.getNodeType() != ComputationNodeType.MATRIX || child.isSparse() || child.isSinglePrecision()) {
+                return false;
+            }
+        }
+        return isRowByColumn(product);
+    }
+
+    /**
+     * Raises a square matrix to the node's exponent by repeated squaring: floor(log2 n)
+     * squarings and one product per further set bit of n, instead of n - 1 products. Each
+     * product goes through the kernel its operands call for.
+     */
+    private void computePower(ComputationNode node, MetricsReport.NodeMetrics nodeMetrics) {
+        checkArity(ComputationNodeType.POWER, node.getChildren());
+        ComputationNode base = node.getChildren().get(0);
+        if (rowsOf(base) != colsOf(base)) {
+            throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+        }
+        int n = node.getExponent();
+        if (n == 1 && !base.isSparse()) {
+            // the result is the base's data itself, which must not stay shared with other nodes
+            if (base.isSinglePrecision()) {
+                base.getFloatMatrixForUpdate();
+            } else {
+                base.getMatrixForUpdate();
+            }
+        }
+        ComputationNode square = leafOf(base);
+        ComputationNode result = null;
+        while (true) {
+            if ((n & 1) != 0) {
+                result = result == null ? square : multiplyLeaves(result, square, nodeMetrics);
+            }
+            n >>>= 1;
+            if (n == 0) break;
+            square = multiplyLeaves(square, square, nodeMetrics);
+        }
+        if (result.isSparse()) {
+            node.resolve(result.getSparseMatrix());
+        } else if (result.isSinglePrecision()) {
+            node.resolve(result.getFloatMatrix());
+        } else {
+            node.resolve(result.getMatrix());
+        }
+    }
+
+    private ComputationNode multiplyLeaves(ComputationNode a, ComputationNode b, MetricsReport.NodeMetrics nodeMetrics) {
+        ComputationNode product = new ComputationNode(ComputationNodeType.MULTIPLY, new ArrayList<>(List.of(a, b)));
+        // each product of the chain is verified like a MULTIPLY node of its own
+        ResultVerifier.Check check = prepareCheck(product);
+        resolveNode(product, nodeMetrics);
+        verifyCheck(check, product);
+        return product;
+    }
+
+    /**
+     * A leaf sharing a resolved node's data.
+     */
+    private static ComputationNode leafOf(ComputationNode resolved) {
+        if (resolved.isSparse()) return new ComputationNode(resolved.getSparseMatrix());
+        if (resolved.isSinglePrecision()) return new ComputationNode(resolved.getFloatMatrix());
+        return new ComputationNode(resolved.getMatrix());
+    }
+
+    /**
+     * True if the node is computed by the row-by-column tasks, which need no barrier of their
+     * own; sparse and Strassen-Winograd kernels submit and wait for their own batches.
+     */
+    boolean isRowByColumn(ComputationNode node) {
+        return node.getNodeType() != ComputationNodeType.POWER
+                && !hasSparseOperand(node) && !useRemote(node) && !useStrassen(node) && shapeKernel(node) == null
+                && structureKernel(node) == null;
+    }
+
+    /**
+     * Bytes copied to lay out a row-by-column node's operands: the right operand of a multiply
+     * is loaded column-major.
+     */
+    long layoutCopyBytes(ComputationNode node) {
+        if (node.getNodeType() != ComputationNodeType.MULTIPLY || node.getChildren().size() != 2) return 0;
+        ComputationNode b = node.getChildren().get(1);
+        return (long) rowsOf(b) * colsOf(b) * (isSinglePrecision(node) ? Float.BYTES : Double.BYTES);
+    }
+
+    /**
+     * Bytes copied by reading a resolved node's result back to row-major arrays.
+     */
+    long resultBytes(ComputationNode resolved) {
+        return (long) rowsOf(resolved) * colsOf(resolved) * (resolved.isSinglePrecision() ? Float.BYTES : Double.BYTES);
+    }
+
+    MetricsReport.NodeMetrics beginNodeMetrics(ComputationNode node) {
+        MetricsReport.NodeMetrics m = new MetricsReport.NodeMetrics();
+        m.operator = node.getNodeType().name();
+        boolean sparse = false;
+        boolean single = node.getChildren() != null && !node.getChildren().isEmpty();
+        if (node.getChildren() != null) {
+            for (ComputationNode child : node.getChildren()) {
+                m.operandShapes.add(new int[]{rowsOf(child), colsOf(child)});
+                sparse |= child.isSparse();
+                single &= child.isSinglePrecision();
+            }
+        }
+        m.representation = sparse ? "sparse" : single ? "float32" : "dense";
+        m.stats = new TaskStats();
+        m.operands = node.getChildren() != null ? new ArrayList<>(node.getChildren()) : List.of();
+        m.check = prepareCheck(node);
+        TraceRecorder.setOperator(m.operator);
+        m.startNanos = System.nanoTime();
+        return m;
+    }
+
+    void endNodeMetrics(ComputationNode node, MetricsReport.NodeMetrics m) {
+        long end = System.nanoTime();
+        executor.setTaskStats(null);
+        m.resultShape = new int[]{rowsOf(node), colsOf(node)};
+        TraceRecorder tracer = TraceRecorder.active();
+        if (tracer != null) {
+            traceNode(tracer, m, end);
+            TraceRecorder.setOperator(null);
+        }
+        metrics.finishNode(m, end);
+        verifyCheck(m.check, node);
+        m.check = null;
+        if (resultCache != null) storeCached(node);
+        release(m.operands, node);
+        m.operands = null;
+    }
+
+    /**
+     * Takes the check values of a node about to be computed; null without verification or
+     * for operators that are not checked.
+     */
+    private ResultVerifier.Check prepareCheck(ComputationNode node) {
+        if (verifier == null) return null;
+        long start = System.nanoTime();
+        ResultVerifier.Check check = verifier.prepare(node, batchExecutor(), numThreads);
+        metrics.verificationMillis += (System.nanoTime() - start) / 1e6;
+        return check;
+    }
+
+    private void verifyCheck(ResultVerifier.Check check, ComputationNode node) {
+        if (check == null) return;
+        long start = System.nanoTime();
+        verifier.verify(check, node, batchExecutor(), numThreads);
+        metrics.verifiedNodes++;
+        metrics.verificationMillis += (System.nanoTime() - start) / 1e6;
+    }
+
+    /**
+     * Records the node and its load/compute/readout phases on the engine thread's timeline,
+     * split at the same batch boundaries as the metrics.
+     */
+    private void traceNode(TraceRecorder tracer, MetricsReport.NodeMetrics m, long end) {
+        tracer.record(m.operator, TraceRecorder.OPERATOR, m.startNanos, end);
+        TaskStats stats = m.stats;
+        if (stats.getBatchCount() == 0) return;
+        tracer.record("load", TraceRecorder.PHASE, m.startNanos, stats.getFirstBatchStart());
+        tracer.record("compute", TraceRecorder.PHASE, stats.getFirstBatchStart(), stats.getLastBatchEnd());
+        tracer.record("readout", TraceRecorder.PHASE, stats.getLastBatchEnd(), end);
+    }
+
+    /**
+     * Returns the metrics of the last (or current) run.
+     */
+    public MetricsReport getMetrics() {
+        return metrics;
+    }
+
     public void loadAndCompute(ComputationNode node) {
         // TODO: load operand matrices
         // TODO: create compute tasks & submit tasks to executor
@@ -58,31 +524,100 @@ public class LinearAlgebraEngine {
         List<ComputationNode> children = node.getChildren();
         if (children == null) throw new IllegalArgumentException("Node has no children");
 
-        // Arity checks (per assignment)
-        if ((type == ComputationNodeType.NEGATE || type == ComputationNodeType.TRANSPOSE) && children.size() != 1) {
-            throw new IllegalArgumentException("Illegal operation: unary operator with " + children.size() + " operands");
+        checkArity(type, children);
+
+        if (isSinglePrecision(node)) {
+            loadFloatOperands(type, children, floatLeftMatrix, floatRightMatrix);
+            executor.submitAll(withRowBlocks(type, streamRows(node, createFloatTasks(type, floatLeftMatrix, floatRightMatrix), null, floatLeftMatrix), null, floatLeftMatrix));
+            return;
         }
-        if ((type == ComputationNodeType.ADD || type == ComputationNodeType.MULTIPLY) && children.size() != 2) {
-            throw new IllegalArgumentException("Illegal operation: binary operator with " + children.size() + " operands");
+        loadOperands(type, children, leftMatrix, rightMatrix);
+        executor.submitAll(withRowBlocks(type, streamRows(node, createTasks(type, leftMatrix, rightMatrix), leftMatrix, null), leftMatrix, null));
+    }
+
+    /**
+     * Tags task i of a sum, product or negation with the array of row i of the left matrix
+     * when cache affinity is on. A sum or negation updates that array in place and a product
+     * replaces it with the result row its worker wrote; either way the array becomes row i of
+     * the node's result (see {@link SharedMatrix#takeRowMajor}), and so a row of the next
+     * operator's operand, whose task then goes to the worker that still has it in cache. A
+     * transpose's result is copied on readout and is not tagged.
+     */
+    List<Runnable> withRowBlocks(ComputationNodeType type, List<Runnable> tasks, SharedMatrix left, FloatSharedMatrix floatLeft) {
+        if (!cacheAffinity || type == ComputationNodeType.TRANSPOSE) return tasks;
+        List<Runnable> keyed = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            int row = i;
+            keyed.add(left != null
+                    ? TiredExecutor.keyed(() -> left.get(row).block(), tasks.get(i))
+                    : TiredExecutor.keyed(() -> floatLeft.get(row).block(), tasks.get(i)));
         }
+        return keyed;
+    }
 
+    /**
+     * Makes each row task of the run's final operator hand a copy of its finished row to the
+     * row sink, so that the result can be written while the other rows are computed. Task i
+     * of a sum, product or negation leaves row i of the result in vector i of the left
+     * matrix; the rows of a transpose only exist after the readout and are not streamed.
+     * Other tasks are returned as they are.
+     */
+    List<Runnable> streamRows(ComputationNode node, List<Runnable> tasks, SharedMatrix left, FloatSharedMatrix floatLeft) {
+        if (rowSink == null || node != streamedRoot || node.getNodeType() == ComputationNodeType.TRANSPOSE) return tasks;
+        RowSink sink = rowSink;
+        sink.begin(tasks.size());
+        List<Runnable> streaming = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            int row = i;
+            Runnable task = tasks.get(i);
+            if (left != null) {
+                streaming.add(() -> {
+                    task.run();
+                    sink.row(row, left.get(row).toArray());
+                });
+            } else {
+                streaming.add(() -> {
+                    task.run();
+                    sink.row(row, floatLeft.get(row).toArray());
+                });
+            }
+        }
+        return streaming;
+    }
+
+    /**
+     * The executor that layout conversions and result checks are split across. Under
+     * critical-path scheduling other operators' tasks are in flight and a batch would wait for
+     * all of them, so this work stays on the calling thread.
+     */
+    private TiredExecutor batchExecutor() {
+        return criticalPathScheduling ? null : executor;
+    }
+
+    /**
+     * Loads the operands of a resolvable node into the given matrices and checks their
+     * dimensions. After the node's tasks have run, the left matrix holds the result.
+     */
+    void loadOperands(ComputationNodeType type, List<ComputationNode> children, SharedMatrix left, SharedMatrix right) {
         // Load operands from MATRIX children into M1/M2
         if (type == ComputationNodeType.NEGATE || type == ComputationNodeType.TRANSPOSE) {
-            double[][] a = children.get(0).getMatrix();
-            leftMatrix.loadRowMajor(a);   // store as rows
-            rightMatrix.loadRowMajor(new double[0][0]); // optional clear
+            // negation overwrites the rows in place
+            double[][] a = type == ComputationNodeType.NEGATE ? children.get(0).getMatrixForUpdate() : children.get(0).getMatrix();
+            left.loadRowMajor(a);   // store as rows
+            right.loadRowMajor(new double[0][0]); // optional clear
         } else {
-            double[][] a = children.get(0).getMatrix();
+            // a sum overwrites the left operand's rows in place
+            double[][] a = type == ComputationNodeType.ADD ? children.get(0).getMatrixForUpdate() : children.get(0).getMatrix();
             double[][] b = children.get(1).getMatrix();
 
             if (type == ComputationNodeType.ADD) {
                 // Addition expects same dimensions; store both as rows
-                leftMatrix.loadRowMajor(a);
-                rightMatrix.loadRowMajor(b);
+                left.loadRowMajor(a);
+                right.loadRowMajor(b);
             } else { // MULTIPLY
                 // For multiplication: left as rows, right as columns (efficient row * matrix)
-                leftMatrix.loadRowMajor(a);
-                rightMatrix.loadColumnMajor(b);
+                left.loadRowMajor(a);
+                right.loadColumnMajor(b, batchExecutor(), numThreads);
             }
         }
 
@@ -90,46 +625,37 @@ public class LinearAlgebraEngine {
         switch (type) {
             case ADD: {
                 // same #rows and same #cols
-                if (leftMatrix.length() != rightMatrix.length()) {
+                if (left.length() != right.length()) {
                     throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
                 }
-                if (leftMatrix.length() > 0) {
-                    int colsA = leftMatrix.get(0).length();
-                    int colsB = rightMatrix.get(0).length();
+                if (left.length() > 0) {
+                    int colsA = left.get(0).length();
+                    int colsB = right.get(0).length();
                     if (colsA != colsB) {
                         throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
                     }
                 }
-                executor.submitAll(createAddTasks());
                 break;
             }
 
-            case NEGATE: {
-                executor.submitAll(createNegateTasks());
+            case NEGATE:
+            case TRANSPOSE:
                 break;
-            }
-
-            case TRANSPOSE: {
-                executor.submitAll(createTransposeTasks());
-                break;
-            }
 
             case MULTIPLY: {
                 // A is (m x k) stored as m row vectors length k
                 // B is (k x n) stored as n column vectors length k
-                if (leftMatrix.length() == 0 || rightMatrix.length() == 0) {
+                if (left.length() == 0 || right.length() == 0) {
                     // define empty multiplication as mismatch (or allow 0x0); choose consistent policy
                     // If your SharedMatrix allows empty, you may allow returning empty.
                     throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
                 }
 
-                int kA = leftMatrix.get(0).length();
-                int kB = rightMatrix.get(0).length();
+                int kA = left.get(0).length();
+                int kB = right.get(0).length();
                 if (kA != kB) {
                     throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
                 }
-
-                executor.submitAll(createMultiplyTasks());
                 break;
             }
 
@@ -138,62 +664,496 @@ public class LinearAlgebraEngine {
         }
     }
 
-        
-    
+    List<Runnable> createTasks(ComputationNodeType type, SharedMatrix left, SharedMatrix right) {
+        switch (type) {
+            case ADD:
+                return createAddTasks(left, right);
+            case MULTIPLY:
+                return createMultiplyTasks(left, right);
+            case NEGATE:
+                return createNegateTasks(left);
+            case TRANSPOSE:
+                return createTransposeTasks(left);
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + type);
+        }
+    }
+
     public List<Runnable> createAddTasks() {
-      int n = leftMatrix.length();
+        return createAddTasks(leftMatrix, rightMatrix);
+    }
+
+    public List<Runnable> createMultiplyTasks() {
+        return createMultiplyTasks(leftMatrix, rightMatrix);
+    }
+
+    public List<Runnable> createNegateTasks() {
+        return createNegateTasks(leftMatrix);
+    }
+
+    public List<Runnable> createTransposeTasks() {
+        return createTransposeTasks(leftMatrix);
+    }
+
+    public List<Runnable> createAddTasks(SharedMatrix left, SharedMatrix right) {
+      int n = left.length();
     java.util.ArrayList<Runnable> tasks = new java.util.ArrayList<>(n);
 
     for (int i = 0; i < n; i++) {
-        SharedVector l = leftMatrix.get(i);
-        SharedVector r = rightMatrix.get(i);
+        SharedVector l = left.get(i);
+        SharedVector r = right.get(i);
         tasks.add(() -> l.add(r));
     }
     return tasks;
 }
 
-    public List<Runnable> createMultiplyTasks() {
+    public List<Runnable> createMultiplyTasks(SharedMatrix left, SharedMatrix right) {
         // TODO: return tasks that perform row × matrix multiplication
-        int n = leftMatrix.length();
+        int n = left.length();
         java.util.ArrayList<Runnable> tasks = new java.util.ArrayList<>(n);
         for (int i = 0; i < n; i++) {
                 final int idx = i;
             tasks.add(() -> {
-                leftMatrix.get(idx).vecMatMul(rightMatrix);
+                left.get(idx).vecMatMul(right);
             });
             
         }
         return tasks;
     }
 
-    public List<Runnable> createNegateTasks() {
+    public List<Runnable> createNegateTasks(SharedMatrix matrix) {
         // TODO: return tasks that negate rows
-        int n = leftMatrix.length();
+        int n = matrix.length();
         java.util.ArrayList<Runnable> tasks = new java.util.ArrayList<>(n);
         for (int i = 0; i < n; i++) {
                 final int idx = i;
             tasks.add(() -> {
-                leftMatrix.get(idx).negate();
+                matrix.get(idx).negate();
             });
             
         }
         return tasks;
     }
 
-    public List<Runnable> createTransposeTasks() {
+    public List<Runnable> createTransposeTasks(SharedMatrix matrix) {
         // TODO: return tasks that transpose rows
-        int n = leftMatrix.length();
+        int n = matrix.length();
         java.util.ArrayList<Runnable> tasks = new java.util.ArrayList<>(n);
         for (int i = 0; i < n; i++) {
                 final int idx = i;
             tasks.add(() -> {
-                leftMatrix.get(idx).transpose();
+                matrix.get(idx).transpose();
             });
             
         }
         return tasks;
     }
 
+    /**
+     * Sets the smallest square size multiplied with the Strassen-Winograd path.
+     */
+    public void setStrassenThreshold(int threshold) {
+        if (threshold <= 0) throw new IllegalArgumentException("threshold must be positive");
+        this.strassenThreshold = threshold;
+    }
+
+    /**
+     * Cancels the run if it has not finished {@code millis} after it started: tasks that have
+     * not started are skipped and run() throws an {@link ExecutionCancelledException}.
+     */
+    public void setDeadline(long millis) {
+        if (millis <= 0) throw new IllegalArgumentException("deadline must be positive");
+        this.deadlineMillis = millis;
+    }
+
+    /**
+     * Evaluates the operands of each operator in the order that keeps the estimated peak of
+     * live matrices lowest, and rejects expressions whose peak would exceed {@code bytes}
+     * before computing anything. The part of the budget the expression does not need holds
+     * recycled buffers. It cannot be combined with critical-path scheduling, which evaluates
+     * all ready operators at once and so does not follow the order.
+     */
+    public void setMemoryBudget(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("memory budget cannot be negative");
+        this.memoryBudget = bytes;
+    }
+
+    /**
+     * Checks the result of every ADD and MULTIPLY against {@code trials} random matrix-vector
+     * products taken from its operands (see {@link ResultVerifier}), at O(n^2) per trial. A
+     * result that fails stops the run with a {@link ResultVerificationException}. 0 turns
+     * verification off.
+     */
+    public void setVerification(int trials) {
+        if (trials < 0) throw new IllegalArgumentException("verification trials cannot be negative");
+        this.verificationTrials = trials;
+    }
+
+    /**
+     * Hands the rows of each run's result to {@code sink} as they are computed, when the final
+     * operator is a sum, product or negation computed row by row; see {@link #streamRows}.
+     * Otherwise the sink is not called and the result is only returned.
+     */
+    public void setRowSink(RowSink sink) {
+        this.rowSink = sink;
+    }
+
+    /**
+     * Consults {@code cache} before computing each node and stores the results it considers
+     * worth keeping.
+     */
+    public void setResultCache(ResultStore cache) {
+        this.resultCache = cache;
+    }
+
+    /**
+     * Content hashes of the nodes of the last run's tree, if it used a result cache.
+     */
+    Map<ComputationNode, String> getHashes() {
+        return hashes;
+    }
+
+    /**
+     * With critical-path scheduling, the tasks of all ready operators are in flight together
+     * and dispatched in order of their operator's remaining critical path; see
+     * {@link CriticalPathScheduler}. Without it, operators are resolved one at a time, leftmost
+     * first. Not available under a memory budget (see {@link #setMemoryBudget}).
+     */
+    public void setCriticalPathScheduling(boolean enabled) {
+        this.criticalPathScheduling = enabled;
+    }
+
+    /**
+     * Runs the task of each result row on the worker that wrote the row's array, when it is
+     * idle, instead of on the least tired one; see {@link #withRowBlocks} and
+     * {@link TiredExecutor#setAffinity}. Pays off on chains of row-by-column operators whose
+     * rows fit in a core's cache.
+     */
+    public void setCacheAffinity(boolean enabled) {
+        this.cacheAffinity = enabled;
+        executor.setAffinity(enabled);
+    }
+
+    /**
+     * Distributes dense double-precision ADD and MULTIPLY operators over {@code cluster}'s
+     * worker processes when they do enough arithmetic per element sent; see
+     * {@link #useRemote}.
+     */
+    public void setRemoteCluster(RemoteCluster cluster) {
+        this.remote = cluster;
+    }
+
+    /**
+     * An operator is sent to the cluster if it does at least {@link #MIN_REMOTE_INTENSITY}
+     * flops per double crossing a socket: the left operand and the result once, a broadcast
+     * operand once per worker. Products of all but small matrices qualify; sums, at one flop
+     * per three doubles, never do and stay local.
+     */
+    private boolean useRemote(ComputationNode node) {
+        if (remote == null) return false;
+        ComputationNodeType type = node.getNodeType();
+        if (type != ComputationNodeType.MULTIPLY && type != ComputationNodeType.ADD) return false;
+        List<ComputationNode> children = node.getChildren();
+        if (children == null || children.size() != 2) return false;
+        ComputationNode a = children.get(0);
+        ComputationNode b = children.get(1);
+        if (a.isSparse() || b.isSparse() || a.isSinglePrecision() || b.isSinglePrecision()) return false;
+        long m = rowsOf(a);
+        long k = colsOf(a);
+        long n = colsOf(b);
+        long parts = Math.max(1, Math.min(remote.size(), m));
+        double flops = type == ComputationNodeType.MULTIPLY ? 2.0 * m * k * n : (double) m * k;
+        double sent = type == ComputationNodeType.MULTIPLY ? m * k + parts * k * n + m * n : 3.0 * m * k;
+        return sent > 0 && flops / sent >= MIN_REMOTE_INTENSITY;
+    }
+
+    /**
+     * The recursive path is used for dense double-precision square products at or above the
+     * threshold; everything else goes through the row-by-column tasks.
+     */
+    private boolean useStrassen(ComputationNode node) {
+        if (node.getNodeType() != ComputationNodeType.MULTIPLY) return false;
+        List<ComputationNode> children = node.getChildren();
+        if (children == null || children.size() != 2) return false;
+        ComputationNode a = children.get(0);
+        ComputationNode b = children.get(1);
+        if (a.isSparse() || b.isSparse() || a.isSinglePrecision() || b.isSinglePrecision()) return false;
+        int n = rowsOf(a);
+        return n >= strassenThreshold && colsOf(a) == n && rowsOf(b) == n && colsOf(b) == n;
+    }
+
+    // Arity checks (per assignment)
+    static void checkArity(ComputationNodeType type, List<ComputationNode> children) {
+        if ((type == ComputationNodeType.NEGATE || type == ComputationNodeType.TRANSPOSE
+                || type == ComputationNodeType.POWER) && children.size() != 1) {
+            throw new IllegalArgumentException("Illegal operation: unary operator with " + children.size() + " operands");
+        }
+        if ((type == ComputationNodeType.ADD || type == ComputationNodeType.MULTIPLY) && children.size() != 2) {
+            throw new IllegalArgumentException("Illegal operation: binary operator with " + children.size() + " operands");
+        }
+    }
+
+    /**
+     * The {@link ShapeKernels} kernel for a dense double-precision product with a vector or
+     * 1x1 operand, or null.
+     */
+    private static String shapeKernel(ComputationNode node) {
+        if (node.getNodeType() != ComputationNodeType.MULTIPLY) return null;
+        List<ComputationNode> children = node.getChildren();
+        if (children == null || children.size() != 2) return null;
+        ComputationNode a = children.get(0);
+        ComputationNode b = children.get(1);
+        if (a.isSparse() || b.isSparse() || a.isSinglePrecision() || b.isSinglePrecision()) return null;
+        if (rowsOf(a) == 0 || colsOf(a) != rowsOf(b) || colsOf(b) == 0) return null; // left to the dimension checks
+        return ShapeKernels.kernelFor(rowsOf(a), colsOf(a), colsOf(b));
+    }
+
+    /**
+     * Remembers the products of a subtree and its own transpose before the transposes are
+     * computed and the pattern is gone.
+     */
+    private void findTransposeProducts(ComputationNode node) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) return;
+        if (node.isTransposeProduct()) transposeProducts.add(node);
+        for (ComputationNode child : node.getChildren()) {
+            findTransposeProducts(child);
+        }
+    }
+
+    /**
+     * The {@link StructureKernels} kernel for a dense double-precision product with a
+     * diagonal or triangular operand or a symmetric result, or null. Vector shapes are left
+     * to {@link ShapeKernels}.
+     */
+    private String structureKernel(ComputationNode node) {
+        if (shapeKernel(node) != null || node.getNodeType() != ComputationNodeType.MULTIPLY) return null;
+        List<ComputationNode> children = node.getChildren();
+        if (children == null || children.size() != 2) return null;
+        ComputationNode a = children.get(0);
+        ComputationNode b = children.get(1);
+        if (a.getNodeType() != ComputationNodeType.MATRIX || b.getNodeType() != ComputationNodeType.MATRIX) return null;
+        if (a.isSparse() || b.isSparse() || a.isSinglePrecision() || b.isSinglePrecision()) return null;
+        if (rowsOf(a) == 0 || colsOf(a) != rowsOf(b) || colsOf(b) == 0) return null; // left to the dimension checks
+        return StructureKernels.kernelFor(transposeProducts.contains(node), structureOf(a), structureOf(b));
+    }
+
+    private StructureKernels.Structure structureOf(ComputationNode resolved) {
+        return structures.computeIfAbsent(resolved, n -> StructureKernels.Structure.of(n.getMatrix()));
+    }
+
+    private boolean hasSparseOperand(ComputationNode node) {
+        List<ComputationNode> children = node.getChildren();
+        if (children == null) return false;
+        for (ComputationNode child : children) {
+            if (child.isSparse()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * True if an operand holds NaN or an infinity. The sparse products skip the zero terms,
+     * but 0 * Inf is NaN, so such products go through the dense kernels instead.
+     */
+    private boolean hasNonFiniteOperand(ComputationNode node) {
+        for (ComputationNode child : node.getChildren()) {
+            if (child.isSparse()) {
+                if (child.getSparseMatrix().hasNonFiniteValues()) return true;
+            } else {
+                for (double[] row : child.getMatrix()) {
+                    for (double v : row) {
+                        if (!Double.isFinite(v)) return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes and resolves an operator with at least one sparse operand.
+     * Sparse results that fill in beyond the density threshold are stored dense.
+     */
+    private void computeSparse(ComputationNode node) {
+        ComputationNodeType type = node.getNodeType();
+        List<ComputationNode> children = node.getChildren();
+        checkArity(type, children);
+        ComputationNode a = children.get(0);
+        switch (type) {
+            case NEGATE:
+                node.resolve(SparseKernels.negate(executor, numThreads, a.getSparseMatrix()));
+                return;
+            case TRANSPOSE:
+                node.resolve(a.getSparseMatrix().transpose());
+                return;
+            case ADD: {
+                ComputationNode b = children.get(1);
+                if (rowsOf(a) != rowsOf(b) || colsOf(a) != colsOf(b)) {
+                    throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+                }
+                if (a.isSparse() && b.isSparse()) {
+                    resolveSparseResult(node, SparseKernels.add(executor, numThreads, a.getSparseMatrix(), b.getSparseMatrix()));
+                } else if (a.isSparse()) {
+                    node.resolve(SparseKernels.add(executor, numThreads, a.getSparseMatrix(), b.getMatrix()));
+                } else {
+                    node.resolve(SparseKernels.add(executor, numThreads, b.getSparseMatrix(), a.getMatrix()));
+                }
+                return;
+            }
+            case MULTIPLY: {
+                ComputationNode b = children.get(1);
+                if (rowsOf(a) == 0 || rowsOf(b) == 0 || colsOf(a) != rowsOf(b)) {
+                    throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+                }
+                if (a.isSparse() && b.isSparse()) {
+                    resolveSparseResult(node, SparseKernels.multiply(executor, numThreads, a.getSparseMatrix(), b.getSparseMatrix()));
+                } else if (a.isSparse()) {
+                    node.resolve(SparseKernels.multiply(executor, numThreads, a.getSparseMatrix(), b.getMatrix()));
+                } else {
+                    node.resolve(SparseKernels.multiply(executor, numThreads, a.getMatrix(), b.getSparseMatrix()));
+                }
+                return;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + type);
+        }
+    }
+
+    private void resolveSparseResult(ComputationNode node, SparseMatrix result) {
+        if (SparseMatrix.isSparseEnough(result.rows(), result.cols(), result.nonZeros())) {
+            node.resolve(result);
+        } else {
+            node.resolve(result.toDense());
+        }
+    }
+
+    static int rowsOf(ComputationNode node) {
+        if (node.isSparse()) return node.getSparseMatrix().rows();
+        if (node.isSinglePrecision()) return node.getFloatMatrix().length;
+        return node.getMatrix().length;
+    }
+
+    static int colsOf(ComputationNode node) {
+        if (node.isSparse()) return node.getSparseMatrix().cols();
+        if (node.isSinglePrecision()) {
+            float[][] m = node.getFloatMatrix();
+            return m.length == 0 ? 0 : m[0].length;
+        }
+        double[][] m = node.getMatrix();
+        return m.length == 0 ? 0 : m[0].length;
+    }
+
+    /**
+     * An operation runs in float32 mode only if all of its operands are single-precision;
+     * mixed operands are widened and computed in double precision.
+     */
+    boolean isSinglePrecision(ComputationNode node) {
+        List<ComputationNode> children = node.getChildren();
+        if (children == null || children.isEmpty()) return false;
+        for (ComputationNode child : children) {
+            if (!child.isSinglePrecision()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * float32 counterpart of {@link #loadOperands}.
+     */
+    void loadFloatOperands(ComputationNodeType type, List<ComputationNode> children,
+                           FloatSharedMatrix left, FloatSharedMatrix right) {
+        // negation and sums overwrite the left operand's rows in place
+        float[][] a = type == ComputationNodeType.NEGATE || type == ComputationNodeType.ADD
+                ? children.get(0).getFloatMatrixForUpdate() : children.get(0).getFloatMatrix();
+        switch (type) {
+            case NEGATE:
+            case TRANSPOSE: {
+                left.loadRowMajor(a);
+                break;
+            }
+            case ADD: {
+                float[][] b = children.get(1).getFloatMatrix();
+                left.loadRowMajor(a);
+                right.loadRowMajor(b);
+                if (left.length() != right.length()) {
+                    throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+                }
+                if (left.length() > 0 && left.get(0).length() != right.get(0).length()) {
+                    throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+                }
+                break;
+            }
+            case MULTIPLY: {
+                float[][] b = children.get(1).getFloatMatrix();
+                left.loadRowMajor(a);
+                right.loadColumnMajor(b, batchExecutor(), numThreads);
+                if (left.length() == 0 || right.length() == 0) {
+                    throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+                }
+                if (left.get(0).length() != right.get(0).length()) {
+                    throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + type);
+        }
+    }
+
+    List<Runnable> createFloatTasks(ComputationNodeType type, FloatSharedMatrix left, FloatSharedMatrix right) {
+        switch (type) {
+            case ADD:
+                return createFloatAddTasks(left, right);
+            case MULTIPLY:
+                return createFloatMultiplyTasks(left, right);
+            case NEGATE:
+                return createFloatNegateTasks(left);
+            case TRANSPOSE:
+                return createFloatTransposeTasks(left);
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + type);
+        }
+    }
+
+    public List<Runnable> createFloatAddTasks(FloatSharedMatrix left, FloatSharedMatrix right) {
+        int n = left.length();
+        java.util.ArrayList<Runnable> tasks = new java.util.ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            FloatSharedVector l = left.get(i);
+            FloatSharedVector r = right.get(i);
+            tasks.add(() -> l.add(r));
+        }
+        return tasks;
+    }
+
+    public List<Runnable> createFloatMultiplyTasks(FloatSharedMatrix left, FloatSharedMatrix right) {
+        int n = left.length();
+        java.util.ArrayList<Runnable> tasks = new java.util.ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            tasks.add(() -> left.get(idx).vecMatMul(right));
+        }
+        return tasks;
+    }
+
+    public List<Runnable> createFloatNegateTasks(FloatSharedMatrix matrix) {
+        int n = matrix.length();
+        java.util.ArrayList<Runnable> tasks = new java.util.ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            tasks.add(() -> matrix.get(idx).negate());
+        }
+        return tasks;
+    }
+
+    public List<Runnable> createFloatTransposeTasks(FloatSharedMatrix matrix) {
+        int n = matrix.length();
+        java.util.ArrayList<Runnable> tasks = new java.util.ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            tasks.add(() -> matrix.get(idx).transpose());
+        }
+        return tasks;
+    }
+
     public String getWorkerReport() {
         // TODO: return summary of worker activity
 
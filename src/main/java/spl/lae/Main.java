@@ -1,19 +1,41 @@
 package spl.lae;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.text.ParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import parser.*;
+import scheduling.ExecutionCancelledException;
+import scheduling.TraceRecorder;
 
 public class Main {
+    /** Budget of the --cache-dir result cache unless --cache-size is given. */
+    private static final String DEFAULT_CACHE_MB = "1024";
+    /** How often --watch checks the input file unless an interval is given. */
+    private static final long DEFAULT_WATCH_MILLIS = 200;
+    private static final Set<String> OPTIONS = Set.of("float32", "parallel-parse", "explain", "trace",
+            "metrics", "out-of-core", "spill-dir", "deadline", "elastic", "critical-path", "affinity",
+            "memory-budget", "verify", "cache-dir", "cache-size", "workers", "watch");
+    /** Options of single runs that watch mode has no use for; it keeps its own result cache. */
+    private static final List<String> NOT_WATCHED = List.of("parallel-parse", "explain", "out-of-core",
+            "spill-dir", "cache-dir", "cache-size", "workers");
+
     public static void main(String[] args) throws IOException {
-      if (args.length != 3 || args==null) {
-        System.err.println("Error: Expected 3 arguments: <threads> <input.json> <output.json>");
+      if (args==null || args.length < 3) {
+        System.err.println("Error: Expected at least 3 arguments: <threads> <input.json> <output.json> [--option[=value] ...]");
             return;
       }
        final String threadsStr = args[0];
         final String inputPath  = args[1];
         final String outputPath = args[2];
           final int numThreads;
+          final Map<String, String> options;
         try {
             numThreads = Integer.parseInt(threadsStr);
             if (numThreads <= 0) throw new NumberFormatException("threads must be > 0");
@@ -23,16 +45,102 @@ public class Main {
              } catch (IOException io) {
                System.err.println("Failed to write error output: " + io.getMessage());
         }
-         return; 
+         return;
+        }
+        try {
+            options = parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            try {
+               OutputWriter.write(e.getMessage(), outputPath);
+             } catch (IOException io) {
+               System.err.println("Failed to write error output: " + io.getMessage());
+             }
+            return;
         }
         try{
-         InputParser parser = new InputParser();
-          ComputationNode rootNode = parser.parse(inputPath);
+         boolean singlePrecision = options.containsKey("float32");
+         if (options.containsKey("watch")) {
+             watch(inputPath, outputPath, numThreads, options);
+             return;
+         }
+          // --parallel-parse converts the numbers of large literals on numThreads workers
+          ComputationNode rootNode = options.containsKey("parallel-parse")
+                  ? new ParallelInputParser(singlePrecision, numThreads).parse(inputPath)
+                  : new InputParser(singlePrecision).parse(inputPath);
           rootNode.associativeNesting();
-          LinearAlgebraEngine engine = new LinearAlgebraEngine(numThreads);
-          ComputationNode resultNode = engine.run(rootNode);
-          OutputWriter.write(resultNode.getMatrix(), outputPath);
+          if (options.containsKey("explain")) {
+              // dry run: print the plan, compute nothing
+              System.out.print(ExecutionPlanner.plan(rootNode).format());
+              return;
+          }
+          ComputationNode resultNode;
+          boolean streamed = false;
+          TraceRecorder tracer = options.containsKey("trace") ? TraceRecorder.start() : null;
+          // a failed or cancelled run is traced too
+          try {
+              if (options.containsKey("out-of-core")) {
+                  long budgetBytes = parseMegabytes(options.get("out-of-core")) * 1024 * 1024;
+                  Path spillDir = Path.of(options.getOrDefault("spill-dir", System.getProperty("java.io.tmpdir")));
+                  OutOfCoreEngine engine = new OutOfCoreEngine(numThreads, budgetBytes, spillDir);
+                  if (options.containsKey("deadline")) engine.setDeadline(parseMillis(options.get("deadline"), "deadline"));
+                  resultNode = engine.run(rootNode);
+              } else {
+                  LinearAlgebraEngine engine = newEngine(numThreads, options);
+                  if (options.containsKey("cache-dir")) {
+                      long cacheBytes = parseMegabytes(options.getOrDefault("cache-size", DEFAULT_CACHE_MB)) * 1024 * 1024;
+                      engine.setResultCache(new ResultCache(Path.of(options.get("cache-dir")), cacheBytes));
+                  }
+                  // the rows of the final operator are written while it computes; a failed run
+                  // closes the stream before its error overwrites the output
+                  try (StreamingOutputWriter stream = new StreamingOutputWriter(outputPath)) {
+                      engine.setRowSink(stream);
+                      if (options.containsKey("workers")) {
+                          try (RemoteCluster cluster = new RemoteCluster(RemoteCluster.parseAddresses(options.get("workers")))) {
+                              engine.setRemoteCluster(cluster);
+                              resultNode = engine.run(rootNode);
+                          }
+                      } else {
+                          resultNode = engine.run(rootNode);
+                      }
+                      streamed = stream.finish();
+                  }
+                  if (options.containsKey("metrics")) {
+                      OutputWriter.writeReport(engine.getMetrics(), metricsPath(outputPath));
+                  }
+              }
+          } finally {
+              if (tracer != null) writeTrace(tracer, outputPath, options.get("trace"));
+          }
+          if (!streamed) writeResult(resultNode, outputPath);
            }
+           catch (IllegalArgumentException e) {
+            try {
+               OutputWriter.write(e.getMessage(), outputPath);
+             } catch (IOException io) {
+               System.err.println("Failed to write error output: " + io.getMessage());
+             }
+            }
+           catch (ExecutionCancelledException e) {
+            try {
+               OutputWriter.write("Job cancelled: " + e.getMessage(), outputPath);
+             } catch (IOException io) {
+               System.err.println("Failed to write error output: " + io.getMessage());
+             }
+            }
+           catch (ResultVerificationException e) {
+            try {
+               OutputWriter.write("Verification failed: " + e.getMessage(), outputPath);
+             } catch (IOException io) {
+               System.err.println("Failed to write error output: " + io.getMessage());
+             }
+            }
+           catch (RuntimeException e) {
+            try {
+               OutputWriter.write("Unexpected error: " + e.getMessage(), outputPath);
+             } catch (IOException io) {
+               System.err.println("Failed to write error output: " + io.getMessage());
+             }
+            }
            catch(ParseException e){
             try {
                OutputWriter.write("Failed to parse input file: " + e.getMessage(), outputPath);
@@ -53,10 +161,226 @@ public class Main {
             }
 
           }
-  }
+  } catch (InterruptedException e) {
+            // watch mode stopped
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The in-memory engine configured by the options shared by single runs and watch mode.
+     */
+    private static LinearAlgebraEngine newEngine(int numThreads, Map<String, String> options) {
+        LinearAlgebraEngine engine = options.containsKey("elastic")
+                ? new LinearAlgebraEngine(numThreads, parseMaxThreads(options.get("elastic"), numThreads))
+                : new LinearAlgebraEngine(numThreads);
+        if (options.containsKey("deadline")) engine.setDeadline(parseMillis(options.get("deadline"), "deadline"));
+        engine.setCriticalPathScheduling(options.containsKey("critical-path"));
+        engine.setCacheAffinity(options.containsKey("affinity"));
+        if (options.containsKey("memory-budget")) {
+            engine.setMemoryBudget(parseMegabytes(options.get("memory-budget")) * 1024 * 1024);
+        }
+        if (options.containsKey("verify")) engine.setVerification(parseTrials(options.get("verify")));
+        return engine;
+    }
+
+    /**
+     * Stops the tracer and writes what it recorded; a trace that cannot be written does not
+     * replace the run's own output or error.
+     */
+    private static void writeTrace(TraceRecorder tracer, String outputPath, String value) {
+        tracer.stop();
+        try {
+            OutputWriter.writeReport(tracer.toTraceEvents(), tracePath(outputPath, value));
+        } catch (IOException e) {
+            System.err.println("Failed to write trace: " + e.getMessage());
+        }
     }
 
-          
-       
-    
-}
\ No newline at end of file
+    private static void writeResult(ComputationNode resultNode, String outputPath) throws IOException {
+        if (resultNode.isSinglePrecision()) {
+            OutputWriter.write(resultNode.getFloatMatrix(), outputPath);
+        } else {
+            OutputWriter.write(resultNode.getMatrix(), outputPath);
+        }
+    }
+
+    /**
+     * --watch[=<ms>]: evaluates the input, then polls it and re-evaluates it every time it is
+     * rewritten, recomputing only the operators above changed leaves (see
+     * {@link IncrementalSession}). Runs until the process is stopped; a failed evaluation
+     * writes its error to the output and watching goes on. --metrics and --trace are
+     * rewritten for every evaluation.
+     */
+    private static void watch(String inputPath, String outputPath, int numThreads, Map<String, String> options)
+            throws IOException, InterruptedException {
+        String value = options.get("watch");
+        long interval = "true".equals(value) ? DEFAULT_WATCH_MILLIS : parseMillis(value, "watch interval");
+        IncrementalSession session = new IncrementalSession(options.containsKey("float32"),
+                () -> newEngine(numThreads, options));
+        Path input = Path.of(inputPath);
+        FileTime seen = null;
+        while (true) {
+            FileTime modified;
+            try {
+                modified = Files.getLastModifiedTime(input);
+            } catch (NoSuchFileException e) {
+                modified = null; // being replaced
+            }
+            if (modified != null && !modified.equals(seen)) {
+                seen = modified;
+                TraceRecorder tracer = options.containsKey("trace") ? TraceRecorder.start() : null;
+                try {
+                    writeResult(session.update(inputPath), outputPath);
+                    if (options.containsKey("metrics")) {
+                        OutputWriter.writeReport(session.getLastMetrics(), metricsPath(outputPath));
+                    }
+                    System.out.println("Updated " + outputPath + ": recomputed " + session.getLastRecomputed()
+                            + " of " + session.getLastOperators() + " operators");
+                } catch (ParseException e) {
+                    OutputWriter.write("Failed to parse input file: " + e.getMessage(), outputPath);
+                } catch (ExecutionCancelledException e) {
+                    OutputWriter.write("Job cancelled: " + e.getMessage(), outputPath);
+                } catch (ResultVerificationException e) {
+                    OutputWriter.write("Verification failed: " + e.getMessage(), outputPath);
+                } catch (IllegalArgumentException e) {
+                    OutputWriter.write(e.getMessage(), outputPath);
+                } catch (RuntimeException e) {
+                    OutputWriter.write("Unexpected error: " + e.getMessage(), outputPath);
+                } finally {
+                    if (tracer != null) writeTrace(tracer, outputPath, options.get("trace"));
+                }
+            }
+            Thread.sleep(interval);
+        }
+    }
+
+    /**
+     * Parses the optional arguments following the three positional ones.
+     * Options have the form --name or --name=value; a bare flag maps to "true".
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--") || arg.length() == 2) {
+                throw new IllegalArgumentException("Invalid option: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        for (String name : options.keySet()) {
+            if (!OPTIONS.contains(name)) throw new IllegalArgumentException("Unknown option: --" + name);
+        }
+        if (options.containsKey("watch")) {
+            for (String name : NOT_WATCHED) {
+                if (options.containsKey(name)) {
+                    throw new IllegalArgumentException("--" + name + " cannot be combined with --watch");
+                }
+            }
+        }
+        if (options.containsKey("out-of-core")) {
+            parseMegabytes(options.get("out-of-core"));
+        }
+        if (options.containsKey("deadline")) {
+            parseMillis(options.get("deadline"), "deadline");
+        }
+        if (options.containsKey("elastic")) {
+            if ("true".equals(options.get("elastic"))) {
+                throw new IllegalArgumentException("Missing maximum number of threads: use --elastic=<max>");
+            }
+            parseMaxThreads(options.get("elastic"), 1); // checked against the thread count once it is known
+        }
+        if (options.containsKey("watch") && !"true".equals(options.get("watch"))) {
+            parseMillis(options.get("watch"), "watch interval");
+        }
+        if (options.containsKey("workers")) {
+            RemoteCluster.parseAddresses(options.get("workers"));
+        }
+        if (options.containsKey("cache-size")) {
+            parseMegabytes(options.get("cache-size"));
+        }
+        if (options.containsKey("memory-budget")) {
+            parseMegabytes(options.get("memory-budget"));
+            if (options.containsKey("critical-path")) {
+                throw new IllegalArgumentException("--memory-budget cannot be combined with --critical-path");
+            }
+        }
+        if (options.containsKey("verify")) {
+            parseTrials(options.get("verify"));
+        }
+        return options;
+    }
+
+    /**
+     * The metrics report is written next to the output: out.json -> out.metrics.json.
+     */
+    static String metricsPath(String outputPath) {
+        return sidecarPath(outputPath, ".metrics.json");
+    }
+
+    /**
+     * --trace=<file> names the trace file; a bare --trace writes out.json -> out.trace.json.
+     */
+    static String tracePath(String outputPath, String value) {
+        return "true".equals(value) ? sidecarPath(outputPath, ".trace.json") : value;
+    }
+
+    private static String sidecarPath(String outputPath, String suffix) {
+        if (outputPath.endsWith(".json")) {
+            return outputPath.substring(0, outputPath.length() - ".json".length()) + suffix;
+        }
+        return outputPath + suffix;
+    }
+
+    /**
+     * --elastic=<max>: the positional thread count is the pool's minimum.
+     */
+    private static int parseMaxThreads(String value, int minThreads) {
+        try {
+            int max = Integer.parseInt(value);
+            if (max < minThreads) throw new NumberFormatException();
+            return max;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid maximum number of threads: " + value);
+        }
+    }
+
+    private static long parseMillis(String value, String name) {
+        try {
+            long ms = Long.parseLong(value);
+            if (ms <= 0) throw new NumberFormatException();
+            return ms;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " (ms): " + value);
+        }
+    }
+
+    /**
+     * --verify[=<trials>]: random vectors each ADD and MULTIPLY result is checked with.
+     */
+    private static int parseTrials(String value) {
+        if ("true".equals(value)) return ResultVerifier.DEFAULT_TRIALS;
+        try {
+            int trials = Integer.parseInt(value);
+            if (trials <= 0) throw new NumberFormatException();
+            return trials;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number of verification trials: " + value);
+        }
+    }
+
+    private static long parseMegabytes(String value) {
+        try {
+            long mb = Long.parseLong(value);
+            if (mb <= 0) throw new NumberFormatException();
+            return mb;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid memory budget (MB): " + value);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import scheduling.LatencyHistogram;
+import scheduling.TaskStats;
+import scheduling.TiredThread;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Machine-readable performance report of one engine run: one entry per resolved node, in
+ * resolution order, plus per-worker totals. Public fields are serialized as JSON.
+ */
+public class MetricsReport {
+
+    public static class Histogram {
+        public long count;
+        public double meanMicros;
+        public double p50Micros;
+        public double p99Micros;
+        public double maxMicros;
+        /** Sample counts keyed by the bucket's exclusive upper bound in nanoseconds. */
+        public Map<Long, Long> buckets = new LinkedHashMap<>();
+
+        static Histogram of(LatencyHistogram h) {
+            Histogram r = new Histogram();
+            r.count = h.getCount();
+            r.meanMicros = r.count == 0 ? 0 : h.getSumNanos() / 1000.0 / r.count;
+            r.p50Micros = h.quantileNanos(0.5) / 1000.0;
+            r.p99Micros = h.quantileNanos(0.99) / 1000.0;
+            r.maxMicros = h.getMaxNanos() / 1000.0;
+            for (int i = 0; i < h.getBucketCount(); i++) {
+                if (h.getBucketCount(i) > 0) {
+                    r.buckets.put(1L << (i + 1), h.getBucketCount(i));
+                }
+            }
+            return r;
+        }
+    }
+
+    public static class NodeMetrics {
+        public String operator;
+        /** {rows, cols} of each operand. */
+        public List<int[]> operandShapes = new ArrayList<>();
+        public int[] resultShape;
+        /** dense, float32 or sparse, describing the operands. */
+        public String representation;
+        /** The kernel that computed the node. */
+        public String kernel;
+        /** Time before the first task batch was submitted (operand loading). */
+        public double loadMillis;
+        /** Time from the first task batch's submission to the last batch's completion. */
+        public double computeMillis;
+        /** Time after the last batch (result readout and resolution). */
+        public double readoutMillis;
+        public long taskCount;
+        /** Bytes copied by operand layout conversion and result readout around the kernel. */
+        public long bytesCopied;
+        public Histogram queueWait;
+        public Histogram runTime;
+
+        transient TaskStats stats;
+        transient long startNanos;
+        transient List<ComputationNode> operands;
+        transient ResultVerifier.Check check;
+    }
+
+    public static class WorkerMetrics {
+        public int id;
+        public double fatigue;
+        public double usedMillis;
+        public double idleMillis;
+        /** Shut down by the elastic pool before the run ended. */
+        public boolean retired;
+    }
+
+    public int threads;
+    public double totalMillis;
+    public long totalTasks;
+    public long totalBytesCopied;
+    /** Subtrees whose result was read from the result cache instead of computed. */
+    public int cacheHits;
+    /** Results written to the result cache. */
+    public int cacheStores;
+    /** Estimated peak bytes of live matrices in the evaluation order used. */
+    public long plannedPeakBytes;
+    /** Observed peak bytes of live matrices: inputs, results not yet consumed and the newest result. */
+    public long peakLiveBytes;
+    /** Peak heap usage of the JVM during the run, including garbage not yet collected. */
+    public long peakHeapBytes;
+    /** Row and column buffers taken from the pool of consumed results instead of allocated. */
+    public long buffersReused;
+    /** Results that passed verification. */
+    public int verifiedNodes;
+    /** Time spent taking check values and verifying results, not included in the nodes' times. */
+    public double verificationMillis;
+    public List<NodeMetrics> nodes = new ArrayList<>();
+    public List<WorkerMetrics> workers = new ArrayList<>();
+
+    void finishNode(NodeMetrics m, long endNanos) {
+        TaskStats stats = m.stats;
+        long total = endNanos - m.startNanos;
+        if (stats.getBatchCount() == 0) {
+            m.computeMillis = total / 1e6;
+        } else {
+            m.loadMillis = (stats.getFirstBatchStart() - m.startNanos) / 1e6;
+            m.computeMillis = (stats.getLastBatchEnd() - stats.getFirstBatchStart()) / 1e6;
+            m.readoutMillis = (endNanos - stats.getLastBatchEnd()) / 1e6;
+        }
+        m.taskCount = stats.getTaskCount();
+        m.queueWait = Histogram.of(stats.getQueueWait());
+        m.runTime = Histogram.of(stats.getRunTime());
+        m.stats = null;
+        totalTasks += m.taskCount;
+        totalBytesCopied += m.bytesCopied;
+        nodes.add(m);
+    }
+
+    void recordWorkers(List<TiredThread> threads) {
+        workers.clear();
+        for (TiredThread t : threads) {
+            WorkerMetrics w = new WorkerMetrics();
+            w.id = t.getWorkerId();
+            w.fatigue = t.getFatigue();
+            w.usedMillis = t.getTimeUsed() / 1e6;
+            w.idleMillis = t.getTimeIdle() / 1e6;
+            w.retired = t.isShutDown();
+            workers.add(w);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package spl.lae;
+
+import memory.TileCache;
+import memory.TiledMatrix;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.TiredExecutor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates a computation tree with every operand and intermediate result spilled to
+ * memory-mapped tile files. Operators run tile-by-tile on the executor, and only a bounded
+ * number of tiles (the memory budget) is kept on heap at any time.
+ *
+ * An engine runs once: the end of {@link #run} closes its tile cache and shuts down its
+ * executor, and a second call throws {@link IllegalStateException}.
+ */
+public class OutOfCoreEngine {
+
+    public static final int DEFAULT_TILE_SIZE = 512;
+    private static final int MIN_TILE_SIZE = 16;
+
+    private final TiredExecutor executor;
+    private final TileCache cache;
+    private final Path spillDir;
+    private final int tileSize;
+    private long deadlineMillis = 0; // 0 = no deadline
+    private boolean ran = false;
+
+    public OutOfCoreEngine(int numThreads, long memoryBudgetBytes, Path spillDir) {
+        this(numThreads, memoryBudgetBytes, spillDir, DEFAULT_TILE_SIZE);
+    }
+
+    public OutOfCoreEngine(int numThreads, long memoryBudgetBytes, Path spillDir, int maxTileSize) {
+        if (memoryBudgetBytes <= 0) throw new IllegalArgumentException("memory budget must be positive");
+        if (spillDir == null) throw new IllegalArgumentException("spill directory cannot be null");
+        this.tileSize = chooseTileSize(numThreads, memoryBudgetBytes, maxTileSize);
+        long tileBytes = (long) tileSize * tileSize * Double.BYTES;
+        // every worker holds an accumulator plus two operand tiles outside the cache
+        long workingSet = 3L * numThreads * tileBytes;
+        this.cache = new TileCache(Math.max(tileBytes, memoryBudgetBytes - workingSet));
+        this.spillDir = spillDir;
+        this.executor = new TiredExecutor(numThreads);
+        try {
+            Files.createDirectories(spillDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create spill directory " + spillDir, e);
+        }
+    }
+
+    /**
+     * Picks the largest power-of-two tile that lets the per-worker working set and a few cached
+     * tiles per worker fit in half of the budget.
+     */
+    static int chooseTileSize(int numThreads, long memoryBudgetBytes, int maxTileSize) {
+        int size = Math.max(MIN_TILE_SIZE, Integer.highestOneBit(Math.max(1, maxTileSize)));
+        while (size > MIN_TILE_SIZE && 6L * numThreads * size * size * Double.BYTES > memoryBudgetBytes / 2) {
+            size /= 2;
+        }
+        return size;
+    }
+
+    /**
+     * Cancels the run if it has not finished {@code millis} after it started.
+     */
+    public void setDeadline(long millis) {
+        if (millis <= 0) throw new IllegalArgumentException("deadline must be positive");
+        this.deadlineMillis = millis;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public ComputationNode run(ComputationNode computationRoot) {
+        if (computationRoot == null) {
+            throw new IllegalArgumentException("computationRoot cannot be null");
+        }
+        if (ran) throw new IllegalStateException("OutOfCoreEngine has already run");
+        ran = true;
+        try {
+            ExecutionPlanner.plan(computationRoot);
+            if (deadlineMillis > 0) executor.setDeadline(deadlineMillis);
+            TiledMatrix result = evaluate(computationRoot);
+            double[][] matrix = result.toArray();
+            release(result);
+            computationRoot.resolve(matrix);
+            return computationRoot;
+        } finally {
+            cache.close();
+            try {
+                executor.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted during executor shutdown", e);
+            }
+        }
+    }
+
+    /**
+     * Post-order evaluation: children are spilled or computed first, and released as soon as
+     * their parent's result has been written.
+     */
+    private TiledMatrix evaluate(ComputationNode node) {
+        ComputationNodeType type = node.getNodeType();
+        if (type == ComputationNodeType.MATRIX) {
+            return TiledMatrix.fromArray(node.getMatrix(), spillDir, tileSize);
+        }
+        List<ComputationNode> children = node.getChildren();
+        if (children == null) throw new IllegalArgumentException("Node has no children");
+        if ((type == ComputationNodeType.NEGATE || type == ComputationNodeType.TRANSPOSE
+                || type == ComputationNodeType.POWER) && children.size() != 1) {
+            throw new IllegalArgumentException("Illegal operation: unary operator with " + children.size() + " operands");
+        }
+        if ((type == ComputationNodeType.ADD || type == ComputationNodeType.MULTIPLY) && children.size() != 2) {
+            throw new IllegalArgumentException("Illegal operation: binary operator with " + children.size() + " operands");
+        }
+
+        TiledMatrix a = evaluate(children.get(0));
+        TiledMatrix b = null;
+        try {
+            switch (type) {
+                case NEGATE:
+                    return negate(a);
+                case TRANSPOSE:
+                    return transpose(a);
+                case ADD:
+                    b = evaluate(children.get(1));
+                    return add(a, b);
+                case MULTIPLY:
+                    b = evaluate(children.get(1));
+                    return multiply(a, b);
+                case POWER:
+                    return power(a, node.getExponent());
+                default:
+                    throw new IllegalArgumentException("Unsupported operator: " + type);
+            }
+        } finally {
+            release(a);
+            if (b != null) release(b);
+        }
+    }
+
+    /**
+     * Repeated squaring over tiled products. Intermediate squares and partial products are
+     * released as soon as they are superseded; {@code a} stays owned by the caller.
+     */
+    private TiledMatrix power(TiledMatrix a, int n) {
+        if (a.rows() != a.cols()) {
+            throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+        }
+        TiledMatrix square = a;
+        TiledMatrix result = null;
+        try {
+            while (true) {
+                if ((n & 1) != 0) {
+                    TiledMatrix next = result == null ? square : multiply(result, square);
+                    if (result != null && result != a && result != square) release(result);
+                    result = next;
+                }
+                n >>>= 1;
+                if (n == 0) break;
+                TiledMatrix next = multiply(square, square);
+                if (square != a && square != result) release(square);
+                square = next;
+            }
+            if (square != a && square != result) release(square);
+            square = a;
+            if (result == a) result = copy(a);
+            TiledMatrix r = result;
+            result = null;
+            return r;
+        } finally {
+            if (result != null && result != a) release(result);
+            if (square != a && square != result) release(square);
+        }
+    }
+
+    private TiledMatrix copy(TiledMatrix a) {
+        TiledMatrix c = TiledMatrix.create(spillDir, a.rows(), a.cols(), tileSize);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int ti = 0; ti < c.tileRows(); ti++) {
+            for (int tj = 0; tj < c.tileCols(); tj++) {
+                final int fi = ti, fj = tj;
+                tasks.add(() -> c.writeTile(fi, fj, a.readTile(fi, fj)));
+            }
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    private void release(TiledMatrix m) {
+        cache.invalidate(m);
+        m.delete();
+    }
+
+    private TiledMatrix add(TiledMatrix a, TiledMatrix b) {
+        if (a.rows() != b.rows() || a.cols() != b.cols()) {
+            throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+        }
+        TiledMatrix c = TiledMatrix.create(spillDir, a.rows(), a.cols(), tileSize);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int ti = 0; ti < c.tileRows(); ti++) {
+            for (int tj = 0; tj < c.tileCols(); tj++) {
+                final int fi = ti, fj = tj;
+                tasks.add(() -> {
+                    // operand tiles are streamed once, so read them directly instead of polluting the cache
+                    double[] x = a.readTile(fi, fj);
+                    double[] y = b.readTile(fi, fj);
+                    for (int k = 0; k < x.length; k++) {
+                        x[k] += y[k];
+                    }
+                    c.writeTile(fi, fj, x);
+                });
+            }
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    private TiledMatrix negate(TiledMatrix a) {
+        TiledMatrix c = TiledMatrix.create(spillDir, a.rows(), a.cols(), tileSize);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int ti = 0; ti < c.tileRows(); ti++) {
+            for (int tj = 0; tj < c.tileCols(); tj++) {
+                final int fi = ti, fj = tj;
+                tasks.add(() -> {
+                    double[] x = a.readTile(fi, fj);
+                    for (int k = 0; k < x.length; k++) {
+                        x[k] = -x[k];
+                    }
+                    c.writeTile(fi, fj, x);
+                });
+            }
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    private TiledMatrix transpose(TiledMatrix a) {
+        TiledMatrix c = TiledMatrix.create(spillDir, a.cols(), a.rows(), tileSize);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int ti = 0; ti < c.tileRows(); ti++) {
+            for (int tj = 0; tj < c.tileCols(); tj++) {
+                final int fi = ti, fj = tj;
+                tasks.add(() -> {
+                    double[] x = a.readTile(fj, fi);
+                    double[] t = new double[x.length];
+                    for (int i = 0; i < tileSize; i++) {
+                        for (int j = 0; j < tileSize; j++) {
+                            t[j * tileSize + i] = x[i * tileSize + j];
+                        }
+                    }
+                    c.writeTile(fi, fj, t);
+                });
+            }
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    private TiledMatrix multiply(TiledMatrix a, TiledMatrix b) {
+        if (a.rows() == 0 || b.rows() == 0 || a.cols() != b.rows()) {
+            throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+        }
+        TiledMatrix c = TiledMatrix.create(spillDir, a.rows(), b.cols(), tileSize);
+        int inner = a.tileCols();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int ti = 0; ti < c.tileRows(); ti++) {
+            for (int tj = 0; tj < c.tileCols(); tj++) {
+                final int fi = ti, fj = tj;
+                tasks.add(() -> {
+                    double[] acc = new double[tileSize * tileSize];
+                    for (int k = 0; k < inner; k++) {
+                        cache.prefetch(a, fi, k + 1);
+                        cache.prefetch(b, k + 1, fj);
+                        double[] x = cache.get(a, fi, k);
+                        double[] y = cache.get(b, k, fj);
+                        multiplyAccumulate(x, y, acc);
+                    }
+                    c.writeTile(fi, fj, acc);
+                });
+            }
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    /**
+     * acc += x * y for square row-major tiles, in i-k-j order so the inner loop is unit-stride.
+     */
+    private void multiplyAccumulate(double[] x, double[] y, double[] acc) {
+        for (int i = 0; i < tileSize; i++) {
+            int rowOffset = i * tileSize;
+            for (int k = 0; k < tileSize; k++) {
+                double v = x[rowOffset + k];
+                int yOffset = k * tileSize;
+                for (int j = 0; j < tileSize; j++) {
+                    acc[rowOffset + j] += v * y[yOffset + j];
+                }
+            }
+        }
+    }
+
+    public String getWorkerReport() {
+        return executor.getWorkerReport();
+    }
+}
@@ -0,0 +1,125 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Groups ready products that share an operand so that they can be computed as one product.
+ *
+ * Products sharing their right operand B are computed as [A1; A2; ...] * B: the left operands'
+ * rows are stacked without copying and B is laid out column-major once, and the result's rows
+ * are split back. Products sharing their left operand A are computed as A * [B1 | B2 | ...],
+ * which copies the right operands side by side and the result columns back out, but streams
+ * each row of A once against all of them. Every element is the same dot product as in the
+ * separate products, so the results are bitwise identical.
+ *
+ * Operands are shared if they are the same array or have the same entries; the expressions
+ * repeat operands by value.
+ */
+final class ProductBatcher {
+
+    private ProductBatcher() {}
+
+    /**
+     * The products that are ready in the tree (both operands resolved) and accepted by
+     * {@code eligible}, leftmost first.
+     */
+    static List<ComputationNode> readyProducts(ComputationNode root, Predicate<ComputationNode> eligible) {
+        List<ComputationNode> ready = new ArrayList<>();
+        collect(root, eligible, ready);
+        return ready;
+    }
+
+    private static void collect(ComputationNode node, Predicate<ComputationNode> eligible, List<ComputationNode> ready) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) return;
+        for (ComputationNode child : node.getChildren()) {
+            collect(child, eligible, ready);
+        }
+        if (node.getNodeType() == ComputationNodeType.MULTIPLY && eligible.test(node)) ready.add(node);
+    }
+
+    /**
+     * {@code product} and the products in {@code ready} with the same right operand.
+     */
+    static List<ComputationNode> sharingRight(ComputationNode product, List<ComputationNode> ready) {
+        return sharing(product, ready, 1);
+    }
+
+    /**
+     * {@code product} and the products in {@code ready} with the same left operand.
+     */
+    static List<ComputationNode> sharingLeft(ComputationNode product, List<ComputationNode> ready) {
+        return sharing(product, ready, 0);
+    }
+
+    private static List<ComputationNode> sharing(ComputationNode product, List<ComputationNode> ready, int side) {
+        double[][] shared = product.getChildren().get(side).getMatrix();
+        List<ComputationNode> batch = new ArrayList<>();
+        batch.add(product);
+        for (ComputationNode other : ready) {
+            if (other != product && same(shared, other.getChildren().get(side).getMatrix())) batch.add(other);
+        }
+        return batch;
+    }
+
+    private static boolean same(double[][] a, double[][] b) {
+        if (a == b) return true;
+        if (a.length != b.length || a.length == 0 || a[0].length != b[0].length) return false;
+        return Arrays.deepEquals(a, b);
+    }
+
+    /**
+     * The rows of the matrices one below the other; the rows are not copied.
+     */
+    static double[][] stackRows(List<double[][]> matrices) {
+        int rows = 0;
+        for (double[][] m : matrices) rows += m.length;
+        double[][] stacked = new double[rows][];
+        int offset = 0;
+        for (double[][] m : matrices) {
+            System.arraycopy(m, 0, stacked, offset, m.length);
+            offset += m.length;
+        }
+        return stacked;
+    }
+
+    /**
+     * The matrices side by side; all have the same number of rows.
+     */
+    static double[][] concatColumns(List<double[][]> matrices) {
+        int cols = 0;
+        for (double[][] m : matrices) cols += m[0].length;
+        double[][] joined = new double[matrices.get(0).length][cols];
+        for (int i = 0; i < joined.length; i++) {
+            int offset = 0;
+            for (double[][] m : matrices) {
+                System.arraycopy(m[i], 0, joined[i], offset, m[i].length);
+                offset += m[i].length;
+            }
+        }
+        return joined;
+    }
+
+    /**
+     * Rows [from, from + count) of {@code m}, sharing the row arrays.
+     */
+    static double[][] rowRange(double[][] m, int from, int count) {
+        return Arrays.copyOfRange(m, from, from + count);
+    }
+
+    /**
+     * Columns [from, from + count) of {@code m}, copied.
+     */
+    static double[][] columnRange(double[][] m, int from, int count) {
+        double[][] part = new double[m.length][];
+        for (int i = 0; i < m.length; i++) {
+            part[i] = Arrays.copyOfRange(m[i], from, from + count);
+        }
+        return part;
+    }
+}
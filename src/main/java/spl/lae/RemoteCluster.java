@@ -0,0 +1,148 @@
+package spl.lae;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The coordinator side of distributed execution: connections to a set of {@link RemoteWorker}
+ * processes across which dense ADD and MULTIPLY operators are partitioned by row blocks.
+ *
+ * For a product A * B, each worker is sent a contiguous block of A's rows and all of B, and
+ * returns the same rows of the result; a sum sends the matching row blocks of both operands.
+ * All requests are written before any reply is read, so the workers compute concurrently
+ * without a coordinator thread per connection.
+ */
+public class RemoteCluster implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private static final class Connection {
+        final InetSocketAddress address;
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(InetSocketAddress address) throws IOException {
+            this.address = address;
+            this.socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES));
+        }
+    }
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    public RemoteCluster(List<InetSocketAddress> workers) throws IOException {
+        if (workers == null || workers.isEmpty()) throw new IllegalArgumentException("no remote workers");
+        try {
+            for (InetSocketAddress address : workers) {
+                connections.add(new Connection(address));
+            }
+        } catch (IOException e) {
+            closeConnections();
+            throw e;
+        }
+    }
+
+    /**
+     * Parses a comma-separated list of host:port worker addresses.
+     */
+    public static List<InetSocketAddress> parseAddresses(String spec) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            int colon = part.lastIndexOf(':');
+            try {
+                if (colon <= 0) throw new NumberFormatException();
+                int port = Integer.parseInt(part.substring(colon + 1));
+                if (port <= 0 || port > 65535) throw new NumberFormatException();
+                addresses.add(new InetSocketAddress(part.substring(0, colon), port));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid worker address: " + part);
+            }
+        }
+        return addresses;
+    }
+
+    public int size() {
+        return connections.size();
+    }
+
+    public double[][] multiply(double[][] a, double[][] b) {
+        if (a.length == 0 || b.length == 0 || b[0].length == 0 || a[0].length != b.length) {
+            throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+        }
+        return exchange(RemoteProtocol.MULTIPLY, a, b, b[0].length);
+    }
+
+    public double[][] add(double[][] a, double[][] b) {
+        if (a.length != b.length || (a.length > 0 && a[0].length != b[0].length)) {
+            throw new IllegalArgumentException("Illegal operation: dimensions mismatch");
+        }
+        return exchange(RemoteProtocol.ADD, a, b, a.length == 0 ? 0 : a[0].length);
+    }
+
+    /**
+     * Scatters the row blocks of {@code a} (and of {@code b} for a sum), then gathers the
+     * result blocks in place.
+     */
+    private synchronized double[][] exchange(byte op, double[][] a, double[][] b, int resultCols) {
+        double[][] result = new double[a.length][resultCols];
+        int parts = Math.max(1, Math.min(connections.size(), a.length));
+        int[] bounds = new int[parts + 1];
+        for (int w = 0; w <= parts; w++) {
+            bounds[w] = (int) ((long) a.length * w / parts);
+        }
+        Connection current = null;
+        try {
+            for (int w = 0; w < parts; w++) {
+                current = connections.get(w);
+                current.out.writeByte(op);
+                RemoteProtocol.writeMatrix(current.out, a, bounds[w], bounds[w + 1]);
+                if (op == RemoteProtocol.ADD) {
+                    RemoteProtocol.writeMatrix(current.out, b, bounds[w], bounds[w + 1]);
+                } else {
+                    RemoteProtocol.writeMatrix(current.out, b, 0, b.length); // broadcast
+                }
+                current.out.flush();
+            }
+            String error = null;
+            for (int w = 0; w < parts; w++) {
+                current = connections.get(w);
+                if (current.in.readByte() == RemoteProtocol.OK) {
+                    RemoteProtocol.readRowsInto(current.in, result, bounds[w]);
+                } else {
+                    error = current.in.readUTF(); // keep reading so the other streams stay in step
+                }
+            }
+            if (error != null) throw new IllegalArgumentException(error);
+        } catch (IOException e) {
+            close(); // the streams are out of step
+            throw new UncheckedIOException("Remote worker " + current.address + " failed", e);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        closeConnections();
+    }
+
+    private void closeConnections() {
+        for (Connection c : connections) {
+            try {
+                c.socket.close();
+            } catch (IOException ignored) {
+                // closing anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package spl.lae;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format between {@link RemoteCluster} and {@link RemoteWorker}.
+ *
+ * A request is an operator byte followed by its two operands; the reply is a status byte
+ * followed by the result or an error message. A matrix is its row and column counts followed
+ * by its rows of big-endian doubles. A connection carries any number of requests, one at a
+ * time, until the coordinator closes it.
+ */
+final class RemoteProtocol {
+
+    static final byte MULTIPLY = 'M';
+    static final byte ADD = 'A';
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private RemoteProtocol() {}
+
+    static void writeMatrix(DataOutputStream out, double[][] m, int fromRow, int toRow) throws IOException {
+        int cols = m.length == 0 ? 0 : m[0].length;
+        out.writeInt(toRow - fromRow);
+        out.writeInt(cols);
+        ByteBuffer row = ByteBuffer.allocate(cols * Double.BYTES);
+        for (int i = fromRow; i < toRow; i++) {
+            row.clear();
+            row.asDoubleBuffer().put(m[i]);
+            out.write(row.array(), 0, row.capacity());
+        }
+    }
+
+    static double[][] readMatrix(DataInputStream in) throws IOException {
+        int rows = in.readInt();
+        int cols = in.readInt();
+        if (rows < 0 || cols < 0) throw new IOException("Malformed matrix header");
+        double[][] m = new double[rows][cols];
+        byte[] bytes = new byte[cols * Double.BYTES];
+        for (double[] row : m) {
+            in.readFully(bytes);
+            ByteBuffer.wrap(bytes).asDoubleBuffer().get(row);
+        }
+        return m;
+    }
+
+    /**
+     * Reads a matrix into rows {@code [offset, offset + rows)} of {@code target}.
+     */
+    static void readRowsInto(DataInputStream in, double[][] target, int offset) throws IOException {
+        int rows = in.readInt();
+        int cols = in.readInt();
+        if (rows < 0 || offset + rows > target.length || (rows > 0 && cols != target[offset].length)) {
+            throw new IOException("Unexpected result block " + rows + "x" + cols);
+        }
+        byte[] bytes = new byte[cols * Double.BYTES];
+        for (int i = 0; i < rows; i++) {
+            in.readFully(bytes);
+            ByteBuffer.wrap(bytes).asDoubleBuffer().get(target[offset + i]);
+        }
+    }
+}
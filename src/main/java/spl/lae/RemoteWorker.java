@@ -0,0 +1,124 @@
+package spl.lae;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A worker process of a {@link RemoteCluster}: listens on a local port and computes the
+ * blocks of ADD and MULTIPLY operators it is sent with its own in-memory engine.
+ *
+ * Usage: {@code RemoteWorker <port> [threads]}; port 0 picks a free port. The port is printed
+ * as "Listening on &lt;port&gt;" once the worker accepts connections.
+ */
+public class RemoteWorker implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final ServerSocket server;
+    private final int numThreads;
+
+    public RemoteWorker(int port, int numThreads) throws IOException {
+        if (numThreads <= 0) throw new IllegalArgumentException("threads must be > 0");
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.numThreads = numThreads;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Error: Expected arguments: <port> [threads]");
+            return;
+        }
+        int threads = args.length == 2 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        try (RemoteWorker worker = new RemoteWorker(Integer.parseInt(args[0]), threads)) {
+            System.out.println("Listening on " + worker.getPort());
+            System.out.flush();
+            worker.serve();
+        }
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts coordinators until the worker is closed, serving each on its own thread.
+     */
+    public void serve() {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return; // closed
+            }
+            Thread t = new Thread(() -> handle(socket), "remote-connection " + socket.getPort());
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return; // coordinator done
+                }
+                double[][] a = RemoteProtocol.readMatrix(in);
+                double[][] b = RemoteProtocol.readMatrix(in);
+                double[][] result;
+                try {
+                    result = compute(op, a, b);
+                } catch (RuntimeException e) {
+                    out.writeByte(RemoteProtocol.ERROR);
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                    out.flush();
+                    continue;
+                }
+                out.writeByte(RemoteProtocol.OK);
+                RemoteProtocol.writeMatrix(out, result, 0, result.length);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // connection lost; the coordinator reports the failure
+        }
+    }
+
+    private double[][] compute(byte op, double[][] a, double[][] b) {
+        ComputationNodeType type;
+        switch (op) {
+            case RemoteProtocol.MULTIPLY:
+                type = ComputationNodeType.MULTIPLY;
+                break;
+            case RemoteProtocol.ADD:
+                type = ComputationNodeType.ADD;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + (char) op);
+        }
+        ComputationNode node = new ComputationNode(type, new ArrayList<>(List.of(new ComputationNode(a), new ComputationNode(b))));
+        return new LinearAlgebraEngine(numThreads).run(node).getMatrix();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
@@ -0,0 +1,312 @@
+package spl.lae;
+
+import memory.SparseMatrix;
+import memory.VectorOrientation;
+import parser.ComputationNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent cache of computed results, one file per entry, keyed by the content hash of the
+ * subtree that produced it (see {@link ExpressionHasher}).
+ *
+ * Entries are stored in a compact binary form: a header (magic, version, kind, rows, cols)
+ * followed by the raw big-endian values; sparse entries store their CSR arrays. The total size
+ * is kept within a byte budget by evicting the least recently used entries. Recency survives
+ * across runs through the files' modification times, which are refreshed on every hit.
+ *
+ * The cache is an optimization only: unreadable entries count as misses and are deleted, and
+ * failed writes are ignored.
+ */
+public class ResultCache implements ResultStore {
+
+    private static final int MAGIC = 0x4C414543; // "LAEC"
+    private static final byte VERSION = 1;
+    private static final byte DENSE = 'D';
+    private static final byte FLOAT = 'F';
+    private static final byte SPARSE = 'S';
+    private static final byte SPARSE_NEGATIVE_ZEROS = 'N'; // a sparse entry whose unstored entries are -0.0
+    private static final int HEADER_BYTES = Integer.BYTES + 2 + 2 * Integer.BYTES;
+    private static final String SUFFIX = ".bin";
+
+    private final Path dir;
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true); // key -> bytes
+    private long usedBytes = 0;
+    private int hits = 0;
+    private int stores = 0;
+
+    public ResultCache(Path dir, long budgetBytes) {
+        if (dir == null) throw new IllegalArgumentException("cache directory cannot be null");
+        if (budgetBytes <= 0) throw new IllegalArgumentException("cache budget must be positive");
+        this.dir = dir;
+        this.budgetBytes = budgetBytes;
+        try {
+            Files.createDirectories(dir);
+            // rebuild the LRU order from the previous runs
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            List<FileTime> times = new ArrayList<>();
+            for (Path f : files) {
+                times.add(Files.getLastModifiedTime(f));
+            }
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) order.add(i);
+            order.sort(Comparator.comparing(times::get));
+            for (int i : order) {
+                String name = files.get(i).getFileName().toString();
+                long size = Files.size(files.get(i));
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                usedBytes += size;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open result cache " + dir, e);
+        }
+        evict();
+    }
+
+    @Override
+    public synchronized boolean load(String key, ComputationNode node) {
+        if (entries.get(key) == null) return false; // get, unlike containsKey, marks the entry as used
+        Path file = file(key);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.get() != VERSION) throw new IOException("not a cache entry");
+            byte kind = header.get();
+            int rows = header.getInt();
+            int cols = header.getInt();
+            if (rows < 0 || cols < 0 || (rows > 0 && cols == 0)) throw new IOException("invalid dimensions");
+            // check the sizes against the file before anything is allocated from them
+            int nnz = 0;
+            if (kind == SPARSE || kind == SPARSE_NEGATIVE_ZEROS) {
+                if (channel.size() < HEADER_BYTES + Integer.BYTES) throw new IOException("truncated cache entry");
+                nnz = read(channel, Integer.BYTES).getInt();
+                if (nnz < 0) throw new IOException("negative entry count");
+            }
+            if (channel.size() != entryBytes(kind, rows, cols, nnz)) throw new IOException("entry size does not match its header");
+            switch (kind) {
+                case DENSE: {
+                    double[][] m = new double[rows][cols];
+                    for (double[] row : m) {
+                        read(channel, cols * Double.BYTES).asDoubleBuffer().get(row);
+                    }
+                    node.resolve(m);
+                    break;
+                }
+                case FLOAT: {
+                    float[][] m = new float[rows][cols];
+                    for (float[] row : m) {
+                        read(channel, cols * Float.BYTES).asFloatBuffer().get(row);
+                    }
+                    node.resolve(m);
+                    break;
+                }
+                case SPARSE:
+                case SPARSE_NEGATIVE_ZEROS: {
+                    int[] pointers = new int[rows + 1];
+                    int[] indices = new int[nnz];
+                    double[] values = new double[nnz];
+                    read(channel, pointers.length * Integer.BYTES).asIntBuffer().get(pointers);
+                    read(channel, nnz * Integer.BYTES).asIntBuffer().get(indices);
+                    read(channel, nnz * Double.BYTES).asDoubleBuffer().get(values);
+                    checkCsr(pointers, indices, cols);
+                    node.resolve(new SparseMatrix(rows, cols, VectorOrientation.ROW_MAJOR, pointers, indices, values,
+                            kind == SPARSE_NEGATIVE_ZEROS));
+                    break;
+                }
+                default:
+                    throw new IOException("unknown entry kind " + kind); // unreachable: entryBytes rejects it
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits++;
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            // corrupt, truncated or evicted by another process
+            remove(key);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the result to disk, unless it is larger than the whole budget.
+     */
+    @Override
+    public synchronized boolean store(String key, ComputationNode resolved) {
+        if (entries.containsKey(key)) return false;
+        long size = entryBytes(resolved);
+        if (size > budgetBytes) return false;
+        Path tmp = dir.resolve(key + ".tmp" + Thread.currentThread().threadId());
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                write(channel, resolved);
+            }
+            try {
+                Files.move(tmp, file(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // nothing else to clean up
+            }
+            return false;
+        }
+        entries.put(key, size);
+        usedBytes += size;
+        stores++;
+        evict();
+        return true;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getStores() {
+        return stores;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            usedBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(file(eldest.getKey()));
+            } catch (IOException ignored) {
+                // another process may hold or have removed it
+            }
+        }
+    }
+
+    private void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) usedBytes -= size;
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+
+    private Path file(String key) {
+        return dir.resolve(key + SUFFIX);
+    }
+
+    private static long entryBytes(ComputationNode node) {
+        int rows = LinearAlgebraEngine.rowsOf(node);
+        int cols = LinearAlgebraEngine.colsOf(node);
+        if (node.isSparse()) return entryBytes(SPARSE, rows, cols, node.getSparseMatrix().nonZeros());
+        return entryBytes(node.isSinglePrecision() ? FLOAT : DENSE, rows, cols, 0);
+    }
+
+    /**
+     * Size of an entry of the given kind and shape; -1 for an unknown kind.
+     */
+    private static long entryBytes(byte kind, long rows, long cols, long nnz) {
+        switch (kind) {
+            case DENSE:
+                return rows * cols > Long.MAX_VALUE / Double.BYTES ? -1 : HEADER_BYTES + rows * cols * Double.BYTES;
+            case FLOAT:
+                return rows * cols > Long.MAX_VALUE / Float.BYTES ? -1 : HEADER_BYTES + rows * cols * Float.BYTES;
+            case SPARSE:
+            case SPARSE_NEGATIVE_ZEROS:
+                return HEADER_BYTES + Integer.BYTES + (rows + 1) * Integer.BYTES + nnz * (Integer.BYTES + Double.BYTES);
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Rejects CSR arrays that would make the matrix read out of bounds.
+     */
+    private static void checkCsr(int[] pointers, int[] indices, int cols) throws IOException {
+        if (pointers[0] != 0 || pointers[pointers.length - 1] != indices.length) throw new IOException("invalid row pointers");
+        for (int i = 1; i < pointers.length; i++) {
+            if (pointers[i] < pointers[i - 1]) throw new IOException("invalid row pointers");
+        }
+        for (int index : indices) {
+            if (index < 0 || index >= cols) throw new IOException("column index out of range");
+        }
+    }
+
+    private static void write(FileChannel channel, ComputationNode node) throws IOException {
+        int rows = LinearAlgebraEngine.rowsOf(node);
+        int cols = LinearAlgebraEngine.colsOf(node);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).put(VERSION)
+                .put(node.isSparse() ? (node.getSparseMatrix().hasNegativeZeros() ? SPARSE_NEGATIVE_ZEROS : SPARSE)
+                        : node.isSinglePrecision() ? FLOAT : DENSE)
+                .putInt(rows).putInt(cols);
+        writeFully(channel, header.flip());
+        if (node.isSparse()) {
+            SparseMatrix m = node.getSparseMatrix().toCsr();
+            int nnz = m.nonZeros();
+            ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + (rows + 1) * Integer.BYTES + nnz * (Integer.BYTES + Double.BYTES));
+            buf.putInt(nnz);
+            for (int i = 0; i < rows; i++) buf.putInt(m.start(i));
+            buf.putInt(nnz);
+            for (int p = 0; p < nnz; p++) buf.putInt(m.index(p));
+            for (int p = 0; p < nnz; p++) buf.putDouble(m.value(p));
+            writeFully(channel, buf.flip());
+        } else if (node.isSinglePrecision()) {
+            ByteBuffer row = ByteBuffer.allocate(cols * Float.BYTES);
+            for (float[] r : node.getFloatMatrix()) {
+                row.clear();
+                row.asFloatBuffer().put(r);
+                writeFully(channel, row);
+            }
+        } else {
+            ByteBuffer row = ByteBuffer.allocate(cols * Double.BYTES);
+            for (double[] r : node.getMatrix()) {
+                row.clear();
+                row.asDoubleBuffer().put(r);
+                writeFully(channel, row);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, int bytes) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(bytes);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) throw new IOException("truncated cache entry");
+        }
+        return buf.flip();
+    }
+}
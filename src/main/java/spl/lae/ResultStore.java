@@ -0,0 +1,32 @@
+package spl.lae;
+
+import parser.ComputationNode;
+
+/**
+ * Where the engine looks up results before computing a subtree and keeps results after
+ * computing one. Keys are the content hashes of {@link ExpressionHasher}.
+ */
+public interface ResultStore {
+
+    /**
+     * Resolves {@code node} with the stored result for {@code key}, if there is one.
+     *
+     * @return true on a hit
+     */
+    boolean load(String key, ComputationNode node);
+
+    /**
+     * Keeps the result held by a resolved node under {@code key}.
+     *
+     * @return true if a new entry was added
+     */
+    boolean store(String key, ComputationNode resolved);
+
+    /**
+     * Whether a result is worth keeping. By default only results that took more than one flop
+     * per element, i.e. that are cheaper to read back than to recompute.
+     */
+    default boolean worthStoring(long flops, long elements) {
+        return flops > elements;
+    }
+}
@@ -0,0 +1,14 @@
+package spl.lae;
+
+/**
+ * Thrown by a {@link LinearAlgebraEngine} with verification enabled when a computed result
+ * fails its check; the run stops at the first such result.
+ */
+public class ResultVerificationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ResultVerificationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,217 @@
+package spl.lae;
+
+import memory.SparseMatrix;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.TiredExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Probabilistic checks of computed results at O(n^2) per trial instead of recomputing them.
+ *
+ * A product C = A * B is checked with Freivalds' algorithm: for a random vector r, A (B r) is
+ * compared with C r. A sum C = A + B is checked with checksum vectors: C r against A r + B r,
+ * where the first r is all ones (the row sums) and the others are random. The check values are
+ * taken from the operands before the node is computed, since a sum overwrites its left operand.
+ * A wrong element of C changes C r for all but a vanishing set of random vectors, so every trial
+ * detects it unless the error is within rounding.
+ *
+ * Element i of a check may deviate by the rounding error of both sides, which is bounded by
+ * the same sums taken over absolute values times the accumulation length and the unit
+ * roundoff of the result's precision; {@link #TOLERANCE_FACTOR} leaves room for the
+ * reassociated sums of the Strassen-Winograd kernel. Elements whose check value is not finite
+ * are not compared.
+ */
+final class ResultVerifier {
+
+    static final int DEFAULT_TRIALS = 2;
+    static final double TOLERANCE_FACTOR = 64;
+
+    /**
+     * The check values of one node, taken before it is computed.
+     */
+    static final class Check {
+        final ComputationNodeType operator;
+        /** The random vectors, one per trial. */
+        final double[][] vectors;
+        /** Their absolute values. */
+        final double[][] absVectors;
+        /** Per trial, the check value of each result row. */
+        final double[][] expected;
+        /** Per trial, the check value taken over absolute values, which bounds its rounding error. */
+        final double[][] magnitude;
+        /** Length of the longest sum either side of the comparison accumulates. */
+        final int depth;
+
+        Check(ComputationNodeType operator, double[][] vectors, double[][] absVectors,
+              double[][] expected, double[][] magnitude, int depth) {
+            this.operator = operator;
+            this.vectors = vectors;
+            this.absVectors = absVectors;
+            this.expected = expected;
+            this.magnitude = magnitude;
+            this.depth = depth;
+        }
+    }
+
+    private final int trials;
+    private final long seed;
+    private final SplittableRandom random;
+
+    ResultVerifier(int trials, long seed) {
+        if (trials <= 0) throw new IllegalArgumentException("verification trials must be positive");
+        this.trials = trials;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * The check values of a MULTIPLY or ADD node whose operands are resolved, or null for other
+     * operators.
+     *
+     * @param executor splits the matrix-vector products into row blocks; null runs them on the
+     *                 calling thread
+     */
+    Check prepare(ComputationNode node, TiredExecutor executor, int numThreads) {
+        ComputationNodeType type = node.getNodeType();
+        if (type != ComputationNodeType.MULTIPLY && type != ComputationNodeType.ADD) return null;
+        List<ComputationNode> children = node.getChildren();
+        if (children == null || children.size() != 2) return null;
+        ComputationNode a = children.get(0);
+        ComputationNode b = children.get(1);
+        int n = LinearAlgebraEngine.colsOf(b);
+        double[][] vectors = new double[trials][n];
+        double[][] absVectors = new double[trials][n];
+        for (int q = 0; q < trials; q++) {
+            boolean checksum = type == ComputationNodeType.ADD && q == 0;
+            for (int j = 0; j < n; j++) {
+                double v = checksum ? 1.0 : random.nextDouble(-1.0, 1.0);
+                vectors[q][j] = v;
+                absVectors[q][j] = Math.abs(v);
+            }
+        }
+        double[][][] br = apply(b, vectors, absVectors, executor, numThreads);
+        if (type == ComputationNodeType.MULTIPLY) {
+            double[][][] abr = apply(a, br[0], br[1], executor, numThreads);
+            int k = LinearAlgebraEngine.colsOf(a);
+            return new Check(type, vectors, absVectors, abr[0], abr[1], k + n);
+        }
+        double[][][] ar = apply(a, vectors, absVectors, executor, numThreads);
+        for (int q = 0; q < trials; q++) {
+            for (int i = 0; i < ar[0][q].length; i++) {
+                ar[0][q][i] += br[0][q][i];
+                ar[1][q][i] += br[1][q][i];
+            }
+        }
+        return new Check(type, vectors, absVectors, ar[0], ar[1], n + 1);
+    }
+
+    /**
+     * Compares the computed result with the check values.
+     *
+     * @throws ResultVerificationException naming the first row that is off
+     */
+    void verify(Check check, ComputationNode result, TiredExecutor executor, int numThreads) {
+        double[][][] cr = apply(result, check.vectors, check.absVectors, executor, numThreads);
+        double unitRoundoff = result.isSinglePrecision() ? 0x1.0p-24 : 0x1.0p-53;
+        double scale = TOLERANCE_FACTOR * check.depth * unitRoundoff;
+        for (int q = 0; q < check.expected.length; q++) {
+            double[] expected = check.expected[q];
+            double[] actual = cr[0][q];
+            for (int i = 0; i < expected.length; i++) {
+                if (!Double.isFinite(expected[i])) continue;
+                double deviation = Math.abs(actual[i] - expected[i]);
+                double tolerance = scale * (check.magnitude[q][i] + cr[1][q][i]) + Double.MIN_NORMAL;
+                if (!(deviation <= tolerance)) { // also a NaN where the check value is finite
+                    throw new ResultVerificationException(String.format(
+                            "%s result (%dx%d) failed verification: row %d is off by %.6g (tolerance %.3g) in trial %d of %d, seed %d",
+                            check.operator, LinearAlgebraEngine.rowsOf(result), LinearAlgebraEngine.colsOf(result),
+                            i, deviation, tolerance, q + 1, check.expected.length, seed));
+                }
+            }
+        }
+    }
+
+    /**
+     * M x for each vector x, and |M| |x| from the given absolute values: {values, magnitudes},
+     * each indexed [vector][row].
+     */
+    static double[][][] apply(ComputationNode m, double[][] vectors, double[][] absVectors,
+                              TiredExecutor executor, int numThreads) {
+        int rows = LinearAlgebraEngine.rowsOf(m);
+        int count = vectors.length;
+        double[][] values = new double[count][rows];
+        double[][] magnitudes = new double[count][rows];
+        RowKernel kernel;
+        if (m.isSparse()) {
+            SparseMatrix csr = m.getSparseMatrix().toCsr();
+            kernel = (i, q) -> {
+                double[] x = vectors[q];
+                double[] ax = absVectors[q];
+                double sum = 0.0;
+                double abs = 0.0;
+                for (int p = csr.start(i); p < csr.end(i); p++) {
+                    double v = csr.value(p);
+                    int j = csr.index(p);
+                    sum += v * x[j];
+                    abs += Math.abs(v) * ax[j];
+                }
+                values[q][i] = sum;
+                magnitudes[q][i] = abs;
+            };
+        } else if (m.isSinglePrecision()) {
+            float[][] f = m.getFloatMatrix();
+            kernel = (i, q) -> {
+                float[] row = f[i];
+                double[] x = vectors[q];
+                double[] ax = absVectors[q];
+                double sum = 0.0;
+                double abs = 0.0;
+                for (int j = 0; j < row.length; j++) {
+                    sum += row[j] * x[j];
+                    abs += Math.abs(row[j]) * ax[j];
+                }
+                values[q][i] = sum;
+                magnitudes[q][i] = abs;
+            };
+        } else {
+            double[][] d = m.getMatrix();
+            kernel = (i, q) -> {
+                double[] row = d[i];
+                double[] x = vectors[q];
+                double[] ax = absVectors[q];
+                double sum = 0.0;
+                double abs = 0.0;
+                for (int j = 0; j < row.length; j++) {
+                    sum += row[j] * x[j];
+                    abs += Math.abs(row[j]) * ax[j];
+                }
+                values[q][i] = sum;
+                magnitudes[q][i] = abs;
+            };
+        }
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : SparseKernels.blocks(rows, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    for (int q = 0; q < count; q++) {
+                        kernel.row(i, q);
+                    }
+                }
+            });
+        }
+        if (executor == null) {
+            tasks.forEach(Runnable::run);
+        } else {
+            executor.submitAll(tasks, null);
+        }
+        return new double[][][]{values, magnitudes};
+    }
+
+    private interface RowKernel {
+        void row(int i, int vector);
+    }
+}
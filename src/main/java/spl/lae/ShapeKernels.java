@@ -0,0 +1,126 @@
+package spl.lae;
+
+import scheduling.TiredExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parallel kernels for dense products with a vector or 1x1 operand, where the general path's
+ * column-major copy of the right operand and its per-column vectors cost as much as the
+ * arithmetic. Each kernel reads the row-major arrays directly. Every element is accumulated in
+ * the same order as the general path's dot products, so the results are bitwise identical.
+ * Callers are responsible for dimension checks.
+ */
+final class ShapeKernels {
+
+    static final String OUTER = "outer-product";
+    static final String SCALE = "scale";
+    static final String GEMV = "gemv";
+    static final String VECTOR_MATRIX = "vector-matrix";
+
+    private ShapeKernels() {}
+
+    /**
+     * The kernel for an (m x k) * (k x n) product, or null for the general path.
+     */
+    static String kernelFor(int m, int k, int n) {
+        if (k == 1) return m == 1 || n == 1 ? SCALE : OUTER;
+        if (n == 1) return GEMV;
+        if (m == 1) return VECTOR_MATRIX;
+        return null;
+    }
+
+    static double[][] multiply(TiredExecutor executor, int numThreads, double[][] a, double[][] b) {
+        int m = a.length;
+        int k = b.length;
+        int n = b[0].length;
+        switch (kernelFor(m, k, n)) {
+            case GEMV:
+                return matrixVector(executor, numThreads, a, column(b));
+            case VECTOR_MATRIX:
+                return vectorMatrix(executor, numThreads, a[0], b);
+            default:
+                return outer(executor, numThreads, column(a), b[0]);
+        }
+    }
+
+    /**
+     * The only column of an (n x 1) matrix.
+     */
+    private static double[] column(double[][] m) {
+        double[] v = new double[m.length];
+        for (int i = 0; i < m.length; i++) {
+            v[i] = m[i][0];
+        }
+        return v;
+    }
+
+    /**
+     * A (m x k) times x (k x 1): one dot product per row, in row blocks.
+     */
+    static double[][] matrixVector(TiredExecutor executor, int numThreads, double[][] a, double[] x) {
+        double[][] c = new double[a.length][1];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : SparseKernels.blocks(a.length, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    double[] row = a[i];
+                    double sum = 0.0;
+                    for (int t = 0; t < x.length; t++) {
+                        sum += row[t] * x[t];
+                    }
+                    c[i][0] = sum;
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    /**
+     * y (1 x k) times B (k x n): the rows of B scaled and summed, in column blocks, so that B
+     * is read row by row instead of down its columns.
+     */
+    static double[][] vectorMatrix(TiredExecutor executor, int numThreads, double[] y, double[][] b) {
+        int n = b[0].length;
+        double[] c = new double[n];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : SparseKernels.blocks(n, numThreads)) {
+            tasks.add(() -> {
+                for (int t = 0; t < y.length; t++) {
+                    double v = y[t];
+                    double[] row = b[t];
+                    for (int j = block[0]; j < block[1]; j++) {
+                        c[j] += v * row[j];
+                    }
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return new double[][]{c};
+    }
+
+    /**
+     * x (m x 1) times y (1 x n), which includes scaling a vector by a 1x1 matrix; in row
+     * blocks.
+     */
+    static double[][] outer(TiredExecutor executor, int numThreads, double[] x, double[] y) {
+        double[][] c = new double[x.length][];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : SparseKernels.blocks(x.length, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    double v = x[i];
+                    double[] out = new double[y.length];
+                    for (int j = 0; j < y.length; j++) {
+                        out[j] = 0.0 + v * y[j]; // as a dot product of length 1: -0.0 becomes 0.0
+                    }
+                    c[i] = out;
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+}
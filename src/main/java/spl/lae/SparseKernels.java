@@ -0,0 +1,252 @@
+package spl.lae;
+
+import memory.SparseMatrix;
+import memory.VectorOrientation;
+import scheduling.TiredExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parallel kernels for operators with at least one sparse operand.
+ * Work is split into contiguous row blocks, a few per worker, and submitted to the executor.
+ * Callers are responsible for arity and dimension checks.
+ */
+final class SparseKernels {
+
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private SparseKernels() {}
+
+    /**
+     * Splits [0, n) into contiguous {from, to} ranges.
+     */
+    static List<int[]> blocks(int n, int numThreads) {
+        int count = Math.max(1, Math.min(n, numThreads * BLOCKS_PER_THREAD));
+        List<int[]> blocks = new ArrayList<>(count);
+        for (int b = 0; b < count; b++) {
+            int from = (int) ((long) n * b / count);
+            int to = (int) ((long) n * (b + 1) / count);
+            if (from < to) blocks.add(new int[]{from, to});
+        }
+        return blocks;
+    }
+
+    /**
+     * Sparse x dense: each output row is a combination of the dense rows selected by the
+     * non-zeros of the corresponding CSR row.
+     */
+    static double[][] multiply(TiredExecutor executor, int numThreads, SparseMatrix a, double[][] b) {
+        SparseMatrix csr = a.toCsr();
+        int n = b[0].length;
+        double[][] c = new double[csr.rows()][n];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : blocks(csr.rows(), numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    double[] out = c[i];
+                    for (int p = csr.start(i); p < csr.end(i); p++) {
+                        double v = csr.value(p);
+                        double[] row = b[csr.index(p)];
+                        for (int j = 0; j < n; j++) {
+                            out[j] += v * row[j];
+                        }
+                    }
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    /**
+     * Dense x sparse: like the dense path's row-times-column products, but each column of the
+     * CSC operand only visits its non-zeros.
+     */
+    static double[][] multiply(TiredExecutor executor, int numThreads, double[][] a, SparseMatrix b) {
+        SparseMatrix csc = b.toCsc();
+        int n = csc.cols();
+        double[][] c = new double[a.length][n];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : blocks(a.length, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    double[] row = a[i];
+                    double[] out = c[i];
+                    for (int j = 0; j < n; j++) {
+                        double sum = 0.0;
+                        for (int p = csc.start(j); p < csc.end(j); p++) {
+                            sum += row[csc.index(p)] * csc.value(p);
+                        }
+                        out[j] = sum;
+                    }
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    /**
+     * Sparse x sparse with Gustavson's row-by-row algorithm; each block keeps its own dense
+     * accumulator over the output columns.
+     */
+    static SparseMatrix multiply(TiredExecutor executor, int numThreads, SparseMatrix a, SparseMatrix b) {
+        SparseMatrix left = a.toCsr();
+        SparseMatrix right = b.toCsr();
+        int m = left.rows();
+        int n = right.cols();
+        int[][] rowIndices = new int[m][];
+        double[][] rowValues = new double[m][];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : blocks(m, numThreads)) {
+            tasks.add(() -> {
+                double[] acc = new double[n];
+                boolean[] touched = new boolean[n];
+                int[] cols = new int[n];
+                for (int i = block[0]; i < block[1]; i++) {
+                    int count = 0;
+                    for (int p = left.start(i); p < left.end(i); p++) {
+                        double v = left.value(p);
+                        int k = left.index(p);
+                        for (int q = right.start(k); q < right.end(k); q++) {
+                            int j = right.index(q);
+                            if (!touched[j]) {
+                                touched[j] = true;
+                                cols[count++] = j;
+                            }
+                            acc[j] += v * right.value(q);
+                        }
+                    }
+                    Arrays.sort(cols, 0, count);
+                    int[] idx = new int[count];
+                    double[] val = new double[count];
+                    int nnz = 0;
+                    for (int t = 0; t < count; t++) {
+                        int j = cols[t];
+                        if (acc[j] != 0.0) {
+                            idx[nnz] = j;
+                            val[nnz] = acc[j];
+                            nnz++;
+                        }
+                        acc[j] = 0.0;
+                        touched[j] = false;
+                    }
+                    rowIndices[i] = Arrays.copyOf(idx, nnz);
+                    rowValues[i] = Arrays.copyOf(val, nnz);
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return assembleCsr(m, n, rowIndices, rowValues, false);
+    }
+
+    /**
+     * Sparse + sparse: merges the sorted index lists of each row. The entries that are not
+     * stored are -0.0 only if they are in both operands; a stored sum is dropped only if it
+     * equals that zero bit for bit.
+     */
+    static SparseMatrix add(TiredExecutor executor, int numThreads, SparseMatrix a, SparseMatrix b) {
+        SparseMatrix x = a.toCsr();
+        SparseMatrix y = b.toCsr();
+        boolean negativeZeros = x.hasNegativeZeros() && y.hasNegativeZeros();
+        long zeroBits = Double.doubleToRawLongBits(negativeZeros ? -0.0 : 0.0);
+        int m = x.rows();
+        int[][] rowIndices = new int[m][];
+        double[][] rowValues = new double[m][];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : blocks(m, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    int p = x.start(i), pe = x.end(i);
+                    int q = y.start(i), qe = y.end(i);
+                    int[] idx = new int[(pe - p) + (qe - q)];
+                    double[] val = new double[idx.length];
+                    int nnz = 0;
+                    while (p < pe || q < qe) {
+                        int col;
+                        double v;
+                        if (q >= qe || (p < pe && x.index(p) < y.index(q))) {
+                            col = x.index(p);
+                            v = x.value(p++) + y.implicitZero();
+                        } else if (p >= pe || y.index(q) < x.index(p)) {
+                            col = y.index(q);
+                            v = x.implicitZero() + y.value(q++);
+                        } else {
+                            col = x.index(p);
+                            v = x.value(p++) + y.value(q++);
+                        }
+                        if (Double.doubleToRawLongBits(v) != zeroBits) {
+                            idx[nnz] = col;
+                            val[nnz] = v;
+                            nnz++;
+                        }
+                    }
+                    rowIndices[i] = Arrays.copyOf(idx, nnz);
+                    rowValues[i] = Arrays.copyOf(val, nnz);
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return assembleCsr(m, x.cols(), rowIndices, rowValues, negativeZeros);
+    }
+
+    /**
+     * Sparse + dense: adds the sparse matrix's implicit zero to the dense rows (which turns
+     * -0.0 into 0.0 like the dense kernel does) and then adds the stored entries in.
+     */
+    static double[][] add(TiredExecutor executor, int numThreads, SparseMatrix a, double[][] b) {
+        SparseMatrix csr = a.toCsr();
+        double zero = csr.implicitZero();
+        double[][] c = new double[b.length][];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : blocks(b.length, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    double[] row = b[i];
+                    double[] out = new double[row.length];
+                    for (int j = 0; j < row.length; j++) {
+                        out[j] = zero + row[j];
+                    }
+                    for (int p = csr.start(i); p < csr.end(i); p++) {
+                        out[csr.index(p)] = csr.value(p) + row[csr.index(p)];
+                    }
+                    c[i] = out;
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    static SparseMatrix negate(TiredExecutor executor, int numThreads, SparseMatrix a) {
+        double[] negated = new double[a.nonZeros()];
+        int major = a.getOrientation() == VectorOrientation.ROW_MAJOR ? a.rows() : a.cols();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : blocks(major, numThreads)) {
+            tasks.add(() -> {
+                for (int p = a.start(block[0]); p < a.end(block[1] - 1); p++) {
+                    negated[p] = -a.value(p);
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return a.withValues(negated, !a.hasNegativeZeros());
+    }
+
+    private static SparseMatrix assembleCsr(int rows, int cols, int[][] rowIndices, double[][] rowValues,
+                                            boolean negativeZeros) {
+        int[] pointers = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            pointers[i + 1] = pointers[i] + rowIndices[i].length;
+        }
+        int[] indices = new int[pointers[rows]];
+        double[] values = new double[pointers[rows]];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(rowIndices[i], 0, indices, pointers[i], rowIndices[i].length);
+            System.arraycopy(rowValues[i], 0, values, pointers[i], rowValues[i].length);
+        }
+        return new SparseMatrix(rows, cols, VectorOrientation.ROW_MAJOR, pointers, indices, values, negativeZeros);
+    }
+}
@@ -0,0 +1,234 @@
+package spl.lae;
+
+import scheduling.TiredExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Square matrix multiplication with the Strassen-Winograd recursion (7 products, 15 additions
+ * per level). The top levels of the recursion are expanded into independent sub-products that
+ * run as parallel executor tasks; below the cutoff each task falls back to a cache-blocked
+ * classical kernel.
+ */
+final class StrassenMultiplier {
+
+    /**
+     * Square products of at least this size use the recursive path.
+     */
+    static final int DEFAULT_THRESHOLD = 2048;
+
+    /**
+     * Sub-problems at or below this size use the classical kernel. Smaller cutoffs lose to the
+     * extra copies: single-threaded at n=4096, 256 took 1.3x and 1024 1.1x the time of 512.
+     */
+    static final int DEFAULT_CUTOFF = 512;
+
+    private static final int BLOCK = 64;
+
+    private StrassenMultiplier() {}
+
+    /**
+     * One node of the expanded recursion: the operands of a sub-product and, once computed,
+     * its result. Internal nodes have seven children.
+     */
+    private static final class Product {
+        final double[][] a;
+        final double[][] b;
+        double[][] c;
+        Product[] sub;
+
+        Product(double[][] a, double[][] b) {
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    /**
+     * Multiplies two n x n matrices.
+     */
+    static double[][] multiply(TiredExecutor executor, int numThreads, double[][] a, double[][] b, int cutoff) {
+        int n = a.length;
+        int levels = 0;
+        while ((n + (1 << levels) - 1) >> levels > cutoff) {
+            levels++;
+        }
+        // pad so that every level splits evenly down to the cutoff
+        int padded = ((n + (1 << levels) - 1) >> levels) << levels;
+        Product root = new Product(pad(a, padded), pad(b, padded));
+
+        // 7 sub-products per expanded level: one level is enough for up to 7 workers
+        int parallelLevels = Math.min(levels, numThreads <= 7 ? 1 : 2);
+        List<Product> leaves = new ArrayList<>();
+        expand(root, parallelLevels, leaves);
+        List<Runnable> tasks = new ArrayList<>(leaves.size());
+        for (Product leaf : leaves) {
+            tasks.add(() -> leaf.c = multiplySequential(leaf.a, leaf.b, cutoff));
+        }
+        executor.submitAll(tasks);
+        combine(root);
+        return unpad(root.c, n);
+    }
+
+    private static void expand(Product p, int levels, List<Product> leaves) {
+        if (levels == 0) {
+            leaves.add(p);
+            return;
+        }
+        double[][][] operands = winogradOperands(p.a, p.b);
+        p.sub = new Product[7];
+        for (int i = 0; i < 7; i++) {
+            p.sub[i] = new Product(operands[2 * i], operands[2 * i + 1]);
+            expand(p.sub[i], levels - 1, leaves);
+        }
+    }
+
+    private static void combine(Product p) {
+        if (p.sub == null) return;
+        double[][][] products = new double[7][][];
+        for (int i = 0; i < 7; i++) {
+            combine(p.sub[i]);
+            products[i] = p.sub[i].c;
+        }
+        p.c = winogradCombine(products);
+    }
+
+    static double[][] multiplySequential(double[][] a, double[][] b, int cutoff) {
+        int n = a.length;
+        if (n <= cutoff || (n & 1) != 0) {
+            double[][] c = new double[n][n];
+            classical(a, b, c);
+            return c;
+        }
+        double[][][] operands = winogradOperands(a, b);
+        double[][][] products = new double[7][][];
+        for (int i = 0; i < 7; i++) {
+            products[i] = multiplySequential(operands[2 * i], operands[2 * i + 1], cutoff);
+        }
+        return winogradCombine(products);
+    }
+
+    /**
+     * Returns the operand pairs {P1.a, P1.b, ..., P7.a, P7.b} of one Winograd step.
+     */
+    private static double[][][] winogradOperands(double[][] a, double[][] b) {
+        int h = a.length / 2;
+        double[][] a11 = quadrant(a, 0, 0, h), a12 = quadrant(a, 0, h, h);
+        double[][] a21 = quadrant(a, h, 0, h), a22 = quadrant(a, h, h, h);
+        double[][] b11 = quadrant(b, 0, 0, h), b12 = quadrant(b, 0, h, h);
+        double[][] b21 = quadrant(b, h, 0, h), b22 = quadrant(b, h, h, h);
+
+        double[][] s1 = add(a21, a22);
+        double[][] s2 = sub(s1, a11);
+        double[][] s3 = sub(a11, a21);
+        double[][] s4 = sub(a12, s2);
+        double[][] t1 = sub(b12, b11);
+        double[][] t2 = sub(b22, t1);
+        double[][] t3 = sub(b22, b12);
+        double[][] t4 = sub(t2, b21);
+
+        return new double[][][]{
+                a11, b11, // P1
+                a12, b21, // P2
+                s4, b22,  // P3
+                a22, t4,  // P4
+                s1, t1,   // P5
+                s2, t2,   // P6
+                s3, t3    // P7
+        };
+    }
+
+    private static double[][] winogradCombine(double[][][] p) {
+        int h = p[0].length;
+        double[][] u2 = add(p[0], p[5]);
+        double[][] u3 = add(u2, p[6]);
+        double[][] u4 = add(u2, p[4]);
+        double[][] c11 = add(p[0], p[1]);
+        double[][] c12 = add(u4, p[2]);
+        double[][] c21 = sub(u3, p[3]);
+        double[][] c22 = add(u3, p[4]);
+
+        double[][] c = new double[2 * h][2 * h];
+        for (int i = 0; i < h; i++) {
+            System.arraycopy(c11[i], 0, c[i], 0, h);
+            System.arraycopy(c12[i], 0, c[i], h, h);
+            System.arraycopy(c21[i], 0, c[h + i], 0, h);
+            System.arraycopy(c22[i], 0, c[h + i], h, h);
+        }
+        return c;
+    }
+
+    /**
+     * c += a * b in i-k-j order, blocked over k so the touched rows of b stay in cache.
+     */
+    static void classical(double[][] a, double[][] b, double[][] c) {
+        int n = a.length;
+        int inner = b.length;
+        int cols = c.length == 0 ? 0 : c[0].length;
+        for (int kk = 0; kk < inner; kk += BLOCK) {
+            int kEnd = Math.min(inner, kk + BLOCK);
+            for (int i = 0; i < n; i++) {
+                double[] ai = a[i];
+                double[] ci = c[i];
+                for (int k = kk; k < kEnd; k++) {
+                    double v = ai[k];
+                    if (v == 0.0) continue;
+                    double[] bk = b[k];
+                    for (int j = 0; j < cols; j++) {
+                        ci[j] += v * bk[j];
+                    }
+                }
+            }
+        }
+    }
+
+    private static double[][] quadrant(double[][] m, int row, int col, int h) {
+        double[][] q = new double[h][h];
+        for (int i = 0; i < h; i++) {
+            System.arraycopy(m[row + i], col, q[i], 0, h);
+        }
+        return q;
+    }
+
+    private static double[][] add(double[][] x, double[][] y) {
+        int n = x.length;
+        double[][] r = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            double[] xi = x[i], yi = y[i], ri = r[i];
+            for (int j = 0; j < n; j++) {
+                ri[j] = xi[j] + yi[j];
+            }
+        }
+        return r;
+    }
+
+    private static double[][] sub(double[][] x, double[][] y) {
+        int n = x.length;
+        double[][] r = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            double[] xi = x[i], yi = y[i], ri = r[i];
+            for (int j = 0; j < n; j++) {
+                ri[j] = xi[j] - yi[j];
+            }
+        }
+        return r;
+    }
+
+    private static double[][] pad(double[][] m, int size) {
+        if (m.length == size) return m;
+        double[][] p = new double[size][size];
+        for (int i = 0; i < m.length; i++) {
+            System.arraycopy(m[i], 0, p[i], 0, m[i].length);
+        }
+        return p;
+    }
+
+    private static double[][] unpad(double[][] m, int size) {
+        if (m.length == size) return m;
+        double[][] r = new double[size][];
+        for (int i = 0; i < size; i++) {
+            r[i] = java.util.Arrays.copyOf(m[i], size);
+        }
+        return r;
+    }
+}
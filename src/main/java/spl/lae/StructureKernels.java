@@ -0,0 +1,230 @@
+package spl.lae;
+
+import scheduling.TiredExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parallel kernels for dense products whose operands have a known structure: a diagonal
+ * operand scales the other one's rows or columns, a triangular operand's zero half is never
+ * visited, and the symmetric product of a matrix and its own transpose is computed for one
+ * half and mirrored.
+ *
+ * Every element is summed in the same order as the general path's dot products, skipping
+ * only terms with a structural zero, so the results are bitwise identical unless the other
+ * operand holds an infinity or NaN where the zeros would have multiplied it.
+ * Callers are responsible for dimension checks.
+ */
+final class StructureKernels {
+
+    static final String DIAGONAL = "diagonal";
+    static final String TRIANGULAR = "triangular";
+    static final String SYMMETRIC = "symmetric";
+
+    /**
+     * The zero pattern of a dense square matrix.
+     */
+    enum Structure {
+        GENERAL, DIAGONAL, LOWER, UPPER;
+
+        /**
+         * Scans a matrix until both halves have a non-zero; non-square matrices are general.
+         */
+        static Structure of(double[][] m) {
+            int n = m.length;
+            if (n < 2 || m[0].length != n) return GENERAL;
+            boolean lower = true; // nothing above the diagonal
+            boolean upper = true; // nothing below the diagonal
+            for (int i = 0; i < n && (lower || upper); i++) {
+                double[] row = m[i];
+                for (int j = 0; j < i && upper; j++) {
+                    if (row[j] != 0) upper = false;
+                }
+                for (int j = i + 1; j < n && lower; j++) {
+                    if (row[j] != 0) lower = false;
+                }
+            }
+            if (lower && upper) return DIAGONAL;
+            return lower ? LOWER : upper ? UPPER : GENERAL;
+        }
+    }
+
+    private StructureKernels() {}
+
+    /**
+     * The kernel for a product, or null for the general path.
+     *
+     * @param transposeProduct the product is A * T(A) or T(A) * A
+     */
+    static String kernelFor(boolean transposeProduct, Structure a, Structure b) {
+        if (a == Structure.DIAGONAL || b == Structure.DIAGONAL) return DIAGONAL;
+        if (transposeProduct) return SYMMETRIC;
+        if (a != Structure.GENERAL || b != Structure.GENERAL) return TRIANGULAR;
+        return null;
+    }
+
+    /**
+     * The flops the kernel performs instead of the general path's {@code flops}.
+     */
+    static long flops(String kernel, long flops, int m, int n) {
+        return DIAGONAL.equals(kernel) ? (long) m * n : flops / 2;
+    }
+
+    static double[][] multiply(TiredExecutor executor, int numThreads, String kernel,
+                               double[][] a, Structure aStructure, double[][] b, Structure bStructure) {
+        switch (kernel) {
+            case DIAGONAL:
+                return aStructure == Structure.DIAGONAL
+                        ? scaleRows(executor, numThreads, a, b) : scaleColumns(executor, numThreads, a, b);
+            case SYMMETRIC:
+                return symmetric(executor, numThreads, a);
+            default:
+                return aStructure != Structure.GENERAL
+                        ? triangularLeft(executor, numThreads, a, aStructure == Structure.LOWER, b)
+                        : triangularRight(executor, numThreads, a, b, bStructure == Structure.LOWER);
+        }
+    }
+
+    /**
+     * D (diagonal) times B: row i of B times d[i].
+     */
+    static double[][] scaleRows(TiredExecutor executor, int numThreads, double[][] d, double[][] b) {
+        int n = b[0].length;
+        double[][] c = new double[b.length][];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : SparseKernels.blocks(b.length, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    double v = d[i][i];
+                    double[] row = b[i];
+                    double[] out = new double[n];
+                    for (int j = 0; j < n; j++) {
+                        out[j] = 0.0 + v * row[j];
+                    }
+                    c[i] = out;
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    /**
+     * A times D (diagonal): column j of A times d[j].
+     */
+    static double[][] scaleColumns(TiredExecutor executor, int numThreads, double[][] a, double[][] d) {
+        int n = d.length;
+        double[] diagonal = new double[n];
+        for (int j = 0; j < n; j++) {
+            diagonal[j] = d[j][j];
+        }
+        double[][] c = new double[a.length][];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : SparseKernels.blocks(a.length, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    double[] row = a[i];
+                    double[] out = new double[n];
+                    for (int j = 0; j < n; j++) {
+                        out[j] = 0.0 + row[j] * diagonal[j];
+                    }
+                    c[i] = out;
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    /**
+     * T (triangular) times B: row i of the result combines only the rows of B that meet the
+     * non-zero part of row i of T.
+     */
+    static double[][] triangularLeft(TiredExecutor executor, int numThreads, double[][] t, boolean lower, double[][] b) {
+        int k = t.length;
+        int n = b[0].length;
+        double[][] c = new double[k][];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : SparseKernels.blocks(k, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    double[] row = t[i];
+                    double[] out = new double[n];
+                    int from = lower ? 0 : i;
+                    int to = lower ? i + 1 : k;
+                    for (int s = from; s < to; s++) {
+                        double v = row[s];
+                        double[] other = b[s];
+                        for (int j = 0; j < n; j++) {
+                            out[j] += v * other[j];
+                        }
+                    }
+                    c[i] = out;
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    /**
+     * A times T (triangular): row s of T contributes only to the columns of its non-zero part.
+     */
+    static double[][] triangularRight(TiredExecutor executor, int numThreads, double[][] a, double[][] t, boolean lower) {
+        int k = t.length;
+        double[][] c = new double[a.length][];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] block : SparseKernels.blocks(a.length, numThreads)) {
+            tasks.add(() -> {
+                for (int i = block[0]; i < block[1]; i++) {
+                    double[] row = a[i];
+                    double[] out = new double[k];
+                    for (int s = 0; s < k; s++) {
+                        double v = row[s];
+                        double[] other = t[s];
+                        int from = lower ? 0 : s;
+                        int to = lower ? s + 1 : k;
+                        for (int j = from; j < to; j++) {
+                            out[j] += v * other[j];
+                        }
+                    }
+                    c[i] = out;
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+
+    /**
+     * L times its transpose, where L is the left operand as given: element (i, j) is the dot
+     * product of rows i and j of L. Only j >= i is computed; rows are dealt out round-robin so
+     * that every task gets long and short rows alike.
+     */
+    static double[][] symmetric(TiredExecutor executor, int numThreads, double[][] l) {
+        int n = l.length;
+        double[][] c = new double[n][n];
+        int count = Math.max(1, Math.min(n, numThreads * 4));
+        List<Runnable> tasks = new ArrayList<>();
+        for (int first = 0; first < count; first++) {
+            int start = first;
+            tasks.add(() -> {
+                for (int i = start; i < n; i += count) {
+                    double[] x = l[i];
+                    for (int j = i; j < n; j++) {
+                        double[] y = l[j];
+                        double sum = 0.0;
+                        for (int s = 0; s < x.length; s++) {
+                            sum += x[s] * y[s];
+                        }
+                        c[i][j] = sum;
+                        c[j][i] = sum;
+                    }
+                }
+            });
+        }
+        executor.submitAll(tasks);
+        return c;
+    }
+}
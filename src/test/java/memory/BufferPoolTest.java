@@ -0,0 +1,50 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+
+    @Test
+    void take_shouldReuseBuffersOfTheSameLength() {
+        BufferPool pool = new BufferPool(1 << 10);
+        double[] a = new double[8];
+        pool.give(a);
+
+        assertNotSame(a, pool.take(4));
+        assertSame(a, pool.take(8));
+        assertNotSame(a, pool.take(8), "a buffer is handed out once");
+        assertEquals(1, pool.getReused());
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    void give_shouldKeepNoMoreThanCapacity() {
+        BufferPool pool = new BufferPool(10 * Double.BYTES);
+        pool.give(new double[6]);
+        pool.give(new double[6]);
+        pool.give(new double[4]);
+
+        assertEquals(10 * Double.BYTES, pool.getPooledBytes());
+        assertEquals(2, pool.getRecycled());
+    }
+
+    @Test
+    void sharedMatrix_shouldRecycleItsColumnCopies() {
+        BufferPool pool = new BufferPool(1 << 20);
+        SharedMatrix m = new SharedMatrix();
+        m.setBufferPool(pool);
+        double[][] data = {{1, 2, 3}, {4, 5, 6}};
+        m.loadColumnMajor(data);
+        double[] column = m.get(0).array();
+
+        m.loadRowMajor(data); // the columns were allocated by m, so they go back
+
+        assertEquals(3, pool.getRecycled());
+        m.loadColumnMajor(new double[][]{{7, 8, 9}, {10, 11, 12}});
+        assertEquals(3, pool.getReused());
+        assertArrayEquals(new double[][]{{7, 8, 9}, {10, 11, 12}}, m.readRowMajor());
+        assertTrue(column == m.get(0).array() || column == m.get(1).array() || column == m.get(2).array());
+    }
+}
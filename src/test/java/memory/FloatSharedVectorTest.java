@@ -0,0 +1,72 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FloatSharedVectorTest {
+
+    private static final float EPS = 1e-6f;
+
+    @Test
+    void add_validVectors_shouldModifyThisVector() {
+        FloatSharedVector v1 = new FloatSharedVector(new float[]{1, 2, 3}, VectorOrientation.ROW_MAJOR);
+        FloatSharedVector v2 = new FloatSharedVector(new float[]{4, -1, 0.5f}, VectorOrientation.ROW_MAJOR);
+
+        v1.add(v2);
+
+        assertEquals(5.0f, v1.get(0), EPS);
+        assertEquals(1.0f, v1.get(1), EPS);
+        assertEquals(3.5f, v1.get(2), EPS);
+    }
+
+    @Test
+    void negate_shouldFlipSigns() {
+        FloatSharedVector v = new FloatSharedVector(new float[]{2, -3, 0}, VectorOrientation.ROW_MAJOR);
+
+        v.negate();
+
+        assertEquals(-2.0f, v.get(0), EPS);
+        assertEquals(3.0f, v.get(1), EPS);
+        assertEquals(0.0f, v.get(2), EPS);
+    }
+
+    @Test
+    void dot_wrongOrientation_shouldThrow() {
+        FloatSharedVector v1 = new FloatSharedVector(new float[]{1, 2, 3}, VectorOrientation.ROW_MAJOR);
+        FloatSharedVector v2 = new FloatSharedVector(new float[]{4, 5, 6}, VectorOrientation.ROW_MAJOR);
+
+        assertThrows(IllegalArgumentException.class, () -> v1.dot(v2));
+    }
+
+    @Test
+    void vecMatMul_shouldMultiplyByColumns() {
+        FloatSharedVector v = new FloatSharedVector(new float[]{1, 2}, VectorOrientation.ROW_MAJOR);
+        FloatSharedMatrix m = new FloatSharedMatrix();
+        m.loadColumnMajor(new float[][]{
+                {1, 2, 3},
+                {4, 5, 6}
+        });
+
+        v.vecMatMul(m);
+
+        assertEquals(3, v.length());
+        assertEquals(9.0f, v.get(0), EPS);
+        assertEquals(12.0f, v.get(1), EPS);
+        assertEquals(15.0f, v.get(2), EPS);
+    }
+
+    @Test
+    void transposedMatrix_shouldReadBackTransposed() {
+        FloatSharedMatrix m = new FloatSharedMatrix(new float[][]{{1, 2, 3}, {4, 5, 6}});
+        for (int i = 0; i < m.length(); i++) {
+            m.get(i).transpose();
+        }
+
+        float[][] out = m.readRowMajor();
+
+        assertEquals(3, out.length);
+        assertArrayEquals(new float[]{1, 4}, out[0], EPS);
+        assertArrayEquals(new float[]{3, 6}, out[2], EPS);
+    }
+}
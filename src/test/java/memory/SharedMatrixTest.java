@@ -1,6 +1,10 @@
 package memory;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import scheduling.TiredExecutor;
+
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -54,6 +58,23 @@ class SharedMatrixTest {
         assertEquals(6.0, out[2][1], EPS);
     }
 
+    @Test
+    void takeRowMajor_shouldHandOutTheRowsAndCopyOnlyColumns() {
+        double[][] data = {
+                {1, 2, 3},
+                {4, 5, 6}
+        };
+
+        SharedMatrix m = new SharedMatrix();
+        m.loadRowMajor(data);
+        double[][] rows = m.takeRowMajor(null, 1);
+        assertSame(data[0], rows[0]);
+        assertSame(data[1], rows[1]);
+
+        m.loadColumnMajor(data);
+        assertArrayEquals(data, m.takeRowMajor(null, 1));
+    }
+
     @Test
     void loadRowMajor_raggedArray_shouldThrow() {
         double[][] ragged = {
@@ -87,4 +108,79 @@ class SharedMatrixTest {
         assertThrows(IndexOutOfBoundsException.class, () -> m.get(-1));
         assertThrows(IndexOutOfBoundsException.class, () -> m.get(100));
     }
+
+    private static double[][] random(int rows, int cols, long seed) {
+        Random rnd = new Random(seed);
+        double[][] m = new double[rows][cols];
+        for (double[] row : m) {
+            for (int j = 0; j < cols; j++) row[j] = rnd.nextDouble();
+        }
+        return m;
+    }
+
+    /** Tall, wide and square, none a multiple of the tile size. */
+    private static final int[][] SHAPES = {{5000, 37}, {37, 5000}, {450, 450}};
+
+    @Test
+    void parallelConversion_shouldMatchSequential() throws InterruptedException {
+        TiredExecutor executor = new TiredExecutor(3);
+        try {
+            for (int[] shape : SHAPES) {
+                double[][] data = random(shape[0], shape[1], shape[0]);
+
+                SharedMatrix sequential = new SharedMatrix();
+                sequential.loadColumnMajor(data);
+                SharedMatrix parallel = new SharedMatrix();
+                parallel.loadColumnMajor(data, executor, 3);
+
+                assertEquals(shape[1], parallel.length());
+                for (int j = 0; j < shape[1]; j += 7) {
+                    assertEquals(VectorOrientation.COLUMN_MAJOR, parallel.get(j).getOrientation());
+                    for (int i = 0; i < shape[0]; i++) {
+                        assertEquals(data[i][j], parallel.get(j).get(i));
+                    }
+                }
+                // reading the columns back transposes them again
+                assertArrayEquals(data, parallel.readRowMajor(executor, 3));
+                assertArrayEquals(sequential.readRowMajor(), parallel.readRowMajor(executor, 3));
+
+                FloatSharedMatrix single = new FloatSharedMatrix();
+                float[][] floats = new float[shape[0]][shape[1]];
+                for (int i = 0; i < shape[0]; i++) {
+                    for (int j = 0; j < shape[1]; j++) floats[i][j] = (float) data[i][j];
+                }
+                single.loadColumnMajor(floats, executor, 3);
+                assertArrayEquals(floats, single.readRowMajor(executor, 3));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_conversions() throws InterruptedException {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        TiredExecutor executor = new TiredExecutor(threads);
+        try {
+            for (int[] shape : new int[][]{{200_000, 64}, {64, 200_000}, {3000, 3000}}) {
+                double[][] data = random(shape[0], shape[1], 1);
+                SharedMatrix m = new SharedMatrix();
+                long[] nanos = new long[2];
+                for (int round = 0; round < 3; round++) { // the last round is measured
+                    for (int p = 0; p < 2; p++) {
+                        TiredExecutor e = p == 0 ? null : executor;
+                        long t0 = System.nanoTime();
+                        m.loadColumnMajor(data, e, threads);
+                        m.readRowMajor(e, threads);
+                        nanos[p] = System.nanoTime() - t0;
+                    }
+                }
+                System.out.printf("%dx%d threads=%d cores=%d: calling thread=%dms parallel=%dms%n", shape[0], shape[1],
+                        threads, Runtime.getRuntime().availableProcessors(), nanos[0] / 1_000_000, nanos[1] / 1_000_000);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseMatrixTest {
+
+    private static final double EPS = 1e-9;
+
+    private static final double[][] DENSE = {
+            {0, 2, 0, 0},
+            {0, 0, 0, 0},
+            {1, 0, 0, 3}
+    };
+
+    @Test
+    void fromDense_thenToDense_shouldRoundTrip() {
+        for (VectorOrientation o : VectorOrientation.values()) {
+            SparseMatrix s = SparseMatrix.fromDense(DENSE, o);
+
+            assertEquals(3, s.nonZeros());
+            double[][] out = s.toDense();
+            for (int i = 0; i < DENSE.length; i++) {
+                assertArrayEquals(DENSE[i], out[i], EPS);
+            }
+        }
+    }
+
+    @Test
+    void fromTriplets_shouldSumDuplicatesAndDropZeros() {
+        SparseMatrix s = SparseMatrix.fromTriplets(2, 2,
+                new int[]{1, 0, 1, 0},
+                new int[]{1, 1, 1, 0},
+                new double[]{2, 5, 3, 0});
+
+        assertEquals(2, s.nonZeros());
+        double[][] out = s.toDense();
+        assertArrayEquals(new double[]{0, 5}, out[0], EPS);
+        assertArrayEquals(new double[]{0, 5}, out[1], EPS);
+    }
+
+    @Test
+    void fromTriplets_outOfRange_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> SparseMatrix.fromTriplets(2, 2,
+                new int[]{2}, new int[]{0}, new double[]{1}));
+    }
+
+    @Test
+    void transpose_shouldReinterpretCsrAsCsc() {
+        SparseMatrix t = SparseMatrix.fromDense(DENSE, VectorOrientation.ROW_MAJOR).transpose();
+
+        assertEquals(VectorOrientation.COLUMN_MAJOR, t.getOrientation());
+        assertEquals(4, t.rows());
+        assertEquals(3, t.cols());
+        double[][] out = t.toDense();
+        assertEquals(2.0, out[1][0], EPS);
+        assertEquals(3.0, out[3][2], EPS);
+    }
+
+    @Test
+    void toCsr_fromCsc_shouldKeepValuesAndSortIndices() {
+        SparseMatrix csr = SparseMatrix.fromDense(DENSE, VectorOrientation.COLUMN_MAJOR).toCsr();
+
+        assertEquals(VectorOrientation.ROW_MAJOR, csr.getOrientation());
+        assertEquals(2, csr.end(2) - csr.start(2));
+        assertEquals(0, csr.index(csr.start(2)));
+        assertEquals(3, csr.index(csr.start(2) + 1));
+        assertEquals(3.0, csr.value(csr.start(2) + 1), EPS);
+    }
+}
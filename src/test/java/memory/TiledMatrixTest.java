@@ -0,0 +1,71 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TiledMatrixTest {
+
+    private static final double EPS = 1e-9;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fromArray_thenToArray_shouldRoundTripWithPartialTiles() {
+        double[][] data = new double[5][7];
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 7; j++) {
+                data[i][j] = i * 10 + j;
+            }
+        }
+
+        TiledMatrix m = TiledMatrix.fromArray(data, dir, 4);
+
+        assertEquals(2, m.tileRows());
+        assertEquals(2, m.tileCols());
+        assertEquals(1, m.tileHeight(1));
+        assertEquals(3, m.tileWidth(1));
+        double[][] out = m.toArray();
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(data[i], out[i], EPS);
+        }
+    }
+
+    @Test
+    void readTile_shouldBeZeroPaddedAtEdges() {
+        TiledMatrix m = TiledMatrix.fromArray(new double[][]{{1, 2, 3}}, dir, 2);
+
+        double[] edge = m.readTile(0, 1);
+
+        assertArrayEquals(new double[]{3, 0, 0, 0}, edge, EPS);
+    }
+
+    @Test
+    void delete_shouldRemoveBackingFile() throws Exception {
+        TiledMatrix m = TiledMatrix.create(dir, 3, 3, 2);
+        assertEquals(1, Files.list(dir).count());
+
+        m.delete();
+
+        assertEquals(0, Files.list(dir).count());
+    }
+
+    @Test
+    void tileCache_shouldStayWithinBudget() {
+        TiledMatrix m = TiledMatrix.fromArray(new double[8][8], dir, 2);
+        TileCache cache = new TileCache(2 * m.tileBytes());
+
+        for (int ti = 0; ti < m.tileRows(); ti++) {
+            for (int tj = 0; tj < m.tileCols(); tj++) {
+                cache.get(m, ti, tj);
+                assertTrue(cache.getUsedBytes() <= 2 * m.tileBytes());
+            }
+        }
+        cache.close();
+    }
+}
@@ -0,0 +1,142 @@
+package parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedFilesTest {
+
+    @TempDir
+    Path dir;
+
+    private Path gzip(String name, byte[] content) throws IOException {
+        Path file = dir.resolve(name);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    @Test
+    void readAhead_shouldReturnTheSourceBytesAcrossBlocks() throws IOException {
+        byte[] data = new byte[CompressedFiles.BUFFER_BYTES * (CompressedFiles.READ_AHEAD_BLOCKS + 2) + 12345];
+        new Random(1).nextBytes(data);
+        byte[] read;
+        try (InputStream in = new CompressedFiles.ReadAheadInputStream(new ByteArrayInputStream(data))) {
+            assertEquals(data[0] & 0xff, in.read());
+            read = in.readAllBytes();
+            assertEquals(-1, in.read());
+        }
+        assertArrayEquals(Arrays.copyOfRange(data, 1, data.length), read);
+    }
+
+    @Test
+    void readAhead_closedEarly_shouldStopTheReader() throws IOException {
+        byte[] data = new byte[CompressedFiles.BUFFER_BYTES * (CompressedFiles.READ_AHEAD_BLOCKS + 4)];
+        InputStream in = new CompressedFiles.ReadAheadInputStream(new ByteArrayInputStream(data));
+        in.read();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), in::close);
+    }
+
+    @Test
+    void parse_gzipInput_shouldBeDetectedByMagicBytes() throws Exception {
+        String json = "{\"operator\": \"*\", \"operands\": [[[1, 2], [3, 4]], {\"rows\": 2, \"cols\": 2, \"entries\": [[0, 1, 5]]}]}";
+        Path file = gzip("input.json", json.getBytes(StandardCharsets.UTF_8)); // no .gz suffix
+        assertTrue(CompressedFiles.isGzip(file.toString()));
+
+        for (ComputationNode root : new ComputationNode[]{
+                new InputParser().parse(file.toString()), new ParallelInputParser(false, 2).parse(file.toString())}) {
+            assertEquals(ComputationNodeType.MULTIPLY, root.getNodeType());
+            assertArrayEquals(new double[]{3, 4}, root.getChildren().get(0).getMatrix()[1]);
+            assertEquals(5.0, root.getChildren().get(1).getMatrix()[0][1]);
+        }
+    }
+
+    @Test
+    void parse_truncatedGzip_shouldThrow() throws Exception {
+        Path file = gzip("input.json.gz", "[[1, 2], [3, 4]]".getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 6));
+        assertThrows(ParseException.class, () -> new InputParser().parse(file.toString()));
+        assertThrows(ParseException.class, () -> new ParallelInputParser(false, 2).parse(file.toString()));
+    }
+
+    @Test
+    void write_gzSuffix_shouldCompressTheOutput() throws Exception {
+        Path out = dir.resolve("output.json.gz");
+        double[][] matrix = {{1.5, -2}, {0, 4e10}};
+        OutputWriter.write(matrix, out.toString());
+        assertTrue(CompressedFiles.isGzip(out.toString()));
+
+        Path plain = dir.resolve("output.json");
+        OutputWriter.write(matrix, plain.toString());
+        assertFalse(CompressedFiles.isGzip(plain.toString()));
+        try (InputStream in = CompressedFiles.openInput(out.toString())) {
+            assertArrayEquals(Files.readAllBytes(plain), in.readAllBytes());
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_compressedVersusPlainFiles() throws Exception {
+        int n = 2000;
+        Path plain = dir.resolve("large.json");
+        Path compressed = dir.resolve("large.json.gz");
+        Random rnd = new Random(2);
+        try (BufferedWriter w = Files.newBufferedWriter(plain);
+             BufferedWriter z = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(Files.newOutputStream(compressed), 1 << 16), StandardCharsets.UTF_8))) {
+            StringBuilder row = new StringBuilder();
+            for (BufferedWriter out : new BufferedWriter[]{w, z}) out.write("{\"operator\": \"+\", \"operands\": [");
+            for (int m = 0; m < 2; m++) {
+                for (int i = 0; i < n; i++) {
+                    row.setLength(0);
+                    row.append(i == 0 ? (m == 0 ? "[[" : ", [[") : ",[");
+                    for (int j = 0; j < n; j++) {
+                        if (j > 0) row.append(',');
+                        row.append(rnd.nextInt(2_000_001) / 1000.0 - 1000);
+                    }
+                    row.append(i == n - 1 ? "]]" : "]");
+                    w.write(row.toString());
+                    z.write(row.toString());
+                }
+            }
+            for (BufferedWriter out : new BufferedWriter[]{w, z}) out.write("]}");
+        }
+        new InputParser().parse(compressed.toString()); // warm up
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        for (Path file : new Path[]{plain, compressed}) {
+            long t0 = System.nanoTime();
+            new InputParser().parse(file.toString());
+            long sequential = System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            ComputationNode root = new ParallelInputParser(false, threads).parse(file.toString());
+            long parallel = System.nanoTime() - t0;
+            double[][] result = root.getChildren().get(0).getMatrix();
+            Path out = dir.resolve(file == plain ? "out.json" : "out.json.gz");
+            t0 = System.nanoTime();
+            OutputWriter.write(result, out.toString());
+            long write = System.nanoTime() - t0;
+            System.out.printf("%s (%d MB): parse=%dms parallel-parse=%dms write=%dms (%d MB)%n", file.getFileName(),
+                    Files.size(file) >> 20, sequential / 1_000_000, parallel / 1_000_000, write / 1_000_000,
+                    Files.size(out) >> 20);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputParserTest {
+
+    private static final double EPS = 1e-9;
+
+    @TempDir
+    Path dir;
+
+    private ComputationNode parse(String json) throws Exception {
+        Path file = dir.resolve("input.json");
+        Files.writeString(file, json);
+        return new InputParser().parse(file.toString());
+    }
+
+    @Test
+    void parse_denseLiteral_shouldStayDense() throws Exception {
+        ComputationNode node = parse("[[1, 2], [3, 4]]");
+
+        assertFalse(node.isSparse());
+        assertEquals(4.0, node.getMatrix()[1][1], EPS);
+    }
+
+    @Test
+    void parse_mostlyZeroLiteral_shouldBecomeSparse() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 10; i++) {
+            json.append(i == 0 ? "" : ",").append("[");
+            for (int j = 0; j < 10; j++) {
+                json.append(j == 0 ? "" : ",").append(i == j && i < 5 ? "1" : "0");
+            }
+            json.append("]");
+        }
+        ComputationNode node = parse(json.append("]").toString());
+
+        assertTrue(node.isSparse());
+        assertEquals(5, node.getSparseMatrix().nonZeros());
+        assertEquals(1.0, node.getMatrix()[4][4], EPS);
+    }
+
+    @Test
+    void parse_sparseSyntax_shouldBuildMatrix() throws Exception {
+        ComputationNode node = parse("{\"rows\": 20, \"cols\": 30, \"entries\": [[0, 29, 1.5], [19, 0, -2]]}");
+
+        assertTrue(node.isSparse());
+        double[][] m = node.getMatrix();
+        assertEquals(20, m.length);
+        assertEquals(30, m[0].length);
+        assertEquals(1.5, m[0][29], EPS);
+        assertEquals(-2.0, m[19][0], EPS);
+    }
+
+    @Test
+    void parse_sparseSyntaxOutOfRange_shouldThrow() {
+        assertThrows(ParseException.class,
+                () -> parse("{\"rows\": 2, \"cols\": 2, \"entries\": [[2, 0, 1]]}"));
+    }
+
+    @Test
+    void parse_powerOperator_shouldReadExponent() throws Exception {
+        ComputationNode node = parse("{\"operator\": \"^\", \"operands\": [[[1, 2], [3, 4]]], \"exponent\": 5}");
+
+        assertEquals(ComputationNodeType.POWER, node.getNodeType());
+        assertEquals(5, node.getExponent());
+        assertEquals(1, node.getChildren().size());
+        assertThrows(ParseException.class,
+                () -> parse("{\"operator\": \"^\", \"operands\": [[[1, 2], [3, 4]]], \"exponent\": 0}"));
+        assertThrows(ParseException.class,
+                () -> parse("{\"operator\": \"^\", \"operands\": [[[1, 2], [3, 4]]]}"));
+    }
+
+    @Test
+    void associativeNesting_shouldCollapseRunsOfIdenticalFactors() throws Exception {
+        String a = "[[1, 2], [3, 4]]";
+        String b = "[[0, 1], [1, 0]]";
+        ComputationNode chain = parse("{\"operator\": \"*\", \"operands\": [" + a + ", " + a + ", " + a + "]}");
+        chain.associativeNesting();
+        assertEquals(ComputationNodeType.POWER, chain.getNodeType());
+        assertEquals(3, chain.getExponent());
+
+        // A * A * B * A -> (A^2 * B) * A
+        ComputationNode mixed = parse("{\"operator\": \"*\", \"operands\": [" + a + ", " + a + ", " + b + ", " + a + "]}");
+        mixed.associativeNesting();
+        assertEquals(ComputationNodeType.MULTIPLY, mixed.getNodeType());
+        ComputationNode left = mixed.getChildren().get(0);
+        assertEquals(ComputationNodeType.MULTIPLY, left.getNodeType());
+        assertEquals(ComputationNodeType.POWER, left.getChildren().get(0).getNodeType());
+        assertEquals(2, left.getChildren().get(0).getExponent());
+        assertEquals(ComputationNodeType.MATRIX, mixed.getChildren().get(1).getNodeType());
+    }
+
+    @Test
+    void associativeNesting_shouldCollapseLeftNestedChains() throws Exception {
+        String a = "[[1, 2], [3, 4]]";
+        String square = "{\"operator\": \"*\", \"operands\": [" + a + ", " + a + "]}";
+        // (A * A) * A -> A^3
+        ComputationNode chain = parse("{\"operator\": \"*\", \"operands\": [" + square + ", " + a + "]}");
+        chain.associativeNesting();
+        assertEquals(ComputationNodeType.POWER, chain.getNodeType());
+        assertEquals(3, chain.getExponent());
+        assertEquals(ComputationNodeType.MATRIX, chain.getChildren().get(0).getNodeType());
+
+        // A * (A * A) is not left-nested: A * A^2
+        ComputationNode right = parse("{\"operator\": \"*\", \"operands\": [" + a + ", " + square + "]}");
+        right.associativeNesting();
+        assertEquals(ComputationNodeType.MULTIPLY, right.getNodeType());
+        assertEquals(ComputationNodeType.POWER, right.getChildren().get(1).getNodeType());
+        assertEquals(2, right.getChildren().get(1).getExponent());
+    }
+
+    @Test
+    void associativeNesting_shouldRewriteProductsBelowTheRoot() throws Exception {
+        String a = "[[1, 2], [3, 4]]";
+        String b = "[[0, 1], [1, 0]]";
+        // -(A * A * A) + B + B -> (-(A^3) + B) + B
+        ComputationNode root = parse("{\"operator\": \"+\", \"operands\": ["
+                + "{\"operator\": \"-\", \"operands\": [{\"operator\": \"*\", \"operands\": [" + a + ", " + a + ", " + a + "]}]}, "
+                + b + ", " + b + "]}");
+        root.associativeNesting();
+        assertEquals(ComputationNodeType.ADD, root.getNodeType());
+        ComputationNode sum = root.getChildren().get(0);
+        assertEquals(ComputationNodeType.ADD, sum.getNodeType());
+        ComputationNode negation = sum.getChildren().get(0);
+        assertEquals(ComputationNodeType.NEGATE, negation.getNodeType());
+        assertEquals(ComputationNodeType.POWER, negation.getChildren().get(0).getNodeType());
+        assertEquals(3, negation.getChildren().get(0).getExponent());
+    }
+
+    @Test
+    void parse_namedMatrices_shouldShareOneParsedCopy() throws Exception {
+        ComputationNode root = parse("{\"expression\": {\"operator\": \"+\", \"operands\": [\"A\", "
+                + "{\"operator\": \"*\", \"operands\": [\"A\", \"B\"]}]}, "
+                + "\"matrices\": {\"A\": [[1, 2], [3, 4]], \"B\": {\"rows\": 2, \"cols\": 2, \"entries\": [[0, 0, 1]]}}}");
+
+        ComputationNode first = root.getChildren().get(0);
+        ComputationNode second = root.getChildren().get(1).getChildren().get(0);
+        assertNotSame(first, second);
+        assertSame(first.getMatrix(), second.getMatrix());
+        assertTrue(first.isShared());
+        assertFalse(root.getChildren().get(1).getChildren().get(1).isShared());
+        assertEquals(4.0, first.getMatrix()[1][1], EPS);
+    }
+
+    @Test
+    void getMatrixForUpdate_sharedData_shouldCopyOnlyWhileShared() throws Exception {
+        ComputationNode a = parse("[[1, 2], [3, 4]]");
+        ComputationNode b = a.share();
+        double[][] data = a.getMatrix();
+
+        double[][] copy = a.getMatrixForUpdate();
+        assertNotSame(data, copy);
+        assertArrayEquals(data[1], copy[1]);
+        assertFalse(b.isShared(), "the other holder owns the data again");
+        assertSame(data, b.getMatrixForUpdate());
+    }
+
+    @Test
+    void parse_invalidReferences_shouldThrow() {
+        String[] invalid = {
+                "{\"matrices\": {\"A\": [[1]]}, \"expression\": {\"operator\": \"-\", \"operands\": [\"B\"]}}",
+                "{\"operator\": \"-\", \"operands\": [\"A\"]}",
+                "{\"matrices\": {\"A\": [[1]]}}",
+                "{\"matrices\": {\"A\": {\"operator\": \"-\", \"operands\": [[[1]]]}}, \"expression\": \"A\"}",
+        };
+        for (String json : invalid) {
+            assertThrows(ParseException.class, () -> parse(json), json);
+        }
+    }
+}
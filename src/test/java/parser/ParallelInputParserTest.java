@@ -0,0 +1,214 @@
+package parser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelInputParserTest {
+
+    @TempDir
+    Path dir;
+
+    private Path write(String json) throws IOException {
+        Path file = dir.resolve("input.json");
+        Files.writeString(file, json);
+        return file;
+    }
+
+    /**
+     * A dense literal mixing integers, fractions, exponents and long mantissas.
+     */
+    private static void appendMatrix(StringBuilder sb, int rows, int cols, long seed) {
+        Random rnd = new Random(seed);
+        sb.append('[');
+        for (int i = 0; i < rows; i++) {
+            sb.append(i == 0 ? "[" : ",\n [");
+            for (int j = 0; j < cols; j++) {
+                if (j > 0) sb.append(j % 7 == 0 ? " , " : ",");
+                switch (rnd.nextInt(6)) {
+                    case 0 -> sb.append(rnd.nextInt(2001) - 1000);
+                    case 1 -> sb.append(rnd.nextDouble() * 200 - 100);
+                    case 2 -> sb.append(String.format("%.3e", rnd.nextGaussian() * 1e-5));
+                    case 3 -> sb.append(rnd.nextLong());
+                    case 4 -> sb.append("-0.000").append(rnd.nextInt(1000));
+                    default -> sb.append(rnd.nextInt(10)).append('.').append(Math.abs(rnd.nextLong())).append(Math.abs(rnd.nextLong()));
+                }
+            }
+            sb.append(']');
+        }
+        sb.append(']');
+    }
+
+    private static void assertSameTree(ComputationNode expected, ComputationNode actual) {
+        assertEquals(expected.getNodeType(), actual.getNodeType());
+        if (expected.getNodeType() != ComputationNodeType.MATRIX) {
+            assertEquals(expected.getExponent(), actual.getExponent());
+            assertEquals(expected.getChildren().size(), actual.getChildren().size());
+            for (int i = 0; i < expected.getChildren().size(); i++) {
+                assertSameTree(expected.getChildren().get(i), actual.getChildren().get(i));
+            }
+            return;
+        }
+        assertEquals(expected.isSparse(), actual.isSparse());
+        assertEquals(expected.isSinglePrecision(), actual.isSinglePrecision());
+        if (expected.isSinglePrecision()) {
+            assertArrayEquals(expected.getFloatMatrix(), actual.getFloatMatrix());
+        } else {
+            assertArrayEquals(expected.getMatrix(), actual.getMatrix()); // bitwise
+        }
+    }
+
+    @Test
+    void parse_shouldMatchSequentialParserBitForBit() throws Exception {
+        // the first literal spans several chunks
+        StringBuilder json = new StringBuilder("{\"operator\": \"+\", \"note\": {\"x\": [1, \"]\"]}, \"operands\": [\n");
+        appendMatrix(json, 400, 300, 1);
+        json.append(",\n{\"operator\": \"^\", \"exponent\": 3, \"operands\": [");
+        appendMatrix(json, 400, 400, 2);
+        json.append("]},\n{\"operator\": \"T\", \"operands\": [{\"rows\": 300, \"cols\": 400, \"entries\": [[0, 1, 2.5], [299, 399, -1e3]]}]}");
+        json.append("]}\n");
+        Path file = write(json.toString());
+        assertTrue(Files.size(file) > 2L * ParallelInputParser.CHUNK_BYTES);
+
+        for (boolean single : new boolean[]{false, true}) {
+            ComputationNode expected = new InputParser(single).parse(file.toString());
+            ComputationNode actual = new ParallelInputParser(single, 3).parse(file.toString());
+            assertSameTree(expected, actual);
+        }
+    }
+
+    @Test
+    void parse_namedMatrices_shouldMatchSequentialParser() throws Exception {
+        StringBuilder json = new StringBuilder("{\"matrices\": {\"A\": ");
+        appendMatrix(json, 300, 300, 4);
+        json.append(", \"S\": {\"rows\": 300, \"cols\": 300, \"entries\": [[1, 2, 3]]}}, ");
+        json.append("\"expression\": {\"operator\": \"*\", \"operands\": [\"A\", {\"operator\": \"+\", \"operands\": [\"S\", \"A\"]}]}}");
+        Path file = write(json.toString());
+
+        ComputationNode expected = new InputParser().parse(file.toString());
+        ComputationNode actual = new ParallelInputParser(false, 2).parse(file.toString());
+        assertSameTree(expected, actual);
+        assertSame(actual.getChildren().get(0).getMatrix(), actual.getChildren().get(1).getChildren().get(1).getMatrix());
+    }
+
+    @Test
+    void parseNumber_shouldMatchJackson() throws Exception {
+        // Jackson reads "-0" as the integer 0 but "-0.0" and "-0e0" as the double -0.0
+        String[] numbers = {"0", "-0", "-0.0", "-0e0", "1", "-17", "0.1", "3.141592653589793", "1e22", "1e23",
+                "2.2250738585072014e-308", "4.9e-324", "1.7976931348623157e308", "123456789012345678901234567890",
+                "-123456789012345678901234567890", "0.30000000000000004", "9007199254740993", "1E-7", "-2.5e+3",
+                "0.000001"};
+        ObjectMapper mapper = new ObjectMapper();
+        for (String n : numbers) {
+            ByteBuffer buf = ByteBuffer.wrap((n + ",").getBytes());
+            long[] cursor = {0};
+            double v = ParallelInputParser.parseNumber(buf, cursor);
+            double expected = mapper.readTree("[" + n + "]").get(0).asDouble();
+            assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(v), n);
+            assertEquals(n.length(), cursor[0]);
+        }
+    }
+
+    @Test
+    void parse_negativeZeroLiterals_shouldMatchSequentialParser() throws Exception {
+        Path file = write("{\"operator\": \"+\", \"operands\": [[[-0, -0.0], [1, 2]], [[-0, 0], [-0e0, 1]]]}");
+
+        for (boolean single : new boolean[]{false, true}) {
+            ComputationNode expected = new InputParser(single).parse(file.toString());
+            ComputationNode actual = new ParallelInputParser(single, 2).parse(file.toString());
+            assertSameTree(expected, actual);
+        }
+    }
+
+    @Test
+    void parse_duplicateMatrixName_shouldKeepLastDefinitionLikeSequentialParser() throws Exception {
+        Path file = write("{\"matrices\": {\"A\": [[1, 2]], \"A\": [[3], [4]]}, "
+                + "\"expression\": {\"operator\": \"*\", \"operands\": [\"A\", [[5, 6]]]}}");
+
+        ComputationNode expected = new InputParser().parse(file.toString());
+        ComputationNode actual = new ParallelInputParser(false, 2).parse(file.toString());
+        assertSameTree(expected, actual);
+        assertArrayEquals(new double[]{3}, actual.getChildren().get(0).getMatrix()[0]);
+    }
+
+    @Test
+    void parse_invalidInput_shouldThrowLikeSequentialParser() throws Exception {
+        String[] invalid = {
+                "[[1, 2], [3]]",           // inconsistent rows
+                "[1, 2]",                  // vector
+                "[]",                      // empty
+                "[[1, 2], 3]",             // not a row
+                "[[1, x]]",                // not a number
+                "{\"operator\": \"^\", \"operands\": [[[1]]]}", // missing exponent
+                "{\"operands\": [[[1]]]}", // no operator
+                "[[1, 2]",                 // truncated
+                "{\"matrices\": {\"A\": [[1]]}, \"expression\": \"B\"}", // unknown name
+                "{\"matrices\": {\"A\": [[1]]}}", // no expression
+                "{\"operator\": \"-\", \"operands\": [{\"matrices\": {}, \"expression\": [[1]]}]}", // nested table
+                "[[1, 2],]",               // trailing comma
+                "[[1, 2], [3, 4],]",
+                "[[1, 2],, [3, 4]]",       // double comma
+                "[, [1, 2]]",              // leading comma
+                "[[1, 2] [3, 4]]",         // missing comma
+                "[[01]]",                  // leading zeros
+                "[[00]]",
+                "[[-01]]",
+                "[[1.]]",                  // no fraction digits
+                "[[.5]]",                  // no integer digits
+                "[[-.5]]",
+                "[[1.e5]]",
+                "[[1e]]",                  // no exponent digits
+                "[[1, -]]",
+        };
+        for (String json : invalid) {
+            Path file = write(json);
+            assertThrows(ParseException.class, () -> new InputParser(false).parse(file.toString()), json);
+            assertThrows(ParseException.class, () -> new ParallelInputParser(false, 2).parse(file.toString()), json);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_largeInput() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        Path file = dir.resolve("large.json");
+        Random rnd = new Random(3);
+        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+            w.write("{\"operator\": \"*\", \"operands\": [");
+            for (int m = 0; m < 2; m++) {
+                w.write(m == 0 ? "[" : ", [");
+                for (int i = 0; i < 3000; i++) {
+                    w.write(i == 0 ? "[" : ",[");
+                    for (int j = 0; j < 3000; j++) {
+                        if (j > 0) w.write(',');
+                        w.write(Double.toString(rnd.nextDouble() * 100 - 50));
+                    }
+                    w.write(']');
+                }
+                w.write(']');
+            }
+            w.write("]}");
+        }
+        new ParallelInputParser(false, threads).parse(file.toString()); // warm up
+        long t0 = System.nanoTime();
+        ComputationNode sequential = new InputParser().parse(file.toString());
+        long sequentialNanos = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        ComputationNode parallel = new ParallelInputParser(false, threads).parse(file.toString());
+        long parallelNanos = System.nanoTime() - t0;
+        System.out.printf("%d MB, threads=%d cores=%d: sequential=%dms parallel=%dms%n", Files.size(file) >> 20,
+                threads, Runtime.getRuntime().availableProcessors(), sequentialNanos / 1_000_000, parallelNanos / 1_000_000);
+        assertSameTree(sequential, parallel);
+    }
+}
@@ -0,0 +1,130 @@
+package parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import spl.lae.LinearAlgebraEngine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingOutputWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rowsInAnyOrder_shouldMatchOutputWriterByteForByte() throws Exception {
+        Random rnd = new Random(1);
+        double[][] matrix = new double[40][7];
+        for (double[] row : matrix) {
+            for (int j = 0; j < row.length; j++) row[j] = rnd.nextGaussian() * 1e3;
+        }
+        matrix[3][2] = Double.NaN;
+        matrix[5][0] = -0.0;
+        Path expected = dir.resolve("expected.json");
+        OutputWriter.write(matrix, expected.toString());
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < matrix.length; i++) order.add(i);
+        Collections.shuffle(order, rnd);
+        Path actual = dir.resolve("actual.json");
+        try (StreamingOutputWriter stream = new StreamingOutputWriter(actual.toString())) {
+            stream.begin(matrix.length);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int first = t;
+                threads.add(new Thread(() -> {
+                    for (int k = first; k < order.size(); k += 4) stream.row(order.get(k), matrix[order.get(k)].clone());
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) thread.join();
+            assertTrue(stream.finish());
+        }
+        assertEquals(Files.readString(expected), Files.readString(actual));
+    }
+
+    @Test
+    void floatRows_shouldMatchOutputWriter() throws Exception {
+        float[][] matrix = {{1.5f, -2.25f}, {0.1f, 3e-7f}};
+        Path expected = dir.resolve("expected.json");
+        OutputWriter.write(matrix, expected.toString());
+        Path actual = dir.resolve("actual.json.gz");
+        try (StreamingOutputWriter stream = new StreamingOutputWriter(actual.toString())) {
+            stream.begin(2);
+            stream.row(1, matrix[1]);
+            stream.row(0, matrix[0]);
+            assertTrue(stream.finish());
+        }
+        try (var in = CompressedFiles.openInput(actual.toString())) {
+            assertEquals(Files.readString(expected), new String(in.readAllBytes()));
+        }
+    }
+
+    @Test
+    void close_beforeFinish_shouldLeaveTheResultIncomplete() throws Exception {
+        Path out = dir.resolve("out.json");
+        StreamingOutputWriter stream = new StreamingOutputWriter(out.toString());
+        stream.begin(3);
+        stream.row(0, new double[]{1});
+        stream.row(2, new double[]{3});
+        stream.close();
+        assertFalse(Files.readString(out).trim().endsWith("}"));
+    }
+
+    @Test
+    void finish_withoutResult_shouldWriteNothing() throws Exception {
+        Path out = dir.resolve("out.json");
+        try (StreamingOutputWriter stream = new StreamingOutputWriter(out.toString())) {
+            assertFalse(stream.finish());
+        }
+        assertFalse(Files.exists(out));
+    }
+
+    private static ComputationNode product(int n, long seed) {
+        Random rnd = new Random(seed);
+        double[][][] m = new double[2][n][n];
+        for (double[][] matrix : m) {
+            for (double[] row : matrix) {
+                for (int j = 0; j < n; j++) row[j] = rnd.nextDouble();
+            }
+        }
+        return new ComputationNode(ComputationNodeType.MULTIPLY,
+                new ArrayList<>(List.of(new ComputationNode(m[0]), new ComputationNode(m[1]))));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_streamedVersusWrittenAfterwards() throws Exception {
+        int n = 1000; // below the Strassen threshold: computed row by row
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        Path after = dir.resolve("after.json");
+        Path streamed = dir.resolve("streamed.json");
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            long t0 = System.nanoTime();
+            OutputWriter.write(new LinearAlgebraEngine(threads).run(product(n, 2)).getMatrix(), after.toString());
+            long afterNanos = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            try (StreamingOutputWriter stream = new StreamingOutputWriter(streamed.toString())) {
+                LinearAlgebraEngine engine = new LinearAlgebraEngine(threads);
+                engine.setRowSink(stream);
+                engine.run(product(n, 2));
+                assertTrue(stream.finish());
+            }
+            long streamedNanos = System.nanoTime() - t0;
+            if (round == 1) {
+                System.out.printf("%dx%d product, threads=%d cores=%d: compute+write=%dms streamed=%dms%n", n, n,
+                        threads, Runtime.getRuntime().availableProcessors(), afterNanos / 1_000_000, streamedNanos / 1_000_000);
+            }
+        }
+        assertEquals(Files.readString(after), Files.readString(streamed));
+    }
+}
@@ -0,0 +1,199 @@
+package scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TiredExecutorTest {
+
+    @Test
+    void submitAll_taskThrows_shouldSkipTheRestAndRethrow() throws InterruptedException {
+        TiredExecutor executor = new TiredExecutor(1);
+        AtomicInteger ran = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            throw new IllegalStateException("boom");
+        });
+        for (int i = 0; i < 20; i++) {
+            tasks.add(ran::incrementAndGet);
+        }
+
+        ExecutionCancelledException e = assertThrows(ExecutionCancelledException.class, () -> executor.submitAll(tasks));
+
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(0, ran.get());
+        assertTrue(executor.isCancelled());
+        assertThrows(ExecutionCancelledException.class, () -> executor.submitAll(List.of(ran::incrementAndGet)));
+        executor.shutdown();
+    }
+
+    @Test
+    void submitAll_pastDeadline_shouldStopHandingOutTasks() throws InterruptedException {
+        TiredExecutor executor = new TiredExecutor(2);
+        AtomicInteger ran = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            tasks.add(() -> {
+                ran.incrementAndGet();
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        executor.setDeadline(50);
+
+        ExecutionCancelledException e = assertThrows(ExecutionCancelledException.class, () -> executor.submitAll(tasks));
+
+        assertTrue(e.getMessage().contains("Deadline"));
+        assertTrue(ran.get() < 1000);
+        executor.shutdown();
+    }
+
+    @Test
+    void submitAll_withoutFailures_shouldRunEveryTask() throws InterruptedException {
+        TiredExecutor executor = new TiredExecutor(3);
+        AtomicInteger ran = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tasks.add(ran::incrementAndGet);
+        }
+
+        executor.submitAll(tasks);
+        executor.shutdown();
+
+        assertEquals(50, ran.get());
+        assertFalse(executor.isCancelled());
+    }
+
+    private static List<Runnable> sleepingTasks(int count, long millis) {
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tasks.add(() -> {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        return tasks;
+    }
+
+    @Test
+    void elasticPool_underBacklog_shouldGrowAndLaterRetireIdleWorkers() throws InterruptedException {
+        TiredExecutor executor = TiredExecutor.elastic(1, 4);
+
+        executor.submitAll(sleepingTasks(60, 20));
+        int grown = executor.getPoolSize();
+        Thread.sleep(ElasticController.IDLE_RETIRE_MILLIS + 20 * ElasticController.SAMPLE_MILLIS);
+        int shrunk = executor.getPoolSize();
+        executor.shutdown();
+
+        assertTrue(grown > 1, "pool did not grow: " + grown);
+        assertTrue(grown <= 4);
+        assertEquals(1, shrunk);
+        assertEquals(grown, executor.getWorkers().size());
+        assertTrue(executor.getWorkers().stream().skip(1).allMatch(TiredThread::isShutDown));
+    }
+
+    @Test
+    void grow_shouldStartNewWorkersAtTheLeastFatigue() throws InterruptedException {
+        TiredExecutor executor = TiredExecutor.elastic(2, 3);
+        executor.submitAll(sleepingTasks(4, 5));
+        double least = executor.getWorkers().stream().mapToDouble(TiredThread::getFatigue).min().orElseThrow();
+
+        boolean added = executor.grow();
+        TiredThread joined = executor.getWorkers().get(2);
+        executor.shutdown();
+
+        assertTrue(added);
+        assertTrue(least > 0);
+        assertEquals(least, joined.getFatigue(), 1e-9);
+    }
+
+    private static Runnable recordWorker(Thread[] ranOn, Object[] blocks, int i) {
+        return TiredExecutor.keyed(() -> blocks[i], () -> {
+            ranOn[i] = Thread.currentThread();
+            long until = System.nanoTime() + 20_000;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        });
+    }
+
+    @Test
+    void affinity_shouldRunEachBlockOnItsLastWorkerWhenIdle() throws InterruptedException {
+        int n = 60;
+        TiredExecutor executor = new TiredExecutor(3);
+        executor.setAffinity(true);
+        Object[] blocks = new Object[n];
+        for (int i = 0; i < n; i++) {
+            blocks[i] = new double[4];
+        }
+        Thread[] first = new Thread[n];
+        Thread[] again = new Thread[n];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            tasks.add(recordWorker(first, blocks, i));
+        }
+        executor.submitAll(tasks);
+        // one at a time, so that every block's worker is idle when it is handed out
+        for (int i = n - 1; i >= 0; i--) {
+            executor.submitAll(List.of(recordWorker(again, blocks, i)));
+        }
+        executor.shutdown();
+
+        for (int i = 0; i < n; i++) {
+            assertSame(first[i], again[i], "block " + i);
+        }
+    }
+
+    @Test
+    void affinity_blockReplacedByTask_shouldFollowTheNewBlock() throws InterruptedException {
+        TiredExecutor executor = new TiredExecutor(4);
+        executor.setAffinity(true);
+        Object[] block = {new double[4]};
+        Thread[] ranOn = new Thread[2];
+        executor.submitAll(List.of(TiredExecutor.keyed(() -> block[0], () -> {
+            ranOn[0] = Thread.currentThread();
+            block[0] = new double[4]; // like a product replacing its row
+        })));
+        for (int k = 0; k < 10; k++) {
+            executor.submitAll(List.of(TiredExecutor.keyed(() -> block[0], () -> ranOn[1] = Thread.currentThread())));
+            assertSame(ranOn[0], ranOn[1]);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void affinity_withoutBlocksOrWhenOff_shouldRunEveryTask() throws InterruptedException {
+        TiredExecutor executor = new TiredExecutor(2);
+        AtomicInteger ran = new AtomicInteger();
+        Object block = new Object();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            tasks.add(i % 2 == 0 ? ran::incrementAndGet : TiredExecutor.keyed(() -> block, ran::incrementAndGet));
+        }
+
+        executor.submitAll(tasks);
+        executor.setAffinity(true);
+        executor.submitAll(tasks);
+        executor.submit(TiredExecutor.keyed(() -> block, ran::incrementAndGet));
+        executor.setAffinity(false);
+        executor.submitAll(tasks);
+        executor.shutdown();
+
+        assertEquals(91, ran.get());
+    }
+
+    @Test
+    void elastic_maxBelowMin_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> TiredExecutor.elastic(3, 2));
+    }
+}
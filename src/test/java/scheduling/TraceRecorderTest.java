@@ -0,0 +1,80 @@
+package scheduling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceRecorderTest {
+
+    private TraceRecorder recorder;
+
+    @AfterEach
+    void stopRecorder() {
+        if (recorder != null) recorder.stop();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> events(TraceRecorder recorder, String phase) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> e : (List<Map<String, Object>>) recorder.toTraceEvents().get("traceEvents")) {
+            if (phase.equals(e.get("ph"))) result.add(e);
+        }
+        return result;
+    }
+
+    @Test
+    void submitAll_whileRecording_shouldRecordOneLabeledSpanPerTask() throws InterruptedException {
+        recorder = TraceRecorder.start();
+        TiredExecutor executor = new TiredExecutor(2);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(() -> {});
+        }
+
+        TraceRecorder.setOperator("ADD");
+        executor.submitAll(tasks);
+        TraceRecorder.setOperator(null);
+        executor.shutdown();
+        recorder.stop();
+
+        long taskSpans = events(recorder, "X").stream()
+                .filter(e -> TraceRecorder.TASK.equals(e.get("cat")))
+                .peek(e -> assertEquals("ADD", e.get("name")))
+                .count();
+        assertEquals(5, taskSpans);
+        assertTrue(events(recorder, "X").stream().anyMatch(e -> "submitAll barrier".equals(e.get("name"))));
+        assertTrue(events(recorder, "M").stream()
+                .anyMatch(e -> ((Map<?, ?>) e.get("args")).get("name").toString().startsWith("worker ")));
+    }
+
+    @Test
+    void record_pastCapacity_shouldKeepTheNewestSpans() {
+        recorder = TraceRecorder.start(4);
+
+        for (int i = 0; i < 10; i++) {
+            recorder.record("span" + i, TraceRecorder.PHASE, i, i + 1);
+        }
+
+        List<Map<String, Object>> spans = events(recorder, "X");
+        assertEquals(4, spans.size());
+        assertEquals("span6", spans.get(0).get("name"));
+        assertEquals("span9", spans.get(3).get("name"));
+        assertEquals(6, recorder.getDroppedCount());
+    }
+
+    @Test
+    void span_withoutActiveRecorder_shouldBeIgnored() {
+        TraceRecorder stopped = TraceRecorder.start();
+        stopped.stop();
+
+        TraceRecorder.span("ignored", TraceRecorder.WAIT, System.nanoTime());
+
+        assertNull(TraceRecorder.active());
+        assertTrue(events(stopped, "X").isEmpty());
+    }
+}
@@ -0,0 +1,139 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.assertMatrixEquals;
+import static spl.lae.LinearAlgebraEngineTest.copy;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+import static spl.lae.LinearAlgebraEngineTest.randomSparse;
+import static spl.lae.LinearAlgebraEngineTest.sparse;
+import static spl.lae.LinearAlgebraEngineTest.toFloat;
+
+class CriticalPathSchedulerTest {
+
+    private static ComputationNode leaf(double[][] m) {
+        return new ComputationNode(copy(m));
+    }
+
+    /**
+     * A wide operator on the left and a long chain of narrow multiplies on the right:
+     * leftmost-first resolution runs the chain only after the wide operator has finished.
+     * Result: S(2 x w) * (A(w x n) * B(n x n)) + X(2 x n) * W1 * ... * Wk
+     */
+    private static ComputationNode unbalanced(int w, int n, int chain, double[][][] data) {
+        ComputationNode wide = op(ComputationNodeType.MULTIPLY, leaf(data[0]),
+                op(ComputationNodeType.MULTIPLY, leaf(data[1]), leaf(data[2])));
+        ComputationNode narrow = leaf(data[3]);
+        for (int i = 0; i < chain; i++) {
+            narrow = op(ComputationNodeType.MULTIPLY, narrow, leaf(data[4 + i]));
+        }
+        return op(ComputationNodeType.ADD, wide, narrow);
+    }
+
+    private static double[][][] unbalancedData(int w, int n, int chain, long seed) {
+        double[][][] data = new double[4 + chain][][];
+        data[0] = random(2, w, seed);
+        data[1] = random(w, n, seed + 1);
+        data[2] = random(n, n, seed + 2);
+        data[3] = random(2, n, seed + 3);
+        for (int i = 0; i < chain; i++) {
+            // scaled so that the chained product stays in range
+            double[][] m = random(n, n, seed + 4 + i);
+            for (double[] row : m) {
+                for (int j = 0; j < n; j++) row[j] /= n;
+            }
+            data[4 + i] = m;
+        }
+        return data;
+    }
+
+    private static double[][] run(ComputationNode root, int threads, boolean criticalPath) {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(threads);
+        engine.setCriticalPathScheduling(criticalPath);
+        return engine.run(root).getMatrix();
+    }
+
+    @Test
+    void run_shouldMatchLeftmostFirstResolution() {
+        double[][][] data = unbalancedData(12, 10, 5, 50);
+
+        double[][] expected = run(unbalanced(12, 10, 5, data), 3, false);
+        double[][] actual = run(unbalanced(12, 10, 5, data), 3, true);
+
+        assertMatrixEquals(expected, actual, 1e-9);
+    }
+
+    @Test
+    void run_mixedKernels_shouldMatchLeftmostFirstResolution() {
+        double[][] s = randomSparse(20, 20, 0.05, 51);
+        double[][] d = random(20, 20, 52);
+        // sparse kernels and float32 operators run alongside row-by-column tasks
+        java.util.function.Supplier<ComputationNode> tree = () -> op(ComputationNodeType.ADD,
+                op(ComputationNodeType.MULTIPLY, sparse(s), leaf(d)),
+                op(ComputationNodeType.NEGATE, op(ComputationNodeType.TRANSPOSE, leaf(d))));
+
+        assertMatrixEquals(run(tree.get(), 2, false), run(tree.get(), 2, true), 1e-9);
+
+        ComputationNode floats = op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(toFloat(random(5, 7, 53))), new ComputationNode(toFloat(random(7, 3, 54))));
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setCriticalPathScheduling(true);
+        assertTrue(engine.run(floats).isSinglePrecision());
+    }
+
+    @Test
+    void upwardRanks_shouldFavourTheLongChain() {
+        ComputationNode root = unbalanced(12, 10, 10, unbalancedData(12, 10, 10, 55));
+        ComputationNode wide = root.getChildren().get(0);
+        ComputationNode chainBottom = root.getChildren().get(1);
+        while (chainBottom.getChildren().get(0).getNodeType() != ComputationNodeType.MATRIX) {
+            chainBottom = chainBottom.getChildren().get(0);
+        }
+
+        Map<ComputationNode, Double> ranks = CriticalPathScheduler.upwardRanks(root, ExecutionPlanner.plan(root));
+
+        assertTrue(ranks.get(chainBottom) > ranks.get(wide.getChildren().get(1)));
+        assertTrue(ranks.get(chainBottom) > ranks.get(root));
+        assertEquals(CriticalPathScheduler.cost(ExecutionPlanner.plan(root).steps.get(12)), ranks.get(root), 1e-6);
+    }
+
+    @Test
+    void getMetrics_shouldCoverEveryNode() {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setCriticalPathScheduling(true);
+
+        engine.run(unbalanced(12, 10, 5, unbalancedData(12, 10, 5, 56)));
+
+        assertEquals(8, engine.getMetrics().nodes.size());
+        assertEquals(12 + 2 + 5 * 2 + 2, engine.getMetrics().totalTasks);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_unbalancedTreeMakespan() {
+        int threads = Math.max(8, Runtime.getRuntime().availableProcessors());
+        int w = 64, n = 512, chain = 32;
+        double[][][] data = unbalancedData(w, n, chain, 57);
+        // warm up both paths
+        run(unbalanced(w, n, 4, data), threads, false);
+        run(unbalanced(w, n, 4, data), threads, true);
+
+        long t0 = System.nanoTime();
+        double[][] expected = run(unbalanced(w, n, chain, data), threads, false);
+        long leftmostNanos = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        double[][] actual = run(unbalanced(w, n, chain, data), threads, true);
+        long criticalNanos = System.nanoTime() - t0;
+
+        System.out.printf("threads=%d cores=%d leftmost-first=%dms critical-path=%dms%n", threads,
+                Runtime.getRuntime().availableProcessors(), leftmostNanos / 1_000_000, criticalNanos / 1_000_000);
+        assertMatrixEquals(expected, actual, 1e-9);
+    }
+}
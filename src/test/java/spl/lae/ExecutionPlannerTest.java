@@ -0,0 +1,114 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+import static spl.lae.LinearAlgebraEngineTest.randomSparse;
+import static spl.lae.LinearAlgebraEngineTest.sparse;
+
+class ExecutionPlannerTest {
+
+    @Test
+    void plan_shouldInferShapesAndCostsInResolutionOrder() {
+        // -( (A(3x4) * B(4x5))^T ) + C(5x3)
+        ComputationNode root = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.NEGATE, op(ComputationNodeType.TRANSPOSE,
+                        op(ComputationNodeType.MULTIPLY,
+                                new ComputationNode(random(3, 4, 1)), new ComputationNode(random(4, 5, 2))))),
+                new ComputationNode(random(5, 3, 3)));
+
+        ExecutionPlan plan = ExecutionPlanner.plan(root);
+
+        assertEquals(4, plan.steps.size());
+        assertEquals("MULTIPLY", plan.steps.get(0).operator);
+        assertArrayEquals(new int[]{3, 5}, plan.steps.get(0).resultShape);
+        assertEquals(2L * 3 * 4 * 5, plan.steps.get(0).flops);
+        assertEquals("TRANSPOSE", plan.steps.get(1).operator);
+        assertArrayEquals(new int[]{5, 3}, plan.steps.get(1).resultShape);
+        assertEquals("NEGATE", plan.steps.get(2).operator);
+        assertEquals("ADD", plan.steps.get(3).operator);
+        assertArrayEquals(new int[]{5, 3}, plan.resultShape);
+        assertEquals((3 * 4 + 4 * 5 + 5 * 3) * Double.BYTES, plan.inputBytes);
+        assertTrue(plan.peakBytes >= plan.inputBytes);
+        assertEquals(2L * 3 * 4 * 5 + 15 + 15, plan.totalFlops);
+    }
+
+    @Test
+    void plan_shouldPredictSparseResults() {
+        double[][] s = randomSparse(100, 100, 0.01, 4);
+        ComputationNode root = op(ComputationNodeType.MULTIPLY, sparse(s), sparse(s));
+
+        ExecutionPlan plan = ExecutionPlanner.plan(root);
+
+        assertEquals("sparse", plan.steps.get(0).kernel);
+        assertEquals("sparse", plan.steps.get(0).representation);
+    }
+
+    @Test
+    void run_mismatchNearTheRoot_shouldFailBeforeComputingAnything() {
+        ComputationNode product = op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(random(4, 4, 5)), new ComputationNode(random(4, 4, 6)));
+        ComputationNode root = op(ComputationNodeType.ADD, product, new ComputationNode(random(3, 4, 7)));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new LinearAlgebraEngine(2).run(root));
+
+        assertEquals("Illegal operation: dimensions mismatch", e.getMessage());
+        assertEquals(ComputationNodeType.MULTIPLY, product.getNodeType());
+    }
+
+    @Test
+    void plan_wrongArity_shouldThrow() {
+        ComputationNode root = op(ComputationNodeType.NEGATE,
+                new ComputationNode(random(2, 2, 8)), new ComputationNode(random(2, 2, 9)));
+
+        assertThrows(IllegalArgumentException.class, () -> ExecutionPlanner.plan(root));
+    }
+
+    @Test
+    void format_shouldListEveryStep() {
+        ComputationNode root = op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(random(2, 3, 10)), new ComputationNode(random(3, 2, 11)));
+
+        String text = ExecutionPlanner.plan(root).format();
+
+        assertTrue(text.contains("MULTIPLY"));
+        assertTrue(text.contains("2x3, 3x2"));
+        assertTrue(text.contains("peak memory"));
+    }
+
+    /**
+     * (A(200x5) * B(5x200)) + (C(200x200) * D(200x200)): the left product grows memory, the
+     * right one frees it, so the right one goes first.
+     */
+    private static ComputationNode growingThenShrinking() {
+        return op(ComputationNodeType.ADD,
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(random(200, 5, 1)), new ComputationNode(random(5, 200, 2))),
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(random(200, 200, 3)), new ComputationNode(random(200, 200, 4))));
+    }
+
+    @Test
+    void planForMemory_shouldEvaluateShrinkingOperandsFirst() {
+        ExecutionPlan leftFirst = ExecutionPlanner.plan(growingThenShrinking());
+        ExecutionPlan ordered = ExecutionPlanner.planForMemory(growingThenShrinking(), StrassenMultiplier.DEFAULT_THRESHOLD);
+
+        assertEquals(3, ordered.steps.size());
+        assertArrayEquals(new int[]{200, 200}, ordered.steps.get(0).operandShapes.get(0));
+        assertArrayEquals(new int[]{200, 5}, ordered.steps.get(1).operandShapes.get(0));
+        assertEquals("ADD", ordered.steps.get(2).operator);
+        // operand positions are unchanged
+        assertArrayEquals(new int[]{200, 200}, ordered.steps.get(2).operandShapes.get(0));
+
+        long inputs = (2 * 200 * 5 + 2 * 200 * 200) * Double.BYTES;
+        long square = 200 * 200 * Double.BYTES;
+        // A*B's result is still live while C*D copies D and writes its result
+        assertEquals(inputs - 2 * 200 * 5 * Double.BYTES + 3 * square, leftFirst.peakBytes);
+        assertEquals(inputs + 2 * square, ordered.peakBytes); // C*D: inputs, the copy of D and the result
+        assertTrue(ordered.peakBytes < leftFirst.peakBytes);
+        assertEquals(leftFirst.totalFlops, ordered.totalFlops);
+    }
+}
@@ -0,0 +1,68 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.assertMatrixEquals;
+import static spl.lae.LinearAlgebraEngineTest.copy;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+
+class IncrementalSessionTest {
+
+    // (A * B) + -(C * D)
+    private static ComputationNode expression(double[][] a, double[][] b, double[][] c, double[][] d) {
+        return op(ComputationNodeType.ADD,
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(a)), new ComputationNode(copy(b))),
+                op(ComputationNodeType.NEGATE,
+                        op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(c)), new ComputationNode(copy(d)))));
+    }
+
+    private static double[][] evaluate(ComputationNode root) {
+        return new LinearAlgebraEngine(2).run(root).getMatrix();
+    }
+
+    @Test
+    void update_shouldRecomputeOnlyAncestorsOfChangedLeaves() {
+        double[][] a = random(6, 5, 1);
+        double[][] b = random(5, 7, 2);
+        double[][] c = random(6, 4, 3);
+        double[][] d = random(4, 7, 4);
+        IncrementalSession session = new IncrementalSession(false, () -> new LinearAlgebraEngine(2));
+
+        double[][] first = session.update(expression(a, b, c, d)).getMatrix();
+        assertMatrixEquals(evaluate(expression(a, b, c, d)), first, 1e-12);
+        assertEquals(4, session.getLastOperators());
+        assertEquals(4, session.getLastRecomputed());
+
+        // nothing changed: the root comes from memory
+        assertMatrixEquals(first, session.update(expression(a, b, c, d)).getMatrix(), 0);
+        assertEquals(0, session.getLastRecomputed());
+        assertTrue(session.getLastMetrics().nodes.isEmpty());
+
+        // C changed: C * D, its negation and the sum are recomputed, A * B is not
+        double[][] changed = copy(c);
+        changed[2][1] = 42;
+        double[][] updated = session.update(expression(a, b, changed, d)).getMatrix();
+        assertMatrixEquals(evaluate(expression(a, b, changed, d)), updated, 1e-12);
+        assertEquals(3, session.getLastRecomputed());
+
+        // back to the original C: its subtree was dropped with the previous expression
+        session.update(expression(a, b, c, d));
+        assertEquals(3, session.getLastRecomputed());
+    }
+
+    @Test
+    void update_shouldKeepWatchingAfterAFailedEvaluation() {
+        double[][] a = random(3, 3, 1);
+        IncrementalSession session = new IncrementalSession(false, () -> new LinearAlgebraEngine(1));
+        ComputationNode bad = op(ComputationNodeType.ADD, new ComputationNode(copy(a)), new ComputationNode(random(2, 3, 2)));
+        assertThrows(IllegalArgumentException.class, () -> session.update(bad));
+
+        ComputationNode good = op(ComputationNodeType.NEGATE, new ComputationNode(copy(a)));
+        double[][] result = session.update(good).getMatrix();
+        assertEquals(-a[1][2], result[1][2]);
+    }
+}
@@ -0,0 +1,536 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ComputationNode;
+import memory.SparseMatrix;
+import memory.VectorOrientation;
+import parser.ComputationNodeType;
+import parser.InputParser;
+import parser.RowSink;
+import scheduling.ExecutionCancelledException;
+import scheduling.TraceRecorder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinearAlgebraEngineTest {
+
+    private static final double EPS = 1e-9;
+    // unit roundoff of IEEE single precision
+    private static final double FLOAT_EPS = Math.ulp(1.0f) / 2;
+
+    static double[][] random(int rows, int cols, long seed) {
+        Random rnd = new Random(seed);
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                m[i][j] = rnd.nextDouble() * 2 - 1;
+            }
+        }
+        return m;
+    }
+
+    static float[][] toFloat(double[][] m) {
+        float[][] f = new float[m.length][m[0].length];
+        for (int i = 0; i < m.length; i++) {
+            for (int j = 0; j < m[0].length; j++) {
+                f[i][j] = (float) m[i][j];
+            }
+        }
+        return f;
+    }
+
+    static double[][] copy(double[][] m) {
+        double[][] c = new double[m.length][];
+        for (int i = 0; i < m.length; i++) c[i] = m[i].clone();
+        return c;
+    }
+
+    static ComputationNode op(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new ArrayList<>(List.of(children)));
+    }
+
+    static void assertMatrixEquals(double[][] expected, double[][] actual, double eps) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual[i], eps);
+        }
+    }
+
+    @Test
+    void run_add_shouldAddElementwise() {
+        ComputationNode root = op(ComputationNodeType.ADD,
+                new ComputationNode(new double[][]{{1, 2}, {3, 4}}),
+                new ComputationNode(new double[][]{{10, 20}, {30, 40}}));
+
+        double[][] out = new LinearAlgebraEngine(2).run(root).getMatrix();
+
+        assertMatrixEquals(new double[][]{{11, 22}, {33, 44}}, out, EPS);
+    }
+
+    @Test
+    void run_float32_shouldStayWithinErrorBoundOfDoublePath() {
+        int m = 40, k = 300, n = 25;
+        double[][] a = random(m, k, 11);
+        double[][] b = random(k, n, 12);
+        double[][] c = random(n, m, 13);
+
+        // T(A * B) + -C
+        ComputationNode doubleRoot = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.TRANSPOSE,
+                        op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(a)), new ComputationNode(copy(b)))),
+                op(ComputationNodeType.NEGATE, new ComputationNode(copy(c))));
+        ComputationNode floatRoot = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.TRANSPOSE,
+                        op(ComputationNodeType.MULTIPLY, new ComputationNode(toFloat(a)), new ComputationNode(toFloat(b)))),
+                op(ComputationNodeType.NEGATE, new ComputationNode(toFloat(c))));
+
+        double[][] expected = new LinearAlgebraEngine(3).run(doubleRoot).getMatrix();
+        ComputationNode result = new LinearAlgebraEngine(3).run(floatRoot);
+
+        assertTrue(result.isSinglePrecision());
+        float[][] actual = result.getFloatMatrix();
+        // rounding the inputs plus a length-k float dot product; |a|,|b| <= 1
+        double bound = (k + 2) * FLOAT_EPS * k + 2 * FLOAT_EPS;
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected[0].length; j++) {
+                assertEquals(expected[i][j], actual[i][j], bound);
+            }
+        }
+    }
+
+    @Test
+    void run_float32_dimensionMismatch_shouldThrow() {
+        ComputationNode root = op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(new float[][]{{1, 2}}),
+                new ComputationNode(new float[][]{{1, 2}}));
+
+        assertThrows(IllegalArgumentException.class, () -> new LinearAlgebraEngine(1).run(root));
+    }
+
+    static double[][] randomSparse(int rows, int cols, double density, long seed) {
+        Random rnd = new Random(seed);
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (rnd.nextDouble() < density) m[i][j] = rnd.nextInt(9) - 4;
+            }
+        }
+        return m;
+    }
+
+    static ComputationNode sparse(double[][] m) {
+        return new ComputationNode(SparseMatrix.fromDense(m, VectorOrientation.ROW_MAJOR));
+    }
+
+    @Test
+    void run_sparseKernels_shouldMatchDensePath() {
+        double[][] s1 = randomSparse(30, 40, 0.05, 21);
+        double[][] s2 = randomSparse(40, 25, 0.05, 22);
+        double[][] d1 = random(40, 25, 23);
+        double[][] d2 = random(25, 40, 24);
+        double[][] s3 = randomSparse(30, 25, 0.05, 25);
+
+        // (-(S1 * S2) + S1 * D1) * D2 + T(D1 * T(S3))
+        ComputationNode sparseRoot = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.MULTIPLY,
+                        op(ComputationNodeType.ADD,
+                                op(ComputationNodeType.NEGATE, op(ComputationNodeType.MULTIPLY, sparse(s1), sparse(s2))),
+                                op(ComputationNodeType.MULTIPLY, sparse(s1), new ComputationNode(copy(d1)))),
+                        new ComputationNode(copy(d2))),
+                op(ComputationNodeType.TRANSPOSE,
+                        op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(d1)),
+                                op(ComputationNodeType.TRANSPOSE, sparse(s3)))));
+        ComputationNode denseRoot = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.MULTIPLY,
+                        op(ComputationNodeType.ADD,
+                                op(ComputationNodeType.NEGATE, op(ComputationNodeType.MULTIPLY,
+                                        new ComputationNode(copy(s1)), new ComputationNode(copy(s2)))),
+                                op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(s1)), new ComputationNode(copy(d1)))),
+                        new ComputationNode(copy(d2))),
+                op(ComputationNodeType.TRANSPOSE,
+                        op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(d1)),
+                                op(ComputationNodeType.TRANSPOSE, new ComputationNode(copy(s3))))));
+
+        double[][] expected = new LinearAlgebraEngine(3).run(denseRoot).getMatrix();
+        double[][] actual = new LinearAlgebraEngine(3).run(sparseRoot).getMatrix();
+
+        assertMatrixEquals(expected, actual, 1e-9);
+    }
+
+    @TempDir
+    Path dir;
+
+    /** The same tree with every sparse leaf expanded, so that only the dense kernels run. */
+    static ComputationNode densified(ComputationNode node) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) return new ComputationNode(copy(node.getMatrix()));
+        List<ComputationNode> children = new ArrayList<>();
+        for (ComputationNode child : node.getChildren()) children.add(densified(child));
+        return new ComputationNode(node.getNodeType(), children);
+    }
+
+    static String json(double[][] m) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < m.length; i++) {
+            sb.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < m[i].length; j++) {
+                sb.append(j == 0 ? "" : ",").append(m[i][j]);
+            }
+            sb.append("]");
+        }
+        return sb.append("]").toString();
+    }
+
+    static String json(String operator, String... operands) {
+        return "{\"operator\": \"" + operator + "\", \"operands\": [" + String.join(", ", operands) + "]}";
+    }
+
+    @Test
+    void run_autoSparseLeaves_shouldMatchDensePathBitForBit() throws Exception {
+        double[][] single = new double[10][10];
+        single[2][3] = 1.5;
+        String s1 = json(single);
+        String s2 = json(randomSparse(10, 10, 0.08, 27));
+        double[][] dense = random(10, 10, 28);
+        dense[0][0] = -0.0;
+        dense[5][7] = -0.0;
+        String d = json(dense);
+        double[][] huge = random(10, 10, 29);
+        for (double[] row : huge) {
+            for (int j = 0; j < row.length; j++) row[j] *= 1e300;
+        }
+        double[][] negativeZero = new double[10][10];
+        negativeZero[1][1] = -0.0;
+        negativeZero[4][4] = 2;
+        String[] expressions = {
+                json("-", s1),
+                json("-", json("-", s1)),
+                json("+", json("-", s1), json("-", s2)),
+                json("+", json("-", s1), s2),
+                json("+", json("-", s1), d),
+                json("+", d, s1),
+                json("*", json("T", json("-", s1)), d),
+                json("*", s1, s2),
+                json("*", d, json("-", s2)),
+                // the right operand overflows to infinities, and 0 * Inf is NaN
+                json("*", s1, json("*", json(huge), json(huge))),
+                json("T", json(negativeZero)),
+        };
+        for (String expression : expressions) {
+            Path file = dir.resolve("input.json");
+            Files.writeString(file, expression);
+            ComputationNode parsed = new InputParser().parse(file.toString());
+            double[][] expected = new LinearAlgebraEngine(2).run(densified(parsed)).getMatrix();
+            double[][] actual = new LinearAlgebraEngine(2).run(parsed).getMatrix();
+            assertEquals(expected.length, actual.length, expression);
+            for (int i = 0; i < expected.length; i++) {
+                for (int j = 0; j < expected[i].length; j++) {
+                    assertEquals(Double.doubleToLongBits(expected[i][j]), Double.doubleToLongBits(actual[i][j]),
+                            expression + " at (" + i + ", " + j + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    void run_sparseTimesSparse_shouldStaySparseWhenResultIsSparse() {
+        double[][] s = randomSparse(50, 50, 0.01, 26);
+        ComputationNode root = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.MULTIPLY, sparse(s), sparse(s)), sparse(s));
+
+        ComputationNode result = new LinearAlgebraEngine(2).run(root);
+
+        assertTrue(result.isSparse());
+    }
+
+    @Test
+    void getMetrics_shouldDescribeEveryResolvedNode() {
+        ComputationNode root = op(ComputationNodeType.NEGATE, op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(random(6, 4, 41)), new ComputationNode(random(4, 5, 42))));
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+
+        engine.run(root);
+        MetricsReport metrics = engine.getMetrics();
+
+        assertEquals(2, metrics.nodes.size());
+        MetricsReport.NodeMetrics multiply = metrics.nodes.get(0);
+        assertEquals("MULTIPLY", multiply.operator);
+        assertArrayEquals(new int[]{6, 4}, multiply.operandShapes.get(0));
+        assertArrayEquals(new int[]{4, 5}, multiply.operandShapes.get(1));
+        assertArrayEquals(new int[]{6, 5}, multiply.resultShape);
+        assertEquals(6, multiply.taskCount);
+        assertEquals(6, multiply.queueWait.count);
+        assertEquals(6, multiply.runTime.count);
+        assertEquals("NEGATE", metrics.nodes.get(1).operator);
+        assertEquals(12, metrics.totalTasks);
+        assertEquals(2, metrics.workers.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void run_whileTracing_shouldRecordOperatorPhases() {
+        ComputationNode root = op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(random(6, 4, 43)), new ComputationNode(random(4, 5, 44)));
+        TraceRecorder recorder = TraceRecorder.start();
+        try {
+            new LinearAlgebraEngine(2).run(root);
+        } finally {
+            recorder.stop();
+        }
+
+        List<String> names = new ArrayList<>();
+        for (Map<String, Object> e : (List<Map<String, Object>>) recorder.toTraceEvents().get("traceEvents")) {
+            names.add(String.valueOf(e.get("name")));
+        }
+        assertTrue(names.containsAll(List.of("MULTIPLY", "load", "compute", "readout")));
+        assertEquals(6 + 1, names.stream().filter("MULTIPLY"::equals).count()); // 6 row tasks + the node
+    }
+
+    @Test
+    void run_pastDeadline_shouldCancelTheRemainingWork() {
+        ComputationNode root = op(ComputationNodeType.MULTIPLY,
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(random(400, 400, 45)), new ComputationNode(random(400, 400, 46))),
+                new ComputationNode(random(400, 400, 47)));
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(1);
+        engine.setDeadline(1);
+
+        assertThrows(ExecutionCancelledException.class, () -> engine.run(root));
+        assertNotEquals(ComputationNodeType.MATRIX, root.getNodeType());
+    }
+
+    @Test
+    void run_sharedOperands_shouldBeCopiedBeforeInPlaceUpdates() {
+        double[][] original = random(20, 20, 52);
+        ComputationNode a = new ComputationNode(copy(original));
+        // (A + A) + -A, with all three leaves holding the same rows
+        ComputationNode root = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.ADD, a, a.share()), op(ComputationNodeType.NEGATE, a.share()));
+        double[][] result = new LinearAlgebraEngine(2).run(root).getMatrix();
+
+        assertMatrixEquals(original, result, EPS);
+    }
+
+    /**
+     * Collects streamed rows.
+     */
+    private static final class RowCollector implements RowSink {
+        double[][] rows;
+        float[][] floatRows;
+        int begun;
+
+        @Override
+        public synchronized void begin(int count) {
+            begun++;
+            rows = new double[count][];
+            floatRows = new float[count][];
+        }
+
+        @Override
+        public synchronized void row(int index, double[] row) {
+            rows[index] = row;
+        }
+
+        @Override
+        public synchronized void row(int index, float[] row) {
+            floatRows[index] = row;
+        }
+    }
+
+    @Test
+    void run_withRowSink_shouldStreamTheFinalOperatorsRows() {
+        for (boolean criticalPath : new boolean[]{false, true}) {
+            double[][] a = random(30, 20, 53);
+            double[][] b = random(20, 25, 54);
+            ComputationNode root = op(ComputationNodeType.MULTIPLY,
+                    op(ComputationNodeType.NEGATE, new ComputationNode(copy(a))), new ComputationNode(copy(b)));
+            RowCollector sink = new RowCollector();
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+            engine.setCriticalPathScheduling(criticalPath);
+            engine.setRowSink(sink);
+            double[][] result = engine.run(root).getMatrix();
+
+            assertEquals(1, sink.begun, "only the final operator is streamed");
+            assertMatrixEquals(result, sink.rows, 0.0);
+        }
+
+        ComputationNode floatRoot = op(ComputationNodeType.ADD,
+                new ComputationNode(toFloat(random(5, 4, 55))), new ComputationNode(toFloat(random(5, 4, 56))));
+        RowCollector floatSink = new RowCollector();
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setRowSink(floatSink);
+        float[][] floatResult = engine.run(floatRoot).getFloatMatrix();
+        for (int i = 0; i < floatResult.length; i++) assertArrayEquals(floatResult[i], floatSink.floatRows[i]);
+
+        ComputationNode transpose = op(ComputationNodeType.TRANSPOSE, new ComputationNode(random(5, 4, 57)));
+        RowCollector none = new RowCollector();
+        engine = new LinearAlgebraEngine(2);
+        engine.setRowSink(none);
+        engine.run(transpose);
+        assertEquals(0, none.begun);
+    }
+
+    @Test
+    void run_power_shouldMatchRepeatedMultiplication() {
+        double[][] a = random(9, 9, 48);
+        for (int n : new int[]{1, 2, 5, 8, 13}) {
+            ComputationNode expected = new ComputationNode(copy(a));
+            for (int i = 1; i < n; i++) {
+                expected = op(ComputationNodeType.MULTIPLY, expected, new ComputationNode(copy(a)));
+            }
+            double[][] chained = new LinearAlgebraEngine(2).run(expected).getMatrix();
+
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+            double[][] power = engine.run(new ComputationNode(new ArrayList<>(List.of(new ComputationNode(copy(a)))), n)).getMatrix();
+            assertMatrixEquals(chained, power, 1e-9 * Math.pow(9, n));
+            assertEquals("repeated-squaring", engine.getMetrics().nodes.get(0).kernel);
+        }
+
+        float[][] f = toFloat(random(5, 5, 49));
+        float[][] cube = new LinearAlgebraEngine(1).run(
+                new ComputationNode(new ArrayList<>(List.of(new ComputationNode(f))), 3)).getFloatMatrix();
+        assertEquals(5, cube.length);
+
+        ComputationNode sparsePower = new ComputationNode(new ArrayList<>(List.of(sparse(randomSparse(30, 30, 0.03, 50)))), 4);
+        double[][] expectedSparse = randomSparse(30, 30, 0.03, 50);
+        double[][] squared = new LinearAlgebraEngine(1).run(op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(copy(expectedSparse)), new ComputationNode(copy(expectedSparse)))).getMatrix();
+        double[][] fourth = new LinearAlgebraEngine(1).run(op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(squared), new ComputationNode(copy(squared)))).getMatrix();
+        assertMatrixEquals(fourth, new LinearAlgebraEngine(1).run(sparsePower).getMatrix(), 1e-9);
+    }
+
+    @Test
+    void run_powerOfNonSquareMatrix_shouldThrow() {
+        ComputationNode root = new ComputationNode(new ArrayList<>(List.of(new ComputationNode(random(3, 4, 51)))), 2);
+        assertThrows(IllegalArgumentException.class, () -> new LinearAlgebraEngine(1).run(root));
+    }
+
+    @Test
+    void run_withMemoryBudget_shouldFreeOperandsAndStayWithinBudget() {
+        double[][][] inputs = {random(60, 60, 61), random(60, 60, 62), random(60, 60, 63), random(60, 60, 64)};
+        double[][] expected = new LinearAlgebraEngine(2).run(op(ComputationNodeType.MULTIPLY,
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(inputs[0])), new ComputationNode(copy(inputs[1]))),
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(inputs[2])), new ComputationNode(copy(inputs[3])))))
+                .getMatrix();
+
+        ComputationNode leaf = new ComputationNode(copy(inputs[0]));
+        ComputationNode root = op(ComputationNodeType.MULTIPLY,
+                op(ComputationNodeType.MULTIPLY, leaf, new ComputationNode(copy(inputs[1]))),
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(inputs[2])), new ComputationNode(copy(inputs[3]))));
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setMemoryBudget(1 << 20);
+        assertMatrixEquals(expected, engine.run(root).getMatrix(), 1e-9);
+
+        MetricsReport metrics = engine.getMetrics();
+        assertThrows(IllegalStateException.class, leaf::getMatrix, "consumed operands are released");
+        assertTrue(metrics.plannedPeakBytes <= 1 << 20);
+        assertTrue(metrics.peakLiveBytes <= metrics.plannedPeakBytes);
+        assertTrue(metrics.peakLiveBytes >= 4 * 60 * 60 * Double.BYTES);
+        assertTrue(metrics.peakHeapBytes > 0);
+        // the column copies of the first products and their results are recycled
+        assertTrue(metrics.buffersReused >= 60, "reused " + metrics.buffersReused);
+    }
+
+    @Test
+    void run_expressionOverMemoryBudget_shouldThrowBeforeComputing() {
+        ComputationNode product = op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(random(100, 100, 65)), new ComputationNode(random(100, 100, 66)));
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(1);
+        engine.setMemoryBudget(100 * 100 * Double.BYTES);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> engine.run(product));
+
+        assertTrue(e.getMessage().startsWith("Memory budget exceeded"));
+        assertEquals(ComputationNodeType.MULTIPLY, product.getNodeType());
+    }
+
+    @Test
+    void run_memoryBudgetWithCriticalPath_shouldThrow() {
+        ComputationNode product = op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(random(10, 10, 67)), new ComputationNode(random(10, 10, 68)));
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setMemoryBudget(1 << 20);
+        engine.setCriticalPathScheduling(true);
+
+        assertThrows(IllegalArgumentException.class, () -> engine.run(product));
+        assertEquals(ComputationNodeType.MULTIPLY, product.getNodeType());
+    }
+
+    @Test
+    void run_rowByColumnResult_shouldKeepTheRowsWhereTheTasksWroteThem() {
+        double[][] a = random(6, 5, 69);
+        ComputationNode leaf = new ComputationNode(a);
+        double[] row = a[2];
+
+        double[][] negated = new LinearAlgebraEngine(2).run(op(ComputationNodeType.NEGATE, leaf)).getMatrix();
+
+        assertSame(row, negated[2]);
+    }
+
+    /**
+     * ((-(A + B) + B) ...): {@code length} operators alternating a sum with B and a negation,
+     * every reference to B sharing its data.
+     */
+    private static ComputationNode elementwiseChain(double[][] a, double[][] b, int length) {
+        ComputationNode shared = new ComputationNode(b);
+        ComputationNode node = new ComputationNode(copy(a));
+        for (int k = 0; k < length; k++) {
+            node = k % 2 == 0
+                    ? op(ComputationNodeType.ADD, node, k == 0 ? shared : shared.share())
+                    : op(ComputationNodeType.NEGATE, node);
+        }
+        return node;
+    }
+
+    @Test
+    void run_withCacheAffinity_shouldMatchTheDefaultScheduling() {
+        double[][] a = random(40, 30, 70);
+        double[][] b = random(40, 30, 71);
+        double[][] c = random(30, 30, 72);
+        double[][] expected = new LinearAlgebraEngine(3).run(op(ComputationNodeType.MULTIPLY,
+                elementwiseChain(a, copy(b), 9), new ComputationNode(copy(c)))).getMatrix();
+        for (boolean criticalPath : new boolean[]{false, true}) {
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+            engine.setCriticalPathScheduling(criticalPath);
+            engine.setCacheAffinity(true);
+
+            assertMatrixEquals(expected, engine.run(op(ComputationNodeType.MULTIPLY,
+                    elementwiseChain(a, copy(b), 9), new ComputationNode(copy(c)))).getMatrix(), 0.0);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_cacheAffinityOnElementwiseChain() {
+        int n = 512; // A and B, 2 MB each, spread over the cores' caches
+        int length = 200;
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        double[][] a = random(n, n, 73);
+        double[][] b = random(n, n, 74);
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            long[] nanos = new long[2];
+            for (int mode = 0; mode < 2; mode++) {
+                LinearAlgebraEngine engine = new LinearAlgebraEngine(threads);
+                engine.setCacheAffinity(mode == 1);
+                ComputationNode chain = elementwiseChain(a, copy(b), length);
+                long t0 = System.nanoTime();
+                engine.run(chain);
+                nanos[mode] = System.nanoTime() - t0;
+            }
+            if (round == 1) {
+                System.out.printf("%dx%d chain of %d operators, threads=%d cores=%d: fatigue=%dms affinity=%dms%n",
+                        n, n, length, threads, Runtime.getRuntime().availableProcessors(),
+                        nanos[0] / 1_000_000, nanos[1] / 1_000_000);
+            }
+        }
+    }
+}
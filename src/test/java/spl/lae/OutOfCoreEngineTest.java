@@ -0,0 +1,162 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutOfCoreEngineTest {
+
+    private static final double EPS = 1e-9;
+
+    @TempDir
+    Path dir;
+
+    private static double[][] random(int rows, int cols, long seed) {
+        Random rnd = new Random(seed);
+        double[][] m = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                m[i][j] = rnd.nextInt(21) - 10;
+            }
+        }
+        return m;
+    }
+
+    private static ComputationNode op(ComputationNodeType type, ComputationNode... children) {
+        return new ComputationNode(type, new ArrayList<>(List.of(children)));
+    }
+
+    private static ComputationNode leaf(double[][] m) {
+        double[][] copy = new double[m.length][];
+        for (int i = 0; i < m.length; i++) copy[i] = m[i].clone();
+        return new ComputationNode(copy);
+    }
+
+    @Test
+    void run_shouldMatchInMemoryEngineWithSmallTiles() {
+        double[][] a = random(37, 23, 1);
+        double[][] b = random(23, 41, 2);
+        double[][] c = random(41, 37, 3);
+
+        // T(-(A * B) + T(C))
+        ComputationNode expected = new LinearAlgebraEngine(3).run(op(ComputationNodeType.TRANSPOSE,
+                op(ComputationNodeType.ADD,
+                        op(ComputationNodeType.NEGATE, op(ComputationNodeType.MULTIPLY, leaf(a), leaf(b))),
+                        op(ComputationNodeType.TRANSPOSE, leaf(c)))));
+
+        OutOfCoreEngine engine = new OutOfCoreEngine(3, 1L << 20, dir, 16);
+        ComputationNode actual = engine.run(op(ComputationNodeType.TRANSPOSE,
+                op(ComputationNodeType.ADD,
+                        op(ComputationNodeType.NEGATE, op(ComputationNodeType.MULTIPLY, leaf(a), leaf(b))),
+                        op(ComputationNodeType.TRANSPOSE, leaf(c)))));
+
+        double[][] e = expected.getMatrix();
+        double[][] r = actual.getMatrix();
+        assertEquals(e.length, r.length);
+        for (int i = 0; i < e.length; i++) {
+            assertArrayEquals(e[i], r[i], EPS);
+        }
+    }
+
+    @Test
+    void run_shouldDeleteAllSpillFiles() throws Exception {
+        OutOfCoreEngine engine = new OutOfCoreEngine(2, 1L << 20, dir, 16);
+
+        engine.run(op(ComputationNodeType.MULTIPLY, leaf(random(20, 20, 4)), leaf(random(20, 20, 5))));
+
+        assertEquals(0, Files.list(dir).count());
+    }
+
+    @Test
+    void run_zeroTimesInfinity_shouldGiveNaNLikeInMemoryEngine() {
+        double[][] a = {{0, 1}, {2, 3}};
+        double[][] b = {{Double.POSITIVE_INFINITY, 1}, {1, 1}};
+
+        double[][] expected = new LinearAlgebraEngine(1).run(
+                op(ComputationNodeType.MULTIPLY, leaf(a), leaf(b))).getMatrix();
+        double[][] actual = new OutOfCoreEngine(1, 1L << 20, dir, 16).run(
+                op(ComputationNodeType.MULTIPLY, leaf(a), leaf(b))).getMatrix();
+
+        assertTrue(Double.isNaN(expected[0][0]));
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void run_dimensionMismatch_shouldThrow() {
+        OutOfCoreEngine engine = new OutOfCoreEngine(2, 1L << 20, dir, 16);
+
+        assertThrows(IllegalArgumentException.class, () -> engine.run(
+                op(ComputationNodeType.ADD, leaf(random(2, 3, 6)), leaf(random(3, 2, 7)))));
+    }
+
+    @Test
+    void run_secondTime_shouldThrow() {
+        OutOfCoreEngine engine = new OutOfCoreEngine(2, 1L << 20, dir, 16);
+        engine.run(op(ComputationNodeType.NEGATE, leaf(random(4, 4, 8))));
+
+        assertThrows(IllegalStateException.class, () -> engine.run(op(ComputationNodeType.NEGATE, leaf(random(4, 4, 9)))));
+    }
+
+    @Test
+    void chooseTileSize_shouldShrinkForSmallBudgets() {
+        assertEquals(512, OutOfCoreEngine.chooseTileSize(4, 1L << 30, 512));
+        assertTrue(OutOfCoreEngine.chooseTileSize(4, 1L << 20, 512) < 512);
+    }
+
+    @Test
+    void run_power_shouldMatchInMemoryEngineAndReleaseIntermediates() throws Exception {
+        double[][] a = random(21, 21, 7);
+        for (int n : new int[]{1, 6, 7}) {
+            double[][] expected = new LinearAlgebraEngine(2).run(
+                    new ComputationNode(new ArrayList<>(List.of(leaf(a))), n)).getMatrix();
+            double[][] actual = new OutOfCoreEngine(2, 1L << 20, dir, 8).run(
+                    new ComputationNode(new ArrayList<>(List.of(leaf(a))), n)).getMatrix();
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], actual[i], Math.abs(expected[i][0]) * 1e-12 + EPS);
+            }
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void run_chainedProductsUnderTightBudget_shouldNotPrefetchReleasedMatrices() throws Exception {
+        double[][] a = random(120, 120, 8);
+        double[][] b = random(120, 120, 9);
+        double[][] c = random(120, 120, 10);
+        AtomicReference<Throwable> uncaught = new AtomicReference<>();
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> uncaught.set(e));
+        try {
+            // (A * B) * C releases A and B while prefetches of their tiles may still be queued
+            ComputationNode expected = new LinearAlgebraEngine(2).run(op(ComputationNodeType.MULTIPLY,
+                    op(ComputationNodeType.MULTIPLY, leaf(a), leaf(b)), leaf(c)));
+            OutOfCoreEngine engine = new OutOfCoreEngine(2, 1L << 16, dir, 16);
+            ComputationNode actual = engine.run(op(ComputationNodeType.MULTIPLY,
+                    op(ComputationNodeType.MULTIPLY, leaf(a), leaf(b)), leaf(c)));
+
+            double[][] e = expected.getMatrix();
+            double[][] r = actual.getMatrix();
+            for (int i = 0; i < e.length; i++) {
+                assertArrayEquals(e[i], r[i], EPS);
+            }
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+        assertNull(uncaught.get());
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.copy;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+
+class ProductBatcherTest {
+
+    private static ComputationNode product(double[][] a, double[][] b) {
+        return op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(a)), new ComputationNode(copy(b)));
+    }
+
+    /** (p0 + p1) + p2, each product computed on its own. */
+    private static double[][] sumOfSeparateProducts(double[][][] lefts, double[][][] rights) {
+        ComputationNode sum = null;
+        for (int i = 0; i < lefts.length; i++) {
+            ComputationNode p = new ComputationNode(new LinearAlgebraEngine(2).run(product(lefts[i], rights[i])).getMatrix());
+            sum = sum == null ? p : op(ComputationNodeType.ADD, sum, p);
+        }
+        return new LinearAlgebraEngine(2).run(sum).getMatrix();
+    }
+
+    private static ComputationNode sumOfProducts(double[][][] lefts, double[][][] rights) {
+        ComputationNode sum = null;
+        for (int i = 0; i < lefts.length; i++) {
+            ComputationNode p = product(lefts[i], rights[i]);
+            sum = sum == null ? p : op(ComputationNodeType.ADD, sum, p);
+        }
+        return sum;
+    }
+
+    private static long batched(MetricsReport metrics) {
+        return metrics.nodes.stream().filter(n -> n.kernel.equals("batched-row-by-column")).count();
+    }
+
+    @Test
+    void sharedLeftOperand_shouldBatchAndMatchBitForBit() {
+        double[][] a = random(30, 20, 1);
+        double[][][] lefts = {a, a, a};
+        double[][][] rights = {random(20, 9, 2), random(20, 9, 3), random(20, 9, 4)};
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+        double[][] actual = engine.run(sumOfProducts(lefts, rights)).getMatrix();
+
+        assertArrayEquals(sumOfSeparateProducts(lefts, rights), actual);
+        assertEquals(3, batched(engine.getMetrics()));
+    }
+
+    @Test
+    void sharedRightOperand_shouldStackLeftOperands() {
+        double[][] b = random(20, 30, 5);
+        double[][][] lefts = {random(30, 20, 6), random(30, 20, 7)};
+        double[][][] rights = {b, b};
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        double[][] actual = engine.run(sumOfProducts(lefts, rights)).getMatrix();
+
+        assertArrayEquals(sumOfSeparateProducts(lefts, rights), actual);
+        assertEquals(2, batched(engine.getMetrics()));
+        assertEquals("row-by-column", engine.getMetrics().nodes.get(2).kernel, "the sum is not a product");
+    }
+
+    @Test
+    void productsWithoutSharedOperands_shouldNotBatch() {
+        double[][][] lefts = {random(10, 10, 8), random(10, 10, 9)};
+        double[][][] rights = {random(10, 10, 10), random(10, 10, 11)};
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.run(sumOfProducts(lefts, rights));
+
+        assertEquals(0, batched(engine.getMetrics()));
+    }
+
+    @Test
+    void plan_shouldMarkProductsOfSharedInputs() {
+        double[][] a = random(8, 6, 12);
+        ComputationNode root = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.ADD, product(a, random(6, 4, 13)), product(a, random(6, 4, 14))),
+                product(random(8, 6, 15), random(6, 4, 16)));
+
+        ExecutionPlan plan = ExecutionPlanner.plan(root);
+
+        assertEquals("batched-row-by-column", plan.steps.get(0).kernel);
+        assertEquals("batched-row-by-column", plan.steps.get(1).kernel);
+        assertEquals("row-by-column", plan.steps.get(3).kernel);
+    }
+}
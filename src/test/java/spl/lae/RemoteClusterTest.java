@@ -0,0 +1,115 @@
+package spl.lae;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.assertMatrixEquals;
+import static spl.lae.LinearAlgebraEngineTest.copy;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+
+/**
+ * Runs the distributed path against worker JVMs launched on this host.
+ */
+class RemoteClusterTest {
+
+    private static final int WORKERS = 3;
+    private static final List<Process> processes = new ArrayList<>();
+    private static final List<InetSocketAddress> addresses = new ArrayList<>();
+
+    @BeforeAll
+    static void launchWorkers() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for (int i = 0; i < WORKERS; i++) {
+            Process p = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    RemoteWorker.class.getName(), "0", "1")
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            processes.add(p);
+            BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8));
+            String line = out.readLine();
+            assertNotNull(line, "worker exited before listening");
+            addresses.add(new InetSocketAddress("127.0.0.1", Integer.parseInt(line.substring("Listening on ".length()))));
+        }
+    }
+
+    @AfterAll
+    static void stopWorkers() throws InterruptedException {
+        for (Process p : processes) {
+            p.destroy();
+            p.waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void multiplyAndAdd_shouldMatchLocalResults() throws IOException {
+        double[][] a = random(37, 23, 1);
+        double[][] b = random(23, 19, 2);
+        double[][] c = random(37, 19, 3);
+        double[][] expectedProduct = new LinearAlgebraEngine(1).run(
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(a)), new ComputationNode(copy(b)))).getMatrix();
+        double[][] expectedSum = new LinearAlgebraEngine(1).run(
+                op(ComputationNodeType.ADD, new ComputationNode(copy(c)), new ComputationNode(copy(expectedProduct)))).getMatrix();
+
+        try (RemoteCluster cluster = new RemoteCluster(addresses)) {
+            double[][] product = cluster.multiply(a, b);
+            assertMatrixEquals(expectedProduct, product, 0);
+            assertMatrixEquals(expectedSum, cluster.add(c, product), 0);
+            // fewer rows than workers
+            assertMatrixEquals(new double[][]{{a[0][0] * 2}}, cluster.multiply(new double[][]{{a[0][0]}}, new double[][]{{2}}), 0);
+        }
+    }
+
+    @Test
+    void engine_shouldDistributeLargeProductsOnly() throws IOException {
+        double[][] a = random(60, 40, 4);
+        double[][] b = random(40, 60, 5);
+        double[][] c = random(60, 60, 6);
+        // -(A * B) + C
+        ComputationNode local = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.NEGATE, op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(a)), new ComputationNode(copy(b)))),
+                new ComputationNode(copy(c)));
+        ComputationNode distributed = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.NEGATE, op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(a)), new ComputationNode(copy(b)))),
+                new ComputationNode(copy(c)));
+        double[][] expected = new LinearAlgebraEngine(2).run(local).getMatrix();
+
+        try (RemoteCluster cluster = new RemoteCluster(addresses)) {
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+            engine.setRemoteCluster(cluster);
+            assertMatrixEquals(expected, engine.run(distributed).getMatrix(), 0);
+            List<MetricsReport.NodeMetrics> nodes = engine.getMetrics().nodes;
+            assertEquals("remote", nodes.get(0).kernel);
+            assertEquals("row-by-column", nodes.get(2).kernel, "sums stay local");
+        }
+    }
+
+    @Test
+    void workerErrors_shouldSurfaceAndLeaveConnectionsUsable() throws IOException {
+        try (RemoteCluster cluster = new RemoteCluster(addresses)) {
+            assertThrows(IllegalArgumentException.class, () -> cluster.multiply(random(4, 3, 1), random(4, 3, 2)));
+            assertMatrixEquals(new double[][]{{6}}, cluster.multiply(new double[][]{{2}}, new double[][]{{3}}), 0);
+        }
+    }
+
+    @Test
+    void parseAddresses_shouldRejectMalformedEntries() {
+        assertEquals(2, RemoteCluster.parseAddresses("localhost:7001,127.0.0.1:7002").size());
+        assertThrows(IllegalArgumentException.class, () -> RemoteCluster.parseAddresses("localhost"));
+        assertThrows(IllegalArgumentException.class, () -> RemoteCluster.parseAddresses("localhost:0"));
+    }
+}
@@ -0,0 +1,159 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.assertMatrixEquals;
+import static spl.lae.LinearAlgebraEngineTest.copy;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+import static spl.lae.LinearAlgebraEngineTest.randomSparse;
+import static spl.lae.LinearAlgebraEngineTest.sparse;
+import static spl.lae.LinearAlgebraEngineTest.toFloat;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private static ComputationNode product(double[][] a, double[][] b) {
+        return op(ComputationNodeType.NEGATE,
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(a)), new ComputationNode(copy(b))));
+    }
+
+    @Test
+    void storeAndLoad_shouldRoundTripEveryRepresentation() {
+        ResultCache cache = new ResultCache(dir, 1 << 20);
+        double[][] dense = random(7, 5, 1);
+        float[][] single = toFloat(random(4, 6, 2));
+        double[][] sparseData = randomSparse(20, 30, 0.05, 3);
+
+        assertTrue(cache.store("d", new ComputationNode(dense)));
+        assertTrue(cache.store("f", new ComputationNode(single)));
+        assertTrue(cache.store("s", sparse(sparseData)));
+        assertFalse(cache.store("d", new ComputationNode(dense)), "existing entries are not rewritten");
+
+        // a fresh instance sees the entries of the previous one
+        ResultCache reopened = new ResultCache(dir, 1 << 20);
+        assertEquals(3, reopened.getEntryCount());
+
+        ComputationNode d = op(ComputationNodeType.NEGATE, new ComputationNode(random(1, 1, 9)));
+        assertTrue(reopened.load("d", d));
+        assertEquals(ComputationNodeType.MATRIX, d.getNodeType());
+        assertMatrixEquals(dense, d.getMatrix(), 0);
+
+        ComputationNode f = op(ComputationNodeType.NEGATE, new ComputationNode(random(1, 1, 9)));
+        assertTrue(reopened.load("f", f));
+        assertTrue(f.isSinglePrecision());
+        assertArrayEquals(single, f.getFloatMatrix());
+
+        ComputationNode s = op(ComputationNodeType.NEGATE, new ComputationNode(random(1, 1, 9)));
+        assertTrue(reopened.load("s", s));
+        assertTrue(s.isSparse());
+        assertMatrixEquals(sparseData, s.getSparseMatrix().toDense(), 0);
+
+        assertFalse(reopened.load("missing", op(ComputationNodeType.NEGATE, new ComputationNode(random(1, 1, 9)))));
+        assertEquals(3, reopened.getHits());
+    }
+
+    @Test
+    void store_shouldEvictLeastRecentlyUsedEntriesOverBudget() {
+        // header + 10x10 doubles per entry; room for two
+        long entry = 14 + 10 * 10 * Double.BYTES;
+        ResultCache cache = new ResultCache(dir, 2 * entry + 10);
+        cache.store("a", new ComputationNode(random(10, 10, 1)));
+        cache.store("b", new ComputationNode(random(10, 10, 2)));
+        assertTrue(cache.load("a", op(ComputationNodeType.NEGATE, new ComputationNode(random(1, 1, 3)))));
+
+        cache.store("c", new ComputationNode(random(10, 10, 4)));
+
+        assertEquals(2, cache.getEntryCount());
+        assertTrue(cache.getUsedBytes() <= 2 * entry + 10);
+        assertFalse(Files.exists(dir.resolve("b.bin")), "b was the least recently used");
+        assertTrue(Files.exists(dir.resolve("a.bin")));
+        assertTrue(Files.exists(dir.resolve("c.bin")));
+    }
+
+    @Test
+    void load_shouldTreatCorruptEntryAsMiss() throws IOException {
+        ResultCache cache = new ResultCache(dir, 1 << 20);
+        cache.store("x", new ComputationNode(random(8, 8, 1)));
+        Files.write(dir.resolve("x.bin"), new byte[]{1, 2, 3});
+
+        ComputationNode node = op(ComputationNodeType.NEGATE, new ComputationNode(random(2, 2, 2)));
+        assertFalse(cache.load("x", node));
+        assertEquals(ComputationNodeType.NEGATE, node.getNodeType());
+        assertFalse(Files.exists(dir.resolve("x.bin")));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    private static byte[] entry(char kind, int rows, int cols, int... ints) {
+        ByteBuffer buf = ByteBuffer.allocate(14 + ints.length * Integer.BYTES);
+        buf.putInt(0x4C414543).put((byte) 1).put((byte) kind).putInt(rows).putInt(cols);
+        for (int v : ints) buf.putInt(v);
+        return buf.array();
+    }
+
+    @Test
+    void load_shouldTreatInconsistentHeadersAsMisses() throws IOException {
+        byte[][] corrupt = {
+                entry('D', -1, 4),
+                entry('D', 4, -1),
+                entry('D', Integer.MAX_VALUE, Integer.MAX_VALUE),
+                entry('D', Integer.MAX_VALUE, 0),
+                entry('F', 3, 3),
+                entry('S', 2, 2, -5),
+                entry('S', 2, 2, Integer.MAX_VALUE),
+                // sizes match, but the second row ends before it starts
+                entry('S', 2, 2, 0, 0, 1, 0),
+                entry('X', 0, 0),
+        };
+        for (byte[] bytes : corrupt) {
+            ResultCache cache = new ResultCache(dir, 1 << 20);
+            cache.store("x", new ComputationNode(random(2, 2, 1)));
+            Files.write(dir.resolve("x.bin"), bytes);
+
+            ComputationNode node = op(ComputationNodeType.NEGATE, new ComputationNode(random(2, 2, 2)));
+            assertFalse(cache.load("x", node));
+            assertEquals(ComputationNodeType.NEGATE, node.getNodeType());
+            assertEquals(0, cache.getEntryCount());
+        }
+    }
+
+    @Test
+    void engine_shouldReuseCachedResultsAcrossRuns() {
+        double[][] a = random(12, 9, 1);
+        double[][] b = random(9, 10, 2);
+
+        LinearAlgebraEngine first = new LinearAlgebraEngine(2);
+        first.setResultCache(new ResultCache(dir, 1 << 20));
+        double[][] expected = first.run(product(a, b)).getMatrix();
+        assertEquals(0, first.getMetrics().cacheHits);
+        assertEquals(1, first.getMetrics().cacheStores, "only the multiply is worth caching");
+
+        LinearAlgebraEngine second = new LinearAlgebraEngine(2);
+        second.setResultCache(new ResultCache(dir, 1 << 20));
+        ComputationNode again = product(a, b);
+        assertMatrixEquals(expected, second.run(again).getMatrix(), 0);
+        assertEquals(1, second.getMetrics().cacheHits);
+        assertEquals(1, second.getMetrics().nodes.size(), "only the negate was computed");
+        assertEquals("NEGATE", second.getMetrics().nodes.get(0).operator);
+
+        // a changed leaf changes the hash
+        double[][] changed = copy(b);
+        changed[3][4] += 1;
+        LinearAlgebraEngine third = new LinearAlgebraEngine(2);
+        third.setResultCache(new ResultCache(dir, 1 << 20));
+        third.run(product(a, changed));
+        assertEquals(0, third.getMetrics().cacheHits);
+        assertEquals(2, third.getMetrics().nodes.size());
+    }
+}
@@ -0,0 +1,127 @@
+package spl.lae;
+
+import memory.SparseMatrix;
+import memory.VectorOrientation;
+import org.junit.jupiter.api.Test;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.copy;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+import static spl.lae.LinearAlgebraEngineTest.toFloat;
+
+class ResultVerifierTest {
+
+    private static double[][] multiply(double[][] a, double[][] b) {
+        double[][] c = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int t = 0; t < b.length; t++) {
+                for (int j = 0; j < b[0].length; j++) {
+                    c[i][j] += a[i][t] * b[t][j];
+                }
+            }
+        }
+        return c;
+    }
+
+    private static double[][] diagonal(int n, long seed) {
+        double[][] d = new double[n][n];
+        double[][] r = random(1, n, seed);
+        for (int i = 0; i < n; i++) d[i][i] = r[0][i];
+        return d;
+    }
+
+    @Test
+    void run_withVerification_shouldPassEveryKernel() {
+        double[][] sparse = new double[80][80];
+        for (int i = 0; i < 80; i++) sparse[i][(i * 7) % 80] = i + 1;
+        ComputationNode root = op(ComputationNodeType.ADD,
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(random(80, 80, 1)), new ComputationNode(random(80, 80, 2))),
+                op(ComputationNodeType.ADD,
+                        op(ComputationNodeType.MULTIPLY, new ComputationNode(diagonal(80, 3)), new ComputationNode(random(80, 80, 4))),
+                        op(ComputationNodeType.MULTIPLY,
+                                new ComputationNode(SparseMatrix.fromDense(sparse, VectorOrientation.ROW_MAJOR)),
+                                op(ComputationNodeType.MULTIPLY, new ComputationNode(random(80, 1, 5)), new ComputationNode(random(1, 80, 6))))));
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setStrassenThreshold(64);
+        engine.setVerification(2);
+        engine.run(root);
+
+        MetricsReport metrics = engine.getMetrics();
+        assertEquals(6, metrics.verifiedNodes);
+        assertTrue(metrics.nodes.stream().anyMatch(m -> "strassen-winograd".equals(m.kernel)));
+        assertTrue(metrics.nodes.stream().anyMatch(m -> StructureKernels.DIAGONAL.equals(m.kernel)));
+        assertTrue(metrics.nodes.stream().anyMatch(m -> ShapeKernels.OUTER.equals(m.kernel)));
+        assertTrue(metrics.nodes.stream().anyMatch(m -> "sparse".equals(m.kernel)));
+    }
+
+    @Test
+    void run_float32AndCriticalPath_shouldPassVerification() {
+        ComputationNode root = op(ComputationNodeType.MULTIPLY,
+                op(ComputationNodeType.ADD, new ComputationNode(toFloat(random(50, 70, 7))), new ComputationNode(toFloat(random(50, 70, 8)))),
+                new ComputationNode(toFloat(random(70, 40, 9))));
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+        engine.setCriticalPathScheduling(true);
+        engine.setVerification(3);
+        engine.run(root);
+        assertEquals(2, engine.getMetrics().verifiedNodes);
+    }
+
+    @Test
+    void run_power_shouldVerifyEveryProduct() {
+        // A^7: squarings A^2 and A^4, products A * A^2 and A^3 * A^4
+        ComputationNode power = new ComputationNode(new ArrayList<>(List.of(new ComputationNode(random(30, 30, 13)))), 7);
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setVerification(2);
+        engine.run(power);
+        assertEquals(4, engine.getMetrics().verifiedNodes);
+    }
+
+    @Test
+    void verify_corruptedProduct_shouldFail() {
+        double[][] a = random(60, 50, 10);
+        double[][] b = random(50, 40, 11);
+        ComputationNode product = op(ComputationNodeType.MULTIPLY, new ComputationNode(a), new ComputationNode(b));
+        ResultVerifier verifier = new ResultVerifier(1, 12);
+        ResultVerifier.Check check = verifier.prepare(product, null, 1);
+
+        double[][] c = multiply(a, b);
+        c[17][23] += 1e-6;
+        product.resolve(c);
+        ResultVerificationException e = assertThrows(ResultVerificationException.class,
+                () -> verifier.verify(check, product, null, 1));
+        assertTrue(e.getMessage().contains("MULTIPLY result (60x40)"), e.getMessage());
+        assertTrue(e.getMessage().contains("row 17"), e.getMessage());
+
+        product.resolve(multiply(a, b));
+        assertDoesNotThrow(() -> verifier.verify(check, product, null, 1));
+    }
+
+    @Test
+    void verify_corruptedSum_shouldFailTheChecksum() {
+        double[][] a = random(30, 30, 13);
+        double[][] b = random(30, 30, 14);
+        double[][] sum = copy(a);
+        for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < 30; j++) sum[i][j] += b[i][j];
+        }
+        ComputationNode node = op(ComputationNodeType.ADD, new ComputationNode(a), new ComputationNode(b));
+        ResultVerifier verifier = new ResultVerifier(1, 15); // the checksum only
+        ResultVerifier.Check check = verifier.prepare(node, null, 1);
+
+        sum[4][9] = Double.NaN;
+        node.resolve(sum);
+        assertThrows(ResultVerificationException.class, () -> verifier.verify(check, node, null, 1));
+    }
+
+    @Test
+    void prepare_otherOperators_shouldNotBeChecked() {
+        ComputationNode negate = op(ComputationNodeType.NEGATE, new ComputationNode(random(3, 3, 16)));
+        assertNull(new ResultVerifier(2, 17).prepare(negate, null, 1));
+    }
+}
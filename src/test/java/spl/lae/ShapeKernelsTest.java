@@ -0,0 +1,111 @@
+package spl.lae;
+
+import memory.SharedMatrix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.TiredExecutor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+
+class ShapeKernelsTest {
+
+    /** The general path's arithmetic: one dot product per element, summed from 0.0 upwards. */
+    private static double[][] classical(double[][] a, double[][] b) {
+        double[][] c = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b[0].length; j++) {
+                double sum = 0.0;
+                for (int t = 0; t < b.length; t++) {
+                    sum += a[i][t] * b[t][j];
+                }
+                c[i][j] = sum;
+            }
+        }
+        return c;
+    }
+
+    private static void assertKernel(String kernel, int m, int k, int n) {
+        double[][] a = random(m, k, m + 31L * k);
+        double[][] b = random(k, n, k + 31L * n);
+        a[0][0] = -0.0;
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+        ComputationNode result = engine.run(op(ComputationNodeType.MULTIPLY, new ComputationNode(a), new ComputationNode(b)));
+
+        assertEquals(kernel, engine.getMetrics().nodes.get(0).kernel, m + "x" + k + " * " + k + "x" + n);
+        assertArrayEquals(classical(a, b), result.getMatrix(), m + "x" + k + " * " + k + "x" + n); // bitwise
+    }
+
+    @Test
+    void vectorShapes_shouldUseSpecializedKernels() {
+        assertKernel(ShapeKernels.GEMV, 50, 40, 1);
+        assertKernel(ShapeKernels.VECTOR_MATRIX, 1, 40, 50);
+        assertKernel(ShapeKernels.OUTER, 50, 1, 40);
+        assertKernel(ShapeKernels.SCALE, 50, 1, 1);
+        assertKernel(ShapeKernels.SCALE, 1, 1, 50);
+        assertKernel(ShapeKernels.SCALE, 1, 1, 1);
+        assertKernel(ShapeKernels.GEMV, 1, 40, 1); // a dot product
+        assertKernel("row-by-column", 5, 4, 3);
+    }
+
+    @Test
+    void plan_shouldNameTheSameKernels() {
+        ComputationNode root = op(ComputationNodeType.MULTIPLY,
+                op(ComputationNodeType.MULTIPLY, new ComputationNode(random(6, 1, 1)), new ComputationNode(random(1, 5, 2))),
+                new ComputationNode(random(5, 1, 3)));
+
+        ExecutionPlan plan = ExecutionPlanner.plan(root);
+
+        assertEquals(ShapeKernels.OUTER, plan.steps.get(0).kernel);
+        assertEquals(ShapeKernels.GEMV, plan.steps.get(1).kernel);
+        assertEquals((6 * 5 + 5 + 6) * Double.BYTES, plan.steps.get(1).bytesMoved, "no layout copy");
+    }
+
+    @Test
+    void mismatchedVector_shouldStillThrow() {
+        ComputationNode root = op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(random(4, 3, 1)), new ComputationNode(random(2, 1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> new LinearAlgebraEngine(1).run(root));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_againstGeneralPath() throws InterruptedException {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int[][] shapes = {{4000, 4000, 1}, {1, 4000, 4000}, {4000, 1, 4000}, {1_000_000, 1, 1}};
+        TiredExecutor executor = new TiredExecutor(threads);
+        LinearAlgebraEngine general = new LinearAlgebraEngine(threads); // only used to lay out and split the work
+        try {
+            for (int[] s : shapes) {
+                double[][] a = random(s[0], s[1], 1);
+                double[][] b = random(s[1], s[2], 2);
+                long[] nanos = new long[2];
+                for (int round = 0; round < 3; round++) { // the last round is measured
+                    long t0 = System.nanoTime();
+                    SharedMatrix left = new SharedMatrix();
+                    SharedMatrix right = new SharedMatrix();
+                    general.loadOperands(ComputationNodeType.MULTIPLY,
+                            List.of(new ComputationNode(a), new ComputationNode(b)), left, right);
+                    executor.submitAll(general.createTasks(ComputationNodeType.MULTIPLY, left, right));
+                    double[][] expected = left.readRowMajor();
+                    nanos[0] = System.nanoTime() - t0;
+
+                    t0 = System.nanoTime();
+                    double[][] actual = ShapeKernels.multiply(executor, threads, a, b);
+                    nanos[1] = System.nanoTime() - t0;
+                    assertArrayEquals(expected, actual);
+                }
+                System.out.printf("%dx%d * %dx%d (%s) threads=%d cores=%d: general=%dms specialized=%dms%n",
+                        s[0], s[1], s[1], s[2], ShapeKernels.kernelFor(s[0], s[1], s[2]), threads,
+                        Runtime.getRuntime().availableProcessors(), nanos[0] / 1_000_000, nanos[1] / 1_000_000);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.TiredExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.copy;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+
+class StrassenMultiplierTest {
+
+    private static double[][] classical(double[][] a, double[][] b) {
+        double[][] c = new double[a.length][b[0].length];
+        StrassenMultiplier.classical(a, b, c);
+        return c;
+    }
+
+    private static double maxError(double[][] expected, double[][] actual) {
+        double max = 0.0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected[i].length; j++) {
+                max = Math.max(max, Math.abs(expected[i][j] - actual[i][j]));
+            }
+        }
+        return max;
+    }
+
+    @Test
+    void multiply_severalLevelsWithPadding_shouldMatchClassical() throws Exception {
+        int n = 200;
+        double[][] a = random(n, n, 31);
+        double[][] b = random(n, n, 32);
+        TiredExecutor executor = new TiredExecutor(3);
+
+        double[][] c = StrassenMultiplier.multiply(executor, 3, a, b, 16);
+        executor.shutdown();
+
+        assertEquals(n, c.length);
+        assertEquals(n, c[0].length);
+        // entries are bounded by n; Strassen loses a few digits relative to classical
+        assertTrue(maxError(classical(a, b), c) < 1e-10 * n);
+    }
+
+    @Test
+    void multiply_twoParallelLevels_shouldMatchClassical() throws Exception {
+        int n = 96;
+        double[][] a = random(n, n, 33);
+        double[][] b = random(n, n, 34);
+        TiredExecutor executor = new TiredExecutor(9);
+
+        double[][] c = StrassenMultiplier.multiply(executor, 9, a, b, 8);
+        executor.shutdown();
+
+        assertTrue(maxError(classical(a, b), c) < 1e-10 * n);
+    }
+
+    @Test
+    void engine_aboveThreshold_shouldMatchRowByColumnPath() {
+        int n = 130;
+        double[][] a = random(n, n, 35);
+        double[][] b = random(n, n, 36);
+
+        double[][] expected = new LinearAlgebraEngine(2).run(op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(copy(a)), new ComputationNode(copy(b)))).getMatrix();
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.setStrassenThreshold(64);
+        double[][] actual = engine.run(op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(copy(a)), new ComputationNode(copy(b)))).getMatrix();
+
+        assertTrue(maxError(expected, actual) < 1e-10 * n);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_strassenVersusClassicalKernel() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int n : new int[]{2048, 4096}) {
+            double[][] a = random(n, n, 37);
+            double[][] b = random(n, n, 38);
+
+            long t0 = System.nanoTime();
+            double[][] expected = classical(a, b);
+            long classicalNanos = System.nanoTime() - t0;
+
+            TiredExecutor executor = new TiredExecutor(threads);
+            t0 = System.nanoTime();
+            double[][] actual = StrassenMultiplier.multiply(executor, threads, a, b, StrassenMultiplier.DEFAULT_CUTOFF);
+            long strassenNanos = System.nanoTime() - t0;
+            executor.shutdown();
+
+            System.out.printf("n=%d threads=%d blocked-classical=%dms strassen=%dms maxError=%.3g%n",
+                    n, threads, classicalNanos / 1_000_000, strassenNanos / 1_000_000, maxError(expected, actual));
+            assertTrue(maxError(expected, actual) < 1e-10 * n);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_strassenVersusRowByColumnPath() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int n = 1024;
+        double[][] a = random(n, n, 39);
+        double[][] b = random(n, n, 40);
+
+        LinearAlgebraEngine classicalEngine = new LinearAlgebraEngine(threads);
+        classicalEngine.setStrassenThreshold(Integer.MAX_VALUE);
+        long t0 = System.nanoTime();
+        double[][] expected = classicalEngine.run(op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(copy(a)), new ComputationNode(copy(b)))).getMatrix();
+        long classicalNanos = System.nanoTime() - t0;
+
+        LinearAlgebraEngine strassenEngine = new LinearAlgebraEngine(threads);
+        strassenEngine.setStrassenThreshold(n);
+        t0 = System.nanoTime();
+        double[][] actual = strassenEngine.run(op(ComputationNodeType.MULTIPLY,
+                new ComputationNode(copy(a)), new ComputationNode(copy(b)))).getMatrix();
+        long strassenNanos = System.nanoTime() - t0;
+
+        System.out.printf("n=%d threads=%d row-by-column=%dms strassen=%dms maxError=%.3g%n",
+                n, threads, classicalNanos / 1_000_000, strassenNanos / 1_000_000, maxError(expected, actual));
+        assertTrue(maxError(expected, actual) < 1e-10 * n);
+    }
+}
@@ -0,0 +1,151 @@
+package spl.lae;
+
+import memory.SharedMatrix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import scheduling.TiredExecutor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static spl.lae.LinearAlgebraEngineTest.copy;
+import static spl.lae.LinearAlgebraEngineTest.op;
+import static spl.lae.LinearAlgebraEngineTest.random;
+import static spl.lae.StructureKernels.Structure;
+
+class StructureKernelsTest {
+
+    /** The general path's arithmetic: one dot product per element, summed from 0.0 upwards. */
+    private static double[][] classical(double[][] a, double[][] b) {
+        double[][] c = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b[0].length; j++) {
+                double sum = 0.0;
+                for (int t = 0; t < b.length; t++) {
+                    sum += a[i][t] * b[t][j];
+                }
+                c[i][j] = sum;
+            }
+        }
+        return c;
+    }
+
+    private static double[][] transpose(double[][] m) {
+        double[][] t = new double[m[0].length][m.length];
+        for (int i = 0; i < m.length; i++) {
+            for (int j = 0; j < m[0].length; j++) t[j][i] = m[i][j];
+        }
+        return t;
+    }
+
+    /** Keeps the entries on the diagonal and, if asked, below or above it. */
+    private static double[][] masked(double[][] m, boolean below, boolean above) {
+        double[][] r = copy(m);
+        for (int i = 0; i < r.length; i++) {
+            for (int j = 0; j < r.length; j++) {
+                if ((j < i && !below) || (j > i && !above)) r[i][j] = 0;
+            }
+        }
+        return r;
+    }
+
+    private static void assertProduct(String kernel, double[][] a, double[][] b) {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+        ComputationNode result = engine.run(op(ComputationNodeType.MULTIPLY, new ComputationNode(copy(a)), new ComputationNode(copy(b))));
+        assertEquals(kernel, engine.getMetrics().nodes.get(0).kernel);
+        assertArrayEquals(classical(a, b), result.getMatrix()); // bitwise
+    }
+
+    @Test
+    void structureOf_shouldClassifyZeroPatterns() {
+        double[][] m = random(5, 5, 1);
+        assertEquals(Structure.GENERAL, Structure.of(m));
+        assertEquals(Structure.DIAGONAL, Structure.of(masked(m, false, false)));
+        assertEquals(Structure.LOWER, Structure.of(masked(m, true, false)));
+        assertEquals(Structure.UPPER, Structure.of(masked(m, false, true)));
+        assertEquals(Structure.GENERAL, Structure.of(random(4, 5, 2)), "not square");
+    }
+
+    @Test
+    void diagonalAndTriangularOperands_shouldUseStructureKernels() {
+        double[][] square = random(40, 40, 3);
+        double[][] other = random(40, 25, 4);
+        double[][] wide = random(25, 40, 5);
+        assertProduct(StructureKernels.DIAGONAL, masked(square, false, false), other);
+        assertProduct(StructureKernels.DIAGONAL, wide, masked(square, false, false));
+        assertProduct(StructureKernels.TRIANGULAR, masked(square, true, false), other);
+        assertProduct(StructureKernels.TRIANGULAR, masked(square, false, true), other);
+        assertProduct(StructureKernels.TRIANGULAR, wide, masked(square, true, false));
+        assertProduct(StructureKernels.TRIANGULAR, wide, masked(square, false, true));
+        assertProduct("row-by-column", wide, square);
+    }
+
+    @Test
+    void productWithOwnTranspose_shouldComputeHalfAndMirror() {
+        double[][] a = random(30, 17, 6);
+        for (boolean transposeFirst : new boolean[]{false, true}) {
+            ComputationNode x = new ComputationNode(copy(a));
+            ComputationNode t = op(ComputationNodeType.TRANSPOSE, new ComputationNode(copy(a)));
+            ComputationNode root = transposeFirst ? op(ComputationNodeType.MULTIPLY, t, x) : op(ComputationNodeType.MULTIPLY, x, t);
+            assertTrue(root.isTransposeProduct());
+            assertEquals(StructureKernels.SYMMETRIC, ExecutionPlanner.plan(root).steps.get(1).kernel);
+
+            LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+            double[][] result = engine.run(root).getMatrix();
+
+            assertEquals(StructureKernels.SYMMETRIC, engine.getMetrics().nodes.get(1).kernel);
+            double[][] expected = transposeFirst ? classical(transpose(a), a) : classical(a, transpose(a));
+            assertArrayEquals(expected, result);
+        }
+        ComputationNode different = op(ComputationNodeType.MULTIPLY, new ComputationNode(random(3, 4, 7)),
+                op(ComputationNodeType.TRANSPOSE, new ComputationNode(random(3, 4, 8))));
+        assertFalse(different.isTransposeProduct());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bench", matches = "true")
+    void benchmark_againstGeneralPath() throws InterruptedException {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int n = 1200;
+        double[][] square = random(n, n, 1);
+        double[][][][] cases = {
+                {masked(square, false, false), random(n, n, 2)},
+                {masked(square, true, false), random(n, n, 3)},
+                {random(n, n, 4), masked(square, false, true)},
+                {square, transpose(square)},
+        };
+        String[] kernels = {StructureKernels.DIAGONAL, StructureKernels.TRIANGULAR, StructureKernels.TRIANGULAR, StructureKernels.SYMMETRIC};
+        TiredExecutor executor = new TiredExecutor(threads);
+        LinearAlgebraEngine general = new LinearAlgebraEngine(threads); // only used to lay out and split the work
+        try {
+            for (int c = 0; c < cases.length; c++) {
+                double[][] a = cases[c][0];
+                double[][] b = cases[c][1];
+                Structure sa = Structure.of(a);
+                Structure sb = Structure.of(b);
+                long[] nanos = new long[2];
+                for (int round = 0; round < 2; round++) { // the last round is measured
+                    long t0 = System.nanoTime();
+                    SharedMatrix left = new SharedMatrix();
+                    SharedMatrix right = new SharedMatrix();
+                    general.loadOperands(ComputationNodeType.MULTIPLY,
+                            List.of(new ComputationNode(a), new ComputationNode(b)), left, right);
+                    executor.submitAll(general.createTasks(ComputationNodeType.MULTIPLY, left, right));
+                    double[][] expected = left.readRowMajor();
+                    nanos[0] = System.nanoTime() - t0;
+
+                    t0 = System.nanoTime();
+                    double[][] actual = StructureKernels.multiply(executor, threads, kernels[c], a, sa, b, sb);
+                    nanos[1] = System.nanoTime() - t0;
+                    assertArrayEquals(expected, actual);
+                }
+                System.out.printf("%d (%s %s x %s) threads=%d cores=%d: general=%dms structured=%dms%n", n, kernels[c],
+                        sa, sb, threads, Runtime.getRuntime().availableProcessors(), nanos[0] / 1_000_000, nanos[1] / 1_000_000);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}